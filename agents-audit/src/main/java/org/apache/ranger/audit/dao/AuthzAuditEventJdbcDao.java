@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.audit.entity.AuthzAuditEventDbObj;
+
+/**
+ * Inserts audit events to xa_access_audit with plain JDBC batches, without
+ * going through the entity manager. Column values are taken from
+ * AuthzAuditEventDbObj, so that truncation is same as the JPA path.
+ * <p>
+ * When useMultiRowInsert is true, and the database is MySQL or Postgres,
+ * each batch is inserted with one INSERT having multiple VALUES rows;
+ * otherwise with addBatch()/executeBatch() of a single row INSERT.
+ * <p>
+ * Not thread-safe, as the connection holds the transaction; DBAuditDestination
+ * gives each sending thread its own instance.
+ */
+public class AuthzAuditEventJdbcDao {
+	private static final Log LOG = LogFactory.getLog(AuthzAuditEventJdbcDao.class);
+
+	enum DbFlavor { MYSQL, POSTGRES, ORACLE, SQLSERVER, SQLANYWHERE, OTHER }
+
+	static final String TABLE_NAME = "xa_access_audit";
+	static final String[] COLUMNS = {
+		"repo_type", "repo_name", "request_user", "event_time", "access_type",
+		"resource_path", "resource_type", "action", "access_result", "agent_id",
+		"policy_id", "result_reason", "acl_enforcer", "session_id", "client_type",
+		"client_ip", "request_data", "seq_num", "event_count", "event_dur_ms", "tags"
+	};
+	static final String ORACLE_ID_SEQUENCE = "XA_ACCESS_AUDIT_SEQ";
+
+	private final DbFlavor   dbFlavor;
+	private final int        batchSize;
+	private final boolean    useMultiRowInsert;
+	private final Connection connection;
+
+	private PreparedStatement batchStmt = null; // single row INSERT, or a full multi-row INSERT
+
+	public AuthzAuditEventJdbcDao(String jdbcUrl, String user, String password, int batchSize, boolean useMultiRowInsert) throws SQLException {
+		this(DriverManager.getConnection(jdbcUrl, user, password), getDbFlavor(jdbcUrl), batchSize, useMultiRowInsert);
+	}
+
+	AuthzAuditEventJdbcDao(Connection connection, DbFlavor dbFlavor, int batchSize, boolean useMultiRowInsert) throws SQLException {
+		this.dbFlavor          = dbFlavor;
+		this.batchSize         = batchSize < 1 ? 1 : batchSize;
+		this.useMultiRowInsert = useMultiRowInsert && (dbFlavor == DbFlavor.MYSQL || dbFlavor == DbFlavor.POSTGRES);
+		this.connection        = connection;
+
+		connection.setAutoCommit(false);
+
+		if (useMultiRowInsert && !this.useMultiRowInsert) {
+			LOG.info("multi-row insert is not supported for " + dbFlavor + "; will use JDBC batches");
+		}
+	}
+
+	public boolean isClosed() {
+		try {
+			return connection.isClosed();
+		} catch (SQLException excp) {
+			return true;
+		}
+	}
+
+	/**
+	 * Inserts all the given events in one transaction; on failure, the
+	 * transaction is rolled back
+	 */
+	public void insert(List<AuthzAuditEventDbObj> events) throws SQLException {
+		try {
+			if (useMultiRowInsert) {
+				insertMultiRow(events);
+			} else {
+				insertBatch(events);
+			}
+
+			connection.commit();
+		} catch (SQLException excp) {
+			try {
+				connection.rollback();
+			} catch (SQLException rollbackExcp) {
+				LOG.warn("AuthzAuditEventJdbcDao.insert(): rollback failed", rollbackExcp);
+			}
+
+			throw excp;
+		}
+	}
+
+	public void close() {
+		try {
+			if (batchStmt != null) {
+				batchStmt.close();
+			}
+		} catch (SQLException excp) {
+			LOG.warn("AuthzAuditEventJdbcDao.close(): failed to close statement", excp);
+		} finally {
+			batchStmt = null;
+		}
+
+		try {
+			connection.close();
+		} catch (SQLException excp) {
+			LOG.warn("AuthzAuditEventJdbcDao.close(): failed to close connection", excp);
+		}
+	}
+
+	private void insertBatch(List<AuthzAuditEventDbObj> events) throws SQLException {
+		if (batchStmt == null) {
+			batchStmt = connection.prepareStatement(getInsertSql(dbFlavor, 1));
+		}
+
+		int count = 0;
+
+		for (AuthzAuditEventDbObj event : events) {
+			setValues(batchStmt, 0, event);
+
+			batchStmt.addBatch();
+
+			if (++count % batchSize == 0) {
+				batchStmt.executeBatch();
+			}
+		}
+
+		if (count % batchSize != 0) {
+			batchStmt.executeBatch();
+		}
+	}
+
+	private void insertMultiRow(List<AuthzAuditEventDbObj> events) throws SQLException {
+		Iterator<AuthzAuditEventDbObj> iter = events.iterator();
+
+		for (int remaining = events.size(); remaining > 0; remaining -= batchSize) {
+			final PreparedStatement stmt;
+			final int               rowCount;
+
+			if (remaining >= batchSize) {
+				if (batchStmt == null) {
+					batchStmt = connection.prepareStatement(getInsertSql(dbFlavor, batchSize));
+				}
+
+				stmt     = batchStmt;
+				rowCount = batchSize;
+			} else {
+				stmt     = connection.prepareStatement(getInsertSql(dbFlavor, remaining));
+				rowCount = remaining;
+			}
+
+			try {
+				for (int i = 0; i < rowCount; i++) {
+					setValues(stmt, i * COLUMNS.length, iter.next());
+				}
+
+				stmt.executeUpdate();
+			} finally {
+				if (stmt != batchStmt) {
+					stmt.close();
+				}
+			}
+		}
+	}
+
+	private static void setValues(PreparedStatement stmt, int offset, AuthzAuditEventDbObj event) throws SQLException {
+		int idx = offset;
+
+		stmt.setInt(++idx, event.getRepositoryType());
+		setString(stmt, ++idx, event.getRepositoryName());
+		setString(stmt, ++idx, event.getUser());
+		stmt.setTimestamp(++idx, event.getTimeStamp() == null ? null : new Timestamp(event.getTimeStamp().getTime()));
+		setString(stmt, ++idx, event.getAccessType());
+		setString(stmt, ++idx, event.getResourcePath());
+		setString(stmt, ++idx, event.getResourceType());
+		setString(stmt, ++idx, event.getAction());
+		stmt.setInt(++idx, event.getAccessResult());
+		setString(stmt, ++idx, event.getAgentId());
+		stmt.setLong(++idx, event.getPolicyId());
+		setString(stmt, ++idx, event.getResultReason());
+		setString(stmt, ++idx, event.getAclEnforcer());
+		setString(stmt, ++idx, event.getSessionId());
+		setString(stmt, ++idx, event.getClientType());
+		setString(stmt, ++idx, event.getClientIP());
+		setString(stmt, ++idx, event.getRequestData());
+		stmt.setLong(++idx, event.getSeqNum());
+		stmt.setLong(++idx, event.getEventCount());
+		stmt.setLong(++idx, event.getEventDurationMS());
+		setString(stmt, ++idx, event.getTags());
+	}
+
+	private static void setString(PreparedStatement stmt, int idx, String value) throws SQLException {
+		if (value == null) {
+			stmt.setNull(idx, Types.VARCHAR);
+		} else {
+			stmt.setString(idx, value);
+		}
+	}
+
+	static DbFlavor getDbFlavor(String jdbcUrl) {
+		String url = jdbcUrl == null ? "" : jdbcUrl.toLowerCase();
+
+		if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+			return DbFlavor.MYSQL;
+		} else if (url.startsWith("jdbc:postgresql:")) {
+			return DbFlavor.POSTGRES;
+		} else if (url.startsWith("jdbc:oracle:")) {
+			return DbFlavor.ORACLE;
+		} else if (url.startsWith("jdbc:sqlserver:")) {
+			return DbFlavor.SQLSERVER;
+		} else if (url.startsWith("jdbc:sqlanywhere:")) {
+			return DbFlavor.SQLANYWHERE;
+		}
+
+		return DbFlavor.OTHER;
+	}
+
+	// id is auto-increment/identity, or defaults to the sequence, in all but Oracle
+	static String getInsertSql(DbFlavor dbFlavor, int rowCount) {
+		boolean       isOracle = dbFlavor == DbFlavor.ORACLE;
+		StringBuilder row      = new StringBuilder("(");
+
+		if (isOracle) {
+			row.append(ORACLE_ID_SEQUENCE).append(".NEXTVAL, ");
+		}
+
+		for (int i = 0; i < COLUMNS.length; i++) {
+			row.append(i == 0 ? "?" : ", ?");
+		}
+		row.append(")");
+
+		StringBuilder sb = new StringBuilder("INSERT INTO ").append(TABLE_NAME).append(" (");
+
+		if (isOracle) {
+			sb.append("id, ");
+		}
+
+		for (int i = 0; i < COLUMNS.length; i++) {
+			sb.append(i == 0 ? "" : ", ").append(COLUMNS[i]);
+		}
+		sb.append(") VALUES ");
+
+		for (int i = 0; i < rowCount; i++) {
+			sb.append(i == 0 ? "" : ", ").append(row);
+		}
+
+		return sb.toString();
+	}
+}
@@ -19,8 +19,12 @@
 
 package org.apache.ranger.audit.destination;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -32,9 +36,11 @@ import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
 import javax.persistence.Persistence;
 
+import org.apache.ranger.audit.dao.AuthzAuditEventJdbcDao;
 import org.apache.ranger.audit.dao.DaoManager;
 import org.apache.ranger.audit.entity.AuthzAuditEventDbObj;
 import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
 import org.apache.ranger.audit.provider.MiscUtil;
 
 public class DBAuditDestination extends AuditDestination {
@@ -47,10 +53,23 @@ public class DBAuditDestination extends AuditDestination {
 	public static final String PROP_DB_USER = "user";
 	public static final String PROP_DB_PASSWORD = "password";
 	public static final String PROP_DB_PASSWORD_ALIAS = "password.alias";
+	public static final String PROP_DB_JDBC_BATCH_ENABLED = "jdbc.batch.enabled";
+	public static final String PROP_DB_JDBC_BATCH_SIZE = "jdbc.batch.size";
+	public static final String PROP_DB_JDBC_BATCH_MULTIROW = "jdbc.batch.multirow";
+	public static final String PROP_DB_JDBC_BATCH_RETRY_COUNT = "jdbc.batch.retry.count";
 
 	private EntityManagerFactory entityManagerFactory;
 	private DaoManager daoManager;
 
+	// JDBC batch inserts, bypassing the entity manager
+	private boolean isJdbcBatchEnabled = false;
+	private int jdbcBatchSize = 100;
+	private boolean jdbcBatchMultiRow = false;
+	private int jdbcBatchRetryCount = 1;
+	// a DAO is used by one thread at a time; idle ones are reused by the next log() call
+	private final LinkedList<AuthzAuditEventJdbcDao> idleJdbcDaos = new LinkedList<AuthzAuditEventJdbcDao>();
+	private volatile boolean isJdbcDaosClosed = false;
+
 	private String jdbcDriver = null;
 	private String jdbcURL = null;
 	private String dbUser = null;
@@ -64,6 +83,30 @@ public class DBAuditDestination extends AuditDestination {
 	public void init(Properties props, String propPrefix) {
 		logger.info("init() called");
 		super.init(props, propPrefix);
+
+		isJdbcBatchEnabled = MiscUtil.getBooleanProperty(props, propPrefix
+				+ "." + PROP_DB_JDBC_BATCH_ENABLED, isJdbcBatchEnabled);
+		jdbcBatchSize = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_DB_JDBC_BATCH_SIZE, jdbcBatchSize);
+		jdbcBatchMultiRow = MiscUtil.getBooleanProperty(props, propPrefix
+				+ "." + PROP_DB_JDBC_BATCH_MULTIROW, jdbcBatchMultiRow);
+		jdbcBatchRetryCount = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_DB_JDBC_BATCH_RETRY_COUNT, jdbcBatchRetryCount);
+		logger.info("isJdbcBatchEnabled=" + isJdbcBatchEnabled
+				+ ", jdbcBatchSize=" + jdbcBatchSize + ", jdbcBatchMultiRow="
+				+ jdbcBatchMultiRow + ", jdbcBatchRetryCount="
+				+ jdbcBatchRetryCount);
+
+		jdbcDriver = MiscUtil.getStringProperty(props, propPrefix + "."
+				+ PROP_DB_JDBC_DRIVER);
+		jdbcURL = MiscUtil.getStringProperty(props, propPrefix + "."
+				+ PROP_DB_JDBC_URL);
+		dbUser = MiscUtil.getStringProperty(props, propPrefix + "."
+				+ PROP_DB_USER);
+		String tmpAlias = MiscUtil.getStringProperty(props, propPrefix
+				+ "." + PROP_DB_PASSWORD_ALIAS);
+		dbPasswordAlias = tmpAlias != null ? tmpAlias : dbPasswordAlias;
+
 		// Initial connect
 		connect();
 
@@ -83,8 +126,10 @@ public class DBAuditDestination extends AuditDestination {
 		boolean retValue = false;
 		logStatusIfRequired();
 		addTotalCount(events.size());
-		
-		if (beginTransaction()) {
+
+		if (isJdbcBatchEnabled) {
+			retValue = logJdbcBatch(events);
+		} else if (beginTransaction()) {
 			boolean isFailed = false;
 			for (AuditEventBase event : events) {
 				try {
@@ -111,6 +156,78 @@ public class DBAuditDestination extends AuditDestination {
 		return retValue;
 	}
 
+	// on failure, returns false after retries so that the caller can spool the events
+	private boolean logJdbcBatch(Collection<AuditEventBase> events) {
+		List<AuthzAuditEventDbObj> dbObjs = new ArrayList<AuthzAuditEventDbObj>(events.size());
+		for (AuditEventBase event : events) {
+			if (event instanceof AuthzAuditEvent) {
+				dbObjs.add(new AuthzAuditEventDbObj((AuthzAuditEvent) event));
+			} else {
+				logger.error("Unsupported event type for JDBC batch insert. event=" + event);
+				return false;
+			}
+		}
+
+		for (int attempt = 0; attempt <= jdbcBatchRetryCount; attempt++) {
+			AuthzAuditEventJdbcDao dao = borrowJdbcDao();
+
+			if (dao == null) {
+				break;
+			}
+
+			try {
+				dao.insert(dbObjs);
+				releaseJdbcDao(dao);
+				return true;
+			} catch (SQLException excp) {
+				logger.error("Error inserting audit batch. attempt=" + (attempt + 1)
+						+ ", batchSize=" + dbObjs.size(), excp);
+
+				dao.close(); // so that next attempt will reconnect
+			}
+		}
+
+		return false;
+	}
+
+	// with dispatch.threads > 1, log() is called from multiple threads; each gets a DAO of its own
+	private AuthzAuditEventJdbcDao borrowJdbcDao() {
+		synchronized (this) {
+			while (!idleJdbcDaos.isEmpty()) {
+				AuthzAuditEventJdbcDao dao = idleJdbcDaos.removeFirst();
+
+				if (!dao.isClosed()) {
+					return dao;
+				}
+				dao.close();
+			}
+
+			if (isJdbcDaosClosed) {
+				return null;
+			}
+		}
+
+		// connect outside the lock, so that a slow or unreachable database doesn't block other senders or stop()
+		return openJdbcDao();
+	}
+
+	private synchronized void releaseJdbcDao(AuthzAuditEventJdbcDao dao) {
+		if (isJdbcDaosClosed) {
+			dao.close();
+		} else {
+			idleJdbcDaos.addFirst(dao);
+		}
+	}
+
+	private synchronized void closeJdbcDaos() {
+		isJdbcDaosClosed = true;
+
+		for (AuthzAuditEventJdbcDao dao : idleJdbcDaos) {
+			dao.close();
+		}
+		idleJdbcDaos.clear();
+	}
+
 	@Override
 	public void stop() {
 		cleanUp();
@@ -119,63 +236,30 @@ public class DBAuditDestination extends AuditDestination {
 
 	// Local methods
 	protected void connect() {
+		if (isJdbcBatchEnabled) {
+			// the initial connection; borrowJdbcDao() opens more as needed
+			AuthzAuditEventJdbcDao dao = openJdbcDao();
+
+			if (dao != null) {
+				releaseJdbcDao(dao);
+			}
+			return;
+		}
 		if (isDbConnected()) {
 			return;
 		}
 		try {
-			jdbcDriver = MiscUtil.getStringProperty(props, propPrefix + "."
-					+ PROP_DB_JDBC_DRIVER);
-			jdbcURL = MiscUtil.getStringProperty(props, propPrefix + "."
-					+ PROP_DB_JDBC_URL);
-			dbUser = MiscUtil.getStringProperty(props, propPrefix + "."
-					+ PROP_DB_USER);
-			String dbPasswordFromProp = MiscUtil.getStringProperty(props,
-					propPrefix + "." + PROP_DB_PASSWORD);
-			String tmpAlias = MiscUtil.getStringProperty(props, propPrefix
-					+ "." + PROP_DB_PASSWORD_ALIAS);
-			dbPasswordAlias = tmpAlias != null ? tmpAlias : dbPasswordAlias;
-			String credFile = MiscUtil.getStringProperty(props,
-					AUDIT_DB_CREDENTIAL_PROVIDER_FILE);
-
-			if (jdbcDriver == null || jdbcDriver.isEmpty()) {
-				logger.fatal("JDBC driver not provided. Set property name "
-						+ propPrefix + "." + PROP_DB_JDBC_DRIVER);
-				return;
-			}
-			if (jdbcURL == null || jdbcURL.isEmpty()) {
-				logger.fatal("JDBC URL not provided. Set property name "
-						+ propPrefix + "." + PROP_DB_JDBC_URL);
-				return;
-			}
-			if (dbUser == null || dbUser.isEmpty()) {
-				logger.fatal("DB user not provided. Set property name "
-						+ propPrefix + "." + PROP_DB_USER);
-				return;
-			}
-			String dbPassword = MiscUtil.getCredentialString(credFile,
-					dbPasswordAlias);
-
-			if (dbPassword == null || dbPassword.isEmpty()) {
-				// If password is not in credential store, let's try password
-				// from property
-				dbPassword = dbPasswordFromProp;
-			}
+			String dbPassword = getDbPassword();
 
-			if (dbPassword == null || dbPassword.isEmpty()) {
-				logger.warn("DB password not provided. Will assume it is empty and continue");
+			if (dbPassword == null) {
+				return;
 			}
-			logger.info("JDBC Driver=" + jdbcDriver + ", JDBC URL=" + jdbcURL
-					+ ", dbUser=" + dbUser + ", passwordAlias="
-					+ dbPasswordAlias + ", credFile=" + credFile
-					+ ", usingPassword=" + (dbPassword == null ? "no" : "yes"));
 
 			Map<String, String> dbProperties = new HashMap<String, String>();
 			dbProperties.put("javax.persistence.jdbc.driver", jdbcDriver);
 			dbProperties.put("javax.persistence.jdbc.url", jdbcURL);
 			dbProperties.put("javax.persistence.jdbc.user", dbUser);
-			if (dbPassword != null) {
-				dbProperties.put("javax.persistence.jdbc.password", dbPassword);
-			}
+			dbProperties.put("javax.persistence.jdbc.password", dbPassword);
 
 			entityManagerFactory = Persistence.createEntityManagerFactory(
 					"xa_server", dbProperties);
@@ -200,9 +284,78 @@ public class DBAuditDestination extends AuditDestination {
 		}
 	}
 
+	// called by multiple threads without holding the lock: only reads the connection properties set in init()
+	private AuthzAuditEventJdbcDao openJdbcDao() {
+		try {
+			String dbPassword = getDbPassword();
+
+			if (dbPassword == null) {
+				return null;
+			}
+
+			Class.forName(jdbcDriver);
+
+			AuthzAuditEventJdbcDao ret = new AuthzAuditEventJdbcDao(jdbcURL, dbUser, dbPassword,
+					jdbcBatchSize, jdbcBatchMultiRow);
+
+			logger.info("Connected to audit database for JDBC batch inserts. dbURL="
+					+ jdbcURL + ", dbUser=" + dbUser);
+
+			return ret;
+		} catch (Throwable t) {
+			logger.error("Error connecting audit database. dbURL=" + jdbcURL
+					+ ", dbUser=" + dbUser, t);
+		}
+
+		return null;
+	}
+
+	// returns null if a required connection property is missing; empty string if no password is configured
+	private String getDbPassword() {
+		if (jdbcDriver == null || jdbcDriver.isEmpty()) {
+			logger.fatal("JDBC driver not provided. Set property name "
+					+ propPrefix + "." + PROP_DB_JDBC_DRIVER);
+			return null;
+		}
+		if (jdbcURL == null || jdbcURL.isEmpty()) {
+			logger.fatal("JDBC URL not provided. Set property name "
+					+ propPrefix + "." + PROP_DB_JDBC_URL);
+			return null;
+		}
+		if (dbUser == null || dbUser.isEmpty()) {
+			logger.fatal("DB user not provided. Set property name "
+					+ propPrefix + "." + PROP_DB_USER);
+			return null;
+		}
+		String dbPasswordFromProp = MiscUtil.getStringProperty(props,
+				propPrefix + "." + PROP_DB_PASSWORD);
+		String credFile = MiscUtil.getStringProperty(props,
+				AUDIT_DB_CREDENTIAL_PROVIDER_FILE);
+		String dbPassword = MiscUtil.getCredentialString(credFile,
+				dbPasswordAlias);
+
+		if (dbPassword == null || dbPassword.isEmpty()) {
+			// If password is not in credential store, let's try password
+			// from property
+			dbPassword = dbPasswordFromProp;
+		}
+
+		if (dbPassword == null || dbPassword.isEmpty()) {
+			logger.warn("DB password not provided. Will assume it is empty and continue");
+		}
+		logger.info("JDBC Driver=" + jdbcDriver + ", JDBC URL=" + jdbcURL
+				+ ", dbUser=" + dbUser + ", passwordAlias="
+				+ dbPasswordAlias + ", credFile=" + credFile
+				+ ", usingPassword=" + (dbPassword == null ? "no" : "yes"));
+
+		return dbPassword == null ? "" : dbPassword;
+	}
+
 	private synchronized void cleanUp() {
 		logger.info("DBAuditDestination: cleanUp()");
 
+		closeJdbcDaos();
+
 		try {
 			if (entityManagerFactory != null && entityManagerFactory.isOpen()) {
 				entityManagerFactory.close();
@@ -0,0 +1,351 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import java.net.URI;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+import org.apache.ranger.audit.utils.ColumnarAuditWriter;
+import org.apache.ranger.audit.utils.RollingTimeUtil;
+
+/**
+ * Writes audit events to HDFS in columnar files (see ColumnarAuditWriter),
+ * which are much smaller than the JSON files written by HDFSAuditDestination
+ * and don't need to be parsed by readers.
+ * <p>
+ * Events given in a call to log() are written as a stripe, or as stripes of
+ * up to stripe.rows events, and flushed to the file system before log()
+ * returns true; events are not held in memory across calls, hence an
+ * accepted event is not lost if the process dies. The size of stripes is thus
+ * set by the batch size of the queue in front of this destination. If writing
+ * fails, the file is closed without footer and log() returns false, for the
+ * events to be spooled or retried; the next call writes to a new file.
+ * Readers ignore an incomplete stripe at the end of a file; however, if a
+ * call had more than stripe.rows events, stripes written before the failure
+ * are kept, and these events are written again on retry. Files are rolled
+ * over by file.rollover.period (or file.rollover.sec) and by
+ * file.rollover.size.bytes.
+ * <p>
+ * dir can be a local path (file:///var/log/ranger/audit) to write to the
+ * local file system, for example to test without a cluster.
+ */
+public class HDFSColumnarAuditDestination extends AuditDestination {
+	private static final Log logger = LogFactory
+			.getLog(HDFSColumnarAuditDestination.class);
+
+	public static final String PROP_HDFS_DIR = "dir";
+	public static final String PROP_HDFS_SUBDIR = "subdir";
+	public static final String PROP_HDFS_FILE_NAME_FORMAT = "filename.format";
+	public static final String PROP_HDFS_ROLLOVER = "file.rollover.sec";
+	public static final String PROP_HDFS_ROLLOVER_PERIOD = "file.rollover.period";
+	public static final String PROP_HDFS_ROLLOVER_SIZE = "file.rollover.size.bytes";
+	public static final String PROP_STRIPE_ROWS = "stripe.rows";
+
+	int fileRolloverSec = 24 * 60 * 60; // In seconds
+	long fileRolloverSize = 256L * 1024 * 1024;
+	int stripeRows = 10000;
+
+	private String logFileNameFormat;
+
+	private String rolloverPeriod;
+
+	boolean initDone = false;
+
+	private String logFolder;
+
+	private FSDataOutputStream ostream = null;
+
+	private ColumnarAuditWriter writer = null;
+
+	private String currentFileName;
+
+	private boolean isStopped = false;
+
+	private RollingTimeUtil rollingTimeUtil = null;
+
+	private Date nextRollOverTime = null;
+
+	private boolean rollOverByDuration = false;
+
+	@Override
+	public void init(Properties prop, String propPrefix) {
+		super.init(prop, propPrefix);
+
+		String logFolderProp = MiscUtil.getStringProperty(props, propPrefix
+				+ "." + PROP_HDFS_DIR);
+		if (logFolderProp == null || logFolderProp.isEmpty()) {
+			logger.fatal("File destination folder is not configured. Please set "
+					+ propPrefix + "." + PROP_HDFS_DIR + ". name=" + getName());
+			return;
+		}
+
+		String logSubFolder = MiscUtil.getStringProperty(props, propPrefix
+				+ "." + PROP_HDFS_SUBDIR);
+		if (logSubFolder == null || logSubFolder.isEmpty()) {
+			logSubFolder = "%app-type%/%time:yyyyMMdd%";
+		}
+
+		logFileNameFormat = MiscUtil.getStringProperty(props, propPrefix + "."
+				+ PROP_HDFS_FILE_NAME_FORMAT);
+		if (logFileNameFormat == null || logFileNameFormat.isEmpty()) {
+			logFileNameFormat = "%app-type%_ranger_audit_%hostname%" + ".rca";
+		}
+
+		fileRolloverSec = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_HDFS_ROLLOVER, fileRolloverSec);
+		fileRolloverSize = MiscUtil.getLongProperty(props, propPrefix + "."
+				+ PROP_HDFS_ROLLOVER_SIZE, fileRolloverSize);
+		stripeRows = MiscUtil.getIntProperty(props, propPrefix + "."
+				+ PROP_STRIPE_ROWS, stripeRows);
+
+		logFolder = logFolderProp + "/" + logSubFolder;
+		logger.info("logFolder=" + logFolder + ", logFileNameFormat="
+				+ logFileNameFormat + ", stripeRows=" + stripeRows
+				+ ", fileRolloverSize=" + fileRolloverSize + ", destName="
+				+ getName());
+
+		rolloverPeriod = MiscUtil.getStringProperty(props, propPrefix + "." + PROP_HDFS_ROLLOVER_PERIOD);
+		rollingTimeUtil = RollingTimeUtil.getInstance();
+
+		if (StringUtils.isEmpty(rolloverPeriod)) {
+			rolloverPeriod = rollingTimeUtil.convertRolloverSecondsToRolloverPeriod(fileRolloverSec);
+		}
+
+		try {
+			nextRollOverTime = rollingTimeUtil.computeNextRollingTime(rolloverPeriod);
+		} catch (Exception e) {
+			logger.warn("Rollover by file.rollover.period failed...will be using the file.rollover.sec for hdfs audit file rollover...", e);
+			rollOverByDuration = true;
+			nextRollOverTime = rollOverByDuration();
+		}
+
+		initDone = true;
+	}
+
+	@Override
+	synchronized public boolean log(final Collection<AuditEventBase> events) {
+		logStatusIfRequired();
+		addTotalCount(events.size());
+
+		if (!initDone) {
+			addDeferredCount(events.size());
+			return false;
+		}
+		if (isStopped) {
+			addDeferredCount(events.size());
+			logError("log() called after stop was requested. name=" + getName());
+			return false;
+		}
+
+		final List<AuthzAuditEvent> authzEvents = new ArrayList<AuthzAuditEvent>(events.size());
+		for (AuditEventBase event : events) {
+			if (event instanceof AuthzAuditEvent) {
+				authzEvents.add((AuthzAuditEvent) event);
+			} else {
+				addFailedCount(1);
+				logFailedEvent(event, "unsupported event type " + event.getClass().getName());
+			}
+		}
+		if (authzEvents.isEmpty()) {
+			return true;
+		}
+
+		try {
+			MiscUtil.executePrivilegedAction(new PrivilegedExceptionAction<Void>() {
+				@Override
+				public Void run() throws Exception {
+					writeEvents(authzEvents);
+					return null;
+				}
+			});
+		} catch (Throwable t) {
+			// rows not written are discarded with the writer; the caller spools or retries the events
+			addDeferredCount(authzEvents.size());
+			logError("Error writing to log file.", t);
+			closeFile(false);
+			return false;
+		}
+		addSuccessCount(authzEvents.size());
+		return true;
+	}
+
+	@Override
+	public boolean logJSON(Collection<String> events) {
+		List<AuditEventBase> eventList = new ArrayList<AuditEventBase>(events.size());
+		for (String event : events) {
+			eventList.add(MiscUtil.fromJson(event, AuthzAuditEvent.class));
+		}
+		return log(eventList);
+	}
+
+	@Override
+	public void flush() {
+		// nothing to do: events are flushed to the file system by log()
+	}
+
+	@Override
+	public void start() {
+		// Nothing to do here. We will open the file when the first log request
+		// comes
+	}
+
+	@Override
+	synchronized public void stop() {
+		isStopped = true;
+		if (writer != null) {
+			try {
+				MiscUtil.executePrivilegedAction(new PrivilegedExceptionAction<Void>() {
+					@Override
+					public Void run() throws Exception {
+						closeFile(true);
+						return null;
+					}
+				});
+			} catch (Throwable t) {
+				logger.error("Error on closing audit file. name="
+						+ getName() + ", fileName=" + currentFileName, t);
+				closeFile(false);
+			}
+		}
+		logStatus();
+	}
+
+	// Helper methods in this class
+	private void writeEvents(List<AuthzAuditEvent> events) throws Exception {
+		ColumnarAuditWriter stripeWriter = getWriter();
+		for (AuthzAuditEvent event : events) {
+			stripeWriter.add(event); // writes a stripe every stripe.rows events
+		}
+		stripeWriter.writeStripe();
+		ostream.hflush();
+
+		if (writer.getBytesWritten() >= fileRolloverSize) {
+			logger.info("Closing file. Rolling over by size. name=" + getName()
+					+ ", fileName=" + currentFileName + ", size=" + writer.getBytesWritten());
+			closeFile(true);
+		}
+	}
+
+	private ColumnarAuditWriter getWriter() throws Exception {
+		if (writer != null && System.currentTimeMillis() > nextRollOverTime.getTime()) {
+			logger.info("Closing file. Rolling over. name=" + getName()
+					+ ", fileName=" + currentFileName);
+			closeFile(true);
+
+			if (!rollOverByDuration) {
+				try {
+					nextRollOverTime = rollingTimeUtil.computeNextRollingTime(rolloverPeriod);
+				} catch (Exception e) {
+					logger.warn("Rollover by file.rollover.period failed...will be using the file.rollover.sec for hdfs audit file rollover...", e);
+					nextRollOverTime = rollOverByDuration();
+				}
+			} else {
+				nextRollOverTime = rollOverByDuration();
+			}
+		}
+
+		if (writer == null) {
+			long currentTime = System.currentTimeMillis();
+			String fileName = MiscUtil.replaceTokens(logFileNameFormat, currentTime);
+			String parentFolder = MiscUtil.replaceTokens(logFolder, currentTime);
+			String fullPath = parentFolder + Path.SEPARATOR + fileName;
+			String defaultPath = fullPath;
+			FileSystem fileSystem = FileSystem.get(URI.create(fullPath), createConfiguration());
+			if (fileSystem instanceof LocalFileSystem) {
+				// the checksummed local file system keeps the last partial chunk in memory on hflush()
+				fileSystem = ((LocalFileSystem) fileSystem).getRaw();
+			}
+
+			Path hdfPath = new Path(fullPath);
+			int i = 0;
+			while (fileSystem.exists(hdfPath)) {
+				i++;
+				int lastDot = defaultPath.lastIndexOf('.');
+				String baseName = defaultPath.substring(0, lastDot);
+				String extension = defaultPath.substring(lastDot);
+				fullPath = baseName + "." + i + extension;
+				hdfPath = new Path(fullPath);
+			}
+
+			Path parentPath = hdfPath.getParent();
+			if (parentPath != null && !fileSystem.exists(parentPath)) {
+				fileSystem.mkdirs(parentPath);
+			}
+
+			logger.info("Creating new log file. hdfPath=" + fullPath);
+			ostream = fileSystem.create(hdfPath);
+			writer = new ColumnarAuditWriter(ostream, stripeRows);
+			currentFileName = fullPath;
+		}
+		return writer;
+	}
+
+	private void closeFile(boolean writeFooter) {
+		try {
+			if (writeFooter && writer != null) {
+				writer.finish();
+			}
+			if (ostream != null) {
+				ostream.close();
+			}
+		} catch (Throwable t) {
+			logger.error("Error on closing audit file. Exception will be ignored. name="
+					+ getName() + ", fileName=" + currentFileName, t);
+		}
+		writer = null;
+		ostream = null;
+		currentFileName = null;
+	}
+
+	Configuration createConfiguration() {
+		Configuration conf = new Configuration();
+		for (Map.Entry<String, String> entry : configProps.entrySet()) {
+			String key = entry.getKey();
+			String value = entry.getValue();
+			// for ease of install config file may contain properties with empty value, skip those
+			if (StringUtils.isNotEmpty(value)) {
+				conf.set(key, value);
+			}
+		}
+		return conf;
+	}
+
+	private Date rollOverByDuration() {
+		long rollOverTime = rollingTimeUtil.computeNextRollingTime(fileRolloverSec, nextRollOverTime);
+		return new Date(rollOverTime);
+	}
+}
@@ -34,4 +34,49 @@ public abstract class AuditEventBase {
 	public abstract Date getEventTime ();
 	public abstract void setEventCount(long eventCount);
 	public abstract void setEventDurationMS(long eventDurationMS);
+
+	/**
+	 * 64-bit hash of the fields that identify events to be summarized; with
+	 * different seeds, two independent hashes can be computed. Subclasses
+	 * should override this to hash the fields directly, instead of the
+	 * string returned by getEventKey()
+	 */
+	public long getEventKeyHash(long seed) {
+		return hashFinish(hash(seed, getEventKey()));
+	}
+
+	protected static long hash(long h, String value) {
+		if (value == null) {
+			h = (h ^ 0xff) * FNV_PRIME;
+		} else {
+			for (int i = 0; i < value.length(); i++) {
+				h = (h ^ value.charAt(i)) * FNV_PRIME;
+			}
+		}
+
+		// field separator
+		return (h ^ 0x1f) * FNV_PRIME;
+	}
+
+	protected static long hash(long h, long value) {
+		for (int i = 0; i < 8; i++) {
+			h = (h ^ (value & 0xff)) * FNV_PRIME;
+			value >>>= 8;
+		}
+
+		return h;
+	}
+
+	protected static long hashFinish(long h) {
+		// murmur3 finalizer, to spread the bits of FNV-1a
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+
+		return h;
+	}
+
+	private static final long FNV_PRIME = 0x100000001b3L;
 }
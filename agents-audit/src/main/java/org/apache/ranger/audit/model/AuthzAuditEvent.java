@@ -477,6 +477,24 @@ public class AuthzAuditEvent extends AuditEventBase {
 		return key;
 	}
 
+	// fields in getEventKey(), and the policy
+	@Override
+	public long getEventKeyHash(long seed) {
+		long h = seed;
+
+		h = hash(h, user);
+		h = hash(h, accessType);
+		h = hash(h, resourcePath);
+		h = hash(h, resourceType);
+		h = hash(h, action);
+		h = hash(h, accessResult);
+		h = hash(h, sessionId);
+		h = hash(h, clientIP);
+		h = hash(h, policyId);
+
+		return hashFinish(h);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
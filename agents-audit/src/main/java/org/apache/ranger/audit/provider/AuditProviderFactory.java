@@ -31,6 +31,7 @@ import org.apache.hadoop.util.ShutdownHookManager;
 import org.apache.ranger.audit.destination.DBAuditDestination;
 import org.apache.ranger.audit.destination.FileAuditDestination;
 import org.apache.ranger.audit.destination.HDFSAuditDestination;
+import org.apache.ranger.audit.destination.HDFSColumnarAuditDestination;
 import org.apache.ranger.audit.destination.Log4JAuditDestination;
 import org.apache.ranger.audit.destination.SolrAuditDestination;
 import org.apache.ranger.audit.provider.hdfs.HdfsAuditProvider;
@@ -39,6 +40,7 @@ import org.apache.ranger.audit.provider.solr.SolrAuditProvider;
 import org.apache.ranger.audit.queue.AuditAsyncQueue;
 import org.apache.ranger.audit.queue.AuditBatchQueue;
 import org.apache.ranger.audit.queue.AuditQueue;
+import org.apache.ranger.audit.queue.AuditRingBufferQueue;
 import org.apache.ranger.audit.queue.AuditSummaryQueue;
 
 /*
@@ -424,10 +426,10 @@ public class AuditProviderFactory {
 		if (className != null && !className.isEmpty()) {
 			try {
 				Class<?> handlerClass = Class.forName(className);
-				if (handlerClass.isAssignableFrom(AuditQueue.class)) {
+				if (AuditQueue.class.isAssignableFrom(handlerClass)) {
 					// Queue class needs consumer
-					handlerClass.getDeclaredConstructor(AuditHandler.class)
-							.newInstance(consumer);
+					provider = (AuditHandler) handlerClass.getDeclaredConstructor(
+							AuditHandler.class).newInstance(consumer);
 				} else {
 					provider = (AuditHandler) Class.forName(className)
 							.newInstance();
@@ -442,6 +444,8 @@ public class AuditProviderFactory {
 				provider = new FileAuditDestination();
 			} else if (providerName.equalsIgnoreCase("hdfs")) {
 				provider = new HDFSAuditDestination();
+			} else if (providerName.equalsIgnoreCase("hdfs_columnar")) {
+				provider = new HDFSColumnarAuditDestination();
 			} else if (providerName.equals("solr")) {
 				provider = new SolrAuditDestination();
 			} else if (providerName.equals("kafka")) {
@@ -454,6 +458,8 @@ public class AuditProviderFactory {
 				provider = new AuditBatchQueue(consumer);
 			} else if (providerName.equals("async")) {
 				provider = new AuditAsyncQueue(consumer);
+			} else if (providerName.equals("ringbuffer")) {
+				provider = new AuditRingBufferQueue(consumer);
 			} else {
 				LOG.error("Provider name doesn't have any class associated with it. providerName="
 						+ providerName + ", propertyPrefix=" + propPrefix);
@@ -57,11 +57,12 @@ public abstract class BaseAuditHandler implements AuditHandler {
 	int errorLogIntervalMS = 30 * 1000; // Every 30 seconds
 	long lastErrorLogMS = 0;
 
-	long totalCount = 0;
-	long totalSuccessCount = 0;
-	long totalFailedCount = 0;
-	long totalStashedCount = 0;
-	long totalDeferredCount = 0;
+	// updated by destinations and sender threads concurrently
+	final AtomicLong totalCount = new AtomicLong(0);
+	final AtomicLong totalSuccessCount = new AtomicLong(0);
+	final AtomicLong totalFailedCount = new AtomicLong(0);
+	final AtomicLong totalStashedCount = new AtomicLong(0);
+	final AtomicLong totalDeferredCount = new AtomicLong(0);
 
 	long lastIntervalCount = 0;
 	long lastIntervalSuccessCount = 0;
@@ -69,7 +70,7 @@ public abstract class BaseAuditHandler implements AuditHandler {
 	long lastStashedCount = 0;
 	long lastDeferredCount = 0;
 
-	long lastStatusLogTime = System.currentTimeMillis();
+	volatile long lastStatusLogTime = System.currentTimeMillis();
 	long statusLogIntervalMS = 1 * 60 * 1000;
 
 	protected Properties props = null;
@@ -195,44 +196,39 @@ public abstract class BaseAuditHandler implements AuditHandler {
 	}
 
 	public long addTotalCount(int count) {
-		totalCount += count;
-		return totalCount;
+		return totalCount.addAndGet(count);
 	}
 
 	public long addSuccessCount(int count) {
-		totalSuccessCount += count;
-		return totalSuccessCount;
+		return totalSuccessCount.addAndGet(count);
 	}
 
 	public long addFailedCount(int count) {
-		totalFailedCount += count;
-		return totalFailedCount;
+		return totalFailedCount.addAndGet(count);
 	}
 
 	public long addStashedCount(int count) {
-		totalStashedCount += count;
-		return totalStashedCount;
+		return totalStashedCount.addAndGet(count);
 	}
 
 	public long addDeferredCount(int count) {
-		totalDeferredCount += count;
-		return totalDeferredCount;
+		return totalDeferredCount.addAndGet(count);
 	}
 
 	public long getTotalCount() {
-		return totalCount;
+		return totalCount.get();
 	}
 
 	public long getTotalSuccessCount() {
-		return totalSuccessCount;
+		return totalSuccessCount.get();
 	}
 
 	public long getTotalFailedCount() {
-		return totalFailedCount;
+		return totalFailedCount.get();
 	}
 
 	public long getTotalStashedCount() {
-		return totalStashedCount;
+		return totalStashedCount.get();
 	}
 
 	public long getLastStashedCount() {
@@ -240,7 +236,7 @@ public abstract class BaseAuditHandler implements AuditHandler {
 	}
 
 	public long getTotalDeferredCount() {
-		return totalDeferredCount;
+		return totalDeferredCount.get();
 	}
 
 	public long getLastDeferredCount() {
@@ -254,6 +250,10 @@ public abstract class BaseAuditHandler implements AuditHandler {
 		}
 	}
 
+	/*
+	 * Not synchronized, to not contend with log() of destinations; called
+	 * from the consumer thread, and on stop
+	 */
 	public void logStatus() {
 		try {
 			long currTime = System.currentTimeMillis();
@@ -261,6 +261,12 @@ public abstract class BaseAuditHandler implements AuditHandler {
 			long diffTime = currTime - lastStatusLogTime;
 			lastStatusLogTime = currTime;
 
+			long totalCount = this.totalCount.get();
+			long totalSuccessCount = this.totalSuccessCount.get();
+			long totalFailedCount = this.totalFailedCount.get();
+			long totalStashedCount = this.totalStashedCount.get();
+			long totalDeferredCount = this.totalDeferredCount.get();
+
 			long diffCount = totalCount - lastIntervalCount;
 			long diffSuccess = totalSuccessCount - lastIntervalSuccessCount;
 			long diffFailed = totalFailedCount - lastIntervalFailedCount;
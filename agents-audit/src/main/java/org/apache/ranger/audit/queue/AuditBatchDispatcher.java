@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.MDC;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+
+/**
+ * Sends batches of a queue to its destination from multiple sender threads,
+ * so that one slow call to the destination doesn't hold up the others.
+ * <p>
+ * Events of a batch are partitioned by user or resource; each partition is
+ * always sent by the same sender thread, in order, hence the order of events
+ * of a user (or resource) is preserved. Number of batches given to senders,
+ * but not yet sent, is limited; dispatch() blocks when the limit is reached.
+ * <p>
+ * The destination must support concurrent calls to log().
+ */
+public class AuditBatchDispatcher {
+	private static final Log logger = LogFactory.getLog(AuditBatchDispatcher.class);
+
+	public enum PartitionKey {
+		USER, RESOURCE, NONE
+	}
+
+	public interface BatchListener {
+		void onBatchSent(Collection<AuditEventBase> batch, boolean isSuccess);
+	}
+
+	private final String name;
+	private final AuditHandler consumer;
+	private final BatchListener listener;
+	private final PartitionKey partitionKey;
+	private final ExecutorService[] senders;
+	private final LatencyHistogram[] latencies;
+	private final Semaphore inFlightPermits;
+	private final int maxInFlight;
+	private int nextSender = 0;
+
+	public AuditBatchDispatcher(String name, AuditHandler consumer,
+			BatchListener listener, int senderCount, PartitionKey partitionKey,
+			int maxInFlight) {
+		this.name = name;
+		this.consumer = consumer;
+		this.listener = listener;
+		this.partitionKey = partitionKey;
+		this.maxInFlight = maxInFlight;
+		this.senders = new ExecutorService[senderCount];
+		this.latencies = new LatencyHistogram[senderCount];
+		this.inFlightPermits = new Semaphore(maxInFlight);
+
+		for (int i = 0; i < senderCount; i++) {
+			final String threadName = name + "_sender" + i;
+
+			senders[i] = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, threadName);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			latencies[i] = new LatencyHistogram();
+		}
+
+		logger.info("Created batch dispatcher. name=" + name + ", senders="
+				+ senderCount + ", partitionKey=" + partitionKey
+				+ ", maxInFlight=" + maxInFlight);
+	}
+
+	/**
+	 * Gives the events to senders; the given collection can be reused after
+	 * this call returns. Waiting for an in-flight slot is not interrupted, as
+	 * partitions of the batch might already be with senders; the interrupt
+	 * status is retained for the caller.
+	 */
+	public void dispatch(Collection<AuditEventBase> events) {
+		if (events.isEmpty()) {
+			return;
+		}
+
+		if (partitionKey == PartitionKey.NONE || senders.length == 1) {
+			int sender = nextSender;
+			nextSender = (nextSender + 1) % senders.length;
+			submit(sender, new ArrayList<AuditEventBase>(events));
+		} else {
+			@SuppressWarnings("unchecked")
+			List<AuditEventBase>[] partitions = new List[senders.length];
+
+			for (AuditEventBase event : events) {
+				int sender = getPartition(event);
+				if (partitions[sender] == null) {
+					partitions[sender] = new ArrayList<AuditEventBase>();
+				}
+				partitions[sender].add(event);
+			}
+
+			for (int i = 0; i < partitions.length; i++) {
+				if (partitions[i] != null) {
+					submit(i, partitions[i]);
+				}
+			}
+		}
+	}
+
+	public int getInFlightCount() {
+		return maxInFlight - inFlightPermits.availablePermits();
+	}
+
+	/**
+	 * Waits for batches given to senders to be sent, up to maxWaitMs
+	 */
+	public void shutdown(long maxWaitMs) {
+		for (ExecutorService sender : senders) {
+			sender.shutdown();
+		}
+		long endTime = System.currentTimeMillis() + maxWaitMs;
+		try {
+			for (ExecutorService sender : senders) {
+				long waitMs = endTime - System.currentTimeMillis();
+				if (waitMs <= 0 || !sender.awaitTermination(waitMs, TimeUnit.MILLISECONDS)) {
+					logger.warn("Batches not sent by senders in " + maxWaitMs
+							+ "ms. name=" + name + ", inFlight="
+							+ getInFlightCount());
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			logger.info("Interrupted while waiting for senders. name=" + name);
+		}
+	}
+
+	public void logStatus() {
+		for (int i = 0; i < latencies.length; i++) {
+			String status = latencies[i].getStatusSinceLastCall();
+			if (status != null) {
+				logger.info("Audit sender status: name=" + name + ", sender="
+						+ i + ", " + status);
+			}
+		}
+	}
+
+	private int getPartition(AuditEventBase event) {
+		String key = null;
+		if (event instanceof AuthzAuditEvent) {
+			AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+			key = partitionKey == PartitionKey.USER ? authzEvent.getUser()
+					: authzEvent.getResourcePath();
+		}
+		return key == null ? 0 : (key.hashCode() & Integer.MAX_VALUE)
+				% senders.length;
+	}
+
+	private void submit(final int sender, final List<AuditEventBase> batch) {
+		inFlightPermits.acquireUninterruptibly();
+
+		try {
+			senders[sender].execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						//This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
+						MDC.clear();
+						send(sender, batch);
+					} finally {
+						inFlightPermits.release();
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			inFlightPermits.release();
+			throw e;
+		}
+	}
+
+	private void send(int sender, List<AuditEventBase> batch) {
+		long startTime = System.nanoTime();
+		boolean ret = false;
+		try {
+			ret = consumer.log(batch);
+		} catch (Throwable t) {
+			logger.error("Error sending batch. name=" + name + ", sender="
+					+ sender, t);
+		}
+		latencies[sender].add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+				- startTime));
+
+		listener.onBatchSent(batch, ret);
+	}
+
+	/**
+	 * Counts of send times in power-of-2 millisecond buckets: [0-1), [1-2),
+	 * [2-4), ... [32768-)
+	 */
+	static class LatencyHistogram {
+		static final int BUCKET_COUNT = 17;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong totalMs = new AtomicLong();
+		private final AtomicLong maxMs = new AtomicLong();
+		private long[] lastBuckets = new long[BUCKET_COUNT];
+		private long lastCount = 0;
+		private long lastTotalMs = 0;
+
+		void add(long ms) {
+			int bucket = ms <= 0 ? 0 : Math.min(BUCKET_COUNT - 1,
+					64 - Long.numberOfLeadingZeros(ms));
+			buckets.incrementAndGet(bucket);
+			count.incrementAndGet();
+			totalMs.addAndGet(ms);
+
+			long max = maxMs.get();
+			while (ms > max && !maxMs.compareAndSet(max, ms)) {
+				max = maxMs.get();
+			}
+		}
+
+		synchronized String getStatusSinceLastCall() {
+			long currCount = count.get();
+			long diffCount = currCount - lastCount;
+
+			if (diffCount == 0) {
+				return null;
+			}
+
+			long currTotalMs = totalMs.get();
+			long[] diffBuckets = new long[BUCKET_COUNT];
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				long curr = buckets.get(i);
+				diffBuckets[i] = curr - lastBuckets[i];
+				lastBuckets[i] = curr;
+			}
+
+			String ret = "batches=" + diffCount + ", avgMs="
+					+ ((currTotalMs - lastTotalMs) / diffCount) + ", p50Ms<"
+					+ getPercentileBound(diffBuckets, diffCount, 50)
+					+ ", p99Ms<" + getPercentileBound(diffBuckets, diffCount, 99)
+					+ ", maxMs(lifetime)=" + maxMs.get();
+
+			lastCount = currCount;
+			lastTotalMs = currTotalMs;
+
+			return ret;
+		}
+
+		// upper bound of the bucket that has the percentile
+		static long getPercentileBound(long[] buckets, long count, int percentile) {
+			long threshold = (count * percentile + 99) / 100;
+			long cumulative = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				cumulative += buckets[i];
+				if (cumulative >= threshold) {
+					return 1L << i;
+				}
+			}
+			return 1L << (buckets.length - 1);
+		}
+	}
+}
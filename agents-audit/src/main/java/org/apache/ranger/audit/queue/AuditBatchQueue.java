@@ -31,13 +31,25 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.log4j.MDC;
 import org.apache.ranger.audit.model.AuditEventBase;
 import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
 
 public class AuditBatchQueue extends AuditQueue implements Runnable {
 	private static final Log logger = LogFactory.getLog(AuditBatchQueue.class);
 
+	public static final String PROP_DISPATCH_THREADS = "dispatch.threads";
+	public static final String PROP_DISPATCH_PARTITION_KEY = "dispatch.partition.key";
+	public static final String PROP_DISPATCH_MAX_INFLIGHT_BATCHES = "dispatch.max.inflight.batches";
+
 	private BlockingQueue<AuditEventBase> queue = null;
 	private Collection<AuditEventBase> localBatchBuffer = new ArrayList<AuditEventBase>();
 
+	private volatile boolean isDestActive = true;
+
+	private int dispatchThreads = 1;
+	private AuditBatchDispatcher.PartitionKey dispatchPartitionKey = AuditBatchDispatcher.PartitionKey.USER;
+	private int dispatchMaxInFlight = 0;
+	private AuditBatchDispatcher dispatcher = null;
+
 	Thread consumerThread = null;
 	static int threadCount = 0;
 	static final String DEFAULT_NAME = "batch";
@@ -82,6 +94,25 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 
 		super.init(prop, propPrefix);
 
+		dispatchThreads = MiscUtil.getIntProperty(prop, propPrefix + "."
+				+ PROP_DISPATCH_THREADS, dispatchThreads);
+		String partitionKey = MiscUtil.getStringProperty(prop, propPrefix
+				+ "." + PROP_DISPATCH_PARTITION_KEY);
+		if (partitionKey != null && !partitionKey.trim().isEmpty()) {
+			try {
+				dispatchPartitionKey = AuditBatchDispatcher.PartitionKey
+						.valueOf(partitionKey.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.error("Invalid value for " + propPrefix + "."
+						+ PROP_DISPATCH_PARTITION_KEY + "=" + partitionKey
+						+ ". Using " + dispatchPartitionKey);
+			}
+		}
+		dispatchMaxInFlight = MiscUtil.getIntProperty(prop, propPrefix + "."
+				+ PROP_DISPATCH_MAX_INFLIGHT_BATCHES, dispatchThreads * 2);
+		if (dispatchMaxInFlight < dispatchThreads) {
+			dispatchMaxInFlight = dispatchThreads;
+		}
 	}
 
 	/*
@@ -107,6 +138,20 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 			fileSpooler.start();
 		}
 
+		// Senders, if batches are to be sent in parallel
+		if (dispatchThreads > 1) {
+			dispatcher = new AuditBatchDispatcher(getName(), consumer,
+					new AuditBatchDispatcher.BatchListener() {
+						@Override
+						public void onBatchSent(
+								Collection<AuditEventBase> batch,
+								boolean isSuccess) {
+							handleBatchResult(batch, isSuccess);
+						}
+					}, dispatchThreads, dispatchPartitionKey,
+					dispatchMaxInFlight);
+		}
+
 		// Finally the queue listener
 		consumerThread = new Thread(this, this.getClass().getName()
 				+ (threadCount++));
@@ -159,7 +204,7 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 		long startTime = System.currentTimeMillis();
 		int prevQueueSize = -1;
 		int staticLoopCount = 0;
-		while ((queue.size() > 0 || localBatchBuffer.size() > 0)) {
+		while ((queue.size() > 0 || localBatchBuffer.size() > 0 || getInFlightCount() > 0)) {
 			if (prevQueueSize == queue.size()) {
 				logger.error("Queue size is not changing. " + getName()
 						+ ".size=" + queue.size());
@@ -189,6 +234,18 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 		consumer.waitToComplete(timeout);
 	}
 
+	@Override
+	public void logStatus() {
+		super.logStatus();
+		if (dispatcher != null) {
+			dispatcher.logStatus();
+		}
+	}
+
+	private int getInFlightCount() {
+		return dispatcher == null ? 0 : dispatcher.getInFlightCount();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -220,7 +277,6 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 
 	public void runLogAudit() {
 		long lastDispatchTime = System.currentTimeMillis();
-		boolean isDestActive = true;
 		while (true) {
 			logStatusIfRequired();
 
@@ -306,23 +362,11 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 				}
 				// Reset time just before sending the logs
 				lastDispatchTime = System.currentTimeMillis();
-				boolean ret = consumer.log(localBatchBuffer);
-				if (!ret) {
-					if (fileSpoolerEnabled) {
-						logger.info("Switching to file spool. Queue="
-								+ getName() + ", dest=" + consumer.getName());
-						// Transient error. Stash and move on
-						fileSpooler.stashLogs(localBatchBuffer);
-						isDestActive = false;
-						addStashedCount(localBatchBuffer.size());
-					} else {
-						// We need to drop this event
-						addFailedCount(localBatchBuffer.size());
-						logFailedEvent(localBatchBuffer);
-					}
+				if (dispatcher != null) {
+					dispatcher.dispatch(localBatchBuffer);
 				} else {
-					isDestActive = true;
-					addSuccessCount(localBatchBuffer.size());
+					handleBatchResult(localBatchBuffer,
+							consumer.log(localBatchBuffer));
 				}
 				localBatchBuffer.clear();
 			}
@@ -347,6 +391,10 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 		logger.info("Exiting consumerThread. Queue=" + getName() + ", dest="
 				+ consumer.getName());
 		try {
+			if (dispatcher != null) {
+				dispatcher.shutdown(AUDIT_CONSUMER_THREAD_WAIT_MS);
+			}
+
 			// Call stop on the consumer
 			logger.info("Calling to stop consumer. name=" + getName()
 					+ ", consumer.name=" + consumer.getName());
@@ -361,4 +409,26 @@ public class AuditBatchQueue extends AuditQueue implements Runnable {
 		logStatus();
 		logger.info("Exiting consumerThread.run() method. name=" + getName());
 	}
+
+	// called from the sender threads as well, when batches are sent in parallel
+	private void handleBatchResult(Collection<AuditEventBase> batch,
+			boolean isSuccess) {
+		if (!isSuccess) {
+			if (fileSpoolerEnabled) {
+				logger.info("Switching to file spool. Queue=" + getName()
+						+ ", dest=" + consumer.getName());
+				// Transient error. Stash and move on
+				fileSpooler.stashLogs(batch);
+				isDestActive = false;
+				addStashedCount(batch.size());
+			} else {
+				// We need to drop this event
+				addFailedCount(batch.size());
+				logFailedEvent(batch);
+			}
+		} else {
+			isDestActive = true;
+			addSuccessCount(batch.size());
+		}
+	}
 }
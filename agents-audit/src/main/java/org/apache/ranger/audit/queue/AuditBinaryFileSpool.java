@@ -0,0 +1,811 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.MDC;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+/**
+ * File spool that stores events as length-prefixed binary records in
+ * preallocated segment files, instead of JSON lines tracked by an index file.
+ * <p>
+ * Each segment starts with a fixed-size checkpoint - write and read
+ * positions - which is updated in place after each write batch and each batch
+ * sent to the destination; there is no index file to rewrite. Records are
+ * replayed from a read-only memory mapping of the segment, and given to the
+ * destination in batches of up to the queue's batch size. The segment being
+ * written can be replayed as well, so it doesn't need to be closed for its
+ * events to be sent. Fully sent segments are deleted.
+ * <p>
+ * Record layout: int length, byte codec, int raw-length, int crc32, bytes.
+ * Records written after the last checkpoint are recovered at startup by
+ * scanning the segment for valid records. A segment with an invalid record
+ * header can't be read past it; it is renamed with the extension .corrupt and
+ * left for inspection.
+ * <p>
+ * Records and the write position are forced to disk on flush, i.e. after each
+ * batch of events stashed. The read position is saved after each batch is
+ * sent, but not forced; after a crash, events sent since the read position
+ * last reached the disk are sent again. Delivery from the spool is hence
+ * at-least-once.
+ */
+public class AuditBinaryFileSpool extends AuditFileSpool {
+	private static final Log logger = LogFactory.getLog(AuditBinaryFileSpool.class);
+
+	public static final String PROP_FILE_SPOOL_SEGMENT_SIZE = "filespool.segment.size";
+	public static final String PROP_FILE_SPOOL_COMPRESS = "filespool.compress";
+
+	static final int SEGMENT_SIZE_DEFAULT = 64 * 1024 * 1024;
+	static final String SEGMENT_FILE_EXTENSION = ".seg";
+	static final String CORRUPT_FILE_EXTENSION = ".corrupt";
+
+	static final int MAGIC = 0x52535047; // RSPG
+	static final int VERSION = 1;
+	static final int CHECKPOINT_SIZE = 64; // reserved at the beginning of each segment
+	static final int OFFSET_WRITE_POSITION = 8;
+	static final int OFFSET_READ_POSITION = 16;
+	static final int RECORD_HEADER_SIZE = 13;
+
+	static final byte CODEC_NONE = 0;
+	static final byte CODEC_DEFLATE = 1;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final LinkedList<Segment> segments = new LinkedList<Segment>();
+	private Segment writeSegment = null;
+	private long nextSegmentId = 0;
+	private int segmentSize = SEGMENT_SIZE_DEFAULT;
+	private boolean isCompress = false;
+
+	private ByteBuffer writeBuffer = ByteBuffer.allocate(64 * 1024);
+	private final CRC32 crc = new CRC32();
+	private Deflater deflater = null;
+	private byte[] deflateBuffer = new byte[4 * 1024];
+
+	public AuditBinaryFileSpool(AuditQueue queueProvider,
+			AuditHandler consumerProvider) {
+		super(queueProvider, consumerProvider);
+	}
+
+	@Override
+	public boolean init(Properties props, String basePropertyName) {
+		if (initDone) {
+			logger.error("init() called more than once. queueProvider="
+					+ queueProvider.getName() + ", consumerProvider="
+					+ consumerProvider.getName());
+			return true;
+		}
+		String propPrefix = "xasecure.audit.filespool";
+		if (basePropertyName != null) {
+			propPrefix = basePropertyName;
+		}
+
+		try {
+			String logFolderProp = MiscUtil.getStringProperty(props, propPrefix
+					+ "." + PROP_FILE_SPOOL_LOCAL_DIR);
+			fileNamePrefix = MiscUtil.getStringProperty(props, propPrefix + "."
+					+ PROP_FILE_SPOOL_FILENAME_PREFIX);
+			retryDestinationMS = MiscUtil.getIntProperty(props, propPrefix
+					+ "." + PROP_FILE_SPOOL_DEST_RETRY_MS, retryDestinationMS);
+			segmentSize = MiscUtil.getIntProperty(props, propPrefix + "."
+					+ PROP_FILE_SPOOL_SEGMENT_SIZE, segmentSize);
+			isCompress = MiscUtil.getBooleanProperty(props, propPrefix + "."
+					+ PROP_FILE_SPOOL_COMPRESS, isCompress);
+
+			if (logFolderProp == null || logFolderProp.isEmpty()) {
+				logger.fatal("Audit spool folder is not configured. Please set "
+						+ propPrefix + "." + PROP_FILE_SPOOL_LOCAL_DIR
+						+ ". queueName=" + queueProvider.getName());
+				return false;
+			}
+			logFolder = new File(logFolderProp);
+			if (!logFolder.isDirectory()) {
+				logFolder.mkdirs();
+				if (!logFolder.isDirectory()) {
+					logger.fatal("File Spool folder not found and can't be created. folder="
+							+ logFolder.getAbsolutePath()
+							+ ", queueName="
+							+ queueProvider.getName());
+					return false;
+				}
+			}
+			if (fileNamePrefix == null || fileNamePrefix.isEmpty()) {
+				fileNamePrefix = queueProvider.getName() + "_"
+						+ consumerProvider.getName();
+			}
+			if (isCompress) {
+				deflater = new Deflater(Deflater.BEST_SPEED);
+			}
+
+			logger.info("Binary file spool: logFolder=" + logFolder
+					+ ", fileNamePrefix=" + fileNamePrefix + ", segmentSize="
+					+ segmentSize + ", compress=" + isCompress
+					+ ", retryDestinationMS=" + retryDestinationMS
+					+ ", queueName=" + queueProvider.getName());
+
+			loadSegments();
+		} catch (Throwable t) {
+			logger.fatal("Error initializing File Spooler. queue="
+					+ queueProvider.getName(), t);
+			return false;
+		}
+		initDone = true;
+		return true;
+	}
+
+	@Override
+	public void stop() {
+		if (!initDone) {
+			logger.error("Cannot stop Audit File Spooler. Initilization not done. queueName="
+					+ queueProvider.getName());
+			return;
+		}
+		logger.info("Stop called, queueName=" + queueProvider.getName()
+				+ ", consumer=" + consumerProvider.getName());
+
+		isDrain = true;
+		flush();
+
+		try {
+			if (destinationThread != null) {
+				destinationThread.interrupt();
+			}
+			destinationThread = null;
+		} catch (Throwable e) {
+			// ignore
+		}
+
+		synchronized (this) {
+			for (Segment segment : segments) {
+				segment.close();
+			}
+		}
+	}
+
+	@Override
+	synchronized public void flush() {
+		if (!initDone) {
+			logger.error("Cannot flush Audit File Spooler. Initilization not done. queueName="
+					+ queueProvider.getName());
+			return;
+		}
+		if (writeSegment != null) {
+			try {
+				writeSegment.saveWritePosition();
+			} catch (IOException e) {
+				logger.error("Error saving checkpoint. file="
+						+ writeSegment.file, e);
+			}
+		}
+	}
+
+	@Override
+	synchronized public void stashLogs(AuditEventBase event) {
+		stashLogsString(MiscUtil.stringify(event));
+	}
+
+	@Override
+	synchronized public void stashLogs(Collection<AuditEventBase> events) {
+		for (AuditEventBase event : events) {
+			stashLogs(event);
+		}
+		flush();
+	}
+
+	@Override
+	synchronized public void stashLogsString(String event) {
+		if (isDrain) {
+			// Stop has been called, so this method shouldn't be called
+			logger.error("stashLogs() is called after stop is called. event="
+					+ event);
+			return;
+		}
+		try {
+			isWriting = true;
+			writeRecord(event.getBytes(UTF8));
+			isPending = true;
+		} catch (Exception ex) {
+			logger.error("Error writing to file. event=" + event, ex);
+		} finally {
+			isWriting = false;
+		}
+	}
+
+	@Override
+	synchronized public void stashLogsString(Collection<String> events) {
+		for (String event : events) {
+			stashLogsString(event);
+		}
+		flush();
+	}
+
+	private void writeRecord(byte[] raw) throws IOException {
+		if (raw.length == 0) {
+			// a zero-length record can't be told apart from the unwritten part of a segment
+			logger.warn("Ignoring empty event. queueName=" + queueProvider.getName());
+			return;
+		}
+
+		byte codec = CODEC_NONE;
+		byte[] data = raw;
+		int dataLen = raw.length;
+
+		if (deflater != null) {
+			deflater.reset();
+			deflater.setInput(raw);
+			deflater.finish();
+			dataLen = 0;
+			while (!deflater.finished()) {
+				if (dataLen == deflateBuffer.length) {
+					deflateBuffer = Arrays.copyOf(deflateBuffer, deflateBuffer.length * 2);
+				}
+				dataLen += deflater.deflate(deflateBuffer, dataLen, deflateBuffer.length - dataLen);
+			}
+			if (dataLen < raw.length) {
+				codec = CODEC_DEFLATE;
+				data = deflateBuffer;
+			} else {
+				dataLen = raw.length;
+			}
+		}
+
+		int recordSize = RECORD_HEADER_SIZE + dataLen;
+
+		if (writeSegment == null || !writeSegment.hasSpace(recordSize)) {
+			rollSegment(recordSize);
+		}
+
+		if (writeBuffer.capacity() < recordSize) {
+			writeBuffer = ByteBuffer.allocate(recordSize);
+		}
+
+		crc.reset();
+		crc.update(data, 0, dataLen);
+
+		writeBuffer.clear();
+		writeBuffer.putInt(dataLen).put(codec).putInt(raw.length)
+				.putInt((int) crc.getValue()).put(data, 0, dataLen);
+		writeBuffer.flip();
+
+		writeSegment.append(writeBuffer);
+	}
+
+	private void rollSegment(int recordSize) throws IOException {
+		if (writeSegment != null) {
+			writeSegment.saveWritePosition();
+			writeSegment.isSealed = true;
+		}
+
+		int size = Math.max(segmentSize, CHECKPOINT_SIZE + recordSize + 4);
+		File file = new File(logFolder, String.format("%s_%019d%s",
+				fileNamePrefix, nextSegmentId++, SEGMENT_FILE_EXTENSION));
+
+		logger.info("Creating new spool segment. queueName="
+				+ queueProvider.getName() + ", file=" + file + ", size="
+				+ size);
+
+		writeSegment = Segment.create(file, size);
+		segments.add(writeSegment);
+	}
+
+	private void loadSegments() throws IOException {
+		File[] files = logFolder.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File pathname) {
+				String name = pathname.getName();
+				return name.startsWith(fileNamePrefix + "_")
+						&& name.endsWith(SEGMENT_FILE_EXTENSION);
+			}
+		});
+
+		if (files == null) {
+			return;
+		}
+
+		// names have fixed-width segment ids, hence are in order
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return f1.getName().compareTo(f2.getName());
+			}
+		});
+
+		for (File file : files) {
+			Segment segment = Segment.open(file);
+
+			if (segment == null) {
+				logger.error("Not a spool segment, or corrupt. Ignoring file="
+						+ file + ", queueName=" + queueProvider.getName());
+				continue;
+			}
+
+			String name = file.getName();
+			long segmentId = Long.parseLong(name.substring(
+					fileNamePrefix.length() + 1,
+					name.length() - SEGMENT_FILE_EXTENSION.length()));
+			nextSegmentId = Math.max(nextSegmentId, segmentId + 1);
+
+			logger.info("Loaded spool segment " + file + ": readPosition="
+					+ segment.readPosition + ", writePosition="
+					+ segment.writePosition + ", queueName="
+					+ queueProvider.getName());
+
+			if (segment.readPosition >= segment.writePosition) {
+				segment.delete();
+				continue;
+			}
+
+			segment.isSealed = true;
+			segments.add(segment);
+			isPending = true;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			//This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
+			MDC.clear();
+			runLogAudit();
+		} catch (Throwable t) {
+			logger.fatal("Exited thread without abnormaly. queue="
+					+ consumerProvider.getName(), t);
+		}
+	}
+
+	@Override
+	public void runLogAudit() {
+		List<String> lines = new ArrayList<String>();
+		Inflater inflater = new Inflater();
+
+		while (true) {
+			try {
+				if (isDestDown) {
+					logger.info("Destination is down. sleeping for "
+							+ retryDestinationMS + " milli seconds. segments="
+							+ segments.size() + ", queueName="
+							+ queueProvider.getName() + ", consumer="
+							+ consumerProvider.getName());
+					Thread.sleep(retryDestinationMS);
+				}
+
+				if (isDrain) {
+					// Need to exit
+					break;
+				}
+
+				Segment segment = getReadSegment();
+
+				if (segment == null) {
+					Thread.sleep(retryDestinationMS);
+					continue;
+				}
+
+				long readPosition = segment.readPosition;
+				long writePosition = segment.writePosition;
+
+				lines.clear();
+				long nextPosition = segment.readRecords(readPosition,
+						writePosition, queueProvider.getMaxBatchSize(),
+						lines, inflater);
+
+				if (!lines.isEmpty()) {
+					lastAttemptTime = System.currentTimeMillis();
+
+					if (!sendEvents(lines, segment)) {
+						isDestDown = true;
+						continue;
+					}
+				}
+
+				if (nextPosition != readPosition) {
+					// includes skipped records having checksum mismatch
+					segment.saveReadPosition(nextPosition);
+				}
+
+				if (segment.isCorrupt) {
+					quarantineSegment(segment);
+				} else if (lines.isEmpty()) {
+					Thread.sleep(retryDestinationMS);
+				}
+			} catch (InterruptedException e) {
+				logger.info("Caught exception in consumer thread. Shutdown might be in progress");
+			} catch (Throwable t) {
+				logger.error("Exception in destination writing thread. Retrying after "
+						+ retryDestinationMS + " milli seconds. queueName="
+						+ queueProvider.getName(), t);
+				try {
+					Thread.sleep(retryDestinationMS);
+				} catch (InterruptedException e) {
+					logger.info("Caught exception in consumer thread. Shutdown might be in progress");
+				}
+			}
+		}
+
+		inflater.end();
+
+		logger.info("Exiting file spooler. provider=" + queueProvider.getName()
+				+ ", consumer=" + consumerProvider.getName());
+	}
+
+	/*
+	 * Returns the oldest segment having records to send; fully sent segments,
+	 * other than the one being written, are deleted
+	 */
+	synchronized private Segment getReadSegment() {
+		while (!segments.isEmpty()) {
+			Segment segment = segments.getFirst();
+
+			if (segment.readPosition < segment.writePosition) {
+				return segment;
+			}
+			if (segment != writeSegment) {
+				logger.info("Done reading spool segment. file=" + segment.file
+						+ ", queueName=" + queueProvider.getName()
+						+ ", consumer=" + consumerProvider.getName());
+				segments.removeFirst();
+				segment.delete();
+			} else {
+				break;
+			}
+		}
+
+		isPending = false;
+
+		return null;
+	}
+
+	/*
+	 * Moves a segment that can't be read any further out of the spool. If it
+	 * is being written, the next event is written to a new segment
+	 */
+	synchronized private void quarantineSegment(Segment segment) {
+		File corruptFile = new File(segment.file.getPath()
+				+ CORRUPT_FILE_EXTENSION);
+
+		logger.error("Unreadable record in spool segment. Unsent events after position="
+				+ segment.readPosition + " are not sent. Moving file="
+				+ segment.file + " to " + corruptFile + ", queueName="
+				+ queueProvider.getName());
+
+		segments.remove(segment);
+		if (segment == writeSegment) {
+			writeSegment = null;
+		}
+		segment.unmap();
+		segment.close();
+		if (!segment.file.renameTo(corruptFile)) {
+			logger.error("Error renaming spool segment. file=" + segment.file);
+		}
+	}
+
+	private boolean sendEvents(List<String> lines, Segment segment) {
+		boolean ret = false;
+		try {
+			ret = consumerProvider.logJSON(lines);
+			if (!ret) {
+				// Need to log error after fixed interval
+				logError("Error sending logs to consumer. provider="
+						+ queueProvider.getName() + ", consumer="
+						+ consumerProvider.getName());
+			} else if (isDestDown) {
+				isDestDown = false;
+				logger.info("Destination up now. " + segment.file
+						+ ", queueName=" + queueProvider.getName()
+						+ ", consumer=" + consumerProvider.getName());
+			}
+		} catch (Throwable t) {
+			logger.error("Error while sending logs to consumer. provider="
+					+ queueProvider.getName() + ", consumer="
+					+ consumerProvider.getName() + ", log=" + lines, t);
+		}
+
+		return ret;
+	}
+
+	static class Segment {
+		final File file;
+		final RandomAccessFile raf;
+		final FileChannel channel;
+		final long size;
+		volatile long writePosition;
+		volatile long readPosition;
+		volatile boolean isSealed = false;
+		volatile boolean isCorrupt = false;
+		MappedByteBuffer readBuffer = null;
+
+		private Segment(File file, RandomAccessFile raf, long writePosition,
+				long readPosition) {
+			this.file = file;
+			this.raf = raf;
+			this.channel = raf.getChannel();
+			this.size = file.length();
+			this.writePosition = writePosition;
+			this.readPosition = readPosition;
+		}
+
+		static Segment create(File file, int size) throws IOException {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(size);
+
+				ByteBuffer header = ByteBuffer.allocate(CHECKPOINT_SIZE);
+				header.putInt(MAGIC).putInt(VERSION)
+						.putLong(CHECKPOINT_SIZE).putLong(CHECKPOINT_SIZE)
+						.putLong(System.currentTimeMillis());
+				header.clear();
+				raf.getChannel().write(header, 0);
+			} catch (IOException e) {
+				raf.close();
+				throw e;
+			}
+
+			return new Segment(file, raf, CHECKPOINT_SIZE, CHECKPOINT_SIZE);
+		}
+
+		/*
+		 * Returns null if the file is not a segment. Records written after
+		 * the saved write position are recovered
+		 */
+		static Segment open(File file) throws IOException {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			Segment ret = null;
+			try {
+				ByteBuffer header = ByteBuffer.allocate(CHECKPOINT_SIZE);
+				if (raf.length() >= CHECKPOINT_SIZE
+						&& raf.getChannel().read(header, 0) == CHECKPOINT_SIZE) {
+					header.flip();
+					if (header.getInt() == MAGIC && header.getInt() == VERSION) {
+						long writePosition = header.getLong();
+						long readPosition = header.getLong();
+
+						ret = new Segment(file, raf, writePosition,
+								readPosition);
+						ret.writePosition = ret.scanRecords(writePosition);
+					}
+				}
+			} finally {
+				if (ret == null) {
+					raf.close();
+				}
+			}
+
+			return ret;
+		}
+
+		boolean hasSpace(int recordSize) {
+			return !isSealed && writePosition + recordSize + 4 <= size;
+		}
+
+		void append(ByteBuffer record) throws IOException {
+			long position = writePosition;
+			while (record.hasRemaining()) {
+				position += channel.write(record, position);
+			}
+			// publish to the reader only after the record is written
+			writePosition = position;
+		}
+
+		void saveWritePosition() throws IOException {
+			saveCheckpoint(OFFSET_WRITE_POSITION, writePosition);
+			channel.force(false);
+		}
+
+		void saveReadPosition(long position) throws IOException {
+			readPosition = position;
+			saveCheckpoint(OFFSET_READ_POSITION, position);
+		}
+
+		// writer and reader update different fields of the checkpoint
+		private void saveCheckpoint(int offset, long value) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(8);
+			buffer.putLong(value).flip();
+			channel.write(buffer, offset);
+		}
+
+		/*
+		 * Reads up to maxRecords records between from and to. On a record with
+		 * invalid header, reading stops there and the segment is marked corrupt
+		 *
+		 * @return position after the last record read
+		 */
+		long readRecords(long from, long to, int maxRecords,
+				List<String> records, Inflater inflater) throws IOException {
+			if (readBuffer == null) {
+				readBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+
+			CRC32 crc = new CRC32();
+			long position = from;
+			while (position < to && records.size() < maxRecords) {
+				if (position + RECORD_HEADER_SIZE > to) {
+					isCorrupt = true;
+					break;
+				}
+
+				readBuffer.position((int) position);
+
+				int length = readBuffer.getInt();
+				byte codec = readBuffer.get();
+				int rawLength = readBuffer.getInt();
+				int checksum = readBuffer.getInt();
+
+				if (length <= 0 || rawLength < 0
+						|| position + RECORD_HEADER_SIZE + length > to) {
+					logger.error("Invalid record header. length=" + length
+							+ ", rawLength=" + rawLength + ", file=" + file
+							+ ", position=" + position);
+					isCorrupt = true;
+					break;
+				}
+
+				byte[] data = new byte[length];
+				readBuffer.get(data);
+				position += RECORD_HEADER_SIZE + length;
+
+				crc.reset();
+				crc.update(data, 0, length);
+				if ((int) crc.getValue() != checksum) {
+					logger.error("Checksum mismatch. Skipping record in file="
+							+ file + ", position=" + (position - RECORD_HEADER_SIZE - length));
+					continue;
+				}
+
+				if (codec == CODEC_DEFLATE) {
+					byte[] raw = new byte[rawLength];
+					inflater.reset();
+					inflater.setInput(data);
+					try {
+						inflater.inflate(raw);
+					} catch (DataFormatException e) {
+						logger.error("Error decompressing. Skipping record in file="
+								+ file, e);
+						continue;
+					}
+					records.add(new String(raw, UTF8));
+				} else {
+					records.add(new String(data, UTF8));
+				}
+			}
+
+			return position;
+		}
+
+		/*
+		 * Returns the position after the last valid record, starting at from
+		 */
+		private long scanRecords(long from) throws IOException {
+			ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+			long position = from;
+
+			while (position + RECORD_HEADER_SIZE <= size) {
+				header.clear();
+				if (channel.read(header, position) != RECORD_HEADER_SIZE) {
+					break;
+				}
+				header.flip();
+
+				int length = header.getInt();
+				header.get();
+				header.getInt();
+				int checksum = header.getInt();
+
+				if (length == 0) {
+					// unwritten part of the segment
+					break;
+				}
+
+				if (length < 0 || position + RECORD_HEADER_SIZE + length > size) {
+					logger.warn("Invalid record header. Ignoring rest of file="
+							+ file + ", position=" + position + ", length="
+							+ length);
+					break;
+				}
+
+				ByteBuffer data = ByteBuffer.allocate(length);
+				if (channel.read(data, position + RECORD_HEADER_SIZE) != length) {
+					break;
+				}
+
+				CRC32 crc = new CRC32();
+				crc.update(data.array(), 0, length);
+				if ((int) crc.getValue() != checksum) {
+					logger.warn("Checksum mismatch. Ignoring rest of file=" + file
+							+ ", position=" + position);
+					break;
+				}
+
+				position += RECORD_HEADER_SIZE + length;
+			}
+
+			return position;
+		}
+
+		void close() {
+			try {
+				raf.close();
+			} catch (IOException e) {
+				logger.error("Error closing spool segment. file=" + file, e);
+			}
+		}
+
+		// called by the reading thread only, as the mapping is not usable after this
+		void delete() {
+			unmap();
+			close();
+			if (!file.delete()) {
+				logger.error("Error deleting spool segment. file=" + file);
+			}
+		}
+
+		/*
+		 * Releases the mapping now rather than on garbage collection, so that
+		 * the file can be deleted (Windows) and its space freed. There is no
+		 * public API for this before Java 9, hence the reflection
+		 */
+		void unmap() {
+			MappedByteBuffer buffer = readBuffer;
+			readBuffer = null;
+			if (buffer == null) {
+				return;
+			}
+			try {
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			} catch (Exception e) {
+				logger.debug("Unable to unmap spool segment. file=" + file, e);
+			}
+		}
+	}
+}
@@ -52,6 +52,7 @@ public abstract class AuditQueue extends BaseAuditHandler {
 	public static final String PROP_FILE_SPOOL_ENABLE = "filespool.enable";
 	public static final String PROP_FILE_SPOOL_WAIT_FOR_FULL_DRAIN = "filespool.drain.full.wait.ms";
 	public static final String PROP_FILE_SPOOL_QUEUE_THRESHOLD = "filespool.drain.threshold.percent";
+	public static final String PROP_FILE_SPOOL_FORMAT = "filespool.format";
 
 	final protected AuditHandler consumer;
 	protected AuditFileSpool fileSpooler = null;
@@ -111,7 +112,13 @@ public abstract class AuditQueue extends BaseAuditHandler {
 			fileSpoolDrainThresholdPercent = MiscUtil.getIntProperty(props,
 					propPrefix + "." + PROP_FILE_SPOOL_QUEUE_THRESHOLD,
 					fileSpoolDrainThresholdPercent);
-			fileSpooler = new AuditFileSpool(this, consumer);
+			String fileSpoolFormat = MiscUtil.getStringProperty(props,
+					propPrefix + "." + PROP_FILE_SPOOL_FORMAT);
+			if ("binary".equalsIgnoreCase(fileSpoolFormat)) {
+				fileSpooler = new AuditBinaryFileSpool(this, consumer);
+			} else {
+				fileSpooler = new AuditFileSpool(this, consumer);
+			}
 			if (!fileSpooler.init(props, basePropertyName)) {
 				fileSpoolerEnabled = false;
 				LOG.fatal("Couldn't initialize file spooler. Disabling it. queue="
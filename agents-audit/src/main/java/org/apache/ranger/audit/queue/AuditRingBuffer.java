@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer, multi-consumer queue backed by a pre-allocated
+ * array. Each slot carries a sequence number, which tells producers and
+ * consumers whether the slot is free to be written or ready to be read; hence
+ * offer() and poll() need only a compare-and-set on the tail or head counter
+ * and never block or allocate.
+ */
+class AuditRingBuffer<T> {
+	private final int capacity;
+	private final int mask;
+	private final AtomicReferenceArray<T> slots;
+	private final AtomicLongArray sequences;
+	private final AtomicLong head = new AtomicLong(0);
+	private final AtomicLong tail = new AtomicLong(0);
+
+	AuditRingBuffer(int minCapacity) {
+		int cap = 1;
+		while (cap < minCapacity && cap < (1 << 30)) {
+			cap <<= 1;
+		}
+
+		capacity = cap;
+		mask = cap - 1;
+		slots = new AtomicReferenceArray<T>(cap);
+		sequences = new AtomicLongArray(cap);
+
+		for (int i = 0; i < cap; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return false if the buffer is full
+	 */
+	boolean offer(T item) {
+		while (true) {
+			long pos = tail.get();
+			int idx = (int) (pos & mask);
+			long diff = sequences.get(idx) - pos;
+
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					slots.lazySet(idx, item);
+					sequences.set(idx, pos + 1); // publish the item
+					return true;
+				}
+			} else if (diff < 0) {
+				return false;
+			}
+			// else another producer claimed this slot. Retry
+		}
+	}
+
+	/**
+	 * @return null if the buffer is empty
+	 */
+	T poll() {
+		while (true) {
+			long pos = head.get();
+			int idx = (int) (pos & mask);
+			long diff = sequences.get(idx) - (pos + 1);
+
+			if (diff == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					T ret = slots.get(idx);
+					slots.lazySet(idx, null);
+					sequences.set(idx, pos + capacity); // free the slot
+					return ret;
+				}
+			} else if (diff < 0) {
+				return null;
+			}
+			// else another consumer took this slot. Retry
+		}
+	}
+
+	int drainTo(Collection<T> coll, int maxItems) {
+		int ret = 0;
+		while (ret < maxItems) {
+			T item = poll();
+			if (item == null) {
+				break;
+			}
+			coll.add(item);
+			ret++;
+		}
+		return ret;
+	}
+
+	int size() {
+		long size = tail.get() - head.get();
+		return size <= 0 ? 0 : (int) Math.min(size, capacity);
+	}
+
+	boolean isEmpty() {
+		return size() == 0;
+	}
+}
@@ -0,0 +1,454 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.log4j.MDC;
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+/**
+ * Bounded queue backed by a pre-allocated lock-free ring buffer. Application
+ * threads never wait for a lock to log an event; what happens when the buffer
+ * is full is decided by the configured overflow policy:
+ * <ul>
+ * <li>block - wait till space is available, up to overflow.block.timeout.ms;
+ * then drop the event</li>
+ * <li>drop_oldest - discard the oldest event in the buffer</li>
+ * <li>drop_newest - discard the event being logged</li>
+ * <li>spool - write the event to the file spool; requires filespool.enable</li>
+ * </ul>
+ * Number of dropped and spooled events is logged with the audit status.
+ */
+public class AuditRingBufferQueue extends AuditQueue implements Runnable {
+	private static final Log logger = LogFactory.getLog(AuditRingBufferQueue.class);
+
+	public enum OverflowPolicy {
+		BLOCK, DROP_OLDEST, DROP_NEWEST, SPOOL
+	}
+
+	public static final String PROP_OVERFLOW_POLICY = "overflow.policy";
+	public static final String PROP_OVERFLOW_BLOCK_TIMEOUT_MS = "overflow.block.timeout.ms";
+
+	public static final int AUDIT_RING_BUFFER_SIZE_DEFAULT = 64 * 1024;
+	public static final int AUDIT_OVERFLOW_BLOCK_TIMEOUT_DEFAULT_MS = 1000;
+
+	static final String DEFAULT_NAME = "ringbuffer";
+	static final long PRODUCER_BACKOFF_NS = TimeUnit.MICROSECONDS.toNanos(100);
+	static int threadCount = 0;
+
+	private AuditRingBuffer<AuditEventBase> buffer = null;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+	private long blockTimeoutNs = TimeUnit.MILLISECONDS.toNanos(AUDIT_OVERFLOW_BLOCK_TIMEOUT_DEFAULT_MS);
+
+	private final AtomicLong droppedCount = new AtomicLong(0);
+	private final AtomicLong spooledCount = new AtomicLong(0);
+	private long lastDroppedCount = 0;
+	private long lastSpooledCount = 0;
+
+	private volatile boolean isConsumerWaiting = false;
+	private volatile Thread consumerThread = null;
+
+	public AuditRingBufferQueue(AuditHandler consumer) {
+		super(consumer);
+		setName(DEFAULT_NAME);
+		setMaxQueueSize(AUDIT_RING_BUFFER_SIZE_DEFAULT);
+	}
+
+	@Override
+	public void init(Properties props, String basePropertyName) {
+		String propPrefix = "xasecure.audit.ringbuffer";
+		if (basePropertyName != null) {
+			propPrefix = basePropertyName;
+		}
+
+		super.init(props, propPrefix);
+
+		String policy = MiscUtil.getStringProperty(props, propPrefix + "."
+				+ PROP_OVERFLOW_POLICY);
+		if (policy != null && !policy.trim().isEmpty()) {
+			try {
+				overflowPolicy = OverflowPolicy.valueOf(policy.trim()
+						.toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.error("Invalid value " + policy + " for " + propPrefix
+						+ "." + PROP_OVERFLOW_POLICY + ". Using "
+						+ overflowPolicy);
+			}
+		}
+		if (overflowPolicy == OverflowPolicy.SPOOL && !fileSpoolerEnabled) {
+			logger.error("Overflow policy spool requires file spool, which is not enabled. Using "
+					+ OverflowPolicy.DROP_NEWEST + ". queue=" + getName());
+			overflowPolicy = OverflowPolicy.DROP_NEWEST;
+		}
+		blockTimeoutNs = TimeUnit.MILLISECONDS.toNanos(MiscUtil.getIntProperty(
+				props, propPrefix + "." + PROP_OVERFLOW_BLOCK_TIMEOUT_MS,
+				AUDIT_OVERFLOW_BLOCK_TIMEOUT_DEFAULT_MS));
+
+		logger.info("Ring buffer queue " + getName() + ": capacity="
+				+ getMaxQueueSize() + ", overflowPolicy=" + overflowPolicy
+				+ ", blockTimeoutMs="
+				+ TimeUnit.NANOSECONDS.toMillis(blockTimeoutNs));
+	}
+
+	@Override
+	public boolean log(AuditEventBase event) {
+		if (buffer.offer(event)) {
+			wakeConsumer();
+			return true;
+		}
+		return handleOverflow(event);
+	}
+
+	@Override
+	public boolean log(Collection<AuditEventBase> events) {
+		boolean ret = true;
+		for (AuditEventBase event : events) {
+			ret = log(event);
+			if (!ret) {
+				break;
+			}
+		}
+		return ret;
+	}
+
+	private boolean handleOverflow(AuditEventBase event) {
+		boolean ret = false;
+
+		switch (overflowPolicy) {
+		case BLOCK: {
+			long deadline = System.nanoTime() + blockTimeoutNs;
+			while (!ret && !isDrain() && System.nanoTime() < deadline) {
+				wakeConsumer();
+				LockSupport.parkNanos(this, PRODUCER_BACKOFF_NS);
+				ret = buffer.offer(event);
+			}
+			if (!ret) {
+				droppedCount.incrementAndGet();
+			}
+		}
+			break;
+
+		case DROP_OLDEST:
+			while (!ret) {
+				if (buffer.poll() != null) {
+					droppedCount.incrementAndGet();
+				}
+				ret = buffer.offer(event);
+			}
+			break;
+
+		case SPOOL:
+			fileSpooler.stashLogs(event);
+			spooledCount.incrementAndGet();
+			ret = true;
+			break;
+
+		case DROP_NEWEST:
+		default:
+			droppedCount.incrementAndGet();
+			break;
+		}
+
+		if (ret) {
+			wakeConsumer();
+		}
+
+		return ret;
+	}
+
+	private void wakeConsumer() {
+		if (isConsumerWaiting) {
+			Thread thread = consumerThread;
+			if (thread != null) {
+				LockSupport.unpark(thread);
+			}
+		}
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	public long getSpooledCount() {
+		return spooledCount.get();
+	}
+
+	public int size() {
+		return buffer == null ? 0 : buffer.size();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.apache.ranger.audit.provider.AuditProvider#start()
+	 */
+	@Override
+	synchronized public void start() {
+		if (consumerThread != null) {
+			logger.error("Provider is already started. name=" + getName());
+			return;
+		}
+		buffer = new AuditRingBuffer<AuditEventBase>(getMaxQueueSize());
+		logger.info("Created ring buffer with capacity=" + buffer.capacity()
+				+ ". name=" + getName());
+
+		// Start the consumer first
+		consumer.start();
+
+		// Then the FileSpooler
+		if (fileSpoolerEnabled) {
+			fileSpooler.start();
+		}
+
+		// Finally the queue listener
+		Thread thread = new Thread(this, this.getClass().getName()
+				+ (threadCount++));
+		thread.setDaemon(true);
+		consumerThread = thread;
+		thread.start();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.apache.ranger.audit.provider.AuditProvider#stop()
+	 */
+	@Override
+	public void stop() {
+		logger.info("Stop called. name=" + getName());
+		setDrain(true);
+		flush();
+		try {
+			Thread thread = consumerThread;
+			if (thread != null) {
+				logger.info("Interrupting consumerThread. name=" + getName()
+						+ ", consumer="
+						+ (consumer == null ? null : consumer.getName()));
+
+				thread.interrupt();
+			}
+		} catch (Throwable t) {
+			// ignore any exception
+		}
+		consumerThread = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.apache.ranger.audit.provider.AuditProvider#waitToComplete()
+	 */
+	@Override
+	public void waitToComplete() {
+		int defaultTimeOut = -1;
+		waitToComplete(defaultTimeOut);
+		consumer.waitToComplete(defaultTimeOut);
+	}
+
+	@Override
+	public void waitToComplete(long timeout) {
+		setDrain(true);
+		flush();
+		long sleepTime = 1000;
+		long startTime = System.currentTimeMillis();
+		int prevQueueSize = -1;
+		int staticLoopCount = 0;
+		while (size() > 0) {
+			if (prevQueueSize == size()) {
+				logger.error("Queue size is not changing. " + getName()
+						+ ".size=" + size());
+				staticLoopCount++;
+				if (staticLoopCount > 5) {
+					logger.error("Aborting writing to consumer. Some logs will be discarded."
+							+ getName() + ".size=" + size());
+					break;
+				}
+			} else {
+				staticLoopCount = 0;
+				prevQueueSize = size();
+			}
+			Thread thread = consumerThread;
+			if (thread != null) {
+				thread.interrupt();
+			}
+			try {
+				Thread.sleep(sleepTime);
+				if (timeout > 0
+						&& (System.currentTimeMillis() - startTime > timeout)) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+		consumer.waitToComplete(timeout);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.apache.ranger.audit.provider.AuditProvider#flush()
+	 */
+	@Override
+	public void flush() {
+		if (fileSpoolerEnabled) {
+			fileSpooler.flush();
+		}
+		consumer.flush();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			//This is done to clear the MDC context to avoid issue with Ranger Auditing for Knox
+			MDC.clear();
+			runLogAudit();
+		} catch (Throwable t) {
+			logger.fatal("Exited thread abnormaly. queue=" + getName(), t);
+		}
+	}
+
+	public void runLogAudit() {
+		List<AuditEventBase> localBatchBuffer = new ArrayList<AuditEventBase>(getMaxBatchSize());
+		long lastDispatchTime = System.currentTimeMillis();
+
+		while (true) {
+			logStatusIfRequired();
+
+			buffer.drainTo(localBatchBuffer, getMaxBatchSize() - localBatchBuffer.size());
+
+			long nextDispatchDuration = lastDispatchTime
+					- System.currentTimeMillis() + getMaxBatchInterval();
+
+			if (localBatchBuffer.size() > 0
+					&& (isDrain()
+							|| localBatchBuffer.size() >= getMaxBatchSize() || nextDispatchDuration <= 0)) {
+				addTotalCount(localBatchBuffer.size());
+				lastDispatchTime = System.currentTimeMillis();
+
+				boolean ret = false;
+				try {
+					ret = consumer.log(localBatchBuffer);
+				} catch (Throwable t) {
+					logger.error("Caught error during processing request.", t);
+				}
+				if (!ret) {
+					if (fileSpoolerEnabled) {
+						// Transient error. Stash and move on
+						fileSpooler.stashLogs(localBatchBuffer);
+						addStashedCount(localBatchBuffer.size());
+					} else {
+						// We need to drop this event
+						addFailedCount(localBatchBuffer.size());
+						logFailedEvent(localBatchBuffer);
+					}
+				} else {
+					addSuccessCount(localBatchBuffer.size());
+				}
+				localBatchBuffer.clear();
+			} else if (localBatchBuffer.size() < getMaxBatchSize() && !isDrain()) {
+				long waitMs = localBatchBuffer.isEmpty() ? getMaxBatchInterval() : nextDispatchDuration;
+
+				// wait for producers; the flag must be set before checking the buffer, to not miss a wake up
+				isConsumerWaiting = true;
+				if (buffer.isEmpty()) {
+					LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(waitMs));
+				}
+				isConsumerWaiting = false;
+
+				if (Thread.interrupted()) {
+					logger.info("Consumer thread interrupted. Shutdown might be in progress");
+					setDrain(true);
+				}
+			}
+
+			if (isDrain()) {
+				if (!buffer.isEmpty() || localBatchBuffer.size() > 0) {
+					logger.info("Queue is not empty. Will retry. queue.size="
+							+ buffer.size() + ", localBatchBuffer.size()="
+							+ localBatchBuffer.size());
+				} else {
+					break;
+				}
+				if (isDrainMaxTimeElapsed()) {
+					logger.warn("Exiting polling loop because max time allowed reached. name="
+							+ getName()
+							+ ", waited for "
+							+ (stopTime - System.currentTimeMillis()) + " ms");
+				}
+			}
+		}
+
+		logger.info("Exiting consumerThread. Queue=" + getName() + ", dest="
+				+ consumer.getName());
+		try {
+			// Call stop on the consumer
+			logger.info("Calling to stop consumer. name=" + getName()
+					+ ", consumer.name=" + consumer.getName());
+
+			consumer.stop();
+			if (fileSpoolerEnabled) {
+				fileSpooler.stop();
+			}
+		} catch (Throwable t) {
+			logger.error("Error while calling stop on consumer.", t);
+		}
+		logStatus();
+		logger.info("Exiting consumerThread.run() method. name=" + getName());
+	}
+
+	@Override
+	synchronized public void logStatus() {
+		super.logStatus();
+
+		long dropped = droppedCount.get();
+		long spooled = spooledCount.get();
+		if (dropped != lastDroppedCount || spooled != lastSpooledCount) {
+			logger.warn("Audit queue overflow: name=" + getName()
+					+ ", overflowPolicy=" + overflowPolicy
+					+ ", droppedCount=" + (dropped - lastDroppedCount)
+					+ ", spooledCount=" + (spooled - lastSpooledCount)
+					+ ", totalDropped=" + dropped + ", totalSpooled="
+					+ spooled);
+			lastDroppedCount = dropped;
+			lastSpooledCount = spooled;
+		}
+	}
+}
@@ -21,9 +21,6 @@ package org.apache.ranger.audit.queue;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -54,7 +51,7 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 
 	private int maxSummaryIntervalMs = 5000;
 
-	HashMap<String, AuditSummary> summaryMap = new HashMap<String, AuditSummary>();
+	AuditSummaryTable summaryTable = new AuditSummaryTable();
 
 	public AuditSummaryQueue(AuditHandler consumer) {
 		super(consumer);
@@ -193,45 +190,27 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 			}
 
 			for (AuditEventBase event : eventList) {
-				// Add to hash map
-				String key = event.getEventKey();
-				AuditSummary auditSummary = summaryMap.get(key);
-				if (auditSummary == null) {
-					auditSummary = new AuditSummary();
-					auditSummary.event = event;
-					auditSummary.startTime = event.getEventTime();
-					auditSummary.endTime = event.getEventTime();
-					auditSummary.count = 1;
-					summaryMap.put(key, auditSummary);
-				} else {
-					auditSummary.endTime = event.getEventTime();
-					auditSummary.count++;
-				}
+				summaryTable.add(event);
 			}
 
 			if (isDrain() || nextDispatchDuration <= 0) {
 				// Reset time just before sending the logs
 				lastDispatchTime = System.currentTimeMillis();
 
-				for (Map.Entry<String, AuditSummary> entry : summaryMap
-						.entrySet()) {
-					AuditSummary auditSummary = entry.getValue();
-					auditSummary.event.setEventCount(auditSummary.count);
-					long timeDiff = auditSummary.endTime.getTime()
-							- auditSummary.startTime.getTime();
-					timeDiff = timeDiff > 0 ? timeDiff : 1;
-					auditSummary.event.setEventDurationMS(timeDiff);
-					boolean ret = consumer.log(auditSummary.event);
+				if (!summaryTable.isEmpty()) {
+					Collection<AuditEventBase> summaries = new ArrayList<AuditEventBase>(
+							summaryTable.size());
+					summaryTable.drainTo(summaries);
+					boolean ret = consumer.log(summaries);
 					if (!ret) {
-						// We need to drop this event
-						logFailedEvent(auditSummary.event);
+						// We need to drop these events
+						logFailedEvent(summaries);
 					}
 				}
-				summaryMap.clear();
 			}
 
 			if (isDrain()) {
-				if (summaryMap.isEmpty() && queue.isEmpty()) {
+				if (summaryTable.isEmpty() && queue.isEmpty()) {
 					break;
 				}
 				if (isDrainMaxTimeElapsed()) {
@@ -255,11 +234,4 @@ public class AuditSummaryQueue extends AuditQueue implements Runnable {
 		}
 		logger.info("Exiting consumerThread.run() method. name=" + getName());
 	}
-
-	class AuditSummary {
-		Date startTime = null;
-		Date endTime = null;
-		int count = 0;
-		AuditEventBase event;
-	}
 }
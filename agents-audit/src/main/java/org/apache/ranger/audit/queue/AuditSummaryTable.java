@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+
+/**
+ * Summary of audit events of a time window: count, first and last event time
+ * for each distinct event. Events are keyed by a 128-bit fingerprint - two
+ * independent 64-bit hashes of the event key - held in an open-addressing
+ * table of primitive arrays; hence adding an event doesn't create a string
+ * key, a map entry or a summary object. The first event for a key is the one
+ * emitted with the summary.
+ */
+class AuditSummaryTable {
+	static final long SEED_1 = 0xcbf29ce484222325L; // FNV-1a offset basis
+	static final long SEED_2 = 0x9e3779b97f4a7c15L;
+
+	private static final int MIN_CAPACITY = 1024;
+
+	private long[] keys1;
+	private long[] keys2;
+	private long[] counts;
+	private long[] firstTimes;
+	private long[] lastTimes;
+	private AuditEventBase[] events;
+	private int mask;
+	private int size = 0;
+
+	AuditSummaryTable() {
+		allocate(MIN_CAPACITY);
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	void add(AuditEventBase event) {
+		long key1 = event.getEventKeyHash(SEED_1);
+		long key2 = event.getEventKeyHash(SEED_2);
+		Date eventTime = event.getEventTime();
+		long time = eventTime != null ? eventTime.getTime() : System.currentTimeMillis();
+
+		int idx = (int) key1 & mask;
+		while (events[idx] != null) {
+			if (keys1[idx] == key1 && keys2[idx] == key2) {
+				counts[idx]++;
+				if (time < firstTimes[idx]) {
+					firstTimes[idx] = time;
+				}
+				if (time > lastTimes[idx]) {
+					lastTimes[idx] = time;
+				}
+				return;
+			}
+			idx = (idx + 1) & mask;
+		}
+
+		keys1[idx] = key1;
+		keys2[idx] = key2;
+		counts[idx] = 1;
+		firstTimes[idx] = time;
+		lastTimes[idx] = time;
+		events[idx] = event;
+
+		if (++size > (events.length >>> 1)) {
+			resize(events.length << 1);
+		}
+	}
+
+	/**
+	 * Sets count and duration in the first event of each key, adds it to
+	 * summaries and clears the table
+	 *
+	 * @return number of summarized events
+	 */
+	int drainTo(Collection<AuditEventBase> summaries) {
+		int ret = size;
+
+		for (int i = 0; i < events.length; i++) {
+			AuditEventBase event = events[i];
+			if (event != null) {
+				long timeDiff = lastTimes[i] - firstTimes[i];
+				event.setEventCount(counts[i]);
+				event.setEventDurationMS(timeDiff > 0 ? timeDiff : 1);
+				summaries.add(event);
+			}
+		}
+
+		// shrink, if the last window had far fewer distinct events than the table can hold
+		if (events.length > MIN_CAPACITY && size < (events.length >>> 3)) {
+			allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(size) << 2));
+		} else {
+			Arrays.fill(events, null);
+		}
+		size = 0;
+
+		return ret;
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys1 = keys1;
+		long[] oldKeys2 = keys2;
+		long[] oldCounts = counts;
+		long[] oldFirstTimes = firstTimes;
+		long[] oldLastTimes = lastTimes;
+		AuditEventBase[] oldEvents = events;
+
+		allocate(capacity);
+
+		for (int i = 0; i < oldEvents.length; i++) {
+			if (oldEvents[i] != null) {
+				int idx = (int) oldKeys1[i] & mask;
+				while (events[idx] != null) {
+					idx = (idx + 1) & mask;
+				}
+				keys1[idx] = oldKeys1[i];
+				keys2[idx] = oldKeys2[i];
+				counts[idx] = oldCounts[i];
+				firstTimes[idx] = oldFirstTimes[i];
+				lastTimes[idx] = oldLastTimes[i];
+				events[idx] = oldEvents[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys1 = new long[capacity];
+		keys2 = new long[capacity];
+		counts = new long[capacity];
+		firstTimes = new long[capacity];
+		lastTimes = new long[capacity];
+		events = new AuditEventBase[capacity];
+		mask = capacity - 1;
+	}
+}
@@ -0,0 +1,313 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.ranger.audit.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+/**
+ * Reads audit events from files written by ColumnarAuditWriter. A file
+ * without footer (writer didn't close it) is read up to the last complete
+ * stripe.
+ */
+public class ColumnarAuditReader {
+	private final DataInputStream in;
+	private final String[] columnNames;
+	private final byte[] columnTypes;
+	private final Inflater inflater = new Inflater();
+	private boolean isEOF = false;
+
+	public ColumnarAuditReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(in);
+
+		if (this.in.readInt() != ColumnarAuditWriter.MAGIC) {
+			throw new IOException("not a columnar audit file");
+		}
+
+		int version = this.in.readInt();
+		if (version != ColumnarAuditWriter.VERSION) {
+			throw new IOException("unsupported columnar audit file version " + version);
+		}
+
+		int columnCount = this.in.readInt();
+		columnNames = new String[columnCount];
+		columnTypes = new byte[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			columnNames[i] = this.in.readUTF();
+			columnTypes[i] = this.in.readByte();
+		}
+	}
+
+	public String[] getColumnNames() {
+		return columnNames;
+	}
+
+	/**
+	 * @return events in the next stripe; null if there are no more stripes
+	 */
+	public List<AuthzAuditEvent> readStripe() throws IOException {
+		if (isEOF) {
+			return null;
+		}
+
+		int rowCount;
+		try {
+			int marker = in.readInt();
+			if (marker != ColumnarAuditWriter.STRIPE_MARKER) {
+				isEOF = true;
+				return null;
+			}
+			rowCount = in.readInt();
+		} catch (EOFException e) {
+			isEOF = true;
+			return null;
+		}
+
+		long[][] longColumns = new long[columnNames.length][];
+		boolean[][] nullColumns = new boolean[columnNames.length][];
+		String[][] stringColumns = new String[columnNames.length][];
+		try {
+			for (int i = 0; i < columnNames.length; i++) {
+				byte encoding = in.readByte();
+				byte[] raw = readColumn();
+				int[] pos = new int[1];
+
+				checkEncoding(i, encoding);
+
+				if (encoding == ColumnarAuditWriter.ENCODING_DELTA) {
+					longColumns[i] = decodeDelta(raw, pos, rowCount);
+				} else if (encoding == ColumnarAuditWriter.ENCODING_NULLABLE_DELTA) {
+					nullColumns[i] = new boolean[rowCount];
+					longColumns[i] = decodeNullableDelta(raw, pos, rowCount, nullColumns[i]);
+				} else if (encoding == ColumnarAuditWriter.ENCODING_DICT) {
+					stringColumns[i] = decodeDictionary(raw, pos, rowCount);
+				} else {
+					stringColumns[i] = decodePlain(raw, pos, rowCount);
+				}
+			}
+		} catch (EOFException e) {
+			// last stripe of a file that wasn't closed
+			isEOF = true;
+			return null;
+		}
+
+		List<AuthzAuditEvent> ret = new ArrayList<AuthzAuditEvent>(rowCount);
+		for (int row = 0; row < rowCount; row++) {
+			AuthzAuditEvent event = new AuthzAuditEvent();
+
+			for (int i = 0; i < columnNames.length; i++) {
+				if (stringColumns[i] != null) {
+					setField(event, columnNames[i], 0, stringColumns[i][row]);
+				} else if (nullColumns[i] != null && nullColumns[i][row]) {
+					setNull(event, columnNames[i]);
+				} else {
+					setField(event, columnNames[i], longColumns[i][row], null);
+				}
+			}
+
+			ret.add(event);
+		}
+
+		return ret;
+	}
+
+	public void close() throws IOException {
+		inflater.end();
+		in.close();
+	}
+
+	private void checkEncoding(int col, byte encoding) throws IOException {
+		final boolean isValid;
+
+		if (columnTypes[col] == ColumnarAuditWriter.TYPE_LONG) {
+			isValid = encoding == ColumnarAuditWriter.ENCODING_DELTA || encoding == ColumnarAuditWriter.ENCODING_NULLABLE_DELTA;
+		} else if (columnTypes[col] == ColumnarAuditWriter.TYPE_STRING) {
+			isValid = encoding == ColumnarAuditWriter.ENCODING_DICT || encoding == ColumnarAuditWriter.ENCODING_PLAIN;
+		} else {
+			throw new IOException("unknown type " + columnTypes[col] + " for column " + columnNames[col]);
+		}
+
+		if (!isValid) {
+			throw new IOException("encoding " + encoding + " is not valid for column " + columnNames[col] + " of type " + columnTypes[col]);
+		}
+	}
+
+	private byte[] readColumn() throws IOException {
+		int rawLen = in.readInt();
+		int compressedLen = in.readInt();
+		byte[] compressed = new byte[compressedLen];
+		byte[] raw = new byte[rawLen];
+
+		in.readFully(compressed);
+
+		inflater.reset();
+		inflater.setInput(compressed);
+		try {
+			int len = 0;
+			while (len < rawLen && !inflater.finished()) {
+				len += inflater.inflate(raw, len, rawLen - len);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("corrupt column data", e);
+		}
+
+		return raw;
+	}
+
+	private static void setField(AuthzAuditEvent event, String column, long longVal, String strVal) {
+		switch (column) {
+			case "evtTime":         event.setEventTime(new Date(longVal)); break;
+			case "repoType":        event.setRepositoryType((int) longVal); break;
+			case "repo":            event.setRepositoryName(strVal); break;
+			case "reqUser":         event.setUser(strVal); break;
+			case "access":          event.setAccessType(strVal); break;
+			case "resource":        event.setResourcePath(strVal); break;
+			case "resType":         event.setResourceType(strVal); break;
+			case "action":          event.setAction(strVal); break;
+			case "result":          event.setAccessResult((short) longVal); break;
+			case "agent":           event.setAgentId(strVal); break;
+			case "policy":          event.setPolicyId(longVal); break;
+			case "reason":          event.setResultReason(strVal); break;
+			case "enforcer":        event.setAclEnforcer(strVal); break;
+			case "sess":            event.setSessionId(strVal); break;
+			case "cliType":         event.setClientType(strVal); break;
+			case "cliIP":           event.setClientIP(strVal); break;
+			case "reqData":         event.setRequestData(strVal); break;
+			case "agentHost":       event.setAgentHostname(strVal); break;
+			case "logType":         event.setLogType(strVal); break;
+			case "id":              event.setEventId(strVal); break;
+			case "seq_num":         event.setSeqNum(longVal); break;
+			case "event_count":     event.setEventCount(longVal); break;
+			case "event_dur_ms":    event.setEventDurationMS(longVal); break;
+			case "tags":            event.setTags(strVal == null ? null : new HashSet<String>(Arrays.asList(MiscUtil.fromJson(strVal, String[].class)))); break;
+			case "additional_info": event.setAdditionalInfo(strVal); break;
+			case "cluster_name":    event.setClusterName(strVal); break;
+			default: // column added by a later version
+		}
+	}
+
+	// of the numeric fields of the event, only event time can be null
+	private static void setNull(AuthzAuditEvent event, String column) {
+		if ("evtTime".equals(column)) {
+			event.setEventTime(null);
+		}
+	}
+
+	private static long[] decodeNullableDelta(byte[] buf, int[] pos, int count, boolean[] nulls) {
+		long[] ret = new long[count];
+		long prev = 0;
+		for (int i = 0; i < count; i++) {
+			if (buf[pos[0]++] == 0) {
+				nulls[i] = true;
+			} else {
+				prev += unzigzag(readVarLong(buf, pos));
+				ret[i] = prev;
+			}
+		}
+		return ret;
+	}
+
+	private static long[] decodeDelta(byte[] buf, int[] pos, int count) {
+		long[] ret = new long[count];
+		long prev = 0;
+		for (int i = 0; i < count; i++) {
+			prev += unzigzag(readVarLong(buf, pos));
+			ret[i] = prev;
+		}
+		return ret;
+	}
+
+	private static String[] decodeDictionary(byte[] buf, int[] pos, int count) {
+		String[] entries = new String[(int) readVarLong(buf, pos) + 1];
+		for (int i = 1; i < entries.length; i++) {
+			entries[i] = readString(buf, pos, (int) readVarLong(buf, pos));
+		}
+		String[] ret = new String[count];
+		for (int i = 0; i < count; i++) {
+			ret[i] = entries[(int) readVarLong(buf, pos)];
+		}
+		return ret;
+	}
+
+	private static String[] decodePlain(byte[] buf, int[] pos, int count) {
+		String[] ret = new String[count];
+		for (int i = 0; i < count; i++) {
+			int len = (int) readVarLong(buf, pos);
+			ret[i] = len == 0 ? null : readString(buf, pos, len - 1);
+		}
+		return ret;
+	}
+
+	private static String readString(byte[] buf, int[] pos, int len) {
+		String ret = new String(buf, pos[0], len, StandardCharsets.UTF_8);
+		pos[0] += len;
+		return ret;
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static long readVarLong(byte[] buf, int[] pos) {
+		long ret = 0;
+		int shift = 0;
+		while (true) {
+			byte b = buf[pos[0]++];
+			ret |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return ret;
+			}
+			shift += 7;
+		}
+	}
+
+	/**
+	 * Prints events in the given files as JSON, one per line
+	 */
+	public static void main(String[] args) throws IOException {
+		for (String fileName : args) {
+			ColumnarAuditReader reader = new ColumnarAuditReader(new BufferedInputStream(new FileInputStream(fileName)));
+			try {
+				for (List<AuthzAuditEvent> events = reader.readStripe(); events != null; events = reader.readStripe()) {
+					for (AuthzAuditEvent event : events) {
+						System.out.println(MiscUtil.stringify(event));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,351 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.ranger.audit.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.MiscUtil;
+
+/**
+ * Writes audit events in a columnar file: events are buffered in memory,
+ * column by column, and written as a stripe of compressed columns.
+ *
+ * <pre>
+ * file   := MAGIC version(int) columnCount(int) (name(UTF) type(byte))* stripe* footer
+ * stripe := STRIPE_MARKER rowCount(int) column*
+ * column := encoding(byte) rawLength(int) compressedLength(int) deflated-bytes
+ * footer := FOOTER_MARKER stripeCount(int) rowCount(long)
+ * </pre>
+ *
+ * String columns are dictionary encoded when values repeat in the stripe
+ * (user, resource, access type, etc.), else written as is; null is index or
+ * length 0. Numeric columns are written as zigzag varint of the delta with
+ * the previous row; if the stripe has nulls in the column (event time), each
+ * row is preceded by a presence byte. Stripes
+ * are self-delimiting, hence a file that wasn't closed (no footer) can still
+ * be read up to the last complete stripe - see ColumnarAuditReader.
+ */
+public class ColumnarAuditWriter {
+	public static final int MAGIC         = 0x52434146; // RCAF
+	public static final int VERSION       = 1;
+	public static final int STRIPE_MARKER = 0x53545250; // STRP
+	public static final int FOOTER_MARKER = 0x46545220; // FTR
+
+	public static final byte TYPE_LONG   = 1;
+	public static final byte TYPE_STRING = 2;
+
+	public static final byte ENCODING_DELTA = 1;
+	public static final byte ENCODING_DICT  = 2;
+	public static final byte ENCODING_PLAIN = 3;
+	public static final byte ENCODING_NULLABLE_DELTA = 4;
+
+	public static final String[] COLUMN_NAMES = {
+		"evtTime", "repoType", "repo", "reqUser", "access", "resource",
+		"resType", "action", "result", "agent", "policy", "reason",
+		"enforcer", "sess", "cliType", "cliIP", "reqData", "agentHost",
+		"logType", "id", "seq_num", "event_count", "event_dur_ms", "tags",
+		"additional_info", "cluster_name"
+	};
+
+	public static final byte[] COLUMN_TYPES = {
+		TYPE_LONG, TYPE_LONG, TYPE_STRING, TYPE_STRING, TYPE_STRING, TYPE_STRING,
+		TYPE_STRING, TYPE_STRING, TYPE_LONG, TYPE_STRING, TYPE_LONG, TYPE_STRING,
+		TYPE_STRING, TYPE_STRING, TYPE_STRING, TYPE_STRING, TYPE_STRING, TYPE_STRING,
+		TYPE_STRING, TYPE_STRING, TYPE_LONG, TYPE_LONG, TYPE_LONG, TYPE_STRING,
+		TYPE_STRING, TYPE_STRING
+	};
+
+	private final CountingOutputStream counter;
+	private final DataOutputStream out;
+	private final int maxStripeRows;
+	private final long[][] longColumns = new long[COLUMN_NAMES.length][];
+	private final boolean[][] nullColumns = new boolean[COLUMN_NAMES.length][];
+	private final boolean[] hasNulls = new boolean[COLUMN_NAMES.length];
+	private final String[][] stringColumns = new String[COLUMN_NAMES.length][];
+	private final ByteArrayOutputStream rawBuffer = new ByteArrayOutputStream();
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private byte[] compressBuffer = new byte[64 * 1024];
+	private int rowCount = 0;
+	private int stripeCount = 0;
+	private long totalRowCount = 0;
+
+	public ColumnarAuditWriter(OutputStream out, int maxStripeRows)
+			throws IOException {
+		// DataOutputStream.size() stops counting at Integer.MAX_VALUE
+		this.counter = new CountingOutputStream(out);
+		this.out = new DataOutputStream(counter);
+		this.maxStripeRows = maxStripeRows;
+
+		for (int i = 0; i < COLUMN_NAMES.length; i++) {
+			if (COLUMN_TYPES[i] == TYPE_LONG) {
+				longColumns[i] = new long[maxStripeRows];
+				nullColumns[i] = new boolean[maxStripeRows];
+			} else {
+				stringColumns[i] = new String[maxStripeRows];
+			}
+		}
+
+		this.out.writeInt(MAGIC);
+		this.out.writeInt(VERSION);
+		this.out.writeInt(COLUMN_NAMES.length);
+		for (int i = 0; i < COLUMN_NAMES.length; i++) {
+			this.out.writeUTF(COLUMN_NAMES[i]);
+			this.out.writeByte(COLUMN_TYPES[i]);
+		}
+	}
+
+	/**
+	 * Adds the event to the current stripe
+	 *
+	 * @return true if the stripe is full and should be written
+	 */
+	public boolean add(AuthzAuditEvent event) throws IOException {
+		if (rowCount == maxStripeRows) {
+			writeStripe();
+		}
+
+		int row = rowCount++;
+		int col = 0;
+
+		if (event.getEventTime() == null) {
+			setNull(col++, row);
+		} else {
+			longColumns[col++][row] = event.getEventTime().getTime();
+		}
+		longColumns[col++][row] = event.getRepositoryType();
+		stringColumns[col++][row] = event.getRepositoryName();
+		stringColumns[col++][row] = event.getUser();
+		stringColumns[col++][row] = event.getAccessType();
+		stringColumns[col++][row] = event.getResourcePath();
+		stringColumns[col++][row] = event.getResourceType();
+		stringColumns[col++][row] = event.getAction();
+		longColumns[col++][row] = event.getAccessResult();
+		stringColumns[col++][row] = event.getAgentId();
+		longColumns[col++][row] = event.getPolicyId();
+		stringColumns[col++][row] = event.getResultReason();
+		stringColumns[col++][row] = event.getAclEnforcer();
+		stringColumns[col++][row] = event.getSessionId();
+		stringColumns[col++][row] = event.getClientType();
+		stringColumns[col++][row] = event.getClientIP();
+		stringColumns[col++][row] = event.getRequestData();
+		stringColumns[col++][row] = event.getAgentHostname();
+		stringColumns[col++][row] = event.getLogType();
+		stringColumns[col++][row] = event.getEventId();
+		longColumns[col++][row] = event.getSeqNum();
+		longColumns[col++][row] = event.getEventCount();
+		longColumns[col++][row] = event.getEventDurationMS();
+		stringColumns[col++][row] = event.getTags() == null ? null : MiscUtil.stringify(event.getTags());
+		stringColumns[col++][row] = event.getAdditionalInfo();
+		stringColumns[col++][row] = event.getClusterName();
+
+		return rowCount == maxStripeRows;
+	}
+
+	private void setNull(int col, int row) {
+		nullColumns[col][row] = true;
+		hasNulls[col] = true;
+	}
+
+	public int getBufferedRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return bytes written to the stream so far, excluding buffered rows
+	 */
+	public long getBytesWritten() {
+		return counter.count;
+	}
+
+	public long getTotalRowCount() {
+		return totalRowCount + rowCount;
+	}
+
+	public void writeStripe() throws IOException {
+		if (rowCount == 0) {
+			return;
+		}
+
+		out.writeInt(STRIPE_MARKER);
+		out.writeInt(rowCount);
+
+		for (int i = 0; i < COLUMN_NAMES.length; i++) {
+			rawBuffer.reset();
+
+			byte encoding;
+			if (COLUMN_TYPES[i] == TYPE_LONG && hasNulls[i]) {
+				encoding = encodeNullableDelta(longColumns[i], nullColumns[i], rowCount, rawBuffer);
+				Arrays.fill(nullColumns[i], 0, rowCount, false);
+				hasNulls[i] = false;
+			} else if (COLUMN_TYPES[i] == TYPE_LONG) {
+				encoding = encodeDelta(longColumns[i], rowCount, rawBuffer);
+			} else {
+				encoding = encodeStrings(stringColumns[i], rowCount, rawBuffer);
+				Arrays.fill(stringColumns[i], 0, rowCount, null);
+			}
+
+			writeColumn(encoding);
+		}
+
+		totalRowCount += rowCount;
+		stripeCount++;
+		rowCount = 0;
+	}
+
+	/**
+	 * Writes the buffered rows and the footer; the stream is not closed
+	 */
+	public void finish() throws IOException {
+		writeStripe();
+
+		out.writeInt(FOOTER_MARKER);
+		out.writeInt(stripeCount);
+		out.writeLong(totalRowCount);
+		out.flush();
+
+		deflater.end();
+	}
+
+	private void writeColumn(byte encoding) throws IOException {
+		byte[] raw = rawBuffer.toByteArray();
+
+		deflater.reset();
+		deflater.setInput(raw);
+		deflater.finish();
+
+		int compressedLen = 0;
+		while (!deflater.finished()) {
+			if (compressedLen == compressBuffer.length) {
+				compressBuffer = Arrays.copyOf(compressBuffer, compressBuffer.length * 2);
+			}
+			compressedLen += deflater.deflate(compressBuffer, compressedLen, compressBuffer.length - compressedLen);
+		}
+
+		out.writeByte(encoding);
+		out.writeInt(raw.length);
+		out.writeInt(compressedLen);
+		out.write(compressBuffer, 0, compressedLen);
+	}
+
+	private static byte encodeDelta(long[] values, int count, ByteArrayOutputStream buf) {
+		long prev = 0;
+		for (int i = 0; i < count; i++) {
+			writeVarLong(buf, zigzag(values[i] - prev));
+			prev = values[i];
+		}
+		return ENCODING_DELTA;
+	}
+
+	// null rows are skipped in computing the delta
+	private static byte encodeNullableDelta(long[] values, boolean[] nulls, int count, ByteArrayOutputStream buf) {
+		long prev = 0;
+		for (int i = 0; i < count; i++) {
+			if (nulls[i]) {
+				buf.write(0);
+			} else {
+				buf.write(1);
+				writeVarLong(buf, zigzag(values[i] - prev));
+				prev = values[i];
+			}
+		}
+		return ENCODING_NULLABLE_DELTA;
+	}
+
+	// dictionary, unless most values are distinct (like event id). index/length 0 is null
+	private static byte encodeStrings(String[] values, int count, ByteArrayOutputStream buf) {
+		Map<String, Integer> dictionary = new HashMap<String, Integer>();
+		int maxDictSize = count / 2 + 1;
+		for (int i = 0; i < count && dictionary.size() <= maxDictSize; i++) {
+			if (values[i] != null && !dictionary.containsKey(values[i])) {
+				dictionary.put(values[i], dictionary.size() + 1);
+			}
+		}
+
+		if (dictionary.size() <= maxDictSize) {
+			String[] entries = new String[dictionary.size()];
+			for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+				entries[entry.getValue() - 1] = entry.getKey();
+			}
+			writeVarLong(buf, entries.length);
+			for (String entry : entries) {
+				byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+				writeVarLong(buf, bytes.length);
+				buf.write(bytes, 0, bytes.length);
+			}
+			for (int i = 0; i < count; i++) {
+				writeVarLong(buf, values[i] == null ? 0 : dictionary.get(values[i]));
+			}
+			return ENCODING_DICT;
+		} else {
+			for (int i = 0; i < count; i++) {
+				if (values[i] == null) {
+					writeVarLong(buf, 0);
+				} else {
+					byte[] bytes = values[i].getBytes(StandardCharsets.UTF_8);
+					writeVarLong(buf, bytes.length + 1);
+					buf.write(bytes, 0, bytes.length);
+				}
+			}
+			return ENCODING_PLAIN;
+		}
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream buf, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buf.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buf.write((int) value);
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count = 0;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.ranger.audit.dao.AuthzAuditEventJdbcDao.DbFlavor;
+import org.apache.ranger.audit.entity.AuthzAuditEventDbObj;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestAuthzAuditEventJdbcDao {
+	private static final String COLUMN_LIST = "repo_type, repo_name, request_user, event_time, access_type, resource_path, resource_type, action, access_result, agent_id, policy_id, result_reason, acl_enforcer, session_id, client_type, client_ip, request_data, seq_num, event_count, event_dur_ms, tags";
+	private static final String ROW         = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	private static final String ORACLE_ROW  = "(XA_ACCESS_AUDIT_SEQ.NEXTVAL, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private Connection              connection;
+	private List<String>            preparedSqls;
+	private List<PreparedStatement> preparedStmts;
+
+	@Before
+	public void setUp() throws SQLException {
+		connection    = mock(Connection.class);
+		preparedSqls  = new ArrayList<>();
+		preparedStmts = new ArrayList<>();
+
+		when(connection.prepareStatement(anyString())).then(new Answer<PreparedStatement>() {
+			@Override
+			public PreparedStatement answer(InvocationOnMock invocation) {
+				PreparedStatement ret = mock(PreparedStatement.class);
+
+				preparedSqls.add((String) invocation.getArgument(0));
+				preparedStmts.add(ret);
+
+				return ret;
+			}
+		});
+	}
+
+	@Test
+	public void testGetDbFlavor() {
+		assertEquals(DbFlavor.MYSQL, AuthzAuditEventJdbcDao.getDbFlavor("jdbc:mysql://localhost/ranger_audit"));
+		assertEquals(DbFlavor.MYSQL, AuthzAuditEventJdbcDao.getDbFlavor("jdbc:mariadb://localhost/ranger_audit"));
+		assertEquals(DbFlavor.POSTGRES, AuthzAuditEventJdbcDao.getDbFlavor("jdbc:postgresql://localhost/ranger_audit"));
+		assertEquals(DbFlavor.ORACLE, AuthzAuditEventJdbcDao.getDbFlavor("jdbc:oracle:thin:@localhost:1521:xe"));
+		assertEquals(DbFlavor.SQLSERVER, AuthzAuditEventJdbcDao.getDbFlavor("jdbc:sqlserver://localhost;databaseName=ranger_audit"));
+		assertEquals(DbFlavor.SQLANYWHERE, AuthzAuditEventJdbcDao.getDbFlavor("jdbc:sqlanywhere:database=ranger_audit"));
+		assertEquals(DbFlavor.OTHER, AuthzAuditEventJdbcDao.getDbFlavor("jdbc:derby:ranger_audit"));
+		assertEquals(DbFlavor.OTHER, AuthzAuditEventJdbcDao.getDbFlavor(null));
+	}
+
+	@Test
+	public void testGetInsertSql() {
+		for (DbFlavor dbFlavor : DbFlavor.values()) {
+			String expected = dbFlavor == DbFlavor.ORACLE
+					? "INSERT INTO xa_access_audit (id, " + COLUMN_LIST + ") VALUES " + ORACLE_ROW
+					: "INSERT INTO xa_access_audit (" + COLUMN_LIST + ") VALUES " + ROW;
+
+			assertEquals(dbFlavor.name(), expected, AuthzAuditEventJdbcDao.getInsertSql(dbFlavor, 1));
+		}
+	}
+
+	@Test
+	public void testGetInsertSqlMultiRow() {
+		assertEquals("INSERT INTO xa_access_audit (" + COLUMN_LIST + ") VALUES " + ROW + ", " + ROW + ", " + ROW, AuthzAuditEventJdbcDao.getInsertSql(DbFlavor.MYSQL, 3));
+		assertEquals("INSERT INTO xa_access_audit (" + COLUMN_LIST + ") VALUES " + ROW + ", " + ROW, AuthzAuditEventJdbcDao.getInsertSql(DbFlavor.POSTGRES, 2));
+	}
+
+	@Test
+	public void testInsertBatch() throws SQLException {
+		AuthzAuditEventJdbcDao dao = new AuthzAuditEventJdbcDao(connection, DbFlavor.MYSQL, 3, false);
+
+		dao.insert(createEvents(7));
+
+		assertEquals(1, preparedSqls.size());
+		assertEquals(AuthzAuditEventJdbcDao.getInsertSql(DbFlavor.MYSQL, 1), preparedSqls.get(0));
+
+		PreparedStatement stmt = preparedStmts.get(0);
+
+		verify(stmt, times(7)).addBatch();
+		verify(stmt, times(3)).executeBatch(); // 3 + 3 + remaining 1
+		verify(connection).commit();
+
+		// full batches only: no extra executeBatch() for the remainder; the statement is reused
+		dao.insert(createEvents(6));
+
+		assertEquals(1, preparedSqls.size());
+		verify(stmt, times(5)).executeBatch();
+		verify(connection, times(2)).commit();
+	}
+
+	@Test
+	public void testInsertMultiRow() throws SQLException {
+		AuthzAuditEventJdbcDao dao = new AuthzAuditEventJdbcDao(connection, DbFlavor.POSTGRES, 3, true);
+
+		dao.insert(createEvents(7));
+
+		// full batches share a statement; the remaining row gets its own, closed after use
+		assertEquals(2, preparedSqls.size());
+		assertEquals(AuthzAuditEventJdbcDao.getInsertSql(DbFlavor.POSTGRES, 3), preparedSqls.get(0));
+		assertEquals(AuthzAuditEventJdbcDao.getInsertSql(DbFlavor.POSTGRES, 1), preparedSqls.get(1));
+
+		PreparedStatement batchStmt     = preparedStmts.get(0);
+		PreparedStatement remainderStmt = preparedStmts.get(1);
+
+		verify(batchStmt, times(2)).executeUpdate();
+		verify(batchStmt, never()).close();
+		verify(remainderStmt).executeUpdate();
+		verify(remainderStmt).close();
+		verify(batchStmt, never()).executeBatch();
+		// request_user, 3rd parameter of each row
+		verify(batchStmt).setString(AuthzAuditEventJdbcDao.COLUMNS.length * 2 + 3, "user2");
+		verify(batchStmt).setString(AuthzAuditEventJdbcDao.COLUMNS.length * 2 + 3, "user5");
+		verify(remainderStmt).setString(3, "user6");
+		verify(connection).commit();
+	}
+
+	@Test
+	public void testMultiRowNotSupported() throws SQLException {
+		AuthzAuditEventJdbcDao dao = new AuthzAuditEventJdbcDao(connection, DbFlavor.ORACLE, 3, true);
+
+		dao.insert(createEvents(4));
+
+		assertEquals(1, preparedSqls.size());
+		assertEquals(AuthzAuditEventJdbcDao.getInsertSql(DbFlavor.ORACLE, 1), preparedSqls.get(0));
+		verify(preparedStmts.get(0), times(2)).executeBatch();
+		verify(preparedStmts.get(0), never()).executeUpdate();
+	}
+
+	@Test
+	public void testInsertFailureRollsBack() throws SQLException {
+		PreparedStatement stmt = mock(PreparedStatement.class);
+
+		when(stmt.executeBatch()).thenThrow(new SQLException("deadlock"));
+		when(connection.prepareStatement(anyString())).thenReturn(stmt);
+
+		AuthzAuditEventJdbcDao dao = new AuthzAuditEventJdbcDao(connection, DbFlavor.MYSQL, 3, false);
+
+		try {
+			dao.insert(createEvents(2));
+
+			fail("insert() should have failed");
+		} catch (SQLException excp) {
+			assertTrue(excp.getMessage().contains("deadlock"));
+		}
+
+		verify(connection).rollback();
+		verify(connection, never()).commit();
+	}
+
+	private static List<AuthzAuditEventDbObj> createEvents(int count) {
+		List<AuthzAuditEventDbObj> ret = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			AuthzAuditEvent event = new AuthzAuditEvent();
+
+			event.setRepositoryName("hdfs_dev");
+			event.setUser("user" + i);
+			event.setEventTime(new Date());
+			event.setAccessType("read");
+			event.setResourcePath("/data/" + i);
+			event.setAccessResult((short) 1);
+
+			ret.add(new AuthzAuditEventDbObj(event));
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.destination;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.utils.ColumnarAuditReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestHDFSColumnarAuditDestination {
+	private static final String PROP_PREFIX = "xasecure.audit.destination.hdfs";
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private File                         auditDir;
+	private HDFSColumnarAuditDestination destination;
+	private int                          nextSeq;
+
+	@Before
+	public void setUp() throws IOException {
+		auditDir = tempFolder.newFolder("audit");
+		nextSeq  = 0;
+	}
+
+	@After
+	public void tearDown() {
+		if (destination != null) {
+			destination.stop();
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		destination = init(auditDir, 100, 1024 * 1024);
+
+		List<AuditEventBase> expected = new ArrayList<>();
+
+		for (int count : new int[] { 50, 250, 10 }) {
+			List<AuditEventBase> batch = events(count);
+
+			assertTrue(destination.log(batch));
+
+			expected.addAll(batch);
+		}
+
+		assertEquals(310, destination.getTotalSuccessCount());
+
+		destination.stop();
+		destination = null;
+
+		File[] files = auditFiles();
+
+		assertEquals(1, files.length);
+
+		// a stripe for each call; the call of 250 events is split in stripes of up to stripe.rows
+		List<List<AuthzAuditEvent>> stripes = readStripes(files[0]);
+
+		assertEquals(Arrays.asList(50, 100, 100, 50, 10), stripeSizes(stripes));
+		assertEvents(expected, stripes);
+	}
+
+	@Test
+	public void testEventsReadableOnceLogged() throws IOException {
+		destination = init(auditDir, 100, 1024 * 1024);
+
+		List<AuditEventBase> batch = events(30);
+
+		assertTrue(destination.log(batch));
+
+		// no stop(), hence no footer: the events are in the file as soon as log() returns
+		File[] files = auditFiles();
+
+		assertEquals(1, files.length);
+		assertEvents(batch, readStripes(files[0]));
+	}
+
+	@Test
+	public void testRolloverBySize() throws IOException {
+		destination = init(auditDir, 100, 1); // every call fills a file
+
+		List<AuditEventBase> expected = new ArrayList<>();
+
+		for (int i = 0; i < 3; i++) {
+			List<AuditEventBase> batch = events(20);
+
+			assertTrue(destination.log(batch));
+
+			expected.addAll(batch);
+		}
+
+		destination.stop();
+		destination = null;
+
+		File[] files = auditFiles();
+
+		assertEquals(3, files.length);
+
+		List<List<AuthzAuditEvent>> stripes = new ArrayList<>();
+
+		// rolled over files are named with a sequence number
+		for (String name : new String[] { "audit.rca", "audit.1.rca", "audit.2.rca" }) {
+			stripes.addAll(readStripes(new File(files[0].getParentFile(), name)));
+		}
+
+		assertEvents(expected, stripes);
+	}
+
+	@Test
+	public void testWriteFailure() throws IOException {
+		File notADir = tempFolder.newFile("not-a-dir");
+
+		destination = init(notADir, 100, 1024 * 1024);
+
+		assertFalse(destination.log(events(10)));
+		assertEquals(0, destination.getTotalSuccessCount());
+		assertEquals(10, destination.getTotalDeferredCount());
+	}
+
+	private HDFSColumnarAuditDestination init(File dir, int stripeRows, long rolloverSize) {
+		Properties props = new Properties();
+
+		props.setProperty(PROP_PREFIX + "." + HDFSColumnarAuditDestination.PROP_HDFS_DIR, "file://" + dir.getAbsolutePath());
+		props.setProperty(PROP_PREFIX + "." + HDFSColumnarAuditDestination.PROP_HDFS_SUBDIR, "sub");
+		props.setProperty(PROP_PREFIX + "." + HDFSColumnarAuditDestination.PROP_HDFS_FILE_NAME_FORMAT, "audit.rca");
+		props.setProperty(PROP_PREFIX + "." + HDFSColumnarAuditDestination.PROP_STRIPE_ROWS, String.valueOf(stripeRows));
+		props.setProperty(PROP_PREFIX + "." + HDFSColumnarAuditDestination.PROP_HDFS_ROLLOVER_SIZE, String.valueOf(rolloverSize));
+
+		HDFSColumnarAuditDestination ret = new HDFSColumnarAuditDestination();
+
+		ret.init(props, PROP_PREFIX);
+		ret.start();
+
+		return ret;
+	}
+
+	private File[] auditFiles() {
+		File[] ret = new File(auditDir, "sub").listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.getName().endsWith(".rca");
+			}
+		});
+
+		return ret == null ? new File[0] : ret;
+	}
+
+	private List<AuditEventBase> events(int count) {
+		List<AuditEventBase> ret = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+			int             seq   = nextSeq++;
+			AuthzAuditEvent event = new AuthzAuditEvent();
+
+			event.setEventId("event-" + seq);
+			event.setUser("user" + (seq % 7));
+			event.setResourcePath("/data/" + (seq % 13));
+			event.setAccessType("read");
+			event.setAccessResult((short) (seq % 2));
+			event.setPolicyId(seq % 5);
+			event.setEventTime(new Date(1500000000000L + seq * 10L));
+
+			ret.add(event);
+		}
+
+		return ret;
+	}
+
+	private static List<List<AuthzAuditEvent>> readStripes(File file) throws IOException {
+		List<List<AuthzAuditEvent>> ret    = new ArrayList<>();
+		ColumnarAuditReader         reader = new ColumnarAuditReader(new FileInputStream(file));
+
+		try {
+			for (List<AuthzAuditEvent> stripe = reader.readStripe(); stripe != null; stripe = reader.readStripe()) {
+				ret.add(stripe);
+			}
+
+			assertNull(reader.readStripe());
+		} finally {
+			reader.close();
+		}
+
+		return ret;
+	}
+
+	private static List<Integer> stripeSizes(List<List<AuthzAuditEvent>> stripes) {
+		List<Integer> ret = new ArrayList<>();
+
+		for (List<AuthzAuditEvent> stripe : stripes) {
+			ret.add(stripe.size());
+		}
+
+		return ret;
+	}
+
+	private static void assertEvents(List<AuditEventBase> expected, List<List<AuthzAuditEvent>> stripes) {
+		List<AuthzAuditEvent> actual = new ArrayList<>();
+
+		for (List<AuthzAuditEvent> stripe : stripes) {
+			actual.addAll(stripe);
+		}
+
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			AuthzAuditEvent e = (AuthzAuditEvent) expected.get(i);
+			AuthzAuditEvent a = actual.get(i);
+
+			assertEquals(e.getEventId(), a.getEventId());
+			assertEquals(e.getUser(), a.getUser());
+			assertEquals(e.getResourcePath(), a.getResourcePath());
+			assertEquals(e.getAccessType(), a.getAccessType());
+			assertEquals(e.getAccessResult(), a.getAccessResult());
+			assertEquals(e.getPolicyId(), a.getPolicyId());
+			assertEquals(e.getEventTime(), a.getEventTime());
+		}
+	}
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.apache.ranger.audit.queue.AuditBatchDispatcher.PartitionKey;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestAuditBatchDispatcher {
+
+	@Test
+	public void testOrderWithinPartition() {
+		final int                        userCount = 10;
+		final Map<String, List<Integer>> sent      = new HashMap<>();
+		final Map<String, String>        senderOf  = new HashMap<>();
+		final AtomicInteger              errors    = new AtomicInteger();
+		final Random                     random    = new Random(7);
+
+		AuditHandler destination = destination(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) throws InterruptedException {
+				Collection<AuditEventBase> batch = invocation.getArgument(0);
+
+				synchronized (sent) {
+					for (AuditEventBase event : batch) {
+						AuthzAuditEvent authzEvent = (AuthzAuditEvent) event;
+						String          user       = authzEvent.getUser();
+						String          thread     = Thread.currentThread().getName();
+						String          prevThread = senderOf.put(user, thread);
+
+						if (prevThread != null && !prevThread.equals(thread)) {
+							errors.incrementAndGet();
+						}
+
+						sent.get(user).add(Integer.parseInt(authzEvent.getEventId()));
+					}
+				}
+
+				Thread.sleep(random.nextInt(2)); // let senders interleave
+
+				return Boolean.TRUE;
+			}
+		});
+
+		for (int u = 0; u < userCount; u++) {
+			sent.put("user" + u, new ArrayList<Integer>());
+		}
+
+		AuditBatchDispatcher dispatcher = new AuditBatchDispatcher("test", destination, listener(null, null), 4, PartitionKey.USER, 8);
+		List<AuditEventBase> batch      = new ArrayList<>();
+		int                  seq        = 0;
+
+		for (int b = 0; b < 200; b++) {
+			for (int i = 0; i < 20; i++) {
+				batch.add(event("user" + ((b + i * 3) % userCount), seq++));
+			}
+
+			dispatcher.dispatch(batch);
+			batch.clear(); // the batch can be reused once dispatch() returns
+		}
+
+		dispatcher.shutdown(60000);
+
+		assertEquals("users sent by more than one sender", 0, errors.get());
+
+		int total = 0;
+
+		for (Map.Entry<String, List<Integer>> entry : sent.entrySet()) {
+			List<Integer> userSeqs = entry.getValue();
+
+			for (int i = 1; i < userSeqs.size(); i++) {
+				assertTrue(entry.getKey() + ": " + userSeqs, userSeqs.get(i - 1) < userSeqs.get(i));
+			}
+
+			total += userSeqs.size();
+		}
+
+		assertEquals(seq, total);
+		assertTrue("senders used: " + senderOf.values(), new HashSet<String>(senderOf.values()).size() > 1);
+	}
+
+	@Test
+	public void testInFlightLimit() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger  success = new AtomicInteger();
+
+		AuditHandler destination = destination(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) throws InterruptedException {
+				release.await();
+
+				return Boolean.TRUE;
+			}
+		});
+
+		final AuditBatchDispatcher dispatcher = new AuditBatchDispatcher("test", destination, listener(success, null), 2, PartitionKey.NONE, 3);
+		final AtomicInteger        dispatched = new AtomicInteger();
+
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; i < 5; i++) {
+					List<AuditEventBase> batch = new ArrayList<>();
+
+					batch.add(event("user" + i, i));
+
+					dispatcher.dispatch(batch);
+					dispatched.incrementAndGet();
+				}
+			}
+		};
+		producer.start();
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+
+		while (dispatcher.getInFlightCount() < 3 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		Thread.sleep(100);
+
+		// 3 batches in flight, the 4th dispatch() waits for a slot
+		assertEquals(3, dispatcher.getInFlightCount());
+		assertEquals(3, dispatched.get());
+		assertTrue(producer.isAlive());
+
+		release.countDown();
+		producer.join(60000);
+
+		assertEquals(5, dispatched.get());
+
+		dispatcher.shutdown(60000);
+
+		assertEquals(5, success.get());
+		assertEquals(0, dispatcher.getInFlightCount());
+	}
+
+	@Test
+	public void testShutdownDrains() {
+		final AtomicInteger success = new AtomicInteger();
+		final AtomicInteger failure = new AtomicInteger();
+		final AtomicInteger calls   = new AtomicInteger();
+
+		AuditHandler destination = destination(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) throws InterruptedException {
+				Thread.sleep(5);
+
+				int call = calls.incrementAndGet();
+
+				if (call % 5 == 0) {
+					throw new RuntimeException("destination down"); // reported as failure to the listener
+				}
+
+				return call % 5 != 1;
+			}
+		});
+
+		AuditBatchDispatcher dispatcher = new AuditBatchDispatcher("test", destination, listener(success, failure), 2, PartitionKey.RESOURCE, 20);
+
+		for (int i = 0; i < 20; i++) {
+			List<AuditEventBase> batch = new ArrayList<>();
+
+			batch.add(event("user" + i, i));
+
+			dispatcher.dispatch(batch);
+		}
+
+		// the batches are queued with the senders; shutdown waits for them to be sent
+		dispatcher.shutdown(60000);
+
+		assertEquals(20, calls.get());
+		assertEquals(12, success.get());
+		assertEquals(8, failure.get());
+		assertEquals(0, dispatcher.getInFlightCount());
+	}
+
+	@Test
+	public void testPercentileBound() {
+		long[] buckets = new long[AuditBatchDispatcher.LatencyHistogram.BUCKET_COUNT];
+
+		buckets[0] = 50; // [0-1)
+		buckets[3] = 49; // [4-8)
+		buckets[10] = 1; // [512-1024)
+
+		assertEquals(1, AuditBatchDispatcher.LatencyHistogram.getPercentileBound(buckets, 100, 50));
+		assertEquals(8, AuditBatchDispatcher.LatencyHistogram.getPercentileBound(buckets, 100, 99));
+		assertEquals(1024, AuditBatchDispatcher.LatencyHistogram.getPercentileBound(buckets, 100, 100));
+	}
+
+	private static AuditHandler destination(Answer<Boolean> answer) {
+		AuditHandler ret = Mockito.mock(AuditHandler.class);
+
+		Mockito.when(ret.getName()).thenReturn("stub");
+		Mockito.when(ret.log(ArgumentMatchers.<AuditEventBase>anyCollection())).then(answer);
+
+		return ret;
+	}
+
+	private static AuditBatchDispatcher.BatchListener listener(final AtomicInteger success, final AtomicInteger failure) {
+		return new AuditBatchDispatcher.BatchListener() {
+			@Override
+			public void onBatchSent(Collection<AuditEventBase> batch, boolean isSuccess) {
+				AtomicInteger counter = isSuccess ? success : failure;
+
+				if (counter != null) {
+					counter.incrementAndGet();
+				}
+			}
+		};
+	}
+
+	private static AuditEventBase event(String user, int seq) {
+		AuthzAuditEvent ret = new AuthzAuditEvent();
+
+		ret.setUser(user);
+		ret.setResourcePath("/resource/" + user);
+		ret.setEventId(String.valueOf(seq));
+
+		return ret;
+	}
+}
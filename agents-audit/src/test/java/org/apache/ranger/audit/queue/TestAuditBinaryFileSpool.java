@@ -0,0 +1,464 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestAuditBinaryFileSpool {
+	private static final String PROP_PREFIX = "xasecure.audit.test.spool";
+	private static final String PREFIX      = "spool";
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private File                       spoolDir;
+	private AuditQueue                 queue;
+	private AuditHandler               consumer;
+	private List<String>               received;
+	private List<AuditBinaryFileSpool> spools;
+
+	@Before
+	public void setUp() throws IOException {
+		spoolDir = tempFolder.newFolder("spool");
+		queue    = Mockito.mock(AuditQueue.class);
+		consumer = Mockito.mock(AuditHandler.class);
+		received = Collections.synchronizedList(new ArrayList<String>());
+		spools   = new ArrayList<>();
+
+		Mockito.when(queue.getName()).thenReturn("queue");
+		Mockito.when(queue.getMaxBatchSize()).thenReturn(4);
+		Mockito.when(consumer.getName()).thenReturn("stub");
+		Mockito.when(consumer.logJSON(ArgumentMatchers.<String>anyCollection())).then(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) {
+				Collection<String> events = invocation.getArgument(0);
+
+				received.addAll(events);
+
+				return Boolean.TRUE;
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		for (AuditBinaryFileSpool spool : spools) {
+			spool.stop();
+		}
+	}
+
+	@Test
+	public void testRecordFraming() throws IOException {
+		List<String> events = events(10);
+
+		events.add("caf\u00e9 \u4e2d\u6587"); // multi-byte UTF-8
+		events.add(repeat("compressible ", 200));
+
+		for (boolean isCompress : new boolean[] { false, true }) {
+			File                 dir   = tempFolder.newFolder("framing-" + isCompress);
+			AuditBinaryFileSpool spool = init(dir, 1024 * 1024, isCompress);
+
+			spool.stashLogsString(events);
+			stop(spool);
+
+			File[] files = segmentFiles(dir);
+
+			assertEquals(1, files.length);
+
+			// the first record, as laid out on disk: int length, byte codec, int raw-length, int crc32, bytes
+			try (RandomAccessFile raf = new RandomAccessFile(files[0], "r")) {
+				assertEquals(AuditBinaryFileSpool.MAGIC, raf.readInt());
+				assertEquals(AuditBinaryFileSpool.VERSION, raf.readInt());
+
+				raf.seek(AuditBinaryFileSpool.CHECKPOINT_SIZE);
+
+				int    length    = raf.readInt();
+				byte   codec     = raf.readByte();
+				int    rawLength = raf.readInt();
+				int    checksum  = raf.readInt();
+				byte[] data      = new byte[length];
+
+				raf.readFully(data);
+
+				CRC32 crc = new CRC32();
+
+				crc.update(data);
+
+				assertEquals(AuditBinaryFileSpool.CODEC_NONE, codec); // too short to gain from compression
+				assertEquals(events.get(0).length(), rawLength);
+				assertEquals(events.get(0), new String(data, "UTF-8"));
+				assertEquals((int) crc.getValue(), checksum);
+			}
+
+			assertEquals(events, readSegment(files[0]));
+		}
+	}
+
+	@Test
+	public void testChecksumMismatchIsSkipped() throws IOException {
+		AuditBinaryFileSpool spool = init(spoolDir, 1024 * 1024, false);
+
+		spool.stashLogsString(events(3));
+		stop(spool);
+
+		File file = segmentFiles(spoolDir)[0];
+
+		// flip a byte in the data of the second record
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			long position = recordPosition(raf, 1) + AuditBinaryFileSpool.RECORD_HEADER_SIZE;
+
+			raf.seek(position);
+
+			byte b = raf.readByte();
+
+			raf.seek(position);
+			raf.writeByte(b ^ 0xff);
+		}
+
+		assertEquals(Arrays.asList("event-0", "event-2"), readSegment(file));
+	}
+
+	@Test
+	public void testCheckpointAndReplay() throws IOException, InterruptedException {
+		AuditBinaryFileSpool spool = init(spoolDir, 1024 * 1024, false);
+
+		spool.stashLogsString(events(10));
+		stop(spool);
+
+		File file = segmentFiles(spoolDir)[0];
+
+		assertEquals(AuditBinaryFileSpool.CHECKPOINT_SIZE, readCheckpoint(file, AuditBinaryFileSpool.OFFSET_READ_POSITION));
+
+		// mark the first 4 events as sent, as the destination thread does
+		AuditBinaryFileSpool.Segment segment = AuditBinaryFileSpool.Segment.open(file);
+
+		try {
+			List<String> records  = new ArrayList<>();
+			long         position = segment.readRecords(segment.readPosition, segment.writePosition, 4, records, new Inflater());
+
+			assertEquals(events(4), records);
+
+			segment.saveReadPosition(position);
+		} finally {
+			segment.unmap();
+			segment.close();
+		}
+
+		// a new spool sends the rest, and deletes the segment once the events are sent
+		spool = init(spoolDir, 1024 * 1024, false);
+		spool.start();
+
+		assertEquals(events(10).subList(4, 10), waitForEvents(6));
+
+		waitForSegmentCount(0);
+		stop(spool);
+
+		spool = init(spoolDir, 1024 * 1024, false);
+
+		assertEquals(0, segmentFiles(spoolDir).length);
+	}
+
+	@Test
+	public void testSegmentRoll() throws IOException, InterruptedException {
+		AuditBinaryFileSpool spool = init(spoolDir, 512, false);
+
+		List<String> events = new ArrayList<>();
+
+		for (int i = 0; i < 50; i++) {
+			events.add(String.format("event-%02d-%s", i, repeat("x", 40)));
+		}
+
+		spool.stashLogsString(events);
+
+		File[] files = segmentFiles(spoolDir);
+
+		assertTrue("segments: " + files.length, files.length > 5);
+
+		for (File file : files) {
+			assertTrue(file.length() <= 512);
+		}
+
+		spool.start();
+
+		assertEquals(events, waitForEvents(events.size()));
+
+		// sent segments are deleted; only the one being written is kept
+		waitForSegmentCount(1);
+
+		assertEquals(1, segmentFiles(spoolDir).length);
+	}
+
+	@Test
+	public void testRecoveryByScan() throws IOException, InterruptedException {
+		AuditBinaryFileSpool spool = init(spoolDir, 1024 * 1024, false);
+
+		spool.stashLogsString(events(8));
+		stop(spool);
+
+		// as if the process died before the write position was saved
+		File file = segmentFiles(spoolDir)[0];
+
+		writeCheckpoint(file, AuditBinaryFileSpool.OFFSET_WRITE_POSITION, AuditBinaryFileSpool.CHECKPOINT_SIZE);
+
+		spool = init(spoolDir, 1024 * 1024, false);
+		spool.start();
+
+		assertEquals(events(8), waitForEvents(8));
+	}
+
+	@Test
+	public void testCorruptTail() throws IOException, InterruptedException {
+		AuditBinaryFileSpool spool = init(spoolDir, 1024 * 1024, false);
+
+		spool.stashLogsString(events(8));
+		stop(spool);
+
+		// write position not saved, and the 6th record is partly written: scan recovers the 5 records before it
+		File file = segmentFiles(spoolDir)[0];
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			long position = recordPosition(raf, 5);
+
+			raf.seek(position + AuditBinaryFileSpool.RECORD_HEADER_SIZE);
+			raf.write(new byte[3]);
+		}
+
+		writeCheckpoint(file, AuditBinaryFileSpool.OFFSET_WRITE_POSITION, AuditBinaryFileSpool.CHECKPOINT_SIZE);
+
+		spool = init(spoolDir, 1024 * 1024, false);
+		spool.start();
+
+		assertEquals(events(5), waitForEvents(5));
+
+		Thread.sleep(100);
+
+		assertEquals(5, received.size());
+	}
+
+	@Test
+	public void testTruncatedTail() throws IOException, InterruptedException {
+		AuditBinaryFileSpool spool = init(spoolDir, 1024 * 1024, false);
+
+		spool.stashLogsString(events(8));
+		stop(spool);
+
+		// write position not saved, and the file is cut in the middle of the 4th record
+		File file = segmentFiles(spoolDir)[0];
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(recordPosition(raf, 3) + AuditBinaryFileSpool.RECORD_HEADER_SIZE + 2);
+		}
+
+		writeCheckpoint(file, AuditBinaryFileSpool.OFFSET_WRITE_POSITION, AuditBinaryFileSpool.CHECKPOINT_SIZE);
+
+		spool = init(spoolDir, 1024 * 1024, false);
+		spool.start();
+
+		assertEquals(events(3), waitForEvents(3));
+	}
+
+	@Test
+	public void testCorruptSegmentIsQuarantined() throws IOException, InterruptedException {
+		AuditBinaryFileSpool spool = init(spoolDir, 1024 * 1024, false);
+
+		spool.stashLogsString(events(6));
+		stop(spool);
+
+		// an invalid header before the saved write position: the segment can't be read past it
+		File file = segmentFiles(spoolDir)[0];
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(recordPosition(raf, 2));
+			raf.writeInt(-1);
+		}
+
+		spool = init(spoolDir, 1024 * 1024, false);
+		spool.start();
+
+		assertEquals(events(2), waitForEvents(2));
+
+		File corruptFile = new File(file.getPath() + AuditBinaryFileSpool.CORRUPT_FILE_EXTENSION);
+		long deadline    = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+
+		while (!corruptFile.exists() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertTrue(corruptFile.exists());
+		assertFalse(file.exists());
+		assertEquals(2, received.size());
+
+		// new events go to a new segment
+		spool.stashLogsString(Arrays.asList("after"));
+
+		assertEquals(Arrays.asList("event-0", "event-1", "after"), waitForEvents(3));
+	}
+
+	private AuditBinaryFileSpool init(File dir, int segmentSize, boolean isCompress) {
+		Properties props = new Properties();
+
+		props.setProperty(PROP_PREFIX + "." + AuditFileSpool.PROP_FILE_SPOOL_LOCAL_DIR, dir.getAbsolutePath());
+		props.setProperty(PROP_PREFIX + "." + AuditFileSpool.PROP_FILE_SPOOL_FILENAME_PREFIX, PREFIX);
+		props.setProperty(PROP_PREFIX + "." + AuditFileSpool.PROP_FILE_SPOOL_DEST_RETRY_MS, "10");
+		props.setProperty(PROP_PREFIX + "." + AuditBinaryFileSpool.PROP_FILE_SPOOL_SEGMENT_SIZE, String.valueOf(segmentSize));
+		props.setProperty(PROP_PREFIX + "." + AuditBinaryFileSpool.PROP_FILE_SPOOL_COMPRESS, String.valueOf(isCompress));
+
+		AuditBinaryFileSpool ret = new AuditBinaryFileSpool(queue, consumer);
+
+		assertTrue(ret.init(props, PROP_PREFIX));
+
+		spools.add(ret);
+
+		return ret;
+	}
+
+	private void stop(AuditBinaryFileSpool spool) {
+		spools.remove(spool);
+		spool.stop();
+	}
+
+	private void waitForSegmentCount(int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+
+		while (segmentFiles(spoolDir).length > count && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private List<String> waitForEvents(int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+
+		while (received.size() < count && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		synchronized (received) {
+			return new ArrayList<>(received);
+		}
+	}
+
+	private static List<String> readSegment(File file) throws IOException {
+		AuditBinaryFileSpool.Segment segment = AuditBinaryFileSpool.Segment.open(file);
+
+		assertNotNull(segment);
+
+		try {
+			List<String> ret = new ArrayList<>();
+
+			segment.readRecords(segment.readPosition, segment.writePosition, Integer.MAX_VALUE, ret, new Inflater());
+
+			assertFalse(segment.isCorrupt);
+
+			return ret;
+		} finally {
+			segment.unmap();
+			segment.close();
+		}
+	}
+
+	// position of the record at the given index, walking the record headers from the start of the segment
+	private static long recordPosition(RandomAccessFile raf, int index) throws IOException {
+		long position = AuditBinaryFileSpool.CHECKPOINT_SIZE;
+
+		for (int i = 0; i < index; i++) {
+			raf.seek(position);
+
+			position += AuditBinaryFileSpool.RECORD_HEADER_SIZE + raf.readInt();
+		}
+
+		return position;
+	}
+
+	private static long readCheckpoint(File file, int offset) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			raf.seek(offset);
+
+			return raf.readLong();
+		}
+	}
+
+	private static void writeCheckpoint(File file, int offset, long value) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(offset);
+			raf.writeLong(value);
+		}
+	}
+
+	private static File[] segmentFiles(File dir) {
+		File[] ret = dir.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.getName().endsWith(AuditBinaryFileSpool.SEGMENT_FILE_EXTENSION);
+			}
+		});
+
+		Arrays.sort(ret);
+
+		return ret;
+	}
+
+	private static List<String> events(int count) {
+		List<String> ret = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+			ret.add("event-" + i);
+		}
+
+		return ret;
+	}
+
+	private static String repeat(String str, int count) {
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < count; i++) {
+			sb.append(str);
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestAuditRingBuffer {
+
+	@Test
+	public void testCapacity() {
+		assertEquals(1, new AuditRingBuffer<Integer>(0).capacity());
+		assertEquals(1, new AuditRingBuffer<Integer>(1).capacity());
+		assertEquals(8, new AuditRingBuffer<Integer>(5).capacity());
+		assertEquals(8, new AuditRingBuffer<Integer>(8).capacity());
+		assertEquals(1024, new AuditRingBuffer<Integer>(1000).capacity());
+	}
+
+	@Test
+	public void testFull() {
+		AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.poll());
+
+		for (int i = 0; i < 4; i++) {
+			assertTrue(buffer.offer(i));
+		}
+
+		assertEquals(4, buffer.size());
+		assertFalse(buffer.offer(4));
+		assertEquals(4, buffer.size());
+
+		// a slot freed by poll() can be used again
+		assertEquals(Integer.valueOf(0), buffer.poll());
+		assertTrue(buffer.offer(4));
+		assertFalse(buffer.offer(5));
+
+		List<Integer> drained = new ArrayList<>();
+
+		assertEquals(2, buffer.drainTo(drained, 2));
+		assertEquals(2, buffer.drainTo(drained, 10));
+		assertEquals(0, buffer.drainTo(drained, 10));
+		assertEquals(list(1, 2, 3, 4), drained);
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void testWrapAround() {
+		AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(8);
+		int                      next   = 0;
+		int                      expect = 0;
+
+		// offer and poll in uneven steps, so that head and tail wrap around the slots many times at different offsets
+		for (int round = 0; round < 1000; round++) {
+			int toOffer = 1 + round % 7;
+			int toPoll  = 1 + (round * 3) % 8;
+
+			for (int i = 0; i < toOffer; i++) {
+				if (buffer.offer(next)) {
+					next++;
+				} else {
+					assertEquals(buffer.capacity(), buffer.size());
+					break;
+				}
+			}
+
+			for (int i = 0; i < toPoll; i++) {
+				Integer item = buffer.poll();
+
+				if (item == null) {
+					assertTrue(buffer.isEmpty());
+					break;
+				}
+
+				assertEquals(Integer.valueOf(expect++), item);
+			}
+
+			assertEquals(next - expect, buffer.size());
+		}
+
+		assertTrue(next > buffer.capacity() * 100);
+	}
+
+	@Test
+	public void testMultipleProducers() throws InterruptedException {
+		final int                      producerCount = 4;
+		final int                      itemCount     = 50000;
+		final AuditRingBuffer<Integer> buffer        = new AuditRingBuffer<>(64);
+		final CountDownLatch           start         = new CountDownLatch(1);
+		final AtomicBoolean            failed        = new AtomicBoolean(false);
+		Thread[]                       producers     = new Thread[producerCount];
+
+		for (int p = 0; p < producerCount; p++) {
+			final int producerId = p;
+
+			producers[p] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+
+						for (int i = 0; i < itemCount; i++) {
+							Integer item = producerId * itemCount + i;
+
+							while (!buffer.offer(item)) { // full: wait for the consumer
+								Thread.yield();
+							}
+						}
+					} catch (InterruptedException excp) {
+						failed.set(true);
+					}
+				}
+			};
+			producers[p].start();
+		}
+
+		start.countDown();
+
+		// each item must be received exactly once, and the items of a producer in the order published
+		int[] lastItem = new int[producerCount];
+		int   received = 0;
+		long  deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+
+		for (int p = 0; p < producerCount; p++) {
+			lastItem[p] = -1;
+		}
+
+		while (received < producerCount * itemCount && System.nanoTime() < deadline) {
+			Integer item = buffer.poll();
+
+			if (item == null) {
+				Thread.yield();
+				continue;
+			}
+
+			int producerId = item / itemCount;
+			int seq        = item % itemCount;
+
+			assertEquals("producer " + producerId, lastItem[producerId] + 1, seq);
+
+			lastItem[producerId] = seq;
+			received++;
+		}
+
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		assertFalse(failed.get());
+		assertEquals(producerCount * itemCount, received);
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.poll());
+	}
+
+	private static List<Integer> list(Integer... items) {
+		List<Integer> ret = new ArrayList<>();
+
+		for (Integer item : items) {
+			ret.add(item);
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestAuditRingBufferQueue {
+	private static final String PROP_PREFIX = "xasecure.audit.test.ringbuffer";
+
+	private AuditHandler         consumer;
+	private List<String>         received;
+	private CountDownLatch       consumerEntered;
+	private CountDownLatch       consumerReleased;
+	private AuditRingBufferQueue queue;
+
+	@Before
+	public void setUp() {
+		consumer         = mock(AuditHandler.class);
+		received         = Collections.synchronizedList(new ArrayList<String>());
+		consumerEntered  = new CountDownLatch(1);
+		consumerReleased = new CountDownLatch(1);
+
+		when(consumer.getName()).thenReturn("stub");
+		when(consumer.log(ArgumentMatchers.<AuditEventBase>anyCollection())).then(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) throws InterruptedException {
+				consumerEntered.countDown();
+				consumerReleased.await();
+
+				Collection<AuditEventBase> events = invocation.getArgument(0);
+
+				for (AuditEventBase event : events) {
+					received.add(((AuthzAuditEvent) event).getEventId());
+				}
+
+				return Boolean.TRUE;
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		consumerReleased.countDown();
+
+		if (queue != null) {
+			queue.stop();
+		}
+	}
+
+	@Test
+	public void testDropNewest() throws InterruptedException {
+		queue = startWithFullBuffer("drop_newest", 1000);
+
+		assertFalse(queue.log(event("e5")));
+		assertFalse(queue.log(event("e6")));
+		assertEquals(2, queue.getDroppedCount());
+
+		consumerReleased.countDown();
+
+		assertEquals(list("e0", "e1", "e2", "e3", "e4"), waitForEvents(5));
+	}
+
+	@Test
+	public void testDropOldest() throws InterruptedException {
+		queue = startWithFullBuffer("drop_oldest", 1000);
+
+		assertTrue(queue.log(event("e5")));
+		assertTrue(queue.log(event("e6")));
+		assertEquals(2, queue.getDroppedCount());
+		assertEquals(4, queue.size());
+
+		consumerReleased.countDown();
+
+		assertEquals(list("e0", "e3", "e4", "e5", "e6"), waitForEvents(5));
+	}
+
+	@Test
+	public void testBlockTimeout() throws InterruptedException {
+		queue = startWithFullBuffer("block", 50);
+
+		long startNs = System.nanoTime();
+
+		assertFalse(queue.log(event("e5")));
+		assertTrue(System.nanoTime() - startNs >= TimeUnit.MILLISECONDS.toNanos(50));
+		assertEquals(1, queue.getDroppedCount());
+
+		consumerReleased.countDown();
+
+		assertEquals(list("e0", "e1", "e2", "e3", "e4"), waitForEvents(5));
+	}
+
+	@Test
+	public void testBlockTillSpaceIsAvailable() throws InterruptedException {
+		queue = startWithFullBuffer("block", 60000);
+
+		Thread releaser = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException excp) {
+					// release right away
+				}
+				consumerReleased.countDown();
+			}
+		};
+		releaser.start();
+
+		assertTrue(queue.log(event("e5")));
+		assertEquals(0, queue.getDroppedCount());
+
+		releaser.join();
+
+		assertEquals(list("e0", "e1", "e2", "e3", "e4", "e5"), waitForEvents(6));
+	}
+
+	@Test
+	public void testMultipleProducers() throws InterruptedException {
+		final int producerCount = 4;
+		final int eventCount    = 10000;
+
+		consumerReleased.countDown();
+
+		queue = start("block", 64, 100, 60000);
+
+		Thread[] producers = new Thread[producerCount];
+
+		for (int p = 0; p < producerCount; p++) {
+			final int producerId = p;
+
+			producers[p] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < eventCount; i++) {
+						queue.log(event(producerId + "-" + i));
+					}
+				}
+			};
+			producers[p].start();
+		}
+
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		List<String> events = waitForEvents(producerCount * eventCount);
+
+		assertEquals(producerCount * eventCount, events.size());
+		assertEquals(producerCount * eventCount, new HashSet<String>(events).size());
+		assertEquals(0, queue.getDroppedCount());
+	}
+
+	/**
+	 * Starts a queue of capacity 4, with the consumer thread blocked in the
+	 * destination holding e0 and the buffer full with e1..e4
+	 */
+	private AuditRingBufferQueue startWithFullBuffer(String overflowPolicy, int blockTimeoutMs) throws InterruptedException {
+		AuditRingBufferQueue ret = start(overflowPolicy, 4, 1, blockTimeoutMs);
+
+		assertTrue(ret.log(event("e0")));
+		assertTrue(consumerEntered.await(30, TimeUnit.SECONDS));
+
+		for (int i = 1; i <= 4; i++) {
+			assertTrue(ret.log(event("e" + i)));
+		}
+
+		assertEquals(4, ret.size());
+		assertEquals(0, ret.getDroppedCount());
+
+		return ret;
+	}
+
+	private AuditRingBufferQueue start(String overflowPolicy, int queueSize, int batchSize, int blockTimeoutMs) {
+		Properties props = new Properties();
+
+		props.setProperty(PROP_PREFIX + "." + AuditQueue.PROP_QUEUE_SIZE, String.valueOf(queueSize));
+		props.setProperty(PROP_PREFIX + "." + AuditQueue.PROP_BATCH_SIZE, String.valueOf(batchSize));
+		props.setProperty(PROP_PREFIX + "." + AuditQueue.PROP_BATCH_INTERVAL, "10");
+		props.setProperty(PROP_PREFIX + "." + AuditRingBufferQueue.PROP_OVERFLOW_POLICY, overflowPolicy);
+		props.setProperty(PROP_PREFIX + "." + AuditRingBufferQueue.PROP_OVERFLOW_BLOCK_TIMEOUT_MS, String.valueOf(blockTimeoutMs));
+
+		AuditRingBufferQueue ret = new AuditRingBufferQueue(consumer);
+
+		ret.init(props, PROP_PREFIX);
+		ret.start();
+
+		return ret;
+	}
+
+	private List<String> waitForEvents(int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+
+		while (received.size() < count && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		synchronized (received) {
+			return new ArrayList<String>(received);
+		}
+	}
+
+	private static AuditEventBase event(String eventId) {
+		AuthzAuditEvent ret = new AuthzAuditEvent();
+
+		ret.setEventId(eventId);
+
+		return ret;
+	}
+
+	private static List<String> list(String... items) {
+		List<String> ret = new ArrayList<>();
+
+		Collections.addAll(ret, items);
+
+		return ret;
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.apache.ranger.audit.provider.AuditHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestAuditSummaryQueue {
+	private static final String PROP_PREFIX = "xasecure.audit.test.summary";
+
+	private AuditHandler               consumer;
+	private List<List<AuditEventBase>> batches;
+	private AuditSummaryQueue          queue;
+
+	@Before
+	public void setUp() {
+		consumer = Mockito.mock(AuditHandler.class);
+		batches  = Collections.synchronizedList(new ArrayList<List<AuditEventBase>>());
+
+		Mockito.when(consumer.getName()).thenReturn("stub");
+		Mockito.when(consumer.log(ArgumentMatchers.<AuditEventBase>anyCollection())).then(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) {
+				Collection<AuditEventBase> events = invocation.getArgument(0);
+
+				batches.add(new ArrayList<AuditEventBase>(events));
+
+				return Boolean.TRUE;
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		if (queue != null) {
+			queue.stop();
+		}
+	}
+
+	@Test
+	public void testFlushOnInterval() throws InterruptedException {
+		queue = start(200, 1000);
+
+		long startMs = System.currentTimeMillis();
+
+		for (int i = 0; i < 100; i++) {
+			assertTrue(queue.log(TestAuditSummaryTable.event("user" + (i % 2), "/a", "read", 1, 10, 1000 + i)));
+		}
+
+		List<AuditEventBase> summaries = waitForBatch(0);
+
+		assertTrue("summary sent at the end of the window", System.currentTimeMillis() - startMs >= 150);
+		assertEquals(2, summaries.size());
+
+		for (AuditEventBase summary : summaries) {
+			assertEquals(50, ((AuthzAuditEvent) summary).getEventCount());
+			assertEquals(98, ((AuthzAuditEvent) summary).getEventDurationMS());
+		}
+
+		// events of the next window are summarized separately
+		assertTrue(queue.log(TestAuditSummaryTable.event("user0", "/a", "read", 1, 10, 5000)));
+
+		summaries = waitForBatch(1);
+
+		assertEquals(1, summaries.size());
+		assertEquals(1, ((AuthzAuditEvent) summaries.get(0)).getEventCount());
+	}
+
+	@Test
+	public void testFlushOnStop() throws InterruptedException {
+		queue = start(60000, 1000);
+
+		for (int i = 0; i < 10; i++) {
+			assertTrue(queue.log(TestAuditSummaryTable.event("user0", "/a", "read", 1, 10, 1000)));
+		}
+
+		Thread.sleep(100);
+
+		assertTrue("nothing sent before the end of the window", batches.isEmpty());
+
+		// stop drains the queue and sends the partial window
+		queue.stop();
+
+		List<AuditEventBase> summaries = waitForBatch(0);
+
+		assertEquals(1, summaries.size());
+		assertEquals(10, ((AuthzAuditEvent) summaries.get(0)).getEventCount());
+	}
+
+	@Test
+	public void testQueueSizeLimit() {
+		AuditSummaryQueue notStarted = new AuditSummaryQueue(consumer);
+		Properties        props      = new Properties();
+
+		props.setProperty(PROP_PREFIX + "." + AuditQueue.PROP_QUEUE_SIZE, "5");
+
+		notStarted.init(props, PROP_PREFIX);
+
+		for (int i = 0; i < 5; i++) {
+			assertTrue(notStarted.log(TestAuditSummaryTable.event("user" + i, "/a", "read", 1, 10, 1000)));
+		}
+
+		assertFalse(notStarted.log(TestAuditSummaryTable.event("user5", "/a", "read", 1, 10, 1000)));
+	}
+
+	private AuditSummaryQueue start(int summaryIntervalMs, int queueSize) {
+		Properties props = new Properties();
+
+		props.setProperty(PROP_PREFIX + "." + AuditSummaryQueue.PROP_SUMMARY_INTERVAL, String.valueOf(summaryIntervalMs));
+		props.setProperty(PROP_PREFIX + "." + AuditQueue.PROP_QUEUE_SIZE, String.valueOf(queueSize));
+
+		AuditSummaryQueue ret = new AuditSummaryQueue(consumer);
+
+		ret.init(props, PROP_PREFIX);
+		ret.start();
+
+		return ret;
+	}
+
+	private List<AuditEventBase> waitForBatch(int index) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+
+		while (batches.size() <= index && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertTrue("batch #" + index + " not received", batches.size() > index);
+
+		return batches.get(index);
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.audit.queue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ranger.audit.model.AuditEventBase;
+import org.apache.ranger.audit.model.AuthzAuditEvent;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestAuditSummaryTable {
+
+	@Test
+	public void testAggregationKey() {
+		AuditSummaryTable table = new AuditSummaryTable();
+
+		AuthzAuditEvent first = event("user1", "/a", "read", 1, 10, 1000);
+
+		table.add(first);
+		table.add(event("user1", "/a", "read", 1, 10, 2000));  // same key
+		table.add(event("user2", "/a", "read", 1, 10, 1000));  // other user
+		table.add(event("user1", "/b", "read", 1, 10, 1000));  // other resource
+		table.add(event("user1", "/a", "write", 1, 10, 1000)); // other access type
+		table.add(event("user1", "/a", "read", 0, 10, 1000));  // other result
+		table.add(event("user1", "/a", "read", 1, 11, 1000));  // other policy
+
+		assertEquals(6, table.size());
+
+		List<AuditEventBase> summaries = new ArrayList<>();
+
+		assertEquals(6, table.drainTo(summaries));
+		assertEquals(6, summaries.size());
+
+		long totalCount = 0;
+
+		for (AuditEventBase summary : summaries) {
+			AuthzAuditEvent event = (AuthzAuditEvent) summary;
+
+			totalCount += event.getEventCount();
+
+			if (event.getEventCount() == 2) {
+				assertSame("first event of the key is emitted", first, event);
+			} else {
+				assertEquals(1, event.getEventCount());
+			}
+		}
+
+		assertEquals(7, totalCount);
+	}
+
+	@Test
+	public void testCountAndTimes() {
+		AuditSummaryTable table = new AuditSummaryTable();
+
+		AuthzAuditEvent first = event("user1", "/a", "read", 1, 10, 5000);
+
+		// times out of order: the duration is from the earliest to the latest event, not from the first to the last added
+		table.add(first);
+		table.add(event("user1", "/a", "read", 1, 10, 7000));
+		table.add(event("user1", "/a", "read", 1, 10, 2000));
+		table.add(event("user1", "/a", "read", 1, 10, 6000));
+
+		// a single event, or events of the same time, have a duration of 1ms
+		table.add(event("user2", "/a", "read", 1, 10, 3000));
+		table.add(event("user3", "/a", "read", 1, 10, 3000));
+		table.add(event("user3", "/a", "read", 1, 10, 3000));
+
+		Map<String, AuthzAuditEvent> summaries = drain(table);
+
+		assertSame(first, summaries.get("user1"));
+		assertEquals(4, first.getEventCount());
+		assertEquals(5000, first.getEventDurationMS());
+		assertEquals(1, summaries.get("user2").getEventCount());
+		assertEquals(1, summaries.get("user2").getEventDurationMS());
+		assertEquals(2, summaries.get("user3").getEventCount());
+		assertEquals(1, summaries.get("user3").getEventDurationMS());
+	}
+
+	@Test
+	public void testDrainStartsNewWindow() {
+		AuditSummaryTable table = new AuditSummaryTable();
+
+		table.add(event("user1", "/a", "read", 1, 10, 1000));
+		table.add(event("user1", "/a", "read", 1, 10, 2000));
+
+		assertEquals(2, drain(table).get("user1").getEventCount());
+		assertTrue(table.isEmpty());
+		assertEquals(0, table.drainTo(new ArrayList<AuditEventBase>()));
+
+		AuthzAuditEvent next = event("user1", "/a", "read", 1, 10, 9000);
+
+		table.add(next);
+
+		assertSame(next, drain(table).get("user1"));
+		assertEquals(1, next.getEventCount());
+		assertEquals(1, next.getEventDurationMS());
+	}
+
+	@Test
+	public void testGrowAndShrink() {
+		AuditSummaryTable table    = new AuditSummaryTable();
+		int               keyCount = 10000; // well beyond the initial capacity of the table
+
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < keyCount; i++) {
+				table.add(event("user" + i, "/a", "read", 1, 10, 1000 + round));
+			}
+		}
+
+		assertEquals(keyCount, table.size());
+
+		Map<String, AuthzAuditEvent> summaries = drain(table);
+
+		assertEquals(keyCount, summaries.size());
+
+		for (AuthzAuditEvent event : summaries.values()) {
+			assertEquals(3, event.getEventCount());
+			assertEquals(2, event.getEventDurationMS());
+		}
+
+		// after a large window, the table shrinks and still summarizes correctly
+		for (int i = 0; i < 10; i++) {
+			table.add(event("user" + (i % 5), "/a", "read", 1, 10, 1000));
+		}
+
+		summaries = drain(table);
+
+		assertEquals(5, summaries.size());
+
+		for (AuthzAuditEvent event : summaries.values()) {
+			assertEquals(2, event.getEventCount());
+		}
+	}
+
+	private static Map<String, AuthzAuditEvent> drain(AuditSummaryTable table) {
+		List<AuditEventBase>         summaries = new ArrayList<>();
+		Map<String, AuthzAuditEvent> ret       = new HashMap<>();
+
+		table.drainTo(summaries);
+
+		for (AuditEventBase summary : summaries) {
+			AuthzAuditEvent event = (AuthzAuditEvent) summary;
+
+			ret.put(event.getUser(), event);
+		}
+
+		assertEquals("one summary per user", summaries.size(), ret.size());
+		assertTrue(table.isEmpty());
+
+		return ret;
+	}
+
+	static AuthzAuditEvent event(String user, String resourcePath, String accessType, int accessResult, long policyId, long eventTime) {
+		AuthzAuditEvent ret = new AuthzAuditEvent();
+
+		ret.setUser(user);
+		ret.setResourcePath(resourcePath);
+		ret.setAccessType(accessType);
+		ret.setAccessResult((short) accessResult);
+		ret.setPolicyId(policyId);
+		ret.setEventTime(new Date(eventTime));
+
+		return ret;
+	}
+}
@@ -0,0 +1,515 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.conditionevaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+
+/*
+ * IP address condition that accepts CIDR ranges - like 10.1.0.0/16 and 2001:db8::/32 - in addition to the addresses and
+ * trailing-wildcard patterns accepted by RangerIpMatcher, so that existing policies can use this evaluator as is.
+ *
+ * Addresses and ranges are parsed into binary radix (Patricia) trees keyed on address bits, one for IPv4 and one for
+ * IPv6; a lookup walks at most the address length, regardless of the number of ranges in the condition. Wildcards are
+ * ranges as well: 10.1.* is 10.1.0.0/16, a0:b0:* is a0:b0::/32. IPv4-mapped IPv6 addresses are matched as IPv4.
+ *
+ * Request IPs that can't be parsed, and policy values that are neither addresses nor ranges, are matched as strings -
+ * the same way as RangerIpMatcher.
+ */
+public class RangerCidrIpMatcher extends RangerIpMatcher {
+	private static final Log LOG = LogFactory.getLog(RangerCidrIpMatcher.class);
+
+	private final AddressTrie  ipv4Trie           = new AddressTrie();
+	private final AddressTrie  ipv6Trie           = new AddressTrie();
+	private final List<String> textualExactIps    = new ArrayList<>(); // matched only for request IPs that can't be parsed
+	private final List<String> textualWildcardIps = new ArrayList<>();
+	private final List<String> literalIps         = new ArrayList<>(); // policy values that can't be parsed
+	private boolean            allowAny;
+
+	@Override
+	public void init() {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerCidrIpMatcher.init(" + condition + ")");
+		}
+
+		// NOTE: this evaluator does not use conditionDef!
+		if (condition == null || CollectionUtils.isEmpty(condition.getValues()) || condition.getValues().contains("*")) {
+			LOG.debug("init: null or empty policy condition, or wildcard value found. Will match always!");
+
+			allowAny = true;
+		} else {
+			for (String value : condition.getValues()) {
+				String ip = StringUtils.trim(value);
+
+				if (StringUtils.isEmpty(ip)) {
+					continue;
+				}
+
+				String digestedIp = digestPolicyIp(ip);
+
+				if (digestedIp.isEmpty()) {
+					LOG.debug("init: digested ip was empty! Will match always");
+
+					allowAny = true;
+				} else if (!addRange(ip, digestedIp)) {
+					LOG.warn("RangerCidrIpMatcher.init(): '" + ip + "' is not a valid IP address, CIDR range or wildcard pattern; it will be matched as a string");
+
+					literalIps.add(ip.contains(".") ? ip : ip.toLowerCase());
+				} else if (ip.indexOf('/') == -1) { // CIDR ranges have no string form to match unparseable request IPs with
+					if (digestedIp.equals(ip)) {
+						textualExactIps.add(ip.contains(".") ? ip : ip.toLowerCase());
+					} else {
+						textualWildcardIps.add(digestedIp);
+					}
+				}
+			}
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerCidrIpMatcher.init(" + condition + "): allowAny=" + allowAny + ", ipv4Ranges=" + ipv4Trie.size() + ", ipv6Ranges=" + ipv6Trie.size() + ", literalIps=" + literalIps);
+		}
+	}
+
+	@Override
+	public boolean isMatched(final RangerAccessRequest request) {
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerCidrIpMatcher.isMatched(" + request + ")");
+		}
+
+		boolean ipMatched = true;
+
+		if (!allowAny) {
+			String requestIp = extractIp(request);
+
+			if (requestIp == null) {
+				LOG.debug("isMatched: couldn't get ip address from request.  Ok.  Implicitly matched!");
+			} else {
+				byte[] address = parseAddress(requestIp);
+
+				if (address == null) {
+					ipMatched = isWildcardMatched(textualWildcardIps, requestIp) || isExactlyMatched(textualExactIps, requestIp);
+				} else if (address.length == IPV4_LENGTH) {
+					ipMatched = ipv4Trie.contains(address);
+				} else {
+					ipMatched = ipv6Trie.contains(address);
+				}
+
+				if (!ipMatched && !literalIps.isEmpty()) {
+					ipMatched = isExactlyMatched(literalIps, requestIp);
+				}
+			}
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerCidrIpMatcher.isMatched(" + request + "): " + ipMatched);
+		}
+
+		return ipMatched;
+	}
+
+	/*
+	 * adds the address, CIDR range or wildcard pattern to the trie; returns false if ip is none of these
+	 */
+	boolean addRange(final String ip, final String digestedIp) {
+		byte[] address;
+		int    prefixLength;
+
+		int slashIdx = ip.indexOf('/');
+
+		if (slashIdx != -1) { // CIDR
+			address      = parseAddress(ip.substring(0, slashIdx));
+			prefixLength = parsePrefixLength(ip.substring(slashIdx + 1), address);
+
+			if (prefixLength == -1) {
+				return false;
+			}
+
+			if (address != null && address.length == IPV4_LENGTH && ip.indexOf(':') != -1) { // IPv4-mapped IPv6 range
+				prefixLength = Math.max(0, prefixLength - (IPV6_LENGTH - IPV4_LENGTH) * 8);
+			}
+		} else if (!digestedIp.equals(ip)) { // trailing wildcards, like 10.1.* and a0:b0:*
+			address      = parseWildcardPrefix(digestedIp);
+			prefixLength = address == null ? -1 : wildcardPrefixLength(digestedIp);
+		} else {
+			address      = parseAddress(ip);
+			prefixLength = address == null ? -1 : address.length * 8;
+		}
+
+		if (address == null || prefixLength == -1 || prefixLength > address.length * 8) {
+			return false;
+		}
+
+		(address.length == IPV4_LENGTH ? ipv4Trie : ipv6Trie).add(address, prefixLength);
+
+		return true;
+	}
+
+	static final int IPV4_LENGTH = 4;
+	static final int IPV6_LENGTH = 16;
+
+	/*
+	 * parses textual IPv4 or IPv6 address into 4 or 16 bytes; IPv4-mapped IPv6 addresses are returned as IPv4. Returns
+	 * null if the string is not an address - notably, host names are not resolved.
+	 */
+	static byte[] parseAddress(String ip) {
+		if (ip == null || ip.isEmpty()) {
+			return null;
+		}
+
+		if (ip.charAt(0) == '[' && ip.charAt(ip.length() - 1) == ']') {
+			ip = ip.substring(1, ip.length() - 1);
+		}
+
+		int zoneIdx = ip.indexOf('%');
+
+		if (zoneIdx != -1) {
+			ip = ip.substring(0, zoneIdx);
+		}
+
+		return ip.indexOf(':') == -1 ? parseIpv4(ip, 0, ip.length()) : parseIpv6(ip);
+	}
+
+	private static byte[] parseIpv4(String ip, int start, int end) {
+		byte[] ret      = new byte[IPV4_LENGTH];
+		int    octetIdx = 0;
+		int    value    = -1;
+
+		for (int i = start; i <= end; i++) {
+			char c = i < end ? ip.charAt(i) : '.';
+
+			if (c == '.') {
+				if (value == -1 || octetIdx == IPV4_LENGTH) {
+					return null;
+				}
+
+				ret[octetIdx++] = (byte) value;
+				value           = -1;
+			} else if (c >= '0' && c <= '9') {
+				value = (value == -1 ? 0 : value * 10) + (c - '0');
+
+				if (value > 255) {
+					return null;
+				}
+			} else {
+				return null;
+			}
+		}
+
+		return octetIdx == IPV4_LENGTH ? ret : null;
+	}
+
+	private static byte[] parseIpv6(String ip) {
+		byte[] ret        = new byte[IPV6_LENGTH];
+		int    byteIdx    = 0;
+		int    gapIdx     = -1; // byte index at '::'
+		int    length     = ip.length();
+		int    i          = 0;
+
+		if (ip.startsWith("::")) {
+			gapIdx = 0;
+			i      = 2;
+		} else if (ip.startsWith(":")) {
+			return null;
+		}
+
+		while (i < length) {
+			int groupEnd = ip.indexOf(':', i);
+
+			if (groupEnd == -1) {
+				groupEnd = length;
+			}
+
+			if (groupEnd == i) { // '::'
+				if (gapIdx != -1) {
+					return null;
+				}
+
+				gapIdx = byteIdx;
+				i++;
+
+				continue;
+			}
+
+			if (groupEnd == length && ip.indexOf('.', i) != -1) { // trailing IPv4, like ::ffff:10.1.2.3
+				byte[] ipv4 = parseIpv4(ip, i, length);
+
+				if (ipv4 == null || byteIdx + IPV4_LENGTH > IPV6_LENGTH) {
+					return null;
+				}
+
+				System.arraycopy(ipv4, 0, ret, byteIdx, IPV4_LENGTH);
+
+				byteIdx += IPV4_LENGTH;
+				i        = length;
+
+				break;
+			}
+
+			int group = parseHexGroup(ip, i, groupEnd);
+
+			if (group == -1 || byteIdx + 2 > IPV6_LENGTH) {
+				return null;
+			}
+
+			ret[byteIdx++] = (byte) (group >> 8);
+			ret[byteIdx++] = (byte) group;
+
+			if (groupEnd == length) {
+				i = length;
+			} else if (groupEnd == length - 1) { // trailing single ':'
+				return null;
+			} else {
+				i = groupEnd + 1;
+			}
+		}
+
+		if (gapIdx != -1) {
+			int tailLength = byteIdx - gapIdx;
+
+			if (byteIdx == IPV6_LENGTH) { // '::' must stand for at least one group
+				return null;
+			}
+
+			System.arraycopy(ret, gapIdx, ret, IPV6_LENGTH - tailLength, tailLength);
+
+			for (int j = gapIdx; j < IPV6_LENGTH - tailLength; j++) {
+				ret[j] = 0;
+			}
+		} else if (byteIdx != IPV6_LENGTH) {
+			return null;
+		}
+
+		return isIpv4Mapped(ret) ? new byte[] { ret[12], ret[13], ret[14], ret[15] } : ret;
+	}
+
+	private static int parseHexGroup(String ip, int start, int end) {
+		if (end - start < 1 || end - start > 4) {
+			return -1;
+		}
+
+		int ret = 0;
+
+		for (int i = start; i < end; i++) {
+			int digit = Character.digit(ip.charAt(i), 16);
+
+			if (digit == -1) {
+				return -1;
+			}
+
+			ret = (ret << 4) | digit;
+		}
+
+		return ret;
+	}
+
+	private static boolean isIpv4Mapped(byte[] address) {
+		for (int i = 0; i < 10; i++) {
+			if (address[i] != 0) {
+				return false;
+			}
+		}
+
+		return address[10] == (byte) 0xff && address[11] == (byte) 0xff;
+	}
+
+	private static int parsePrefixLength(String str, byte[] address) {
+		if (address == null || str.isEmpty() || str.length() > 3) {
+			return -1;
+		}
+
+		int ret = 0;
+
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+
+			ret = ret * 10 + (c - '0');
+		}
+
+		return ret <= IPV6_LENGTH * 8 ? ret : -1;
+	}
+
+	/*
+	 * digested wildcard pattern, like "10.1." or "a0:b0:", to the address of the range it covers
+	 */
+	private static byte[] parseWildcardPrefix(String digestedIp) {
+		boolean isIpv4    = digestedIp.indexOf(':') == -1;
+		char    separator = isIpv4 ? '.' : ':';
+		String  prefix    = digestedIp.substring(0, digestedIp.length() - 1);
+		int     maxGroups = isIpv4 ? IPV4_LENGTH : IPV6_LENGTH / 2;
+
+		if (prefix.isEmpty() || prefix.indexOf("::") != -1) {
+			return null;
+		}
+
+		String[] groups = StringUtils.splitPreserveAllTokens(prefix, separator);
+
+		if (groups.length >= maxGroups) {
+			return null;
+		}
+
+		StringBuilder sb = new StringBuilder(prefix);
+
+		for (int i = groups.length; i < maxGroups; i++) {
+			sb.append(separator).append('0');
+		}
+
+		byte[] ret = isIpv4 ? parseIpv4(sb.toString(), 0, sb.length()) : parseIpv6(sb.toString());
+
+		return ret != null && ret.length == (isIpv4 ? IPV4_LENGTH : IPV6_LENGTH) ? ret : null;
+	}
+
+	private static int wildcardPrefixLength(String digestedIp) {
+		boolean isIpv4 = digestedIp.indexOf(':') == -1;
+
+		return StringUtils.countMatches(digestedIp, isIpv4 ? "." : ":") * (isIpv4 ? 8 : 16);
+	}
+
+	/*
+	 * Binary Patricia trie of address prefixes; each node holds a prefix of prefixLength bits, and its children extend
+	 * it by at least one bit - with the next bit deciding the child. Prefixes of the ranges added are marked isRange.
+	 */
+	static final class AddressTrie {
+		private Node root;
+		private int  size;
+
+		void add(byte[] address, int prefixLength) {
+			root = add(root, address, prefixLength);
+		}
+
+		boolean contains(byte[] address) {
+			final int addressLength = address.length * 8;
+
+			for (Node node = root; node != null; ) {
+				if (node.prefixLength > addressLength || commonPrefixLength(node.prefix, address, node.prefixLength) < node.prefixLength) {
+					return false;
+				}
+
+				if (node.isRange) {
+					return true;
+				}
+
+				if (node.prefixLength == addressLength) {
+					return false;
+				}
+
+				node = bitAt(address, node.prefixLength) == 0 ? node.left : node.right;
+			}
+
+			return false;
+		}
+
+		int size() {
+			return size;
+		}
+
+		private Node add(Node node, byte[] address, int prefixLength) {
+			if (node == null) {
+				size++;
+
+				return new Node(address, prefixLength, true);
+			}
+
+			int common = commonPrefixLength(node.prefix, address, Math.min(node.prefixLength, prefixLength));
+
+			if (common == node.prefixLength) {
+				if (common == prefixLength) {
+					if (!node.isRange) {
+						node.isRange = true;
+						size++;
+					}
+				} else if (bitAt(address, common) == 0) {
+					node.left = add(node.left, address, prefixLength);
+				} else {
+					node.right = add(node.right, address, prefixLength);
+				}
+
+				return node;
+			}
+
+			// prefixes diverge, or the new prefix is shorter: insert a node for the common prefix
+			Node ret = new Node(address, common, common == prefixLength);
+
+			if (ret.isRange) {
+				size++;
+			} else {
+				Node leaf = add(null, address, prefixLength);
+
+				if (bitAt(address, common) == 0) {
+					ret.left = leaf;
+				} else {
+					ret.right = leaf;
+				}
+			}
+
+			if (bitAt(node.prefix, common) == 0) {
+				ret.left = node;
+			} else {
+				ret.right = node;
+			}
+
+			return ret;
+		}
+
+		private static int commonPrefixLength(byte[] a, byte[] b, int maxLength) {
+			int ret = 0;
+
+			for (int i = 0; ret < maxLength; i++) {
+				int diff = (a[i] ^ b[i]) & 0xff;
+
+				if (diff != 0) {
+					ret += Integer.numberOfLeadingZeros(diff) - 24;
+
+					break;
+				}
+
+				ret += 8;
+			}
+
+			return Math.min(ret, maxLength);
+		}
+
+		private static int bitAt(byte[] address, int index) {
+			return (address[index >> 3] >> (7 - (index & 7))) & 1;
+		}
+
+		private static final class Node {
+			final byte[] prefix; // only the first prefixLength bits are significant
+			final int    prefixLength;
+			boolean      isRange;
+			Node         left;
+			Node         right;
+
+			Node(byte[] prefix, int prefixLength, boolean isRange) {
+				this.prefix       = prefix;
+				this.prefixLength = prefixLength;
+				this.isRange      = isRange;
+			}
+		}
+	}
+}
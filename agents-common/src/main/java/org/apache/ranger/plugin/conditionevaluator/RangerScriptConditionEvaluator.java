@@ -25,20 +25,83 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.policyengine.ConcurrentCacheMap;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResource;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvaluator {
 	private static final Log LOG = LogFactory.getLog(RangerScriptConditionEvaluator.class);
 
-	private ScriptEngine scriptEngine;
+	public static final String EVALUATOR_OPTION_RESULT_CACHE_SIZE = "resultCacheSize";
+
+	private static final Pattern CTX_PATTERN         = Pattern.compile("\\bctx\\b");
+	private static final Pattern CTX_METHOD_PATTERN  = Pattern.compile("\\bctx\\s*\\.\\s*(\\w+)");
+	private static final Pattern TAG_BINDING_PATTERN = Pattern.compile("\\b(tag|tagAttr)\\b");
+	// scripts that can read inputs other than the request - like current time or java objects - are not cached
+	private static final Pattern NON_CACHEABLE_PATTERN = Pattern.compile("\\b(Date|Math\\s*\\.\\s*random|Java|java|javax|Packages|load|loadWithNewGlobal|exit|quit)\\b|\\$ENV|\\$EXEC");
+
+	private static final char KEY_SEPARATOR = '\u001F';
+
+	/*
+	 * inputs read by script from RangerScriptExecutionContext; these make up the key of cached results
+	 */
+	private enum ScriptInput { USER, USER_GROUPS, ACCESS_TYPE, ACTION, CLIENT_IP, CLIENT_TYPE, REQUEST_DATA, SESSION_ID, RESOURCE, CURRENT_TAG, ALL_TAGS }
+
+	private static final Map<String, Set<ScriptInput>> CTX_METHOD_INPUTS    = new HashMap<>();
+	private static final Set<String>                   CTX_METHODS_NO_INPUT = new TreeSet<>();
+
+	static {
+		CTX_METHOD_INPUTS.put("getUser", EnumSet.of(ScriptInput.USER));
+		CTX_METHOD_INPUTS.put("getUserGroups", EnumSet.of(ScriptInput.USER_GROUPS));
+		CTX_METHOD_INPUTS.put("isAccessTypeAny", EnumSet.of(ScriptInput.ACCESS_TYPE));
+		CTX_METHOD_INPUTS.put("isAccessTypeDelegatedAdmin", EnumSet.of(ScriptInput.ACCESS_TYPE));
+		CTX_METHOD_INPUTS.put("getAction", EnumSet.of(ScriptInput.ACTION));
+		CTX_METHOD_INPUTS.put("getClientIPAddress", EnumSet.of(ScriptInput.CLIENT_IP));
+		CTX_METHOD_INPUTS.put("getClientType", EnumSet.of(ScriptInput.CLIENT_TYPE));
+		CTX_METHOD_INPUTS.put("getRequestData", EnumSet.of(ScriptInput.REQUEST_DATA));
+		CTX_METHOD_INPUTS.put("getSessionId", EnumSet.of(ScriptInput.SESSION_ID));
+		CTX_METHOD_INPUTS.put("getResource", EnumSet.of(ScriptInput.RESOURCE));
+		CTX_METHOD_INPUTS.put("getCurrentTag", EnumSet.of(ScriptInput.CURRENT_TAG));
+		CTX_METHOD_INPUTS.put("getCurrentTagType", EnumSet.of(ScriptInput.CURRENT_TAG));
+		CTX_METHOD_INPUTS.put("getAllTagTypes", EnumSet.of(ScriptInput.ALL_TAGS));
+		CTX_METHOD_INPUTS.put("getTagAttributes", EnumSet.of(ScriptInput.ALL_TAGS));
+		CTX_METHOD_INPUTS.put("getAttributeNames", EnumSet.of(ScriptInput.ALL_TAGS));
+		// getAttributeValue(tagType, attrName) reads all tags; getAttributeValue(attrName) reads the current tag
+		CTX_METHOD_INPUTS.put("getAttributeValue", EnumSet.of(ScriptInput.ALL_TAGS, ScriptInput.CURRENT_TAG));
+		CTX_METHOD_INPUTS.put("getTagAttributeAsDate", EnumSet.of(ScriptInput.ALL_TAGS));
+
+		CTX_METHODS_NO_INPUT.add("getAsDate");
+		CTX_METHODS_NO_INPUT.add("getResult");
+		CTX_METHODS_NO_INPUT.add("setResult");
+	}
+
+	// engines are shared by all evaluators. Each evaluation gets new bindings: with Nashorn, bindings hold the global
+	// scope of the script, hence reusing them would let variables set by one evaluation leak into the next
+	private static final ConcurrentHashMap<String, ScriptEngine> SCRIPT_ENGINES = new ConcurrentHashMap<>();
+
+	private ScriptEngine                         scriptEngine;
+	private CompiledScript                       compiledScript;
+	private Set<ScriptInput>                     scriptInputs;
+	private ConcurrentCacheMap<String, Boolean>  resultCache;
 
 	@Override
 	public void init() {
@@ -65,12 +128,9 @@ public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvalu
 			LOG.debug("RangerScriptConditionEvaluator.init() - engineName=" + engineName);
 		}
 
-		try {
-			ScriptEngineManager manager = new ScriptEngineManager();
-			scriptEngine = manager.getEngineByName(engineName);
-		} catch (Exception exp) {
-			LOG.error("RangerScriptConditionEvaluator.init() failed with exception=" + exp);
-		}
+		scriptEngine = getScriptEngine(engineName);
+
+		initScript();
 
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerScriptConditionEvaluator.init(" + condition + ")");
@@ -90,38 +150,49 @@ public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvalu
 
 			if (StringUtils.isNotBlank(script)) {
 
-				RangerAccessRequest readOnlyRequest = request.getReadOnlyCopy();
-
-				RangerScriptExecutionContext context    = new RangerScriptExecutionContext(readOnlyRequest);
-				RangerTagForEval             currentTag = context.getCurrentTag();
-				Map<String, String>          tagAttribs = currentTag != null ? currentTag.getAttributes() : Collections.<String, String>emptyMap();
+				String  cacheKey     = resultCache != null ? getResultCacheKey(request) : null;
+				Boolean cachedResult = cacheKey != null ? resultCache.get(cacheKey) : null;
 
-				Bindings bindings = scriptEngine.createBindings();
+				if (cachedResult != null) {
+					result = cachedResult;
+				} else {
+					RangerAccessRequest readOnlyRequest = request.getReadOnlyCopy();
 
-				bindings.put("ctx", context);
-				bindings.put("tag", currentTag);
-				bindings.put("tagAttr", tagAttribs);
+					RangerScriptExecutionContext context    = new RangerScriptExecutionContext(readOnlyRequest);
+					RangerTagForEval             currentTag = context.getCurrentTag();
+					Map<String, String>          tagAttribs = currentTag != null ? currentTag.getAttributes() : Collections.<String, String>emptyMap();
 
-				if (LOG.isDebugEnabled()) {
-					LOG.debug("RangerScriptConditionEvaluator.isMatched(): script={" + script + "}");
-				}
-				try {
+					Bindings bindings = scriptEngine.createBindings();
 
-					Object ret = scriptEngine.eval(script, bindings);
+					bindings.put("ctx", context);
+					bindings.put("tag", currentTag);
+					bindings.put("tagAttr", tagAttribs);
 
-					if (ret == null) {
-						ret = context.getResult();
-					}
-					if (ret instanceof Boolean) {
-						result = (Boolean) ret;
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("RangerScriptConditionEvaluator.isMatched(): script={" + script + "}");
 					}
+					try {
+
+						Object ret = compiledScript != null ? compiledScript.eval(bindings) : scriptEngine.eval(script, bindings);
 
-				} catch (NullPointerException nullp) {
-					LOG.error("RangerScriptConditionEvaluator.isMatched(): eval called with NULL argument(s)");
+						if (ret == null) {
+							ret = context.getResult();
+						}
+						if (ret instanceof Boolean) {
+							result = (Boolean) ret;
+						}
 
-				} catch (ScriptException exception) {
-					LOG.error("RangerScriptConditionEvaluator.isMatched(): failed to evaluate script," +
-							" exception=" + exception);
+						if (cacheKey != null) {
+							resultCache.put(cacheKey, result);
+						}
+
+					} catch (NullPointerException nullp) {
+						LOG.error("RangerScriptConditionEvaluator.isMatched(): eval called with NULL argument(s)");
+
+					} catch (ScriptException exception) {
+						LOG.error("RangerScriptConditionEvaluator.isMatched(): failed to evaluate script," +
+								" exception=" + exception);
+					}
 				}
 			}
 
@@ -150,4 +221,205 @@ public class RangerScriptConditionEvaluator extends RangerAbstractConditionEvalu
 
 		return ret;
 	}
+
+	/*
+	 * compiles the script returned by getScript(), and sets up the result cache if enabled for the condition. Called
+	 * from init(); subclasses that set the script after super.init() should call this again.
+	 */
+	protected void initScript() {
+		String script = getScript();
+
+		compiledScript = null;
+		scriptInputs   = null;
+		resultCache    = null;
+
+		if (scriptEngine == null || StringUtils.isBlank(script)) {
+			return;
+		}
+
+		if (scriptEngine instanceof Compilable) {
+			try {
+				compiledScript = ((Compilable) scriptEngine).compile(script);
+			} catch (ScriptException exception) {
+				// evaluation will be attempted, and the error logged, on every isMatched() - as before compilation was done
+				LOG.error("RangerScriptConditionEvaluator.initScript(): failed to compile script={" + script + "}, exception=" + exception);
+			}
+		}
+
+		int resultCacheSize = MapUtils.getIntValue(conditionDef.getEvaluatorOptions(), EVALUATOR_OPTION_RESULT_CACHE_SIZE, 0);
+
+		if (resultCacheSize > 0 && compiledScript != null) {
+			scriptInputs = getScriptInputs(script);
+
+			if (scriptInputs != null) {
+				resultCache = new ConcurrentCacheMap<>(resultCacheSize);
+			} else {
+				LOG.info("RangerScriptConditionEvaluator.initScript(): results will not be cached for script={" + script + "}, as its inputs can't be determined");
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerScriptConditionEvaluator.initScript(): script={" + script + "}, isCompiled=" + (compiledScript != null) + ", scriptInputs=" + scriptInputs + ", resultCacheSize=" + resultCacheSize);
+		}
+	}
+
+	/*
+	 * returns inputs read by the script, or null if the script may read anything other than the request attributes
+	 * exposed by RangerScriptExecutionContext - like the access time - in which case its results can't be cached
+	 */
+	private static Set<ScriptInput> getScriptInputs(String script) {
+		if (NON_CACHEABLE_PATTERN.matcher(script).find()) {
+			return null;
+		}
+
+		Set<ScriptInput> ret = EnumSet.noneOf(ScriptInput.class);
+
+		int     ctxCount = 0;
+		Matcher matcher  = CTX_PATTERN.matcher(script);
+
+		while (matcher.find()) {
+			ctxCount++;
+		}
+
+		int ctxMethodCount = 0;
+
+		matcher = CTX_METHOD_PATTERN.matcher(script);
+
+		while (matcher.find()) {
+			String           methodName = matcher.group(1);
+			Set<ScriptInput> inputs     = CTX_METHOD_INPUTS.get(methodName);
+
+			if (inputs != null) {
+				ret.addAll(inputs);
+			} else if (!CTX_METHODS_NO_INPUT.contains(methodName)) { // like getAccessTime(), isAccessedBefore()
+				return null;
+			}
+
+			ctxMethodCount++;
+		}
+
+		if (ctxCount != ctxMethodCount) { // ctx is used other than to call a method, like being passed to a function
+			return null;
+		}
+
+		if (TAG_BINDING_PATTERN.matcher(script).find()) {
+			ret.add(ScriptInput.CURRENT_TAG);
+		}
+
+		return ret;
+	}
+
+	private String getResultCacheKey(RangerAccessRequest request) {
+		StringBuilder sb = new StringBuilder();
+
+		for (ScriptInput input : scriptInputs) {
+			switch (input) {
+				case USER:
+					sb.append(request.getUser());
+					break;
+
+				case USER_GROUPS:
+					Set<String> groups = request.getUserGroups();
+
+					if (groups != null) {
+						sb.append(groups.size() > 1 ? new TreeSet<>(groups) : groups);
+					}
+					break;
+
+				case ACCESS_TYPE:
+					sb.append(request.getAccessType());
+					break;
+
+				case ACTION:
+					sb.append(request.getAction());
+					break;
+
+				case CLIENT_IP:
+					sb.append(request.getClientIPAddress());
+					break;
+
+				case CLIENT_TYPE:
+					sb.append(request.getClientType());
+					break;
+
+				case REQUEST_DATA:
+					sb.append(request.getRequestData());
+					break;
+
+				case SESSION_ID:
+					sb.append(request.getSessionId());
+					break;
+
+				case RESOURCE:
+					Object resource = request.getContext().get(RangerAccessRequestUtil.KEY_CONTEXT_RESOURCE);
+
+					if (resource instanceof RangerAccessResource) {
+						RangerAccessResource accessResource = (RangerAccessResource) resource;
+
+						// getAsString() leaves out the owner, which is part of the resource
+						sb.append(accessResource.getAsString()).append(KEY_SEPARATOR).append(accessResource.getOwnerUser());
+					} else {
+						sb.append(resource);
+					}
+					break;
+
+				case CURRENT_TAG:
+					Object currentTag = request.getContext().get(RangerAccessRequestUtil.KEY_CONTEXT_TAG_OBJECT);
+
+					if (currentTag instanceof RangerTagForEval) {
+						appendTag(sb, (RangerTagForEval) currentTag);
+					}
+					break;
+
+				case ALL_TAGS:
+					Set<RangerTagForEval> tags = RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext());
+
+					if (tags != null) {
+						for (RangerTagForEval tag : tags) {
+							appendTag(sb, tag);
+						}
+					}
+					break;
+			}
+
+			sb.append(KEY_SEPARATOR);
+		}
+
+		return sb.toString();
+	}
+
+	private static void appendTag(StringBuilder sb, RangerTagForEval tag) {
+		Map<String, String> attributes = tag.getAttributes();
+
+		sb.append(tag.getType());
+
+		if (MapUtils.isNotEmpty(attributes)) {
+			sb.append(attributes.size() > 1 ? new TreeMap<>(attributes) : attributes);
+		}
+
+		sb.append(';');
+	}
+
+	private static ScriptEngine getScriptEngine(String engineName) {
+		ScriptEngine ret = SCRIPT_ENGINES.get(engineName);
+
+		if (ret == null) {
+			try {
+				ScriptEngineManager manager = new ScriptEngineManager();
+				ret = manager.getEngineByName(engineName);
+			} catch (Exception exp) {
+				LOG.error("RangerScriptConditionEvaluator.init() failed with exception=" + exp);
+			}
+
+			if (ret != null) {
+				ScriptEngine existing = SCRIPT_ENGINES.putIfAbsent(engineName, ret);
+
+				if (existing != null) {
+					ret = existing;
+				}
+			}
+		}
+
+		return ret;
+	}
 }
@@ -37,14 +37,15 @@ import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyresourcematcher.RangerDefaultPolicyResourceMatcher;
 import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerCacheFileReader;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 import org.apache.ranger.plugin.util.RangerResourceTrie;
 import org.apache.ranger.plugin.util.RangerServiceNotFoundException;
 import org.apache.ranger.plugin.util.ServiceTags;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.ArrayList;
@@ -198,6 +199,27 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 		}
 	}
 
+	/*
+	 * Returns true if a tagged resource equals or starts with the given value, or if this can't be determined
+	 */
+	public boolean hasTaggedResourcesAtOrBelow(String resourceName, String resourceValue) {
+		final EnrichedServiceTags enrichedServiceTags = this.enrichedServiceTags;
+
+		if (enrichedServiceTags == null) {
+			return false;
+		}
+
+		final Map<String, RangerResourceTrie<RangerServiceResourceMatcher>> serviceResourceTrie = enrichedServiceTags.getServiceResourceTrie();
+
+		if (serviceResourceTrie == null) {
+			return CollectionUtils.isNotEmpty(enrichedServiceTags.getServiceResourceMatchers());
+		}
+
+		RangerResourceTrie<RangerServiceResourceMatcher> trie = serviceResourceTrie.get(resourceName);
+
+		return trie == null ? CollectionUtils.isNotEmpty(enrichedServiceTags.getServiceResourceMatchers()) : trie.hasEvaluatorsAtOrBelow(resourceValue);
+	}
+
 	public void setServiceTags(final ServiceTags serviceTags) {
 		if (serviceTags == null || CollectionUtils.isEmpty(serviceTags.getServiceResources())) {
 			LOG.info("ServiceTags is null or there are no tagged resources for service " + serviceName);
@@ -645,10 +667,16 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 			if (cacheFile != null && cacheFile.isFile() && cacheFile.canRead()) {
 				Reader reader = null;
 
+				RangerPerfTracer perf = null;
+
+				if(RangerPerfTracer.isPerfTraceEnabled(PERF_CONTEXTENRICHER_INIT_LOG)) {
+					perf = RangerPerfTracer.getPerfTracer(PERF_CONTEXTENRICHER_INIT_LOG, "RangerTagRefresher.loadFromCache(serviceName=" + tagEnricher.getServiceName() + ")");
+				}
+
 				try {
-					reader = new FileReader(cacheFile);
+					reader = RangerCacheFileReader.open(cacheFile);
 
-					serviceTags = gson.fromJson(reader, ServiceTags.class);
+					serviceTags = RangerCacheFileReader.read(reader, ServiceTags.class);
 
 					if (serviceTags != null && !StringUtils.equals(tagEnricher.getServiceName(), serviceTags.getServiceName())) {
 						LOG.warn("ignoring unexpected serviceName '" + serviceTags.getServiceName() + "' in cache file '" + cacheFile.getAbsolutePath() + "'");
@@ -658,6 +686,8 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 				} catch (Exception excp) {
 					LOG.error("failed to load service-tags from cache file " + cacheFile.getAbsolutePath(), excp);
 				} finally {
+					RangerPerfTracer.log(perf);
+
 					if (reader != null) {
 						try {
 							reader.close();
@@ -689,7 +719,7 @@ public class RangerTagEnricher extends RangerAbstractContextEnricher {
 					Writer writer = null;
 
 					try {
-						writer = new FileWriter(cacheFile);
+						writer = new OutputStreamWriter(new FileOutputStream(cacheFile), "UTF-8");
 
 						gson.toJson(serviceTags, writer);
 					} catch (Exception excp) {
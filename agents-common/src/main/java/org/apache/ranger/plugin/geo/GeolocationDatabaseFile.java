@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.geo;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Compact binary form of a geolocation database, so that large databases can be memory-mapped instead of being parsed
+ * into the heap on every load. Layout (big-endian):
+ *
+ *   int       magic ('RGEO'), int version
+ *   int       count of metadata item names, followed by their string-table indexes
+ *   int       count of strings, each as: int length, UTF-8 bytes
+ *   int       count of locations, each as: int count of fields, followed by their string-table indexes
+ *   padding   to a 4-byte boundary
+ *   int       count of ranges, followed by arrays of range starts, ends, max-ends and location indexes
+ */
+public final class GeolocationDatabaseFile {
+	private static final Log LOG = LogFactory.getLog(GeolocationDatabaseFile.class);
+
+	public static final int MAGIC   = 0x5247454F; // 'RGEO'
+	public static final int VERSION = 1;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private GeolocationDatabaseFile() { }
+
+	public static boolean isDatabaseFile(final File file) {
+		boolean ret = false;
+
+		if (file.isFile() && file.length() >= 8) {
+			try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+				ret = raf.readInt() == MAGIC;
+			} catch (IOException excp) {
+				LOG.warn("GeolocationDatabaseFile.isDatabaseFile(" + file + ") - failed to read", excp);
+			}
+		}
+
+		return ret;
+	}
+
+	public static boolean isDatabaseFile(final byte[] contents) {
+		return contents != null && contents.length >= 8 && ByteBuffer.wrap(contents).getInt() == MAGIC;
+	}
+
+	/*
+	 * Maps the file read-only; the returned database refers to the mapped pages. These stay valid only if the file is
+	 * replaced by a rename, as write() does - truncating or rewriting the file in place (like cp does) would make access
+	 * to the mapped pages fail, or crash the JVM with SIGBUS.
+	 */
+	public static RangerGeolocationDatabase read(final File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	public static RangerGeolocationDatabase read(final ByteBuffer buffer) throws IOException {
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("not a geolocation database file");
+			}
+
+			int version = buffer.getInt();
+
+			if (version != VERSION) {
+				throw new IOException("unsupported geolocation database file version " + version);
+			}
+
+			int[] itemNameIds = readInts(buffer);
+
+			String[] strings = new String[buffer.getInt()];
+
+			for (int i = 0; i < strings.length; i++) {
+				byte[] bytes = new byte[buffer.getInt()];
+
+				buffer.get(bytes);
+
+				strings[i] = new String(bytes, UTF8);
+			}
+
+			String[][] locations = new String[buffer.getInt()][];
+
+			for (int i = 0; i < locations.length; i++) {
+				locations[i] = toStrings(readInts(buffer), strings);
+			}
+
+			buffer.position(align(buffer.position()));
+
+			int rangeCount = buffer.getInt();
+
+			IntBuffer starts      = sliceInts(buffer, rangeCount);
+			IntBuffer ends        = sliceInts(buffer, rangeCount);
+			IntBuffer maxEnds     = sliceInts(buffer, rangeCount);
+			IntBuffer locationIds = sliceInts(buffer, rangeCount);
+
+			RangerGeolocationDatabase ret = new RangerGeolocationDatabase();
+
+			ret.setMetadata(new GeolocationMetadata(toStrings(itemNameIds, strings)));
+			ret.setIndex(new RangerGeolocationIndex(starts, ends, maxEnds, locationIds, locations));
+
+			return ret;
+		} catch (RuntimeException excp) { // BufferUnderflowException, IndexOutOfBoundsException, IllegalArgumentException on corrupt files
+			throw new IOException("invalid geolocation database file", excp);
+		}
+	}
+
+	/*
+	 * Writes to a temporary file in the same directory, which is then renamed to the given file; hence a process that has
+	 * the earlier file mapped continues to see its contents, and never a partially written file
+	 */
+	public static void write(final RangerGeolocationDatabase database, final File file) throws IOException {
+		File    tmpFile   = File.createTempFile(file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile());
+		boolean isWritten = false;
+
+		try {
+			writeTo(database, tmpFile);
+
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+			isWritten = true;
+		} finally {
+			if (!isWritten && !tmpFile.delete()) {
+				LOG.warn("GeolocationDatabaseFile.write(" + file + ") - failed to delete temporary file " + tmpFile);
+			}
+		}
+	}
+
+	private static void writeTo(final RangerGeolocationDatabase database, final File file) throws IOException {
+		RangerGeolocationIndex index     = database.getIndex();
+		String[][]             locations = index.getLocations();
+		List<String>           strings   = new ArrayList<>();
+		Map<String, Integer>   stringIds = new HashMap<>();
+		int[]                  itemNameIds = toStringIds(database.getMetadata().getLocationDataItemNames(), strings, stringIds);
+		int[][]                locationIds = new int[locations.length][];
+
+		for (int i = 0; i < locations.length; i++) {
+			locationIds[i] = toStringIds(locations[i], strings, stringIds);
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+
+			writeInts(out, itemNameIds);
+
+			out.writeInt(strings.size());
+
+			for (String str : strings) {
+				byte[] bytes = str.getBytes(UTF8);
+
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+
+			out.writeInt(locationIds.length);
+
+			for (int[] ids : locationIds) {
+				writeInts(out, ids);
+			}
+
+			for (int i = out.size(); i < align(out.size()); i++) {
+				out.writeByte(0);
+			}
+
+			out.writeInt(index.size());
+
+			writeInts(out, index.getStarts());
+			writeInts(out, index.getEnds());
+			writeInts(out, index.getMaxEnds());
+			writeInts(out, index.getLocationIds());
+		}
+	}
+
+	private static int align(int position) {
+		return (position + 3) & ~3;
+	}
+
+	private static int[] readInts(ByteBuffer buffer) {
+		int[] ret = new int[buffer.getInt()];
+
+		buffer.asIntBuffer().get(ret);
+		buffer.position(buffer.position() + ret.length * 4);
+
+		return ret;
+	}
+
+	private static IntBuffer sliceInts(ByteBuffer buffer, int count) {
+		ByteBuffer dup = buffer.duplicate();
+
+		dup.limit(dup.position() + count * 4);
+		buffer.position(dup.limit());
+
+		return dup.slice().asIntBuffer();
+	}
+
+	private static String[] toStrings(int[] ids, String[] strings) {
+		String[] ret = new String[ids.length];
+
+		for (int i = 0; i < ids.length; i++) {
+			ret[i] = strings[ids[i]];
+		}
+
+		return ret;
+	}
+
+	private static int[] toStringIds(String[] values, List<String> strings, Map<String, Integer> stringIds) {
+		int[] ret = new int[values.length];
+
+		for (int i = 0; i < values.length; i++) {
+			String  value = values[i] == null ? "" : values[i];
+			Integer id    = stringIds.get(value);
+
+			if (id == null) {
+				id = strings.size();
+
+				strings.add(value);
+				stringIds.put(value, id);
+			}
+
+			ret[i] = id;
+		}
+
+		return ret;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		out.writeInt(values.length);
+
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, IntBuffer values) throws IOException {
+		while (values.hasRemaining()) {
+			out.writeInt(values.get());
+		}
+	}
+}
@@ -71,12 +71,24 @@ public class RangerGeolocationData implements Comparable<RangerGeolocationData>,
 		return data;
 	}
 
+	static RangerGeolocationData create(final long fromIPAddress, final long toIPAddress, final String[] locationData) {
+		return new RangerGeolocationData(fromIPAddress, toIPAddress, locationData);
+	}
+
 	private RangerGeolocationData(final long fromIPAddress, final long toIPAddress, final String[] locationData) {
 		this.fromIPAddress = fromIPAddress;
 		this.toIPAddress = toIPAddress;
 		this.locationData = locationData;
 	}
 
+	public long getFromIPAddress() {
+		return fromIPAddress;
+	}
+
+	public long getToIPAddress() {
+		return toIPAddress;
+	}
+
 	public String[] getLocationData() {
 		return locationData;
 	}
@@ -140,7 +152,7 @@ public class RangerGeolocationData implements Comparable<RangerGeolocationData>,
 			if (bytes != null && bytes.length <= 4) {
 				for (int i = 0; i < bytes.length; i++) {
 					int val = bytes[i] < 0 ? (256 + bytes[i]) : bytes[i];
-					ret += (val << (8 * (3 - i)));
+					ret += ((long) val << (8 * (3 - i)));
 				}
 			}
 		}
@@ -151,6 +163,46 @@ public class RangerGeolocationData implements Comparable<RangerGeolocationData>,
 		return ret;
 	}
 
+	/*
+	 * Parses an IPv4 address in dot notation; returns -1 if the string is not one. Unlike ipAddressToLong(), this doesn't
+	 * go through InetAddress - hence no name-service lookup for strings that are not IP addresses.
+	 */
+	public static long parseIPv4Address(final String ipAddress) {
+		if (ipAddress == null) {
+			return -1;
+		}
+
+		long ret      = 0L;
+		int  segments = 0;
+		int  value    = -1;
+		int  length   = ipAddress.length();
+
+		for (int i = 0; i <= length; i++) {
+			char c = i < length ? ipAddress.charAt(i) : IPSegmentsSeparator;
+
+			if (c == IPSegmentsSeparator) {
+				if (value == -1 || segments == 4) {
+					return -1;
+				}
+
+				ret   = (ret << 8) | value;
+				value = -1;
+
+				segments++;
+			} else if (c >= '0' && c <= '9') {
+				value = (value == -1 ? 0 : value * 10) + (c - '0');
+
+				if (value > 255) {
+					return -1;
+				}
+			} else {
+				return -1;
+			}
+		}
+
+		return segments == 4 ? ret : -1;
+	}
+
 	public static String unsignedIntToIPAddress(final long val) {
 		if (val <= 0) {
 			return "";
@@ -23,10 +23,15 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class RangerGeolocationDatabase {
 	private static final Log LOG = LogFactory.getLog(RangerGeolocationDatabase.class);
 
-	private BinarySearchTree<RangerGeolocationData, Long> data = new BinarySearchTree<>();
+	private List<RangerGeolocationData> pendingData = new ArrayList<>();
+
+	private volatile RangerGeolocationIndex index = RangerGeolocationIndex.build(new ArrayList<RangerGeolocationData>());
 
 	private GeolocationMetadata metadata = new GeolocationMetadata();
 
@@ -55,35 +60,55 @@ public class RangerGeolocationDatabase {
 	public RangerGeolocationData find(final String ipAddressStr) {
 		RangerGeolocationData ret = null;
 
-		if (StringUtils.isNotBlank(ipAddressStr) && RangerGeolocationData.validateAsIP(ipAddressStr, true)) {
-			ret = data.find(RangerGeolocationData.ipAddressToLong(ipAddressStr));
+		if (StringUtils.isNotBlank(ipAddressStr)) {
+			long ipAddress = RangerGeolocationData.parseIPv4Address(ipAddressStr.trim());
+
+			if (ipAddress != -1) {
+				ret = index.find(ipAddress);
+			}
 		}
 		return ret;
 	}
 
+	/*
+	 * Adds the data to the pending set; it is not visible to find() until the next call to optimize()
+	 */
+	public void add(final RangerGeolocationData dataArg) {
+		if (dataArg != null) {
+			pendingData.add(dataArg);
+		}
+	}
+
+	/*
+	 * Builds the lookup index from the data added so far
+	 */
 	public void optimize() {
 		long start = 0L, end = 0L;
 
 		start = System.currentTimeMillis();
-		data.rebalance();
+
+		pendingData.addAll(getAllData());
+		index = RangerGeolocationIndex.build(pendingData);
+		pendingData = new ArrayList<>();
+
 		end = System.currentTimeMillis();
 
 		if (LOG.isDebugEnabled()) {
-			LOG.debug("RangerGeolocationDatabase.optimize() - Time taken for optimizing database = " + (end - start) + " milliseconds");
+			LOG.debug("RangerGeolocationDatabase.optimize() - Time taken for optimizing database = " + (end - start) + " milliseconds, ranges=" + index.size());
 		}
 	}
 
-	public void setData(final BinarySearchTree<RangerGeolocationData, Long> dataArg) { data = dataArg != null ? dataArg : new BinarySearchTree<RangerGeolocationData, Long>();}
+	public void setIndex(final RangerGeolocationIndex indexArg) { index = indexArg != null ? indexArg : RangerGeolocationIndex.build(new ArrayList<RangerGeolocationData>());}
 
 	public void setMetadata(final GeolocationMetadata metadataArg) { metadata = metadataArg != null ? metadataArg : new GeolocationMetadata();}
 
 	public GeolocationMetadata getMetadata() { return metadata; }
 
-	public BinarySearchTree<RangerGeolocationData, Long> getData() { return data; }
+	public RangerGeolocationIndex getIndex() { return index; }
 
 	public void dump(ValuePrinter<RangerGeolocationData> processor) {
 
-		BinarySearchTree<RangerGeolocationData, Long> geoDatabase = getData();
+		RangerGeolocationIndex geoDatabase = getIndex();
 		GeolocationMetadata metadata = getMetadata();
 		processor.build();
 
@@ -91,9 +116,22 @@ public class RangerGeolocationDatabase {
 		processor.print(metadata.toString());
 
 		processor.print("#================== Dump of geoDatabase - START ==================");
-		geoDatabase.preOrderTraverseTree(processor);
+		for (int i = 0; i < geoDatabase.size(); i++) {
+			processor.process(geoDatabase.get(i));
+		}
 		processor.print("#================== Dump of geoDatabase - END   ==================");
 
 		processor.close();
 	}
+
+	private List<RangerGeolocationData> getAllData() {
+		RangerGeolocationIndex      geoDatabase = getIndex();
+		List<RangerGeolocationData> ret         = new ArrayList<>(geoDatabase.size());
+
+		for (int i = 0; i < geoDatabase.size(); i++) {
+			ret.add(geoDatabase.get(i));
+		}
+
+		return ret;
+	}
 }
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.geo;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Immutable index of IPv4 address ranges, kept as sorted arrays of 32-bit range starts and ends; a lookup is a binary
+ * search over the starts. Distinct location data are stored once, and ranges refer to them by index.
+ *
+ * Arrays are IntBuffers, so that the index can be used directly on a memory-mapped database file (see
+ * GeolocationDatabaseFile) without copying it into the heap; addresses are stored as unsigned ints.
+ */
+public final class RangerGeolocationIndex {
+	private final IntBuffer  starts;
+	private final IntBuffer  ends;
+	private final IntBuffer  maxEnds;      // maxEnds[i] = max(ends[0..i]); used only when ranges overlap
+	private final IntBuffer  locationIds;  // index into locations, of each range
+	private final String[][] locations;
+	private final int        size;
+
+	RangerGeolocationIndex(IntBuffer starts, IntBuffer ends, IntBuffer maxEnds, IntBuffer locationIds, String[][] locations) {
+		this.starts      = starts;
+		this.ends        = ends;
+		this.maxEnds     = maxEnds;
+		this.locationIds = locationIds;
+		this.locations   = locations;
+		this.size        = starts.limit();
+	}
+
+	/*
+	 * builds the index from ranges in any order; duplicate ranges are dropped
+	 */
+	public static RangerGeolocationIndex build(Collection<RangerGeolocationData> ranges) {
+		RangerGeolocationData[] sorted = ranges.toArray(new RangerGeolocationData[ranges.size()]);
+
+		Arrays.sort(sorted);
+
+		int[]                    starts      = new int[sorted.length];
+		int[]                    ends        = new int[sorted.length];
+		int[]                    maxEnds     = new int[sorted.length];
+		int[]                    locationIds = new int[sorted.length];
+		List<String[]>           locations   = new ArrayList<>();
+		Map<List<String>, Integer> locationIdx = new HashMap<>();
+		int                      count       = 0;
+		long                     maxEnd      = -1;
+
+		for (int i = 0; i < sorted.length; i++) {
+			RangerGeolocationData range = sorted[i];
+
+			if (i > 0 && range.compareTo(sorted[i - 1]) == 0) {
+				continue;
+			}
+
+			List<String> location   = Arrays.asList(range.getLocationData());
+			Integer      locationId = locationIdx.get(location);
+
+			if (locationId == null) {
+				locationId = locations.size();
+
+				locations.add(range.getLocationData());
+				locationIdx.put(location, locationId);
+			}
+
+			maxEnd = Math.max(maxEnd, range.getToIPAddress());
+
+			starts[count]      = (int) range.getFromIPAddress();
+			ends[count]        = (int) range.getToIPAddress();
+			maxEnds[count]     = (int) maxEnd;
+			locationIds[count] = locationId;
+
+			count++;
+		}
+
+		return new RangerGeolocationIndex(IntBuffer.wrap(starts, 0, count).slice(), IntBuffer.wrap(ends, 0, count).slice(),
+		                                  IntBuffer.wrap(maxEnds, 0, count).slice(), IntBuffer.wrap(locationIds, 0, count).slice(),
+		                                  locations.toArray(new String[locations.size()][]));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public RangerGeolocationData get(int index) {
+		return RangerGeolocationData.create(getStart(index), getEnd(index), locations[locationIds.get(index)]);
+	}
+
+	/*
+	 * returns the range that contains the address; when ranges overlap, the one with the highest start is returned
+	 */
+	public RangerGeolocationData find(long ipAddress) {
+		int low  = 0;
+		int high = size - 1;
+		int idx  = -1; // last range with start <= ipAddress
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+
+			if (getStart(mid) <= ipAddress) {
+				idx = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		for (int i = idx; i >= 0 && unsigned(maxEnds.get(i)) >= ipAddress; i--) {
+			if (getEnd(i) >= ipAddress) {
+				return get(i);
+			}
+		}
+
+		return null;
+	}
+
+	long getStart(int index) {
+		return unsigned(starts.get(index));
+	}
+
+	long getEnd(int index) {
+		return unsigned(ends.get(index));
+	}
+
+	IntBuffer getStarts() {
+		return starts.duplicate();
+	}
+
+	IntBuffer getEnds() {
+		return ends.duplicate();
+	}
+
+	IntBuffer getMaxEnds() {
+		return maxEnds.duplicate();
+	}
+
+	IntBuffer getLocationIds() {
+		return locationIds.duplicate();
+	}
+
+	String[][] getLocations() {
+		return locations;
+	}
+
+	private static long unsigned(int value) {
+		return value & 0xFFFFFFFFL;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.model;
+
+import org.codehaus.jackson.annotate.JsonAutoDetect;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+
+/*
+ * A change to a single policy of a service, relative to the policy version last known to a plugin. For deletes, policy
+ * is null; only policyId is needed to remove the policy.
+ */
+@JsonAutoDetect(fieldVisibility=JsonAutoDetect.Visibility.ANY)
+@JsonSerialize(include=JsonSerialize.Inclusion.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown=true)
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class RangerPolicyDelta implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final int CHANGE_TYPE_POLICY_CREATE = 0;
+	public static final int CHANGE_TYPE_POLICY_UPDATE = 1;
+	public static final int CHANGE_TYPE_POLICY_DELETE = 2;
+
+	private Integer      changeType;
+	private Long         policyId;
+	private RangerPolicy policy;
+
+	public RangerPolicyDelta(Integer changeType, Long policyId, RangerPolicy policy) {
+		super();
+
+		setChangeType(changeType);
+		setPolicyId(policyId);
+		setPolicy(policy);
+	}
+
+	public RangerPolicyDelta() {
+		this(null, null, null);
+	}
+
+	public Integer getChangeType() {
+		return changeType;
+	}
+
+	public void setChangeType(Integer changeType) {
+		this.changeType = changeType;
+	}
+
+	public Long getPolicyId() {
+		return policyId;
+	}
+
+	public void setPolicyId(Long policyId) {
+		this.policyId = policyId;
+	}
+
+	public RangerPolicy getPolicy() {
+		return policy;
+	}
+
+	public void setPolicy(RangerPolicy policy) {
+		this.policy = policy;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+
+		toString(sb);
+
+		return sb.toString();
+	}
+
+	public StringBuilder toString(StringBuilder sb) {
+		sb.append("RangerPolicyDelta={");
+
+		sb.append("changeType={").append(changeType).append("} ");
+		sb.append("policyId={").append(policyId).append("} ");
+		sb.append("policy={").append(policy).append("} ");
+
+		sb.append("}");
+
+		return sb;
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.util.RangerPerfTracer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Bounded cache that can be shared by concurrent threads without external synchronization.
+ *
+ * Lookups do not take any lock: they read from a ConcurrentHashMap and only mark the entry as recently referenced.
+ * Insertions are striped over a number of segments, each holding a fixed-size ring of keys; when a segment is full,
+ * an entry is evicted using the CLOCK (second-chance) algorithm, which approximates LRU without having to reorder
+ * entries on every read - which is what made access-ordered CacheMap require a global lock.
+ *
+ * Hit/miss counts are shared counters written on every lookup, hence are collected only when enabled - by default,
+ * when perf tracing of "cachemap" is enabled; otherwise getHitCount() and getMissCount() return 0.
+ */
+public class ConcurrentCacheMap<K, V> {
+    private static final Log LOG = LogFactory.getLog(ConcurrentCacheMap.class);
+
+    private static final Log PERF_CACHEMAP_LOG = RangerPerfTracer.getPerfLogger("cachemap");
+
+    public static final int DEFAULT_SEGMENT_COUNT = 16;
+
+    private final ConcurrentHashMap<K, Entry<V>> map;
+    private final Segment<K, V>[]                segments;
+    private final int                            segmentMask;
+    private final int                            capacity;
+    private final boolean                        collectStats;
+
+    public ConcurrentCacheMap(int capacity) {
+        this(capacity, DEFAULT_SEGMENT_COUNT);
+    }
+
+    public ConcurrentCacheMap(int capacity, int segmentCount) {
+        this(capacity, segmentCount, RangerPerfTracer.isPerfTraceEnabled(PERF_CACHEMAP_LOG));
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentCacheMap(int capacity, int segmentCount, boolean collectStats) {
+        if (capacity < 1) {
+            capacity = 1;
+        }
+
+        int segCount = 1;
+
+        while (segCount < segmentCount && segCount < capacity) {
+            segCount <<= 1;
+        }
+
+        int segCapacity = (capacity + segCount - 1) / segCount;
+
+        this.capacity    = segCapacity * segCount;
+        this.segmentMask = segCount - 1;
+        this.collectStats = collectStats;
+        this.segments    = new Segment[segCount];
+        this.map         = new ConcurrentHashMap<>(this.capacity, 0.75f, segCount);
+
+        for (int i = 0; i < segCount; i++) {
+            segments[i] = new Segment<>(map, segCapacity);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("ConcurrentCacheMap(capacity=" + this.capacity + ", segmentCount=" + segCount + ", collectStats=" + collectStats + ")");
+        }
+    }
+
+    public V get(K key) {
+        final Entry<V> entry = map.get(key);
+
+        if (entry == null) {
+            if (collectStats) {
+                segmentFor(key).missCount.incrementAndGet();
+            }
+
+            return null;
+        }
+
+        if (!entry.isReferenced) { // avoid writing to a shared cache line when the flag is already set
+            entry.isReferenced = true;
+        }
+
+        if (collectStats) {
+            segmentFor(key).hitCount.incrementAndGet();
+        }
+
+        return entry.value;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    public void put(K key, V value) {
+        Entry<V> entry = map.get(key);
+
+        if (entry != null) {
+            entry.value        = value;
+            entry.isReferenced = true;
+
+            return;
+        }
+
+        final Segment<K, V> segment = segmentFor(key);
+
+        synchronized (segment) {
+            entry = map.putIfAbsent(key, new Entry<>(value));
+
+            if (entry != null) { // added by another thread
+                entry.value        = value;
+                entry.isReferenced = true;
+            } else {
+                segment.addKey(key);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                for (int i = 0; i < segment.count; i++) {
+                    map.remove(segment.keys[i]);
+
+                    segment.keys[i] = null;
+                }
+
+                segment.count = 0;
+                segment.hand  = 0;
+            }
+        }
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isCollectStats() {
+        return collectStats;
+    }
+
+    public long getHitCount() {
+        long ret = 0;
+
+        for (Segment<K, V> segment : segments) {
+            ret += segment.hitCount.get();
+        }
+
+        return ret;
+    }
+
+    public long getMissCount() {
+        long ret = 0;
+
+        for (Segment<K, V> segment : segments) {
+            ret += segment.missCount.get();
+        }
+
+        return ret;
+    }
+
+    public long getEvictionCount() {
+        long ret = 0;
+
+        for (Segment<K, V> segment : segments) {
+            ret += segment.evictionCount.get();
+        }
+
+        return ret;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("ConcurrentCacheMap={");
+        sb.append("capacity={").append(capacity).append("} ");
+        sb.append("size={").append(size()).append("} ");
+        sb.append("hitCount={").append(getHitCount()).append("} ");
+        sb.append("missCount={").append(getMissCount()).append("} ");
+        sb.append("evictionCount={").append(getEvictionCount()).append("} ");
+        sb.append("}");
+
+        return sb.toString();
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+
+        h ^= (h >>> 16);
+
+        return segments[h & segmentMask];
+    }
+
+    private static final class Entry<V> {
+        volatile V       value;
+        volatile boolean isReferenced;
+
+        Entry(V value) {
+            this.value = value;
+        }
+    }
+
+    private static final class Segment<K, V> {
+        final ConcurrentHashMap<K, Entry<V>> map;
+        final Object[]                       keys;
+        final AtomicLong                     hitCount      = new AtomicLong();
+        final AtomicLong                     missCount     = new AtomicLong();
+        final AtomicLong                     evictionCount = new AtomicLong();
+        int                                  count;
+        int                                  hand;
+
+        Segment(ConcurrentHashMap<K, Entry<V>> map, int capacity) {
+            this.map  = map;
+            this.keys = new Object[capacity];
+        }
+
+        // caller must hold the lock on this segment
+        @SuppressWarnings("unchecked")
+        void addKey(K key) {
+            if (count < keys.length) {
+                keys[count++] = key;
+
+                return;
+            }
+
+            while (true) {
+                K        victimKey = (K) keys[hand];
+                Entry<V> victim    = map.get(victimKey);
+
+                if (victim != null && victim.isReferenced) {
+                    victim.isReferenced = false;
+                } else {
+                    map.remove(victimKey);
+
+                    keys[hand] = key;
+                    hand       = (hand + 1) % keys.length;
+
+                    evictionCount.incrementAndGet();
+
+                    break;
+                }
+
+                hand = (hand + 1) % keys.length;
+            }
+        }
+    }
+}
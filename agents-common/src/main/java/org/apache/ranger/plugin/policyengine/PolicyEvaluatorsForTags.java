@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+
+/*
+ * Policy evaluators for the tags of a request, in the order of policy name; evaluator at an index is to be evaluated
+ * for the tag at the same index. Unlike a list of PolicyEvaluatorForTag, no object is created per evaluator - and when
+ * only one tag has evaluators, the evaluators array cached for its tag-type is used as is.
+ */
+final class PolicyEvaluatorsForTags {
+    private final RangerPolicyEvaluator[] evaluators;
+    private final RangerTagForEval[]      tags; // null when all evaluators are for the same tag
+    private final RangerTagForEval        tag;
+    private final int                     size;
+
+    PolicyEvaluatorsForTags(RangerPolicyEvaluator[] evaluators, RangerTagForEval tag) {
+        this.evaluators = evaluators;
+        this.tags       = null;
+        this.tag        = tag;
+        this.size       = evaluators.length;
+    }
+
+    PolicyEvaluatorsForTags(RangerPolicyEvaluator[] evaluators, RangerTagForEval[] tags, int size) {
+        this.evaluators = evaluators;
+        this.tags       = tags;
+        this.tag        = null;
+        this.size       = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    RangerPolicyEvaluator getEvaluator(int index) {
+        return evaluators[index];
+    }
+
+    RangerTagForEval getTag(int index) {
+        return tags == null ? tag : tags[index];
+    }
+}
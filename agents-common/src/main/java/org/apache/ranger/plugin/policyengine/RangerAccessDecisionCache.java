@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.RangerPerfTracer;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Cache of final access decisions made by a policy engine instance. A decision is cached only when none of the policies
+ * evaluated to reach it has custom conditions, so that the decision depends only on the fields captured in Key. The cache
+ * is owned by the policy engine and hence discarded as a whole when the plugin switches to a new policy engine.
+ */
+class RangerAccessDecisionCache {
+    private static final Log LOG = LogFactory.getLog(RangerAccessDecisionCache.class);
+
+    private static final Log PERF_DECISIONCACHE_LOG = RangerPerfTracer.getPerfLogger("policyengine.decisioncache");
+
+    private final ConcurrentCacheMap<Key, RangerAccessResult> cache;
+    private final boolean                                     hasTagPolicyConditions;
+
+    RangerAccessDecisionCache(int cacheSize, boolean hasTagPolicyConditions) {
+        this.cache                  = new ConcurrentCacheMap<>(cacheSize, ConcurrentCacheMap.DEFAULT_SEGMENT_COUNT, RangerPerfTracer.isPerfTraceEnabled(PERF_DECISIONCACHE_LOG));
+        this.hasTagPolicyConditions = hasTagPolicyConditions;
+    }
+
+    /*
+     * returns null if the decision for the request can't be cached; for example, when the request has tags and the
+     * tag-policies have conditions, which might look at tag attributes like expiry dates
+     */
+    Key getKey(RangerAccessRequest request) {
+        Key ret = null;
+
+        RangerAccessResource  resource = request.getResource();
+        String                cacheKey = resource != null ? resource.getCacheKey() : null;
+        Set<RangerTagForEval> tags     = RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext());
+
+        if (StringUtils.isNotEmpty(cacheKey) && !(hasTagPolicyConditions && CollectionUtils.isNotEmpty(tags))) {
+            ret = new Key(request.getUser(), request.getUserGroups(), request.getAccessType(), cacheKey, resource.getOwnerUser(), request.getResourceMatchingScope(), tags);
+        }
+
+        return ret;
+    }
+
+    boolean setResultFromCache(Key key, RangerAccessResult result) {
+        RangerPerfTracer   perf   = null;
+        RangerAccessResult cached = cache.get(key);
+
+        if (RangerPerfTracer.isPerfTraceEnabled(PERF_DECISIONCACHE_LOG)) {
+            perf = RangerPerfTracer.getPerfTracer(PERF_DECISIONCACHE_LOG, "RangerAccessDecisionCache." + (cached != null ? "hit" : "miss") + "(hitRate=" + getHitRate() + ")");
+        }
+
+        if (cached != null) {
+            result.setAccessResultFrom(cached);
+            result.setAuditResultFrom(cached);
+        }
+
+        RangerPerfTracer.log(perf);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("RangerAccessDecisionCache.setResultFromCache(" + key + "): " + (cached != null));
+        }
+
+        return cached != null;
+    }
+
+    void store(Key key, RangerAccessResult result) {
+        RangerAccessResult cached = new RangerAccessResult(result.getServiceName(), result.getServiceDef(), null);
+
+        cached.setAccessResultFrom(result);
+        cached.setAuditResultFrom(result);
+
+        cache.put(key.copyOf(), cached);
+    }
+
+    void clear() {
+        cache.clear();
+    }
+
+    double getHitRate() {
+        long hitCount = cache.getHitCount();
+        long total    = hitCount + cache.getMissCount();
+
+        return total == 0 ? 0 : ((double) hitCount) / total;
+    }
+
+    @Override
+    public String toString() {
+        return "RangerAccessDecisionCache={hitRate={" + getHitRate() + "} cache={" + cache + "} }";
+    }
+
+    static final class Key {
+        private final String                                    user;
+        private final Set<String>                               userGroups;
+        private final String                                    accessType;
+        private final String                                    resource;
+        private final String                                    ownerUser;
+        private final RangerAccessRequest.ResourceMatchingScope resourceMatchingScope;
+        private final Set<RangerTagForEval>                     tags;
+        private final int                                       hashCode;
+
+        Key(String user, Set<String> userGroups, String accessType, String resource, String ownerUser, RangerAccessRequest.ResourceMatchingScope resourceMatchingScope, Set<RangerTagForEval> tags) {
+            this.user                  = user;
+            this.userGroups            = userGroups != null ? userGroups : Collections.<String>emptySet();
+            this.accessType            = accessType;
+            this.resource              = resource;
+            this.ownerUser             = ownerUser;
+            this.resourceMatchingScope = resourceMatchingScope;
+            this.tags                  = tags != null ? tags : Collections.<RangerTagForEval>emptySet();
+
+            int hash = resource.hashCode();
+
+            hash = 31 * hash + (user != null ? user.hashCode() : 0);
+            hash = 31 * hash + (accessType != null ? accessType.hashCode() : 0);
+            hash = 31 * hash + this.userGroups.hashCode();
+            hash = 31 * hash + this.tags.hashCode();
+
+            this.hashCode = hash;
+        }
+
+        // the key used for lookup refers to sets in the request; these are copied before storing the key in the cache
+        Key copyOf() {
+            return new Key(user, new HashSet<>(userGroups), accessType, resource, ownerUser, resourceMatchingScope, new HashSet<>(tags));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) obj;
+
+            return hashCode == other.hashCode
+                   && StringUtils.equals(resource, other.resource)
+                   && StringUtils.equals(user, other.user)
+                   && StringUtils.equals(accessType, other.accessType)
+                   && StringUtils.equals(ownerUser, other.ownerUser)
+                   && resourceMatchingScope == other.resourceMatchingScope
+                   && userGroups.equals(other.userGroups)
+                   && tags.equals(other.tags);
+        }
+
+        @Override
+        public String toString() {
+            return "{user=" + user + ", userGroups=" + userGroups + ", accessType=" + accessType + ", resource=" + resource + ", ownerUser=" + ownerUser + ", resourceMatchingScope=" + resourceMatchingScope + ", tags=" + tags + "}";
+        }
+    }
+}
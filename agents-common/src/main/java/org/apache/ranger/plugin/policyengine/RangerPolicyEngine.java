@@ -28,6 +28,7 @@ import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
 
 public interface RangerPolicyEngine {
 	String GROUP_PUBLIC   = "public";
@@ -61,6 +62,13 @@ public interface RangerPolicyEngine {
 
 	Collection<RangerAccessResult> isAccessAllowed(Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor);
 
+	/*
+	 * Same as isAccessAllowed(requests, resultProcessor), for requests on child resources of parentResource - like
+	 * columns of a table. Policy lookups for parentResource are done once and shared by all requests; requests whose
+	 * resource doesn't have all values of parentResource are evaluated as usual.
+	 */
+	Collection<RangerAccessResult> isAccessAllowed(RangerAccessResource parentResource, Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor);
+
 	RangerDataMaskResult evalDataMaskPolicies(RangerAccessRequest request, RangerAccessResultProcessor resultProcessor);
 
 	RangerRowFilterResult evalRowFilterPolicies(RangerAccessRequest request, RangerAccessResultProcessor resultProcessor);
@@ -79,8 +87,22 @@ public interface RangerPolicyEngine {
 
 	RangerResourceAccessInfo getResourceAccessInfo(RangerAccessRequest request);
 
+	/*
+	 * Returns false if all resources at or below resourceValue, of a single-level resource like HDFS path, are
+	 * matched by the same resource and tag policies - hence access to any of them is same as access to any other.
+	 * Returns true if some policy, including deny and exclude policies, applies to part of the subtree only; or if
+	 * this can't be determined.
+	 */
+	boolean hasPoliciesAtOrBelow(String resourceName, String resourceValue);
+
 	void reorderPolicyEvaluators();
 
+	/*
+	 * Returns a new engine for servicePolicies, built by applying its policy-deltas to this engine; returns null if
+	 * servicePolicies has no policy-deltas, or if these can't be applied to this engine.
+	 */
+	RangerPolicyEngine cloneWithDelta(ServicePolicies servicePolicies);
+
 	boolean preCleanup();
 
 	void setUseForwardedIPAddress(boolean useForwardedIPAddress);
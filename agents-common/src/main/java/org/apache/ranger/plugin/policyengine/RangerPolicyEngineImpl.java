@@ -26,6 +26,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.contextenricher.RangerContextEnricher;
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
@@ -40,8 +41,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 public class RangerPolicyEngineImpl implements RangerPolicyEngine {
@@ -61,8 +64,15 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	
 	private List<RangerContextEnricher> allContextEnrichers;
 
+	// context enrichers handed over to an engine created by cloneWithDelta(); cleanup of these is left to that engine
+	private volatile Set<RangerContextEnricher> transferredContextEnrichers = Collections.emptySet();
+
+	private final RangerPolicyEngineOptions options;
+
 	private final Map<Long, RangerPolicyEvaluator> policyEvaluatorsMap;
 
+	private final RangerAccessDecisionCache decisionCache;
+
 	private boolean  useForwardedIPAddress;
 	private String[] trustedProxyAddresses;
 
@@ -105,15 +115,13 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			options.evaluatorType = RangerPolicyEvaluator.EVALUATOR_TYPE_OPTIMIZED;
 		}
 
+		this.options = options;
+
 		policyRepository = new RangerPolicyRepository(appId, servicePolicies, options);
 
 		ServicePolicies.TagPolicies tagPolicies = servicePolicies.getTagPolicies();
 
-		if (!options.disableTagPolicyEvaluation
-				&& tagPolicies != null
-				&& !StringUtils.isEmpty(tagPolicies.getServiceName())
-				&& tagPolicies.getServiceDef() != null
-				&& !CollectionUtils.isEmpty(tagPolicies.getPolicies())) {
+		if (isTagPolicyRepositoryNeeded(tagPolicies, options)) {
 
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("RangerPolicyEngineImpl : Building tag-policy-repository for tag-service " + tagPolicies.getServiceName());
@@ -128,24 +136,16 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			tagPolicyRepository = null;
 		}
 
-		List<RangerContextEnricher> tmpList;
+		this.allContextEnrichers = getAllContextEnrichers();
 
-		List<RangerContextEnricher> tagContextEnrichers = tagPolicyRepository == null ? null :tagPolicyRepository.getContextEnrichers();
-		List<RangerContextEnricher> resourceContextEnrichers = policyRepository.getContextEnrichers();
+		policyEvaluatorsMap = createPolicyEvaluatorsMap();
 
-		if (CollectionUtils.isEmpty(tagContextEnrichers)) {
-			tmpList = resourceContextEnrichers;
-		} else if (CollectionUtils.isEmpty(resourceContextEnrichers)) {
-			tmpList = tagContextEnrichers;
+		if (options.cacheAccessDecisions) {
+			decisionCache = new RangerAccessDecisionCache(options.accessDecisionCacheSize, tagPolicyRepository != null && tagPolicyRepository.hasCustomConditions());
 		} else {
-			tmpList = new ArrayList<>(tagContextEnrichers);
-			tmpList.addAll(resourceContextEnrichers);
+			decisionCache = null;
 		}
 
-		this.allContextEnrichers = tmpList;
-
-		policyEvaluatorsMap = createPolicyEvaluatorsMap();
-
 		RangerPerfTracer.log(perf);
 
 		if (PERF_POLICYENGINE_INIT_LOG.isDebugEnabled()) {
@@ -159,6 +159,93 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		}
 	}
 
+	/*
+	 * Creates the engine for servicePolicies, which has policy-deltas since the policies of other. Evaluators of
+	 * unchanged policies, the tag-policy repository (when tag-policies are unchanged) and context enrichers are reused.
+	 */
+	private RangerPolicyEngineImpl(RangerPolicyEngineImpl other, ServicePolicies servicePolicies) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl(" + other.getPolicyVersion() + ", " + servicePolicies + ")");
+		}
+
+		RangerPerfTracer perf = null;
+
+		if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+			perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerPolicyEngine.cloneWithDelta(appId=" + other.policyRepository.getAppId() + ",fromVersion=" + other.getPolicyVersion() + ",toVersion=" + servicePolicies.getPolicyVersion() + ",deltaCount=" + servicePolicies.getPolicyDeltas().size() + ",hashCode=" + Integer.toHexString(System.identityHashCode(this)) + ")");
+		}
+
+		this.options = other.options;
+
+		policyRepository = new RangerPolicyRepository(other.policyRepository, servicePolicies, options);
+
+		ServicePolicies.TagPolicies tagPolicies = servicePolicies.getTagPolicies();
+
+		if (!isTagPolicyRepositoryNeeded(tagPolicies, options)) {
+			tagPolicyRepository = null;
+		} else if (isSameTagPolicies(other.tagPolicyRepository, tagPolicies)) {
+			tagPolicyRepository = other.tagPolicyRepository;
+		} else {
+			tagPolicyRepository = new RangerPolicyRepository(policyRepository.getAppId(), tagPolicies, options, servicePolicies.getServiceDef(), servicePolicies.getServiceName());
+		}
+
+		this.allContextEnrichers = getAllContextEnrichers();
+
+		Set<RangerContextEnricher> transferredContextEnrichers = Collections.newSetFromMap(new IdentityHashMap<RangerContextEnricher, Boolean>());
+
+		if (CollectionUtils.isNotEmpty(other.allContextEnrichers) && CollectionUtils.isNotEmpty(this.allContextEnrichers)) {
+			transferredContextEnrichers.addAll(this.allContextEnrichers);
+			transferredContextEnrichers.retainAll(other.allContextEnrichers);
+		}
+
+		policyEvaluatorsMap = createPolicyEvaluatorsMap();
+
+		if (options.cacheAccessDecisions) {
+			decisionCache = new RangerAccessDecisionCache(options.accessDecisionCacheSize, tagPolicyRepository != null && tagPolicyRepository.hasCustomConditions());
+		} else {
+			decisionCache = null;
+		}
+
+		this.useForwardedIPAddress = other.useForwardedIPAddress;
+		this.trustedProxyAddresses = other.trustedProxyAddresses;
+
+		// only once this engine is built: if building it fails, cleanup of other must still release all its enrichers
+		other.transferredContextEnrichers = transferredContextEnrichers;
+
+		RangerPerfTracer.log(perf);
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl(" + other.getPolicyVersion() + ", " + servicePolicies.getPolicyVersion() + ")");
+		}
+	}
+
+	@Override
+	public RangerPolicyEngine cloneWithDelta(ServicePolicies servicePolicies) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.cloneWithDelta(" + getPolicyVersion() + ", " + servicePolicies.getPolicyVersion() + ")");
+		}
+
+		final RangerPolicyEngine ret;
+		final RangerServiceDef   serviceDef = servicePolicies.getServiceDef();
+
+		if (servicePolicies.getPolicyDeltas() == null || servicePolicies.getPolicies() == null || serviceDef == null) {
+			ret = null;
+		} else if (!StringUtils.equals(getServiceName(), servicePolicies.getServiceName())
+				|| !StringUtils.equals(getServiceDef().getName(), serviceDef.getName())
+				|| serviceDef.getVersion() == null || !serviceDef.getVersion().equals(getServiceDef().getVersion())) {
+			LOG.info("RangerPolicyEngineImpl.cloneWithDelta(): service or service-def changed. Policy-deltas will not be used");
+
+			ret = null;
+		} else {
+			ret = new RangerPolicyEngineImpl(this, servicePolicies);
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.cloneWithDelta(" + getPolicyVersion() + ", " + servicePolicies.getPolicyVersion() + "): " + (ret != null));
+		}
+
+		return ret;
+	}
+
 	@Override
 	public String getServiceName() {
 		return policyRepository.getServiceName();
@@ -354,6 +441,51 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return ret;
 	}
 
+	@Override
+	public Collection<RangerAccessResult> isAccessAllowed(RangerAccessResource parentResource, Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerPolicyEngineImpl.isAccessAllowed(" + parentResource + ", " + requests + ")");
+		}
+
+		Collection<RangerAccessResult> ret = new ArrayList<>();
+
+		if (requests != null) {
+			RangerPerfTracer perf = null;
+
+			if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_REQUEST_LOG)) {
+				perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_REQUEST_LOG, "RangerPolicyEngine.isAccessAllowed(parentResource=" + (parentResource != null ? parentResource.getAsString() : null) + ", requestCount=" + requests.size() + ")");
+			}
+
+			List<RangerPolicyEvaluator> parentEvaluators = null;
+
+			if (parentResource != null && hasResourcePolicies()) {
+				if (parentResource.getServiceDef() == null && parentResource instanceof RangerMutableResource) {
+					((RangerMutableResource) parentResource).setServiceDef(getServiceDef());
+				}
+
+				parentEvaluators = policyRepository.getLikelyMatchPolicyEvaluators(parentResource);
+			}
+
+			for (RangerAccessRequest request : requests) {
+				RangerAccessResult result = isAccessAllowedNoAudit(request, parentResource, parentEvaluators);
+
+				ret.add(result);
+			}
+
+			RangerPerfTracer.log(perf);
+		}
+
+		if (resultProcessor != null) {
+			resultProcessor.processResults(ret);
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowed(" + parentResource + ", " + requests + "): " + ret);
+		}
+
+		return ret;
+	}
+
 	@Override
 	public RangerDataMaskResult evalDataMaskPolicies(RangerAccessRequest request, RangerAccessResultProcessor resultProcessor) {
 		if (LOG.isDebugEnabled()) {
@@ -648,6 +780,13 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 	}
 
 	protected RangerAccessResult isAccessAllowedNoAudit(RangerAccessRequest request) {
+		return isAccessAllowedNoAudit(request, null, null);
+	}
+
+	/*
+	 * parentEvaluators, when not null, are the likely-match evaluators for parentResource; see isAccessAllowed(parentResource, requests, resultProcessor)
+	 */
+	private RangerAccessResult isAccessAllowedNoAudit(RangerAccessRequest request, RangerAccessResource parentResource, List<RangerPolicyEvaluator> parentEvaluators) {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerPolicyEngineImpl.isAccessAllowedNoAudit(" + request + ")");
 		}
@@ -655,6 +794,18 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		RangerAccessResult ret = createAccessResult(request);
 
 		if (ret != null && request != null) {
+			RangerAccessDecisionCache.Key cacheKey = decisionCache != null ? decisionCache.getKey(request) : null;
+
+			if (cacheKey != null && decisionCache.setResultFromCache(cacheKey, ret)) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("<== RangerPolicyEngineImpl.isAccessAllowedNoAudit(" + request + "): " + ret + " - from decision cache");
+				}
+
+				return ret;
+			}
+
+			boolean isCacheable = cacheKey != null;
+
 			if (hasTagPolicies()) {
 				isAccessAllowedForTagPolicies(request, ret);
 
@@ -677,11 +828,16 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 					ret.setIsAccessDetermined(false); // discard allowed result by tag-policies, to evaluate resource policies for possible deny
 				}
 
-				List<RangerPolicyEvaluator> evaluators = policyRepository.getLikelyMatchPolicyEvaluators(request.getResource());
+				List<RangerPolicyEvaluator> evaluators = parentEvaluators != null ? policyRepository.getLikelyMatchPolicyEvaluators(parentEvaluators, parentResource, request.getResource())
+				                                                                   : policyRepository.getLikelyMatchPolicyEvaluators(request.getResource());
 				for (RangerPolicyEvaluator evaluator : evaluators) {
 					ret.incrementEvaluatedPoliciesCount();
 					evaluator.evaluate(request, ret);
 
+					if(isCacheable && evaluator.getCustomConditionsCount() > 0) { // result might depend on request context
+						isCacheable = false;
+					}
+
 					if(ret.getIsAllowed() && !evaluator.hasDeny()) { // all policies having deny have been evaluated
 						ret.setIsAccessDetermined(true);
 					}
@@ -699,6 +855,10 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 					policyRepository.storeAuditEnabledInCache(request, ret);
 				}
 			}
+
+			if (isCacheable) {
+				decisionCache.store(cacheKey, ret);
+			}
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -851,12 +1011,12 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 		if (CollectionUtils.isNotEmpty(tagEvaluators)) {
 			Set<RangerTagForEval>       tags               = RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext());
-			List<PolicyEvaluatorForTag> dataMaskEvaluators = tagPolicyRepository.getLikelyMatchDataMaskPolicyEvaluators(tags);
+			PolicyEvaluatorsForTags     dataMaskEvaluators = tagPolicyRepository.getLikelyMatchDataMaskPolicyEvaluators(tags);
 
-			if (CollectionUtils.isNotEmpty(dataMaskEvaluators)) {
-				for (PolicyEvaluatorForTag dataMaskEvaluator : dataMaskEvaluators) {
-					RangerPolicyEvaluator evaluator      = dataMaskEvaluator.getEvaluator();
-					RangerTagForEval      tag            = dataMaskEvaluator.getTag();
+			if (dataMaskEvaluators != null && !dataMaskEvaluators.isEmpty()) {
+				for (int i = 0; i < dataMaskEvaluators.size(); i++) {
+					RangerPolicyEvaluator evaluator      = dataMaskEvaluators.getEvaluator(i);
+					RangerTagForEval      tag            = dataMaskEvaluators.getTag(i);
 					RangerAccessRequest   tagEvalRequest = new RangerTagAccessRequest(tag, tagPolicyRepository.getServiceDef(), request);
 					RangerDataMaskResult  tagEvalResult  = createDataMaskResult(tagEvalRequest);
 
@@ -956,12 +1116,12 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 
 		if (CollectionUtils.isNotEmpty(tagEvaluators)) {
 			Set<RangerTagForEval>       tags                = RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext());
-			List<PolicyEvaluatorForTag> rowFilterEvaluators = tagPolicyRepository.getLikelyMatchRowFilterPolicyEvaluators(tags);
+			PolicyEvaluatorsForTags     rowFilterEvaluators = tagPolicyRepository.getLikelyMatchRowFilterPolicyEvaluators(tags);
 
-			if (CollectionUtils.isNotEmpty(rowFilterEvaluators)) {
-				for (PolicyEvaluatorForTag rowFilterEvaluator : rowFilterEvaluators) {
-					RangerPolicyEvaluator evaluator      = rowFilterEvaluator.getEvaluator();
-					RangerTagForEval      tag            = rowFilterEvaluator.getTag();
+			if (rowFilterEvaluators != null && !rowFilterEvaluators.isEmpty()) {
+				for (int i = 0; i < rowFilterEvaluators.size(); i++) {
+					RangerPolicyEvaluator evaluator      = rowFilterEvaluators.getEvaluator(i);
+					RangerTagForEval      tag            = rowFilterEvaluators.getTag(i);
 					RangerAccessRequest   tagEvalRequest = new RangerTagAccessRequest(tag, tagPolicyRepository.getServiceDef(), request);
 					RangerRowFilterResult tagEvalResult  = createRowFilterResult(tagEvalRequest);
 
@@ -1021,6 +1181,10 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			policyRepository.reorderPolicyEvaluators();
 		}
 
+		if (decisionCache != null) { // policy reported as having determined the access can change with the new order
+			decisionCache.clear();
+		}
+
 		if (MapUtils.isNotEmpty(policyEvaluatorsMap)) {
 			for (Map.Entry<Long, RangerPolicyEvaluator> entry : policyEvaluatorsMap.entrySet()) {
 				entry.getValue().resetUsageCount();
@@ -1043,7 +1207,13 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		}
 
 		if (CollectionUtils.isNotEmpty(allContextEnrichers)) {
+			Set<RangerContextEnricher> transferredContextEnrichers = this.transferredContextEnrichers;
+
 			for (RangerContextEnricher contextEnricher : allContextEnrichers) {
+				if (transferredContextEnrichers.contains(contextEnricher)) {
+					continue;
+				}
+
 				boolean notReadyForCleanup = contextEnricher.preCleanup();
 				if (!notReadyForCleanup) {
 					if (LOG.isDebugEnabled()) {
@@ -1054,6 +1224,14 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 			}
 		}
 
+		if (decisionCache != null) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("RangerPolicyEngineImpl.preCleanup(): " + decisionCache);
+			}
+
+			decisionCache.clear();
+		}
+
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerPolicyEngineImpl.preCleanup() : result=" + ret);
 		}
@@ -1076,8 +1254,12 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		preCleanup();
 
 		if (CollectionUtils.isNotEmpty(allContextEnrichers)) {
+			Set<RangerContextEnricher> transferredContextEnrichers = this.transferredContextEnrichers;
+
 			for (RangerContextEnricher contextEnricher : allContextEnrichers) {
-				contextEnricher.cleanup();
+				if (!transferredContextEnrichers.contains(contextEnricher)) {
+					contextEnricher.cleanup();
+				}
 			}
 		}
 
@@ -1144,6 +1326,35 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		}
 	}
 
+	@Override
+	public boolean hasPoliciesAtOrBelow(String resourceName, String resourceValue) {
+		boolean ret = policyRepository.hasPoliciesAtOrBelow(resourceName, resourceValue);
+
+		if (!ret && hasTagPolicies()) {
+			ret = tagPolicyRepository.hasResourceOwnerPolicies();
+
+			if (!ret) {
+				List<RangerContextEnricher> contextEnrichers = policyRepository.getContextEnrichers();
+
+				if (contextEnrichers != null) {
+					for (RangerContextEnricher contextEnricher : contextEnrichers) {
+						if (contextEnricher instanceof RangerTagEnricher && ((RangerTagEnricher) contextEnricher).hasTaggedResourcesAtOrBelow(resourceName, resourceValue)) {
+							ret = true;
+
+							break;
+						}
+					}
+				}
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("RangerPolicyEngineImpl.hasPoliciesAtOrBelow(" + resourceName + ", " + resourceValue + "): " + ret);
+		}
+
+		return ret;
+	}
+
 	private boolean hasTagPolicies() {
 		return tagPolicyRepository != null && CollectionUtils.isNotEmpty(tagPolicyRepository.getPolicies());
 	}
@@ -1152,6 +1363,41 @@ public class RangerPolicyEngineImpl implements RangerPolicyEngine {
 		return policyRepository != null && CollectionUtils.isNotEmpty(policyRepository.getPolicies());
 	}
 
+	private static boolean isTagPolicyRepositoryNeeded(ServicePolicies.TagPolicies tagPolicies, RangerPolicyEngineOptions options) {
+		return !options.disableTagPolicyEvaluation
+				&& tagPolicies != null
+				&& !StringUtils.isEmpty(tagPolicies.getServiceName())
+				&& tagPolicies.getServiceDef() != null
+				&& !CollectionUtils.isEmpty(tagPolicies.getPolicies());
+	}
+
+	private static boolean isSameTagPolicies(RangerPolicyRepository tagPolicyRepository, ServicePolicies.TagPolicies tagPolicies) {
+		return tagPolicyRepository != null
+				&& tagPolicies.getPolicyVersion() != null
+				&& tagPolicies.getPolicyVersion() == tagPolicyRepository.getPolicyVersion()
+				&& StringUtils.equals(tagPolicies.getServiceName(), tagPolicyRepository.getServiceName())
+				&& tagPolicies.getServiceDef().getVersion() != null
+				&& Objects.equals(tagPolicies.getServiceDef().getVersion(), tagPolicyRepository.getServiceDef().getVersion());
+	}
+
+	private List<RangerContextEnricher> getAllContextEnrichers() {
+		List<RangerContextEnricher> ret;
+
+		List<RangerContextEnricher> tagContextEnrichers = tagPolicyRepository == null ? null :tagPolicyRepository.getContextEnrichers();
+		List<RangerContextEnricher> resourceContextEnrichers = policyRepository.getContextEnrichers();
+
+		if (CollectionUtils.isEmpty(tagContextEnrichers)) {
+			ret = resourceContextEnrichers;
+		} else if (CollectionUtils.isEmpty(resourceContextEnrichers)) {
+			ret = tagContextEnrichers;
+		} else {
+			ret = new ArrayList<>(tagContextEnrichers);
+			ret.addAll(resourceContextEnrichers);
+		}
+
+		return ret;
+	}
+
 	private Map<Long, RangerPolicyEvaluator> createPolicyEvaluatorsMap() {
 		Map<Long, RangerPolicyEvaluator> tmpPolicyEvaluatorMap = new HashMap<>();
 
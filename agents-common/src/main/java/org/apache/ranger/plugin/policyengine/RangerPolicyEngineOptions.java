@@ -32,6 +32,9 @@ public class RangerPolicyEngineOptions {
 	public boolean cacheAuditResults = true;
 	public boolean evaluateDelegateAdminOnly = false;
 	public boolean enableTagEnricherWithLocalRefresher = false;
+	public boolean cacheAccessDecisions = false;
+	public int     accessDecisionCacheSize = 64 * 1024;
+	public int     initParallelism = 1; // threads to build policy evaluators and resource tries with; 1 builds in the calling thread
 
 	private RangerServiceDefHelper serviceDefHelper;
 
@@ -48,6 +51,10 @@ public class RangerPolicyEngineOptions {
 		}
 		evaluateDelegateAdminOnly = false;
 		enableTagEnricherWithLocalRefresher = false;
+
+		cacheAccessDecisions    = conf.getBoolean(propertyPrefix + ".policyengine.option.cache.access.decisions", false);
+		accessDecisionCacheSize = conf.getInt(propertyPrefix + ".policyengine.option.access.decision.cache.size", accessDecisionCacheSize);
+		initParallelism         = conf.getInt(propertyPrefix + ".policyengine.option.init.parallelism", initParallelism);
 	}
 
 	public void configureDefaultRangerAdmin(Configuration conf, String propertyPrefix) {
@@ -108,7 +115,8 @@ public class RangerPolicyEngineOptions {
 					&& this.disableTrieLookupPrefilter == that.disableTrieLookupPrefilter
 					&& this.cacheAuditResults == that.cacheAuditResults
 					&& this.evaluateDelegateAdminOnly == that.evaluateDelegateAdminOnly
-					&& this.enableTagEnricherWithLocalRefresher == that.enableTagEnricherWithLocalRefresher;
+					&& this.enableTagEnricherWithLocalRefresher == that.enableTagEnricherWithLocalRefresher
+					&& this.cacheAccessDecisions == that.cacheAccessDecisions;
 		}
 		return ret;
 	}
@@ -130,6 +138,8 @@ public class RangerPolicyEngineOptions {
 		ret *= 2;
 		ret += enableTagEnricherWithLocalRefresher ? 1 : 0;
 		ret *= 2;
+		ret += cacheAccessDecisions ? 1 : 0;
+		ret *= 2;
 		return ret;
 	}
 
@@ -141,6 +151,8 @@ public class RangerPolicyEngineOptions {
 				", disableContextEnrichers: " + disableContextEnrichers +
 				", disableCustomConditions: " + disableContextEnrichers +
 				", disableTrieLookupPrefilter: " + disableTrieLookupPrefilter +
+				", cacheAccessDecisions: " + cacheAccessDecisions +
+				", initParallelism: " + initParallelism +
 				" }";
 
 	}
@@ -29,6 +29,7 @@ import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemDataMaskInfo;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.validation.RangerServiceDefHelper;
 import org.apache.ranger.plugin.policyevaluator.RangerCachedPolicyEvaluator;
@@ -40,19 +41,34 @@ import org.apache.ranger.plugin.util.RangerResourceTrie;
 import org.apache.ranger.plugin.util.ServiceDefUtil;
 import org.apache.ranger.plugin.util.ServicePolicies;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 class RangerPolicyRepository {
     private static final Log LOG = LogFactory.getLog(RangerPolicyRepository.class);
 
     private static final Log PERF_CONTEXTENRICHER_INIT_LOG = RangerPerfTracer.getPerfLogger("contextenricher.init");
+    private static final Log PERF_POLICYENGINE_INIT_LOG    = RangerPerfTracer.getPerfLogger("policyengine.init");
+
+    private static final int PARALLEL_INIT_BATCH_SIZE = 32; // policies for which evaluators are built by a single task
+    private static final int MAX_TAG_TYPES_CACHED     = 10000; // per policy-type; evaluators for other tag-types are looked up on every request
 
     enum AuditModeEnum {
         AUDIT_ALL, AUDIT_NONE, AUDIT_DEFAULT
@@ -86,14 +102,19 @@ class RangerPolicyRepository {
     private List<RangerPolicyEvaluator>       policyEvaluators;
     private List<RangerPolicyEvaluator>       dataMaskPolicyEvaluators;
     private List<RangerPolicyEvaluator>       rowFilterPolicyEvaluators;
+    private boolean                           hasCustomConditions;
+    private boolean                           hasResourceOwnerPolicies;
     private final AuditModeEnum               auditModeEnum;
-    private final Map<String, AuditInfo>      accessAuditCache;
+    private final ConcurrentCacheMap<String, AuditInfo> accessAuditCache;
 
     private final String                      componentServiceName;
     private final RangerServiceDef            componentServiceDef;
     private final Map<String, RangerResourceTrie> policyResourceTrie;
     private final Map<String, RangerResourceTrie> dataMaskResourceTrie;
     private final Map<String, RangerResourceTrie> rowFilterResourceTrie;
+    private final Map<RangerPolicyEvaluator, Integer> policyNameRanks;
+    private final Map<String, TagTypeEvaluators>  dataMaskEvaluatorsForTagType  = new ConcurrentHashMap<>();
+    private final Map<String, TagTypeEvaluators>  rowFilterEvaluatorsForTagType = new ConcurrentHashMap<>();
 
     RangerPolicyRepository(String appId, ServicePolicies servicePolicies, RangerPolicyEngineOptions options) {
         super();
@@ -110,46 +131,32 @@ class RangerPolicyRepository {
             LOG.debug("RangerPolicyRepository : building resource-policy-repository for service " + serviceName);
         }
 
-        String auditMode = servicePolicies.getAuditMode();
+        auditModeEnum    = toAuditModeEnum(servicePolicies.getAuditMode());
+        accessAuditCache = auditModeEnum == AuditModeEnum.AUDIT_DEFAULT ? createAccessAuditCache(options) : null;
 
-        if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_ALL)) {
-            auditModeEnum = AuditModeEnum.AUDIT_ALL;
-        } else if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_NONE)) {
-            auditModeEnum = AuditModeEnum.AUDIT_NONE;
-        } else {
-            auditModeEnum = AuditModeEnum.AUDIT_DEFAULT;
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("RangerPolicyRepository : building policy-repository for service[" + serviceName
+                    + "] with auditMode[" + auditModeEnum + "]");
         }
 
-        if (auditModeEnum == AuditModeEnum.AUDIT_DEFAULT) {
-            String propertyName = "ranger.plugin." + serviceName + ".policyengine.auditcachesize";
+        ForkJoinPool initPool = createInitPool(options, policies.size());
 
-            if (options.cacheAuditResults) {
-                final int RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE = 64 * 1024;
+        try {
+            init(options, initPool);
 
-                int auditResultCacheSize = RangerConfiguration.getInstance().getInt(propertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE);
-                accessAuditCache = Collections.synchronizedMap(new CacheMap<String, AuditInfo>(auditResultCacheSize));
+            if(options.disableTrieLookupPrefilter) {
+                policyResourceTrie    = null;
+                dataMaskResourceTrie  = null;
+                rowFilterResourceTrie = null;
             } else {
-                accessAuditCache = null;
+                policyResourceTrie    = createResourceTrieMap(policyEvaluators, initPool);
+                dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators, initPool);
+                rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators, initPool);
             }
-        } else {
-            this.accessAuditCache = null;
-        }
-
-        if(LOG.isDebugEnabled()) {
-            LOG.debug("RangerPolicyRepository : building policy-repository for service[" + serviceName
-                    + "] with auditMode[" + auditModeEnum + "]");
-        }
 
-        init(options);
-
-        if(options.disableTrieLookupPrefilter) {
-            policyResourceTrie    = null;
-            dataMaskResourceTrie  = null;
-            rowFilterResourceTrie = null;
-        } else {
-            policyResourceTrie    = createResourceTrieMap(policyEvaluators);
-            dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators);
-            rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators);
+            policyNameRanks = createPolicyNameRanks();
+        } finally {
+            shutdownInitPool(initPool);
         }
     }
 
@@ -168,15 +175,7 @@ class RangerPolicyRepository {
         this.policies = Collections.unmodifiableList(normalizeAndPrunePolicies(tagPolicies.getPolicies(), componentServiceDef.getName()));
         this.policyVersion = tagPolicies.getPolicyVersion() != null ? tagPolicies.getPolicyVersion() : -1;
 
-        String auditMode = tagPolicies.getAuditMode();
-
-        if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_ALL)) {
-            auditModeEnum = AuditModeEnum.AUDIT_ALL;
-        } else if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_NONE)) {
-            auditModeEnum = AuditModeEnum.AUDIT_NONE;
-        } else {
-            auditModeEnum = AuditModeEnum.AUDIT_DEFAULT;
-        }
+        auditModeEnum = toAuditModeEnum(tagPolicies.getAuditMode());
 
         this.accessAuditCache = null;
 
@@ -185,16 +184,82 @@ class RangerPolicyRepository {
                     + "] with auditMode[" + auditModeEnum +"]");
         }
 
-        init(options);
+        ForkJoinPool initPool = createInitPool(options, policies.size());
 
-        if(options.disableTrieLookupPrefilter) {
-            policyResourceTrie    = null;
-            dataMaskResourceTrie  = null;
-            rowFilterResourceTrie = null;
-        } else {
-            policyResourceTrie    = createResourceTrieMap(policyEvaluators);
-            dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators);
-            rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators);
+        try {
+            init(options, initPool);
+
+            if(options.disableTrieLookupPrefilter) {
+                policyResourceTrie    = null;
+                dataMaskResourceTrie  = null;
+                rowFilterResourceTrie = null;
+            } else {
+                policyResourceTrie    = createResourceTrieMap(policyEvaluators, initPool);
+                dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators, initPool);
+                rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators, initPool);
+            }
+
+            policyNameRanks = createPolicyNameRanks();
+        } finally {
+            shutdownInitPool(initPool);
+        }
+    }
+
+    /*
+     * Creates the repository for servicePolicies, which has the complete list of policies as well as the policy-deltas
+     * since the policies of other. Evaluators of policies not changed by the deltas, and context enrichers, are reused
+     * from other; this is safe as evaluators are not modified once initialized, other than their usage counts and
+     * eval-ordinals - and eval-ordinals are assigned here only to new evaluators (see insertPolicyEvaluator()).
+     * If the deltas are not consistent with the policies of other, evaluators for all policies are built afresh.
+     */
+    RangerPolicyRepository(RangerPolicyRepository other, ServicePolicies servicePolicies, RangerPolicyEngineOptions options) {
+        super();
+
+        this.componentServiceName = this.serviceName = other.serviceName;
+        this.componentServiceDef  = this.serviceDef  = other.serviceDef;
+
+        this.appId = other.appId;
+
+        this.policies = Collections.unmodifiableList(servicePolicies.getPolicies());
+        this.policyVersion = servicePolicies.getPolicyVersion() != null ? servicePolicies.getPolicyVersion() : -1;
+
+        if(LOG.isDebugEnabled()) {
+            LOG.debug("RangerPolicyRepository : updating resource-policy-repository for service " + serviceName + " from version " + other.policyVersion + " to " + policyVersion);
+        }
+
+        auditModeEnum    = toAuditModeEnum(servicePolicies.getAuditMode());
+        accessAuditCache = auditModeEnum == AuditModeEnum.AUDIT_DEFAULT ? createAccessAuditCache(options) : null;
+
+        options.setServiceDefHelper(new RangerServiceDefHelper(serviceDef, false));
+
+        ForkJoinPool initPool = createInitPool(options, policies.size());
+
+        try {
+            if (!initPolicyEvaluators(other, servicePolicies.getPolicyDeltas(), options)) {
+                LOG.warn("RangerPolicyRepository(serviceName=" + serviceName + "): policy-deltas are not consistent with policies in version " + other.policyVersion + ". Building all policy evaluators");
+
+                initPolicyEvaluators(options, initPool);
+            }
+
+            if (CollectionUtils.isNotEmpty(other.contextEnrichers) || CollectionUtils.isEmpty(this.policyEvaluators)) {
+                this.contextEnrichers = other.contextEnrichers;
+            } else {
+                this.contextEnrichers = Collections.unmodifiableList(buildContextEnrichers(options));
+            }
+
+            if(options.disableTrieLookupPrefilter) {
+                policyResourceTrie    = null;
+                dataMaskResourceTrie  = null;
+                rowFilterResourceTrie = null;
+            } else {
+                policyResourceTrie    = createResourceTrieMap(policyEvaluators, initPool);
+                dataMaskResourceTrie  = createResourceTrieMap(dataMaskPolicyEvaluators, initPool);
+                rowFilterResourceTrie = createResourceTrieMap(rowFilterPolicyEvaluators, initPool);
+            }
+
+            policyNameRanks = createPolicyNameRanks();
+        } finally {
+            shutdownInitPool(initPool);
         }
     }
 
@@ -212,6 +277,8 @@ class RangerPolicyRepository {
         return policyVersion;
     }
 
+    String getAppId() { return appId; }
+
     public List<RangerContextEnricher> getContextEnrichers() { return contextEnrichers; }
 
     List<RangerPolicyEvaluator> getPolicyEvaluators() {
@@ -224,6 +291,50 @@ class RangerPolicyRepository {
        return policyResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getPolicyEvaluators() : getLikelyMatchPolicyEvaluators(policyResourceTrie, resource);
     }
 
+    /*
+     * Returns the same evaluators as getLikelyMatchPolicyEvaluators(resource), for a resource that has all values of
+     * parentResource - like a column of a table; parentEvaluators must be those returned for parentResource. Only the
+     * tries of resource-levels not in parentResource are looked up, hence lookups for the parent are shared by all
+     * its children.
+     */
+    List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(List<RangerPolicyEvaluator> parentEvaluators, RangerAccessResource parentResource, RangerAccessResource resource) {
+        List<RangerPolicyEvaluator> ret;
+
+        if (policyResourceTrie == null || !isChildResource(policyResourceTrie, parentResource, resource)) {
+            ret = getLikelyMatchPolicyEvaluators(resource);
+        } else {
+            Set<String> parentKeys = parentResource.getKeys();
+
+            ret = parentEvaluators;
+
+            for (String resourceName : resource.getKeys()) {
+                if (ret.isEmpty()) {
+                    break;
+                }
+
+                if (parentKeys.contains(resourceName)) {
+                    continue;
+                }
+
+                RangerResourceTrie trie = policyResourceTrie.get(resourceName);
+
+                if (trie == null) { // if no trie exists for this resource level, ignore and continue to next level
+                    continue;
+                }
+
+                List<RangerPolicyEvaluator> resourceEvaluators = trie.getEvaluatorsForResource(resource.getValue(resourceName));
+
+                if (CollectionUtils.isEmpty(resourceEvaluators)) {
+                    ret = Collections.emptyList();
+                } else {
+                    ret = retainAll(ret, resourceEvaluators);
+                }
+            }
+        }
+
+        return ret;
+    }
+
     List<RangerPolicyEvaluator> getDataMaskPolicyEvaluators() {
         return dataMaskPolicyEvaluators;
     }
@@ -234,7 +345,7 @@ class RangerPolicyRepository {
         return dataMaskResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getDataMaskPolicyEvaluators() : getLikelyMatchPolicyEvaluators(dataMaskResourceTrie, resource);
     }
 
-    List<PolicyEvaluatorForTag> getLikelyMatchDataMaskPolicyEvaluators(Set<RangerTagForEval> tags) {
+    PolicyEvaluatorsForTags getLikelyMatchDataMaskPolicyEvaluators(Set<RangerTagForEval> tags) {
         return getSortedPolicyEvaluatorsForTags(tags, RangerPolicy.POLICY_TYPE_DATAMASK);
     }
 
@@ -248,12 +359,34 @@ class RangerPolicyRepository {
         return rowFilterResourceTrie == null || StringUtils.isEmpty(resourceStr)  ? getRowFilterPolicyEvaluators() : getLikelyMatchPolicyEvaluators(rowFilterResourceTrie, resource);
     }
 
-    List<PolicyEvaluatorForTag> getLikelyMatchRowFilterPolicyEvaluators(Set<RangerTagForEval> tags) {
+    PolicyEvaluatorsForTags getLikelyMatchRowFilterPolicyEvaluators(Set<RangerTagForEval> tags) {
         return getSortedPolicyEvaluatorsForTags(tags, RangerPolicy.POLICY_TYPE_ROWFILTER);
     }
 
     AuditModeEnum getAuditModeEnum() { return auditModeEnum; }
 
+    boolean hasCustomConditions() { return hasCustomConditions; }
+
+    boolean hasResourceOwnerPolicies() { return hasResourceOwnerPolicies; }
+
+    /*
+     * Returns false if access-policies that match resources at or below the given value, of a single-level resource
+     * like HDFS path, are only those that match every resource below the parent of the value; in this case access to
+     * the whole subtree is decided by the same policies, regardless of the path. Returns true when this can't be
+     * determined from the trie - e.g. trie is disabled, or policies refer to {OWNER}, which varies by path.
+     */
+    boolean hasPoliciesAtOrBelow(String resourceName, String resourceValue) {
+        if (policyResourceTrie == null || hasResourceOwnerPolicies) {
+            return true;
+        }
+
+        RangerResourceTrie trie = policyResourceTrie.get(resourceName);
+
+        return trie == null || trie.hasEvaluatorsAtOrBelow(resourceValue);
+    }
+
+    ConcurrentCacheMap<String, AuditInfo> getAccessAuditCache() { return accessAuditCache; }
+
     private List<RangerPolicyEvaluator> getLikelyMatchPolicyEvaluators(Map<String, RangerResourceTrie> resourceTrie, RangerAccessResource resource) {
         List<RangerPolicyEvaluator> ret          = null;
         Set<String>                 resourceKeys = resource == null ? null : resource.getKeys();
@@ -293,11 +426,11 @@ class RangerPolicyRepository {
             }
 
             if (resourceEvaluatorsList != null) {
-                ret = new ArrayList<>(smallestList);
+                ret = smallestList;
                 for (List<RangerPolicyEvaluator> resourceEvaluators : resourceEvaluatorsList) {
                     if (resourceEvaluators != smallestList) {
                         // remove policies from ret that are not in resourceEvaluators
-                        ret.retainAll(resourceEvaluators);
+                        ret = retainAll(ret, resourceEvaluators);
 
                         if (CollectionUtils.isEmpty(ret)) { // if no policy exists, bail out and return empty list
                             ret = null;
@@ -321,36 +454,206 @@ class RangerPolicyRepository {
         return ret;
     }
 
-    private List<PolicyEvaluatorForTag> getSortedPolicyEvaluatorsForTags(Set<RangerTagForEval> tags, int policyType) {
-        List<PolicyEvaluatorForTag> ret = null;
+    private static boolean isChildResource(Map<String, RangerResourceTrie> resourceTrie, RangerAccessResource parentResource, RangerAccessResource resource) {
+        boolean ret = parentResource != null && resource != null && StringUtils.isNotEmpty(parentResource.getAsString()) && CollectionUtils.isNotEmpty(parentResource.getKeys());
+
+        if (ret) {
+            Set<String> keys = resource.getKeys();
+
+            for (String resourceName : parentResource.getKeys()) {
+                // without a trie for a parent level, the parent lookup could return no evaluators while the child's returns some
+                if (resourceTrie.get(resourceName) == null || keys == null || !keys.contains(resourceName) || !StringUtils.equals(parentResource.getValue(resourceName), resource.getValue(resourceName))) {
+                    ret = false;
+
+                    break;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * Both lists are sorted by eval-ordinal (see createResourceTrieMap()), hence a single linear merge is sufficient. The
+     * given list is returned as is, without any copy, when all its evaluators are found in the other list.
+     */
+    static List<RangerPolicyEvaluator> retainAll(List<RangerPolicyEvaluator> evaluators, List<RangerPolicyEvaluator> other) {
+        List<RangerPolicyEvaluator> ret = null;
+
+        final int count      = evaluators.size();
+        final int otherCount = other.size();
+        int       otherIdx   = 0;
+
+        for (int i = 0; i < count; i++) {
+            RangerPolicyEvaluator evaluator = evaluators.get(i);
+            final int             ordinal   = evaluator.getEvalOrdinal();
+
+            while (otherIdx < otherCount && other.get(otherIdx).getEvalOrdinal() < ordinal) {
+                otherIdx++;
+            }
+
+            boolean isRetained = otherIdx < otherCount && other.get(otherIdx).getEvalOrdinal() == ordinal;
+
+            if (isRetained) {
+                if (ret != null) {
+                    ret.add(evaluator);
+                }
+            } else if (ret == null) {
+                ret = new ArrayList<>(count);
+
+                ret.addAll(evaluators.subList(0, i));
+            }
+        }
+
+        return ret == null ? evaluators : ret;
+    }
+
+    /*
+     * Evaluators for each tag are looked up from a per tag-type cache, where they are kept sorted by policy name; these
+     * sorted arrays are merged by the rank of policy name, computed when the repository is built. Only data-mask and
+     * row-filter policies are looked up this way; access policies for tags are evaluated per tag.
+     */
+    private PolicyEvaluatorsForTags getSortedPolicyEvaluatorsForTags(Set<RangerTagForEval> tags, int policyType) {
+        PolicyEvaluatorsForTags ret = null;
 
         if (CollectionUtils.isNotEmpty(tags) && getServiceDef() != null
-                && (policyType == RangerPolicy.POLICY_TYPE_ACCESS || policyType == RangerPolicy.POLICY_TYPE_DATAMASK || policyType == RangerPolicy.POLICY_TYPE_ROWFILTER)) {
-            ret = new ArrayList<PolicyEvaluatorForTag>();
+                && (policyType == RangerPolicy.POLICY_TYPE_DATAMASK || policyType == RangerPolicy.POLICY_TYPE_ROWFILTER)) {
+            TagTypeEvaluators[] tagEvaluators = new TagTypeEvaluators[tags.size()];
+            RangerTagForEval[]  tagForEvals   = new RangerTagForEval[tags.size()];
+            int                 tagCount      = 0;
+            int                 totalCount    = 0;
 
             for (RangerTagForEval tag : tags) {
-                RangerAccessResource resource = new RangerTagResource(tag.getType(), getServiceDef());
-                List<RangerPolicyEvaluator> evaluators = null;
-                if (policyType == RangerPolicy.POLICY_TYPE_DATAMASK) {
-                    evaluators = getLikelyMatchDataMaskPolicyEvaluators(resource);
-                } else if (policyType == RangerPolicy.POLICY_TYPE_ROWFILTER) {
-                    evaluators = getLikelyMatchRowFilterPolicyEvaluators(resource);
-                } else {
-                    evaluators = getLikelyMatchPolicyEvaluators(resource);
+                TagTypeEvaluators evaluators = getEvaluatorsForTagType(tag.getType(), policyType);
+
+                if (evaluators.evaluators.length > 0) {
+                    tagEvaluators[tagCount] = evaluators;
+                    tagForEvals[tagCount]   = tag;
+                    totalCount             += evaluators.evaluators.length;
+
+                    tagCount++;
                 }
-                if (CollectionUtils.isNotEmpty(evaluators)) {
-                    for (RangerPolicyEvaluator evaluator : evaluators) {
-                        ret.add(new PolicyEvaluatorForTag(evaluator, tag));
-                    }
+            }
+
+            if (tagCount == 1) {
+                ret = new PolicyEvaluatorsForTags(tagEvaluators[0].evaluators, tagForEvals[0]);
+            } else if (tagCount > 1) {
+                ret = mergeByPolicyNameRank(tagEvaluators, tagForEvals, tagCount, totalCount);
+            }
+        }
+
+        return ret;
+    }
+
+    private TagTypeEvaluators getEvaluatorsForTagType(String tagType, int policyType) {
+        final Map<String, TagTypeEvaluators> cache = policyType == RangerPolicy.POLICY_TYPE_DATAMASK ? dataMaskEvaluatorsForTagType : rowFilterEvaluatorsForTagType;
+
+        TagTypeEvaluators ret = tagType == null ? null : cache.get(tagType);
+
+        if (ret == null) {
+            RangerAccessResource        resource = new RangerTagResource(tagType, getServiceDef());
+            List<RangerPolicyEvaluator> evaluators = policyType == RangerPolicy.POLICY_TYPE_DATAMASK ? getLikelyMatchDataMaskPolicyEvaluators(resource) : getLikelyMatchRowFilterPolicyEvaluators(resource);
+
+            ret = new TagTypeEvaluators(evaluators, policyNameRanks);
+
+            if (tagType != null && cache.size() < MAX_TAG_TYPES_CACHED) {
+                cache.put(tagType, ret);
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * k-way merge of the evaluator arrays, each sorted by policy-name rank. Number of tags of a request is small, hence
+     * the next evaluator is picked by a linear scan of the heads. On equal ranks, i.e. the same policy for multiple
+     * tags, the earlier tag is picked first - same as the stable sort used earlier. Such a policy is not de-duplicated: it
+     * is returned once for each of its tags, as its conditions are evaluated against each tag.
+     */
+    static PolicyEvaluatorsForTags mergeByPolicyNameRank(TagTypeEvaluators[] tagEvaluators, RangerTagForEval[] tags, int tagCount, int totalCount) {
+        RangerPolicyEvaluator[] evaluators    = new RangerPolicyEvaluator[totalCount];
+        RangerTagForEval[]      evaluatorTags = new RangerTagForEval[totalCount];
+        int[]                   heads         = new int[tagCount];
+
+        for (int i = 0; i < totalCount; i++) {
+            int next     = -1;
+            int nextRank = Integer.MAX_VALUE;
+
+            for (int j = 0; j < tagCount; j++) {
+                TagTypeEvaluators candidates = tagEvaluators[j];
+                int               head       = heads[j];
+
+                if (head < candidates.ranks.length && (next == -1 || candidates.ranks[head] < nextRank)) {
+                    next     = j;
+                    nextRank = candidates.ranks[head];
                 }
             }
+
+            evaluators[i]    = tagEvaluators[next].evaluators[heads[next]];
+            evaluatorTags[i] = tags[next];
+
+            heads[next]++;
         }
-        if (CollectionUtils.isNotEmpty(ret)) {
-            Collections.sort(ret, new PolicyEvaluatorForTag.PolicyNameComparator());
+
+        return new PolicyEvaluatorsForTags(evaluators, evaluatorTags, totalCount);
+    }
+
+    /*
+     * rank of each evaluator in the order of policy name, among the evaluators of the same policy-type
+     */
+    private Map<RangerPolicyEvaluator, Integer> createPolicyNameRanks() {
+        Map<RangerPolicyEvaluator, Integer> ret = new IdentityHashMap<>();
+
+        for (List<RangerPolicyEvaluator> evaluators : Arrays.asList(policyEvaluators, dataMaskPolicyEvaluators, rowFilterPolicyEvaluators)) {
+            if (CollectionUtils.isNotEmpty(evaluators)) {
+                List<RangerPolicyEvaluator> sorted = new ArrayList<>(evaluators);
+
+                Collections.sort(sorted, new PolicyNameComparator());
+
+                for (int i = 0; i < sorted.size(); i++) {
+                    ret.put(sorted.get(i), i);
+                }
+            }
         }
+
         return ret;
     }
 
+    private static class PolicyNameComparator implements Comparator<RangerPolicyEvaluator>, Serializable {
+        @Override
+        public int compare(RangerPolicyEvaluator me, RangerPolicyEvaluator other) {
+            return me.getPolicy().getName().compareTo(other.getPolicy().getName());
+        }
+    }
+
+    /*
+     * evaluators that match a tag-type, sorted by policy name; ranks[i] is the policy-name rank of evaluators[i]
+     */
+    static final class TagTypeEvaluators {
+        final RangerPolicyEvaluator[] evaluators;
+        final int[]                   ranks;
+
+        TagTypeEvaluators(List<RangerPolicyEvaluator> matchedEvaluators, Map<RangerPolicyEvaluator, Integer> policyNameRanks) {
+            int count = matchedEvaluators == null ? 0 : matchedEvaluators.size();
+
+            evaluators = new RangerPolicyEvaluator[count];
+            ranks      = new int[count];
+
+            if (count > 0) {
+                RangerPolicyEvaluator[] sorted = matchedEvaluators.toArray(new RangerPolicyEvaluator[count]);
+
+                Arrays.sort(sorted, new PolicyNameComparator());
+
+                for (int i = 0; i < count; i++) {
+                    Integer rank = policyNameRanks.get(sorted[i]);
+
+                    evaluators[i] = sorted[i];
+                    ranks[i]      = rank != null ? rank : Integer.MAX_VALUE;
+                }
+            }
+        }
+    }
+
     private RangerServiceDef normalizeAccessTypeDefs(RangerServiceDef serviceDef, final String componentType) {
 
         if (serviceDef != null && StringUtils.isNotBlank(componentType)) {
@@ -549,22 +852,37 @@ class RangerPolicyRepository {
         return ret;
     }
 
-    private void init(RangerPolicyEngineOptions options) {
+    private void init(RangerPolicyEngineOptions options, ForkJoinPool initPool) {
         RangerServiceDefHelper serviceDefHelper = new RangerServiceDefHelper(serviceDef, false);
         options.setServiceDefHelper(serviceDefHelper);
 
+        initPolicyEvaluators(options, initPool);
+
+        List<RangerContextEnricher> contextEnrichers = CollectionUtils.isNotEmpty(this.policyEvaluators) ? buildContextEnrichers(options) : new ArrayList<RangerContextEnricher>();
+
+        this.contextEnrichers = Collections.unmodifiableList(contextEnrichers);
+    }
+
+    private void initPolicyEvaluators(RangerPolicyEngineOptions options, ForkJoinPool initPool) {
         List<RangerPolicyEvaluator> policyEvaluators = new ArrayList<>();
         List<RangerPolicyEvaluator> dataMaskPolicyEvaluators  = new ArrayList<>();
         List<RangerPolicyEvaluator> rowFilterPolicyEvaluators = new ArrayList<>();
 
-        for (RangerPolicy policy : policies) {
-            if (skipBuildingPolicyEvaluator(policy, options)) {
-                continue;
-            }
+        RangerPerfTracer perf = null;
 
-            RangerPolicyEvaluator evaluator = buildPolicyEvaluator(policy, serviceDef, options);
+        if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+            perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerPolicyRepository.buildPolicyEvaluators(serviceName=" + serviceName + ",policyCount=" + policies.size() + ",parallelism=" + getParallelism(initPool) + ")");
+        }
+
+        RangerPolicyEvaluator[] evaluators = buildPolicyEvaluators(options, initPool);
+
+        RangerPerfTracer.log(perf);
 
+        // evaluators are in the order of policies, irrespective of the order in which these were built
+        for (RangerPolicyEvaluator evaluator : evaluators) {
             if (evaluator != null) {
+                RangerPolicy policy = evaluator.getPolicy();
+
                 if(policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) {
                     policyEvaluators.add(evaluator);
                 } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_DATAMASK) {
@@ -578,40 +896,155 @@ class RangerPolicyRepository {
         }
         RangerPolicyEvaluator.PolicyEvalOrderComparator comparator = new RangerPolicyEvaluator.PolicyEvalOrderComparator();
         Collections.sort(policyEvaluators, comparator);
+        setEvalOrdinals(policyEvaluators);
         this.policyEvaluators = Collections.unmodifiableList(policyEvaluators);
+        this.hasCustomConditions = hasCustomConditions(this.policyEvaluators);
+        this.hasResourceOwnerPolicies = hasResourceOwnerPolicies(this.policyEvaluators);
 
         Collections.sort(dataMaskPolicyEvaluators, comparator);
+        setEvalOrdinals(dataMaskPolicyEvaluators);
         this.dataMaskPolicyEvaluators = Collections.unmodifiableList(dataMaskPolicyEvaluators);
 
         Collections.sort(rowFilterPolicyEvaluators, comparator);
+        setEvalOrdinals(rowFilterPolicyEvaluators);
         this.rowFilterPolicyEvaluators = Collections.unmodifiableList(rowFilterPolicyEvaluators);
 
-        List<RangerContextEnricher> contextEnrichers = new ArrayList<RangerContextEnricher>();
-        if (CollectionUtils.isNotEmpty(this.policyEvaluators)) {
-            if (CollectionUtils.isNotEmpty(serviceDef.getContextEnrichers())) {
-                for (RangerServiceDef.RangerContextEnricherDef enricherDef : serviceDef.getContextEnrichers()) {
-                    if (enricherDef == null) {
-                        continue;
+        logPolicyEvaluationOrder();
+    }
+
+    /*
+     * Initializes policy evaluators from those of other, by replacing evaluators of policies changed by policyDeltas.
+     * Returns false, without initializing the evaluators, if the policies of this repository are not the result of
+     * applying policyDeltas to the policies of other - i.e. if other is not the version the deltas were computed from.
+     */
+    private boolean initPolicyEvaluators(RangerPolicyRepository other, List<RangerPolicyDelta> policyDeltas, RangerPolicyEngineOptions options) {
+        Set<Long> changedPolicyIds = new HashSet<>();
+
+        if (policyDeltas != null) {
+            for (RangerPolicyDelta policyDelta : policyDeltas) {
+                if (policyDelta != null && policyDelta.getPolicyId() != null) {
+                    changedPolicyIds.add(policyDelta.getPolicyId());
+                }
+            }
+        }
+
+        Map<Long, RangerPolicy> unchangedPolicies = new HashMap<>();
+
+        for (RangerPolicy policy : other.policies) {
+            if (!changedPolicyIds.contains(policy.getId())) {
+                unchangedPolicies.put(policy.getId(), policy);
+            }
+        }
+
+        List<RangerPolicy> changedPolicies = new ArrayList<>();
+        int                unchangedCount  = 0;
+
+        for (RangerPolicy policy : policies) {
+            if (changedPolicyIds.contains(policy.getId())) {
+                changedPolicies.add(policy);
+            } else {
+                RangerPolicy otherPolicy = unchangedPolicies.get(policy.getId());
+
+                if (otherPolicy == null || !Objects.equals(otherPolicy.getVersion(), policy.getVersion())) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("RangerPolicyRepository.initPolicyEvaluators(): policy id=" + policy.getId() + " is not in policy-deltas, but is not found or differs in version " + other.policyVersion);
                     }
-                    if (!options.disableContextEnrichers || options.enableTagEnricherWithLocalRefresher && StringUtils.equals(enricherDef.getEnricher(), RangerTagEnricher.class.getName())) {
-                        // This will be true only if the engine is initialized within ranger-admin
-                        RangerServiceDef.RangerContextEnricherDef contextEnricherDef = enricherDef;
 
-                        if (options.enableTagEnricherWithLocalRefresher && StringUtils.equals(enricherDef.getEnricher(), RangerTagEnricher.class.getName())) {
-                            contextEnricherDef = new RangerServiceDef.RangerContextEnricherDef(enricherDef.getItemId(), enricherDef.getName(), "org.apache.ranger.common.RangerAdminTagEnricher", null);
-                        }
+                    return false;
+                }
 
-                        RangerContextEnricher contextEnricher = buildContextEnricher(contextEnricherDef);
+                unchangedCount++;
+            }
+        }
 
-                        if (contextEnricher != null) {
-                            contextEnrichers.add(contextEnricher);
-                        }
+        if (unchangedCount != unchangedPolicies.size()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("RangerPolicyRepository.initPolicyEvaluators(): " + (unchangedPolicies.size() - unchangedCount) + " policies in version " + other.policyVersion + " are neither found nor deleted by policy-deltas");
+            }
+
+            return false;
+        }
+
+        List<RangerPolicyEvaluator> policyEvaluators          = getUnchangedPolicyEvaluators(other.policyEvaluators, changedPolicyIds);
+        List<RangerPolicyEvaluator> dataMaskPolicyEvaluators  = getUnchangedPolicyEvaluators(other.dataMaskPolicyEvaluators, changedPolicyIds);
+        List<RangerPolicyEvaluator> rowFilterPolicyEvaluators = getUnchangedPolicyEvaluators(other.rowFilterPolicyEvaluators, changedPolicyIds);
+
+        for (RangerPolicy policy : changedPolicies) {
+            if (skipBuildingPolicyEvaluator(policy, options)) {
+                continue;
+            }
+
+            RangerPolicyEvaluator evaluator = buildPolicyEvaluator(policy, serviceDef, options);
+
+            if (evaluator != null) {
+                final List<RangerPolicyEvaluator> evaluators;
+
+                if(policy.getPolicyType() == null || policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ACCESS) {
+                    evaluators = policyEvaluators;
+                } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_DATAMASK) {
+                    evaluators = dataMaskPolicyEvaluators;
+                } else if(policy.getPolicyType() == RangerPolicy.POLICY_TYPE_ROWFILTER) {
+                    evaluators = rowFilterPolicyEvaluators;
+                } else {
+                    LOG.warn("RangerPolicyEngine: ignoring policy id=" + policy.getId() + " - invalid policyType '" + policy.getPolicyType() + "'");
+
+                    continue;
+                }
+
+                if (!insertPolicyEvaluator(evaluators, evaluator)) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("RangerPolicyRepository.initPolicyEvaluators(): no eval-ordinal available to insert evaluator for policy id=" + policy.getId());
                     }
+
+                    return false;
                 }
             }
         }
-        this.contextEnrichers = Collections.unmodifiableList(contextEnrichers);
 
+        this.policyEvaluators          = Collections.unmodifiableList(policyEvaluators);
+        this.hasCustomConditions       = hasCustomConditions(this.policyEvaluators);
+        this.hasResourceOwnerPolicies  = hasResourceOwnerPolicies(this.policyEvaluators);
+        this.dataMaskPolicyEvaluators  = Collections.unmodifiableList(dataMaskPolicyEvaluators);
+        this.rowFilterPolicyEvaluators = Collections.unmodifiableList(rowFilterPolicyEvaluators);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("RangerPolicyRepository.initPolicyEvaluators(): built " + changedPolicies.size() + " policy evaluators; reused evaluators of " + unchangedCount + " policies");
+        }
+
+        logPolicyEvaluationOrder();
+
+        return true;
+    }
+
+    private List<RangerContextEnricher> buildContextEnrichers(RangerPolicyEngineOptions options) {
+        List<RangerContextEnricher> contextEnrichers = new ArrayList<RangerContextEnricher>();
+
+        if (CollectionUtils.isNotEmpty(serviceDef.getContextEnrichers())) {
+            for (RangerServiceDef.RangerContextEnricherDef enricherDef : serviceDef.getContextEnrichers()) {
+                if (enricherDef == null) {
+                    continue;
+                }
+                if (!options.disableContextEnrichers || options.enableTagEnricherWithLocalRefresher && StringUtils.equals(enricherDef.getEnricher(), RangerTagEnricher.class.getName())) {
+                    // This will be true only if the engine is initialized within ranger-admin
+                    RangerServiceDef.RangerContextEnricherDef contextEnricherDef = enricherDef;
+
+                    if (options.enableTagEnricherWithLocalRefresher && StringUtils.equals(enricherDef.getEnricher(), RangerTagEnricher.class.getName())) {
+                        contextEnricherDef = new RangerServiceDef.RangerContextEnricherDef(enricherDef.getItemId(), enricherDef.getName(), "org.apache.ranger.common.RangerAdminTagEnricher", null);
+                    }
+
+                    RangerContextEnricher contextEnricher = buildContextEnricher(contextEnricherDef);
+
+                    if (contextEnricher != null) {
+                        contextEnrichers.add(contextEnricher);
+                    }
+                }
+            }
+        }
+
+        return contextEnrichers;
+    }
+
+    private void logPolicyEvaluationOrder() {
         if(LOG.isDebugEnabled()) {
             LOG.debug("policy evaluation order: " + this.policyEvaluators.size() + " policies");
 
@@ -640,6 +1073,153 @@ class RangerPolicyRepository {
         }
     }
 
+    /*
+     * Eval-ordinals are spread over the range of int, to leave room for evaluators of policies created or updated by
+     * policy-deltas to be inserted without changing eval-ordinals of existing evaluators; see insertPolicyEvaluator().
+     */
+    static void setEvalOrdinals(List<RangerPolicyEvaluator> evaluators) {
+        final int step = Integer.MAX_VALUE / (evaluators.size() + 1);
+
+        for (int i = 0; i < evaluators.size(); i++) {
+            evaluators.get(i).setEvalOrdinal((i + 1) * step);
+        }
+    }
+
+    /*
+     * Inserts the evaluator after all evaluators that precede or tie with it in evaluation order, and assigns it an
+     * eval-ordinal between those of its neighbours. Returns false if no such eval-ordinal is available.
+     *
+     * Evaluators are ordered as in init(), i.e. as by PolicyEvalOrderComparator when all usage counts are 0; existing
+     * evaluators can't be compared with their current usage counts, as the order of evaluators in the given list would
+     * then not match that of their eval-ordinals.
+     */
+    private static boolean insertPolicyEvaluator(List<RangerPolicyEvaluator> evaluators, RangerPolicyEvaluator evaluator) {
+        int low  = 0;
+        int high = evaluators.size();
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (compareInitialEvalOrder(evaluators.get(mid), evaluator) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        final int prevOrdinal = low == 0 ? 0 : evaluators.get(low - 1).getEvalOrdinal();
+        final int nextOrdinal = low == evaluators.size() ? Integer.MAX_VALUE : evaluators.get(low).getEvalOrdinal();
+
+        if (nextOrdinal - prevOrdinal < 2) {
+            return false;
+        }
+
+        evaluator.setEvalOrdinal(prevOrdinal + (nextOrdinal - prevOrdinal) / 2);
+
+        evaluators.add(low, evaluator);
+
+        return true;
+    }
+
+    private static int compareInitialEvalOrder(RangerPolicyEvaluator me, RangerPolicyEvaluator other) {
+        if (me.hasDeny() != other.hasDeny()) {
+            return me.hasDeny() ? -1 : 1;
+        }
+
+        return Integer.compare(me.getEvalOrder(), other.getEvalOrder());
+    }
+
+    // returned list is sorted by eval-ordinal, as reorderPolicyEvaluators() could have changed the order of evaluators
+    private static List<RangerPolicyEvaluator> getUnchangedPolicyEvaluators(List<RangerPolicyEvaluator> evaluators, Set<Long> changedPolicyIds) {
+        List<RangerPolicyEvaluator> ret = new ArrayList<>(evaluators.size());
+
+        for (RangerPolicyEvaluator evaluator : evaluators) {
+            if (!changedPolicyIds.contains(evaluator.getPolicy().getId())) {
+                ret.add(evaluator);
+            }
+        }
+
+        Collections.sort(ret, RangerPolicyEvaluator.EVAL_ORDINAL_COMPARATOR);
+
+        return ret;
+    }
+
+    private static boolean hasCustomConditions(List<RangerPolicyEvaluator> evaluators) {
+        boolean ret = false;
+
+        for (RangerPolicyEvaluator evaluator : evaluators) {
+            if (evaluator.getCustomConditionsCount() > 0) {
+                ret = true;
+
+                break;
+            }
+        }
+
+        return ret;
+    }
+
+    private static boolean hasResourceOwnerPolicies(List<RangerPolicyEvaluator> evaluators) {
+        for (RangerPolicyEvaluator evaluator : evaluators) {
+            RangerPolicy policy = evaluator.getPolicy();
+
+            if (hasResourceOwner(policy.getPolicyItems()) || hasResourceOwner(policy.getDenyPolicyItems())
+                    || hasResourceOwner(policy.getAllowExceptions()) || hasResourceOwner(policy.getDenyExceptions())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean hasResourceOwner(List<RangerPolicy.RangerPolicyItem> policyItems) {
+        if (policyItems != null) {
+            for (RangerPolicy.RangerPolicyItem policyItem : policyItems) {
+                if (policyItem.getUsers() != null && policyItem.getUsers().contains(RangerPolicyEngine.RESOURCE_OWNER)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static AuditModeEnum toAuditModeEnum(String auditMode) {
+        final AuditModeEnum ret;
+
+        if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_ALL)) {
+            ret = AuditModeEnum.AUDIT_ALL;
+        } else if (StringUtils.equals(auditMode, RangerPolicyEngine.AUDIT_NONE)) {
+            ret = AuditModeEnum.AUDIT_NONE;
+        } else {
+            ret = AuditModeEnum.AUDIT_DEFAULT;
+        }
+
+        return ret;
+    }
+
+    private ConcurrentCacheMap<String, AuditInfo> createAccessAuditCache(RangerPolicyEngineOptions options) {
+        final ConcurrentCacheMap<String, AuditInfo> ret;
+
+        if (options.cacheAuditResults) {
+            final int RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE = 64 * 1024;
+
+            String propertyName            = "ranger.plugin." + serviceName + ".policyengine.auditcachesize";
+            String serviceTypePropertyName = "ranger.plugin." + serviceDef.getName() + ".policyengine.auditcachesize";
+            String segmentsPropertyName    = "ranger.plugin." + serviceDef.getName() + ".policyengine.auditcache.segments";
+
+            RangerConfiguration config = RangerConfiguration.getInstance();
+
+            int auditResultCacheSize = config.getInt(propertyName, config.getInt(serviceTypePropertyName, RANGER_POLICYENGINE_AUDITRESULT_CACHE_SIZE));
+            int auditResultCacheSegs = config.getInt(segmentsPropertyName, ConcurrentCacheMap.DEFAULT_SEGMENT_COUNT);
+
+            ret = new ConcurrentCacheMap<>(auditResultCacheSize, auditResultCacheSegs);
+        } else {
+            ret = null;
+        }
+
+        return ret;
+    }
+
     private RangerContextEnricher buildContextEnricher(RangerServiceDef.RangerContextEnricherDef enricherDef) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerPolicyRepository.buildContextEnricher(" + enricherDef + ")");
@@ -683,6 +1263,72 @@ class RangerPolicyRepository {
         return ret;
     }
 
+    /*
+     * Returns evaluators at the index of their policy in policies; null for policies skipped. With initPool, evaluators
+     * are built by tasks over ranges of policies.
+     */
+    private RangerPolicyEvaluator[] buildPolicyEvaluators(RangerPolicyEngineOptions options, ForkJoinPool initPool) {
+        RangerPolicyEvaluator[] ret = new RangerPolicyEvaluator[policies.size()];
+
+        if (initPool != null) {
+            initPool.invoke(new BuildPolicyEvaluatorsTask(ret, 0, ret.length, options));
+        } else {
+            buildPolicyEvaluators(ret, 0, ret.length, options);
+        }
+
+        return ret;
+    }
+
+    private void buildPolicyEvaluators(RangerPolicyEvaluator[] evaluators, int fromIdx, int toIdx, RangerPolicyEngineOptions options) {
+        for (int i = fromIdx; i < toIdx; i++) {
+            RangerPolicy policy = policies.get(i);
+
+            if (!skipBuildingPolicyEvaluator(policy, options)) {
+                evaluators[i] = buildPolicyEvaluator(policy, serviceDef, options);
+            }
+        }
+    }
+
+    private class BuildPolicyEvaluatorsTask extends RecursiveAction {
+        private final RangerPolicyEvaluator[]   evaluators;
+        private final int                       fromIdx;
+        private final int                       toIdx;
+        private final RangerPolicyEngineOptions options;
+
+        BuildPolicyEvaluatorsTask(RangerPolicyEvaluator[] evaluators, int fromIdx, int toIdx, RangerPolicyEngineOptions options) {
+            this.evaluators = evaluators;
+            this.fromIdx    = fromIdx;
+            this.toIdx      = toIdx;
+            this.options    = options;
+        }
+
+        @Override
+        protected void compute() {
+            if ((toIdx - fromIdx) <= PARALLEL_INIT_BATCH_SIZE) {
+                buildPolicyEvaluators(evaluators, fromIdx, toIdx, options);
+            } else {
+                int midIdx = (fromIdx + toIdx) >>> 1;
+
+                invokeAll(new BuildPolicyEvaluatorsTask(evaluators, fromIdx, midIdx, options), new BuildPolicyEvaluatorsTask(evaluators, midIdx, toIdx, options));
+            }
+        }
+    }
+
+    // returns null, to build in the calling thread, unless parallel build is enabled and there are enough policies
+    private static ForkJoinPool createInitPool(RangerPolicyEngineOptions options, int policyCount) {
+        return options.initParallelism > 1 && policyCount > PARALLEL_INIT_BATCH_SIZE ? new ForkJoinPool(options.initParallelism) : null;
+    }
+
+    private static void shutdownInitPool(ForkJoinPool initPool) {
+        if (initPool != null) {
+            initPool.shutdown();
+        }
+    }
+
+    private static int getParallelism(ForkJoinPool initPool) {
+        return initPool != null ? initPool.getParallelism() : 1;
+    }
+
     private RangerPolicyEvaluator buildPolicyEvaluator(RangerPolicy policy, RangerServiceDef serviceDef, RangerPolicyEngineOptions options) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerPolicyRepository.buildPolicyEvaluator(" + policy + "," + serviceDef + ", " + options + ")");
@@ -835,15 +1481,41 @@ class RangerPolicyRepository {
         return ret;
     }
 
-    private Map<String, RangerResourceTrie> createResourceTrieMap(List<RangerPolicyEvaluator> evaluators) {
+    private Map<String, RangerResourceTrie> createResourceTrieMap(final List<RangerPolicyEvaluator> evaluators, ForkJoinPool initPool) {
         final Map<String, RangerResourceTrie> ret;
 
         if (CollectionUtils.isNotEmpty(evaluators) && serviceDef != null && CollectionUtils.isNotEmpty(serviceDef.getResources())) {
+            RangerPerfTracer perf = null;
+
+            if(RangerPerfTracer.isPerfTraceEnabled(PERF_POLICYENGINE_INIT_LOG)) {
+                perf = RangerPerfTracer.getPerfTracer(PERF_POLICYENGINE_INIT_LOG, "RangerPolicyRepository.createResourceTrieMap(serviceName=" + serviceName + ",evaluatorCount=" + evaluators.size() + ",parallelism=" + getParallelism(initPool) + ")");
+            }
+
             ret = new HashMap<>();
 
-            for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
-                ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators, RangerPolicyEvaluator.EVAL_ORDER_COMPARATOR));
+            if (initPool == null) {
+                for (RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
+                    // evaluators in the trie are kept in eval-ordinal order, which is required by retainAll()
+                    ret.put(resourceDef.getName(), new RangerResourceTrie(resourceDef, evaluators, RangerPolicyEvaluator.EVAL_ORDINAL_COMPARATOR));
+                }
+            } else {
+                Map<String, ForkJoinTask<RangerResourceTrie>> tasks = new HashMap<>();
+
+                for (final RangerServiceDef.RangerResourceDef resourceDef : serviceDef.getResources()) {
+                    tasks.put(resourceDef.getName(), initPool.submit(new Callable<RangerResourceTrie>() {
+                        @Override
+                        public RangerResourceTrie call() {
+                            return new RangerResourceTrie(resourceDef, evaluators, RangerPolicyEvaluator.EVAL_ORDINAL_COMPARATOR);
+                        }
+                    }));
+                }
+
+                for (Map.Entry<String, ForkJoinTask<RangerResourceTrie>> task : tasks.entrySet()) {
+                    ret.put(task.getKey(), task.getValue().join());
+                }
             }
+
+            RangerPerfTracer.log(perf);
         } else {
             ret = null;
         }
@@ -868,6 +1540,10 @@ class RangerPolicyRepository {
         sb.append("serviceDef={").append(serviceDef).append("} ");
         sb.append("appId={").append(appId).append("} ");
 
+        if (accessAuditCache != null) {
+            sb.append("accessAuditCache={").append(accessAuditCache).append("} ");
+        }
+
         sb.append("policyEvaluators={");
         if (policyEvaluators != null) {
             for (RangerPolicyEvaluator policyEvaluator : policyEvaluators) {
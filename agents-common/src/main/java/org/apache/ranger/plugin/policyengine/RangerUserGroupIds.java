@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+
+/*
+ * Dense integer ids for the user and group names referenced in policies, so that policy items can be matched against
+ * the user/groups of a request by looking up the few ids of the item in a bitset of the request, instead of hashing
+ * every group of the request for each policy item. Policy items keep their ids in small sorted arrays, whose size
+ * depends only on the number of names in the item.
+ *
+ * Names are interned when policy evaluators are initialized. Ids are assigned for the lifetime of the process, so that
+ * evaluators shared across repositories (tag policies, policy deltas) agree on them; hence the tables only grow, with
+ * every distinct name ever referenced in a policy. To bound this, at most MAX_IDS names of each kind are interned -
+ * policy items having names beyond that are matched by name. Names of a request are translated once and cached in the
+ * request context (see getRequestUserGroups()); names not in any policy get no id.
+ *
+ * A policy refresh can intern new names after a request was translated; the translation records how many ids existed
+ * at the time (limit), and a policy item having ids beyond that limit is matched by name instead.
+ */
+public final class RangerUserGroupIds {
+    static final int MAX_IDS = 1 << 20;
+
+    private static final Map<String, Integer> USER_IDS  = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> GROUP_IDS = new ConcurrentHashMap<>();
+
+    private RangerUserGroupIds() { }
+
+    public static int internUser(String user) {
+        return intern(USER_IDS, user, MAX_IDS);
+    }
+
+    public static int internGroup(String group) {
+        return intern(GROUP_IDS, group, MAX_IDS);
+    }
+
+    public static RequestUserGroups getRequestUserGroups(RangerAccessRequest request) {
+        Map<String, Object> context    = request.getContext();
+        String              user       = request.getUser();
+        Set<String>         userGroups = request.getUserGroups();
+        RequestUserGroups   ret        = context != null ? RangerAccessRequestUtil.getUserGroupIdsFromContext(context) : null;
+
+        if (ret == null || !ret.isFor(user, userGroups)) {
+            ret = new RequestUserGroups(user, userGroups);
+
+            if (context != null) {
+                try {
+                    RangerAccessRequestUtil.setUserGroupIdsInContext(context, ret);
+                } catch (UnsupportedOperationException excp) {
+                    // read-only context; translate again next time
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * Returns -1 if the name has no id, and the table already has maxIds names
+     */
+    static int intern(Map<String, Integer> ids, String name, int maxIds) {
+        Integer ret = ids.get(name);
+
+        if (ret == null) {
+            synchronized (ids) {
+                ret = ids.get(name);
+
+                if (ret == null) {
+                    if (ids.size() >= maxIds) {
+                        ret = -1;
+                    } else {
+                        ret = ids.size();
+
+                        ids.put(name, ret);
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    /*
+     * Returns sorted ids of the names, leaving out names that could not be interned
+     */
+    private static int[] internAll(Set<String> names, boolean isUser) {
+        int[] ret   = new int[names.size()];
+        int   count = 0;
+
+        for (String name : names) {
+            int id = isUser ? internUser(name) : internGroup(name);
+
+            if (id != -1) {
+                ret[count++] = id;
+            }
+        }
+
+        if (count < ret.length) {
+            ret = Arrays.copyOf(ret, count);
+        }
+
+        Arrays.sort(ret);
+
+        return ret;
+    }
+
+    /*
+     * 1 + the highest id; Integer.MAX_VALUE if some of the names have no id, so that they are matched by name
+     */
+    private static int getIdsLength(int[] ids, int nameCount) {
+        final int ret;
+
+        if (ids.length < nameCount) {
+            ret = Integer.MAX_VALUE;
+        } else {
+            ret = ids.length == 0 ? 0 : ids[ids.length - 1] + 1;
+        }
+
+        return ret;
+    }
+
+    private static int getId(Map<String, Integer> ids, String name) {
+        Integer ret = name != null ? ids.get(name) : null;
+
+        return ret != null ? ret : -1;
+    }
+
+    /*
+     * Users and groups of a policy item, or of all items in a policy
+     */
+    public static final class UserGroupSet {
+        private final Set<String> users;
+        private final Set<String> groups;
+        private final int[]       userIds;        // sorted
+        private final int[]       groupIds;       // sorted
+        private final int         userIdsLength;  // 1 + highest id in userIds
+        private final int         groupIdsLength; // 1 + highest id in groupIds
+
+        public UserGroupSet(Collection<String> users, Collection<String> groups) {
+            this.users  = users  == null ? Collections.<String>emptySet() : new HashSet<>(users);
+            this.groups = groups == null ? Collections.<String>emptySet() : new HashSet<>(groups);
+
+            this.userIds        = internAll(this.users, true);
+            this.groupIds       = internAll(this.groups, false);
+            this.userIdsLength  = getIdsLength(userIds, this.users.size());
+            this.groupIdsLength = getIdsLength(groupIds, this.groups.size());
+        }
+
+        public boolean isEmpty() {
+            return users.isEmpty() && groups.isEmpty();
+        }
+
+        public int size() {
+            return users.size() + groups.size();
+        }
+
+        public boolean containsUser(RequestUserGroups request) {
+            final boolean ret;
+
+            if (request.user == null || users.isEmpty()) {
+                ret = false;
+            } else if (userIdsLength <= request.userIdLimit) {
+                ret = request.userId != -1 && Arrays.binarySearch(userIds, request.userId) >= 0;
+            } else {
+                ret = users.contains(request.user);
+            }
+
+            return ret;
+        }
+
+        public boolean containsAnyGroup(RequestUserGroups request) {
+            final boolean ret;
+
+            if (request.userGroups == null || request.userGroups.isEmpty() || groups.isEmpty()) {
+                ret = false;
+            } else if (groupIdsLength <= request.groupIdLimit) {
+                ret = request.containsAnyGroupId(groupIds);
+            } else {
+                ret = !Collections.disjoint(groups, request.userGroups);
+            }
+
+            return ret;
+        }
+
+        public boolean containsUser(String user) {
+            return users.contains(user);
+        }
+
+        public boolean containsGroup(String group) {
+            return groups.contains(group);
+        }
+
+        public Set<String> getUsers() {
+            return users;
+        }
+
+        public Set<String> getGroups() {
+            return groups;
+        }
+    }
+
+    /*
+     * Ids of the user and groups of a request
+     */
+    public static final class RequestUserGroups {
+        private final String      user;
+        private final Set<String> userGroups;
+        private final int         userGroupsCount;
+        private final int         userIdLimit;
+        private final int         groupIdLimit;
+        private final int         userId;
+        private final BitSet      groupIds = new BitSet();
+
+        public RequestUserGroups(String user, Set<String> userGroups) {
+            // limits are read before the lookups: a name not found here can only get an id >= limit
+            this.userIdLimit     = USER_IDS.size();
+            this.groupIdLimit    = GROUP_IDS.size();
+            this.user            = user;
+            this.userGroups      = userGroups;
+            this.userGroupsCount = userGroups != null ? userGroups.size() : 0;
+            this.userId          = getId(USER_IDS, user);
+
+            if (userGroups != null) {
+                for (String group : userGroups) {
+                    int groupId = getId(GROUP_IDS, group);
+
+                    if (groupId != -1) {
+                        groupIds.set(groupId);
+                    }
+                }
+            }
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        boolean containsAnyGroupId(int[] ids) {
+            boolean ret = false;
+
+            for (int id : ids) {
+                if (groupIds.get(id)) {
+                    ret = true;
+
+                    break;
+                }
+            }
+
+            return ret;
+        }
+
+        public Set<String> getUserGroups() {
+            return userGroups;
+        }
+
+        boolean isFor(String user, Set<String> userGroups) {
+            return this.userGroups == userGroups && userGroupsCount == (userGroups != null ? userGroups.size() : 0) && StringUtils.equals(this.user, user);
+        }
+
+        @Override
+        public String toString() {
+            return "RequestUserGroups={userId=" + userId + ", groupIds=" + groupIds + "}";
+        }
+    }
+}
@@ -39,6 +39,7 @@ public abstract class RangerAbstractPolicyEvaluator implements RangerPolicyEvalu
 	private RangerServiceDef serviceDef;
 	private Integer          leafResourceLevel;
 	private int              evalOrder;
+	private int              evalOrdinal = -1;
 	protected long           usageCount;
 	protected boolean        usageCountMutable = true;
 
@@ -113,6 +114,16 @@ public abstract class RangerAbstractPolicyEvaluator implements RangerPolicyEvalu
 		this.evalOrder = evalOrder;
 	}
 
+	@Override
+	public int getEvalOrdinal() {
+		return evalOrdinal;
+	}
+
+	@Override
+	public void setEvalOrdinal(int evalOrdinal) {
+		this.evalOrdinal = evalOrdinal;
+	}
+
 	@Override
 	public void incrementUsageCount(int number) {
 		if (usageCountMutable) usageCount += number;
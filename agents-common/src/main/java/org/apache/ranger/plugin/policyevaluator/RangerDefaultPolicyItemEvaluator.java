@@ -40,6 +40,7 @@ import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerUserGroupIds;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 
 
@@ -53,7 +54,9 @@ public class RangerDefaultPolicyItemEvaluator extends RangerAbstractPolicyItemEv
 
 	private boolean hasCurrentUser;
 	private boolean hasResourceOwner;
+	private boolean hasPublicGroup;
 	private boolean hasAllPerms;
+	private RangerUserGroupIds.UserGroupSet userGroupSet;
 
 	public RangerDefaultPolicyItemEvaluator(RangerServiceDef serviceDef, RangerPolicy policy, RangerPolicyItem policyItem, int policyItemType, int policyItemIndex, RangerPolicyEngineOptions options) {
 		super(serviceDef, policy, policyItem, policyItemType, policyItemIndex, options);
@@ -130,6 +133,8 @@ public class RangerDefaultPolicyItemEvaluator extends RangerAbstractPolicyItemEv
 		List<String> users = policyItem.getUsers();
 		this.hasCurrentUser = CollectionUtils.isNotEmpty(users) && users.contains(RangerPolicyEngine.USER_CURRENT);
 		this.hasResourceOwner = CollectionUtils.isNotEmpty(users) && users.contains(RangerPolicyEngine.RESOURCE_OWNER);
+		this.hasPublicGroup = CollectionUtils.isNotEmpty(policyItem.getGroups()) && policyItem.getGroups().contains(RangerPolicyEngine.GROUP_PUBLIC);
+		this.userGroupSet = new RangerUserGroupIds.UserGroupSet(users, policyItem.getGroups());
 
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== RangerDefaultPolicyItemEvaluator(policyId=" + policyId + ", conditionsCount=" + getConditionEvaluators().size() + ")");
@@ -225,6 +230,29 @@ public class RangerDefaultPolicyItemEvaluator extends RangerAbstractPolicyItemEv
 		return ret;
 	}
 
+	/*
+	 * same as matchUserGroup(user, userGroups), using ids of the user/groups of the request
+	 */
+	private boolean matchUserGroup(RangerUserGroupIds.RequestUserGroups requestUserGroups) {
+		boolean ret = false;
+
+		if(policyItem != null) {
+			if(policyItem.getUsers() != null && requestUserGroups.getUser() != null) {
+				ret = hasCurrentUser || userGroupSet.containsUser(requestUserGroups);
+			}
+
+			if(!ret && policyItem.getGroups() != null && requestUserGroups.getUserGroups() != null) {
+				ret = hasPublicGroup || userGroupSet.containsAnyGroup(requestUserGroups);
+			}
+		}
+
+		if(LOG.isDebugEnabled()) {
+			LOG.debug("RangerDefaultPolicyItemEvaluator.matchUserGroup(" + policyItem + ", " + requestUserGroups + "): " + ret);
+		}
+
+		return ret;
+	}
+
 	private boolean matchUserGroupAndOwner(RangerAccessRequest request) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerDefaultPolicyItemEvaluator.matchUserGroupAndOwner(" + request + ")");
@@ -233,7 +261,6 @@ public class RangerDefaultPolicyItemEvaluator extends RangerAbstractPolicyItemEv
 		boolean ret = false;
 
 		String user = request.getUser();
-		Set<String> userGroups = request.getUserGroups();
 
 		if (hasResourceOwner) {
 			RangerAccessResource accessedResource = request.getResource();
@@ -244,7 +271,11 @@ public class RangerDefaultPolicyItemEvaluator extends RangerAbstractPolicyItemEv
 			}
 		}
 		if (!ret) {
-			ret = matchUserGroup(user, userGroups);
+			if (userGroupSet != null) {
+				ret = matchUserGroup(RangerUserGroupIds.getRequestUserGroups(request));
+			} else {
+				ret = matchUserGroup(user, request.getUserGroups());
+			}
 		}
 
 		if(LOG.isDebugEnabled()) {
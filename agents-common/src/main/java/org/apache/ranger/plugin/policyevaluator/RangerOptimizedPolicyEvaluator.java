@@ -29,6 +29,7 @@ import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerUserGroupIds;
 
 import java.util.*;
 
@@ -38,6 +39,7 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
     private Set<String> groups         = new HashSet<>();
     private Set<String> users          = new HashSet<>();
     private Set<String> accessPerms    = new HashSet<>();
+    private RangerUserGroupIds.UserGroupSet userGroupSet;
     private boolean     delegateAdmin;
     private boolean     hasAllPerms;
     private boolean     hasPublicGroup;
@@ -80,6 +82,8 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
 
         hasAllPerms = checkIfHasAllPerms();
 
+        userGroupSet = new RangerUserGroupIds.UserGroupSet(users, groups);
+
         for (String user : users) {
             if (!hasCurrentUser && RangerPolicyEngine.USER_CURRENT.equalsIgnoreCase(user)) {
                 hasCurrentUser = true;
@@ -246,7 +250,7 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
     protected boolean hasMatchablePolicyItem(RangerAccessRequest request) {
         boolean ret = false;
 
-        if (hasPublicGroup || hasCurrentUser || isOwnerMatch(request) || users.contains(request.getUser()) || CollectionUtils.containsAny(groups, request.getUserGroups())) {
+        if (hasPublicGroup || hasCurrentUser || isOwnerMatch(request) || matchUserGroup(request)) {
             if(request.isAccessTypeDelegatedAdmin()) {
                 ret = delegateAdmin;
             } else if(hasAllPerms) {
@@ -259,6 +263,18 @@ public class RangerOptimizedPolicyEvaluator extends RangerDefaultPolicyEvaluator
         return ret;
     }
 
+    private boolean matchUserGroup(RangerAccessRequest request) {
+        boolean ret = false;
+
+        if (userGroupSet != null && !userGroupSet.isEmpty()) {
+            RangerUserGroupIds.RequestUserGroups requestUserGroups = RangerUserGroupIds.getRequestUserGroups(request);
+
+            ret = userGroupSet.containsUser(requestUserGroups) || userGroupSet.containsAnyGroup(requestUserGroups);
+        }
+
+        return ret;
+    }
+
     private boolean isOwnerMatch(RangerAccessRequest request) {
         boolean ret = false;
 
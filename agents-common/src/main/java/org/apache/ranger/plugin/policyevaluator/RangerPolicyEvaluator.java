@@ -39,7 +39,8 @@ import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceEvalua
 
 
 public interface RangerPolicyEvaluator extends RangerPolicyResourceEvaluator {
-	Comparator<RangerPolicyEvaluator> EVAL_ORDER_COMPARATOR = new RangerPolicyEvaluator.PolicyEvalOrderComparator();
+	Comparator<RangerPolicyEvaluator> EVAL_ORDER_COMPARATOR   = new RangerPolicyEvaluator.PolicyEvalOrderComparator();
+	Comparator<RangerPolicyEvaluator> EVAL_ORDINAL_COMPARATOR = new RangerPolicyEvaluator.PolicyEvalOrdinalComparator();
 
 	String EVALUATOR_TYPE_AUTO   = "auto";
 	String EVALUATOR_TYPE_OPTIMIZED = "optimized";
@@ -57,6 +58,13 @@ public interface RangerPolicyEvaluator extends RangerPolicyResourceEvaluator {
 
 	int getEvalOrder();
 
+	/*
+	 * dense position of this evaluator in the eval-ordered list of its policy repository; assigned once the list is sorted
+	 */
+	int getEvalOrdinal();
+
+	void setEvalOrdinal(int evalOrdinal);
+
 	long getUsageCount();
 
 	void incrementUsageCount(int number);
@@ -108,4 +116,11 @@ public interface RangerPolicyEvaluator extends RangerPolicyResourceEvaluator {
 		}
 	}
 
+	class PolicyEvalOrdinalComparator implements Comparator<RangerPolicyEvaluator>, Serializable {
+		@Override
+		public int compare(RangerPolicyEvaluator me, RangerPolicyEvaluator other) {
+			return Integer.compare(me.getEvalOrdinal(), other.getEvalOrdinal());
+		}
+	}
+
 }
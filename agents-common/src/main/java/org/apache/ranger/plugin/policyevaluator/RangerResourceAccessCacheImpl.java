@@ -19,14 +19,12 @@
 package org.apache.ranger.plugin.policyevaluator;
 
 
-import java.util.Map;
-
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
-import org.apache.ranger.plugin.policyengine.CacheMap;
+import org.apache.ranger.plugin.policyengine.ConcurrentCacheMap;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 
 
@@ -34,22 +32,32 @@ public class RangerResourceAccessCacheImpl implements RangerResourceAccessCache
     private static final Log LOG = LogFactory.getLog(RangerResourceAccessCacheImpl.class);
 
     public synchronized static RangerResourceAccessCache getInstance(RangerServiceDef serviceDef, RangerPolicy policy) {
-        return new RangerResourceAccessCacheImpl(policy);
+        return new RangerResourceAccessCacheImpl(serviceDef, policy);
     }
 
-    private Map<String, String> matchedResourceCache;
-    private Map<String, String> notMatchedResourceCache;
+    private final ConcurrentCacheMap<String, String> matchedResourceCache;
+    private final ConcurrentCacheMap<String, String> notMatchedResourceCache;
 
-    private RangerResourceAccessCacheImpl(RangerPolicy policy) {
+    private RangerResourceAccessCacheImpl(RangerServiceDef serviceDef, RangerPolicy policy) {
         if(LOG.isDebugEnabled()) {
             LOG.debug("==> RangerResourceAccessCacheImpl.constructor(), policyName:" + policy.getName());
         }
 
-        int matchedCacheSize    = RangerConfiguration.getInstance().getInt("ranger.policyengine.matched.cached.count", 1000);
-        int notMatchedCacheSize = RangerConfiguration.getInstance().getInt("ranger.policyengine.not.matched.cached.count", matchedCacheSize * 10);
+        RangerConfiguration config = RangerConfiguration.getInstance();
+
+        // service-type specific configuration, like ranger.plugin.hdfs.policyengine.matched.cached.count, overrides the global one
+        String propertyPrefix = "ranger.plugin." + (serviceDef != null ? serviceDef.getName() : "") + ".policyengine.";
+
+        int matchedCacheSize    = config.getInt("ranger.policyengine.matched.cached.count", 1000);
+        int notMatchedCacheSize = config.getInt("ranger.policyengine.not.matched.cached.count", matchedCacheSize * 10);
+        int cacheSegments       = config.getInt("ranger.policyengine.cache.segments", ConcurrentCacheMap.DEFAULT_SEGMENT_COUNT);
+
+        matchedCacheSize    = config.getInt(propertyPrefix + "matched.cached.count", matchedCacheSize);
+        notMatchedCacheSize = config.getInt(propertyPrefix + "not.matched.cached.count", notMatchedCacheSize);
+        cacheSegments       = config.getInt(propertyPrefix + "cache.segments", cacheSegments);
 
-        matchedResourceCache    = new CacheMap<String, String>(matchedCacheSize);
-        notMatchedResourceCache = new CacheMap<String, String>(notMatchedCacheSize);
+        matchedResourceCache    = new ConcurrentCacheMap<>(matchedCacheSize, cacheSegments);
+        notMatchedResourceCache = new ConcurrentCacheMap<>(notMatchedCacheSize, cacheSegments);
 
         if(LOG.isDebugEnabled()) {
             LOG.debug("<== RangerResourceAccessCacheImpl.constructor(), policyName:" + policy.getName());
@@ -67,13 +75,11 @@ public class RangerResourceAccessCacheImpl implements RangerResourceAccessCache
         LookupResult result = LookupResult.NOT_FOUND;
 
         try {
-        	synchronized(this) {
-	            if (matchedResourceCache.containsKey(strResource)) {
-	                result = LookupResult.IN_MATCHED_CACHE;
-	            } else if(notMatchedResourceCache.containsKey(strResource)) {
-	                result = LookupResult.IN_NOTMATCHED_CACHE;
-	            }
-        	}
+            if (matchedResourceCache.containsKey(strResource)) {
+                result = LookupResult.IN_MATCHED_CACHE;
+            } else if(notMatchedResourceCache.containsKey(strResource)) {
+                result = LookupResult.IN_NOTMATCHED_CACHE;
+            }
         } catch (Exception exception) {
             result = LookupResult.ERROR;
         }
@@ -93,22 +99,40 @@ public class RangerResourceAccessCacheImpl implements RangerResourceAccessCache
             LOG.debug("==> RangerResourceAccessCacheImpl.add(" + strResource + ", " + cacheType + ")");
         }
 
-        synchronized(this) {
-	        switch (cacheType) {
-	            case MATCHED_CACHE:
-	                matchedResourceCache.put(strResource, strResource);
-	                break;
-	
-	            case NOTMATCHED_CACHE:
-	                notMatchedResourceCache.put(strResource, strResource);
-	                break;
-	            default:
-	                break;
-	        }
+        switch (cacheType) {
+            case MATCHED_CACHE:
+                matchedResourceCache.put(strResource, strResource);
+                break;
+
+            case NOTMATCHED_CACHE:
+                notMatchedResourceCache.put(strResource, strResource);
+                break;
+            default:
+                break;
         }
 
         if(LOG.isDebugEnabled()) {
             LOG.debug("<== RangerResourceAccessCacheImpl.add(" + strResource + ", " + cacheType + ")");
         }
     }
+
+    public ConcurrentCacheMap<String, String> getMatchedResourceCache() {
+        return matchedResourceCache;
+    }
+
+    public ConcurrentCacheMap<String, String> getNotMatchedResourceCache() {
+        return notMatchedResourceCache;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("RangerResourceAccessCacheImpl={");
+        sb.append("matchedResourceCache={").append(matchedResourceCache).append("} ");
+        sb.append("notMatchedResourceCache={").append(notMatchedResourceCache).append("} ");
+        sb.append("}");
+
+        return sb.toString();
+    }
 }
@@ -25,8 +25,6 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOCase;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -426,28 +424,38 @@ final class CaseInsensitiveEndsWithMatcher extends ResourceMatcher {
 }
 
 final class CaseSensitiveWildcardMatcher extends ResourceMatcher {
+	private final WildcardPattern       pattern;
+	private final WildcardPattern.Cache expandedPatterns;
+
 	CaseSensitiveWildcardMatcher(String value) {
 		super(value);
+		this.pattern          = new WildcardPattern(value, false);
+		this.expandedPatterns = new WildcardPattern.Cache(false);
 	}
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.SENSITIVE);
+		return getNeedsDynamicEval() ? expandedPatterns.isMatch(resourceValue, getExpandedValue(evalContext)) : pattern.isMatch(resourceValue);
 	}
 	int getPriority() { return 5 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
 }
 
 
 final class CaseInsensitiveWildcardMatcher extends ResourceMatcher {
+	private final WildcardPattern       pattern;
+	private final WildcardPattern.Cache expandedPatterns;
+
 	CaseInsensitiveWildcardMatcher(String value) {
 		super(value);
+		this.pattern          = new WildcardPattern(value, true);
+		this.expandedPatterns = new WildcardPattern.Cache(true);
 	}
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return FilenameUtils.wildcardMatch(resourceValue, getExpandedValue(evalContext), IOCase.INSENSITIVE);
+		return getNeedsDynamicEval() ? expandedPatterns.isMatch(resourceValue, getExpandedValue(evalContext)) : pattern.isMatch(resourceValue);
 	}
-	int getPriority() {return 6 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
+	int getPriority() { return 6 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0); }
 }
 
 final class ResourceMatcherWrapper {
@@ -20,9 +20,6 @@
 package org.apache.ranger.plugin.resourcematcher;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOCase;
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -140,40 +137,6 @@ public class RangerPathResourceMatcher extends RangerDefaultResourceMatcher {
 		return ret;
 	}
 
-	static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath, char pathSeparatorChar, IOCase caseSensitivity) {
-
-		boolean ret = false;
-
-		if (! StringUtils.isEmpty(pathToCheck)) {
-			String[] pathElements = StringUtils.split(pathToCheck, pathSeparatorChar);
-
-			if(! ArrayUtils.isEmpty(pathElements)) {
-				StringBuilder sb = new StringBuilder();
-
-				if(pathToCheck.charAt(0) == pathSeparatorChar) {
-					sb.append(pathSeparatorChar); // preserve the initial pathSeparatorChar
-				}
-
-				for(String p : pathElements) {
-					sb.append(p);
-
-					ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity);
-
-					if (ret) {
-						break;
-					}
-
-					sb.append(pathSeparatorChar);
-				}
-
-				sb = null;
-			} else { // pathToCheck consists of only pathSeparatorChar
-				ret = FilenameUtils.wildcardMatch(pathToCheck, wildcardPath, caseSensitivity);
-			}
-		}
-		return ret;
-	}
-
 	public StringBuilder toString(StringBuilder sb) {
 		sb.append("RangerPathResourceMatcher={");
 
@@ -188,29 +151,41 @@ public class RangerPathResourceMatcher extends RangerDefaultResourceMatcher {
 }
 
 final class CaseSensitiveRecursiveWildcardMatcher extends ResourceMatcher {
-	private final char levelSeparatorChar;
+	private final char                  levelSeparatorChar;
+	private final WildcardPattern       pattern;
+	private final WildcardPattern.Cache expandedPatterns;
+
 	CaseSensitiveRecursiveWildcardMatcher(String value, char levelSeparatorChar) {
 		super(value);
 		this.levelSeparatorChar = levelSeparatorChar;
+		this.pattern            = new WildcardPattern(value, false);
+		this.expandedPatterns   = new WildcardPattern.Cache(false);
 	}
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return RangerPathResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.SENSITIVE);
+		return getNeedsDynamicEval() ? expandedPatterns.isRecursiveMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar)
+		                             : pattern.isRecursiveMatch(resourceValue, levelSeparatorChar);
 	}
 	int getPriority() { return 7 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0);}
 }
 
 final class CaseInsensitiveRecursiveWildcardMatcher extends ResourceMatcher {
-	private final char levelSeparatorChar;
+	private final char                  levelSeparatorChar;
+	private final WildcardPattern       pattern;
+	private final WildcardPattern.Cache expandedPatterns;
+
 	CaseInsensitiveRecursiveWildcardMatcher(String value, char levelSeparatorChar) {
 		super(value);
 		this.levelSeparatorChar = levelSeparatorChar;
+		this.pattern            = new WildcardPattern(value, true);
+		this.expandedPatterns   = new WildcardPattern.Cache(true);
 	}
 
 	@Override
 	boolean isMatch(String resourceValue, Map<String, Object> evalContext) {
-		return RangerPathResourceMatcher.isRecursiveWildCardMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar, IOCase.INSENSITIVE);
+		return getNeedsDynamicEval() ? expandedPatterns.isRecursiveMatch(resourceValue, getExpandedValue(evalContext), levelSeparatorChar)
+		                             : pattern.isRecursiveMatch(resourceValue, levelSeparatorChar);
 	}
 	int getPriority() { return 8 + (getNeedsDynamicEval() ? DYNAMIC_EVALUATION_PENALTY : 0);}
 
@@ -0,0 +1,400 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.apache.commons.lang.StringUtils;
+import org.apache.ranger.plugin.policyengine.ConcurrentCacheMap;
+
+/*
+ * Wildcard pattern, with the same semantics as FilenameUtils.wildcardMatch(): '?' matches exactly one character and
+ * '*' matches zero or more characters. The pattern is parsed once, when the policy is loaded, so that matching
+ * a resource value doesn't need to tokenize the pattern again.
+ *
+ * FilenameUtils.wildcardMatch() doesn't let a '*' that is followed by '?' match any characters (for example, '?*?'
+ * doesn't match 'abc'); to retain the existing behavior, such patterns continue to be matched using FilenameUtils.
+ */
+final class WildcardPattern {
+    private static final char WILDCARD_ANY_CHAR  = '?';
+    private static final char WILDCARD_ANY_CHARS = '*';
+
+    // NFA state bitsets used by isRecursiveMatch(), reused across calls in a thread; grown for longer patterns
+    private static final ThreadLocal<long[][]> THREAD_STATES = new ThreadLocal<long[][]>() {
+        @Override
+        protected long[][] initialValue() {
+            return new long[2][2];
+        }
+    };
+
+    private final String  pattern;
+    private final char[]  chars;
+    private final char[]  upperChars;
+    private final char[]  lowerChars;
+    private final boolean ignoreCase;
+    private final boolean isLegacyMatch;
+
+    WildcardPattern(String pattern, boolean ignoreCase) {
+        this.pattern       = pattern;
+        this.chars         = pattern.toCharArray();
+        this.ignoreCase    = ignoreCase;
+        this.isLegacyMatch = hasAnyCharAfterAnyChars(chars);
+
+        if (ignoreCase) {
+            upperChars = new char[chars.length];
+            lowerChars = new char[chars.length];
+
+            for (int i = 0; i < chars.length; i++) {
+                upperChars[i] = Character.toUpperCase(chars[i]);
+                lowerChars[i] = Character.toLowerCase(upperChars[i]);
+            }
+        } else {
+            upperChars = null;
+            lowerChars = null;
+        }
+    }
+
+    // for patterns known only at evaluation time; see Cache for patterns that are likely to be matched again
+    static boolean isMatch(String str, String pattern, boolean ignoreCase) {
+        if (str == null || pattern == null) {
+            return str == null && pattern == null;
+        }
+
+        return new WildcardPattern(pattern, ignoreCase).isMatch(str);
+    }
+
+    static boolean isRecursiveMatch(String path, String pattern, char pathSeparatorChar, boolean ignoreCase) {
+        return pattern != null && new WildcardPattern(pattern, ignoreCase).isRecursiveMatch(path, pathSeparatorChar);
+    }
+
+    String getPattern() {
+        return pattern;
+    }
+
+    boolean isMatch(String str) {
+        if (str == null) {
+            return false;
+        }
+
+        if (isLegacyMatch) {
+            return FilenameUtils.wildcardMatch(str, pattern, getIOCase());
+        }
+
+        final int strLen = str.length();
+        final int patLen = chars.length;
+
+        int s         = 0;
+        int p         = 0;
+        int lastStarP = -1; // position of the last '*' seen in the pattern
+        int lastStarS = 0;  // position in str where the characters matched by that '*' end
+
+        while (s < strLen) {
+            if (p < patLen && chars[p] == WILDCARD_ANY_CHARS) {
+                lastStarP = p++;
+                lastStarS = s;
+            } else if (p < patLen && (chars[p] == WILDCARD_ANY_CHAR || isCharMatch(p, str.charAt(s)))) {
+                p++;
+                s++;
+            } else if (lastStarP != -1) { // backtrack: let the last '*' consume one more character
+                p = lastStarP + 1;
+                s = ++lastStarS;
+            } else {
+                return false;
+            }
+        }
+
+        while (p < patLen && chars[p] == WILDCARD_ANY_CHARS) {
+            p++;
+        }
+
+        return p == patLen;
+    }
+
+    /*
+     * Returns true if the pattern matches any of the ancestors of the given path, or the path itself, in a single scan
+     * of the path. This is equivalent to the earlier implementation, which matched the pattern against each prefix of
+     * the path built by joining path elements with a single separator:
+     *   /a//b/c/ => /a, /a/b, /a/b/c
+     *
+     * Matching is done by simulating the NFA for the pattern: bit 'p' of states is set when pattern[0..p) matches the
+     * path scanned so far; the pattern matches when bit 'patLen' is set. The bitsets are per-thread scratch arrays,
+     * hence matching doesn't allocate.
+     */
+    boolean isRecursiveMatch(String path, char pathSeparatorChar) {
+        final int pathLen = path != null ? path.length() : 0;
+
+        if (pathLen == 0) {
+            return false;
+        }
+
+        if (isLegacyMatch) {
+            return isLegacyRecursiveMatch(path, pathSeparatorChar);
+        }
+
+        final int    words      = (chars.length >> 6) + 1;
+        final long[] states     = getThreadStates(0, words);
+        final long[] nextStates = getThreadStates(1, words);
+
+        for (int i = 0; i < words; i++) {
+            states[i] = 0;
+        }
+
+        setBit(states, 0);
+        closeOverStars(states);
+
+        if (path.charAt(0) == pathSeparatorChar) { // preserve the initial pathSeparatorChar
+            if (!step(states, nextStates, words, pathSeparatorChar)) {
+                return false;
+            }
+        }
+
+        boolean hasElement     = false;
+        boolean isInElement    = false;
+        boolean isSeparatorDue = false;
+
+        for (int i = 0; i < pathLen; i++) {
+            final char c = path.charAt(i);
+
+            if (c == pathSeparatorChar) {
+                if (isInElement) {
+                    if (isBitSet(states, chars.length)) {
+                        return true;
+                    }
+
+                    isInElement    = false;
+                    isSeparatorDue = true;
+                }
+            } else {
+                if (isSeparatorDue) {
+                    isSeparatorDue = false;
+
+                    if (!step(states, nextStates, words, pathSeparatorChar)) {
+                        return false;
+                    }
+                }
+
+                if (!step(states, nextStates, words, c)) {
+                    return false;
+                }
+
+                hasElement  = true;
+                isInElement = true;
+            }
+        }
+
+        if (!hasElement) { // path consists of only pathSeparatorChar
+            return isMatch(path);
+        }
+
+        return isBitSet(states, chars.length);
+    }
+
+    @Override
+    public String toString() {
+        return "WildcardPattern={pattern=" + pattern + ", ignoreCase=" + ignoreCase + "}";
+    }
+
+    private IOCase getIOCase() {
+        return ignoreCase ? IOCase.INSENSITIVE : IOCase.SENSITIVE;
+    }
+
+    private boolean isLegacyRecursiveMatch(String path, char pathSeparatorChar) {
+        boolean  ret          = false;
+        String[] pathElements = StringUtils.split(path, pathSeparatorChar);
+
+        if (pathElements.length > 0) {
+            StringBuilder sb = new StringBuilder();
+
+            if (path.charAt(0) == pathSeparatorChar) {
+                sb.append(pathSeparatorChar); // preserve the initial pathSeparatorChar
+            }
+
+            for (String p : pathElements) {
+                sb.append(p);
+
+                ret = FilenameUtils.wildcardMatch(sb.toString(), pattern, getIOCase());
+
+                if (ret) {
+                    break;
+                }
+
+                sb.append(pathSeparatorChar);
+            }
+        } else { // path consists of only pathSeparatorChar
+            ret = FilenameUtils.wildcardMatch(path, pattern, getIOCase());
+        }
+
+        return ret;
+    }
+
+    private static boolean hasAnyCharAfterAnyChars(char[] chars) {
+        for (int i = 1; i < chars.length; i++) {
+            if (chars[i] == WILDCARD_ANY_CHAR && chars[i - 1] == WILDCARD_ANY_CHARS) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static long[] getThreadStates(int idx, int words) {
+        long[][] states = THREAD_STATES.get();
+
+        if (states[idx].length < words) {
+            states[idx] = new long[words];
+        }
+
+        return states[idx];
+    }
+
+    // advances the NFA by one character; returns false if no state remains live. Only the first 'words' are in use
+    private boolean step(long[] states, long[] nextStates, int words, char c) {
+        final int patLen = chars.length;
+
+        boolean isLive = false;
+
+        for (int i = 0; i < words; i++) {
+            nextStates[i] = 0;
+        }
+
+        for (int w = 0; w < words; w++) {
+            long word = states[w];
+
+            while (word != 0) {
+                final int p = (w << 6) + Long.numberOfTrailingZeros(word);
+
+                word &= word - 1;
+
+                if (p == patLen) {
+                    continue;
+                }
+
+                final char pc = chars[p];
+
+                if (pc == WILDCARD_ANY_CHARS) {
+                    setBit(nextStates, p);
+                    setBit(nextStates, p + 1);
+                } else if (pc == WILDCARD_ANY_CHAR || isCharMatch(p, c)) {
+                    setBit(nextStates, p + 1);
+                }
+            }
+        }
+
+        for (int i = 0; i < words; i++) {
+            states[i] = nextStates[i];
+
+            if (states[i] != 0) {
+                isLive = true;
+            }
+        }
+
+        if (isLive) {
+            closeOverStars(states);
+        }
+
+        return isLive;
+    }
+
+    // a '*' can match zero characters: whenever the state before a '*' is set, the state after it is set as well
+    private void closeOverStars(long[] states) {
+        for (int p = 0; p < chars.length; p++) {
+            if (chars[p] == WILDCARD_ANY_CHARS && isBitSet(states, p)) {
+                setBit(states, p + 1);
+            }
+        }
+    }
+
+    private boolean isCharMatch(int p, char c) {
+        if (chars[p] == c) {
+            return true;
+        }
+
+        // same as String.regionMatches(true, ...), which is used by IOCase.INSENSITIVE
+        if (ignoreCase) {
+            final char upper = Character.toUpperCase(c);
+
+            return upperChars[p] == upper || lowerChars[p] == Character.toLowerCase(upper);
+        }
+
+        return false;
+    }
+
+    /*
+     * Patterns compiled from values known only at evaluation time - like '/home/{USER}/*' expanded for each user - so
+     * that a value is compiled once, instead of on every request. Bounded, as the number of expanded values is not.
+     */
+    static final class Cache {
+        private static final int CAPACITY      = 256;
+        private static final int SEGMENT_COUNT = 4;
+
+        private final boolean                                      ignoreCase;
+        private volatile ConcurrentCacheMap<String, WildcardPattern> patterns; // created on first use
+
+        Cache(boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+        }
+
+        boolean isMatch(String str, String pattern) {
+            if (str == null || pattern == null) {
+                return str == null && pattern == null;
+            }
+
+            return get(pattern).isMatch(str);
+        }
+
+        boolean isRecursiveMatch(String path, String pattern, char pathSeparatorChar) {
+            return pattern != null && get(pattern).isRecursiveMatch(path, pathSeparatorChar);
+        }
+
+        private WildcardPattern get(String pattern) {
+            ConcurrentCacheMap<String, WildcardPattern> patterns = this.patterns;
+
+            if (patterns == null) {
+                synchronized (this) {
+                    patterns = this.patterns;
+
+                    if (patterns == null) {
+                        patterns = new ConcurrentCacheMap<>(CAPACITY, SEGMENT_COUNT);
+
+                        this.patterns = patterns;
+                    }
+                }
+            }
+
+            WildcardPattern ret = patterns.get(pattern);
+
+            if (ret == null) {
+                ret = new WildcardPattern(pattern, ignoreCase);
+
+                patterns.put(pattern, ret);
+            }
+
+            return ret;
+        }
+    }
+
+    private static void setBit(long[] bits, int idx) {
+        bits[idx >> 6] |= (1L << idx);
+    }
+
+    private static boolean isBitSet(long[] bits, int idx) {
+        return (bits[idx >> 6] & (1L << idx)) != 0;
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
 import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResource;
 import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
 import org.apache.ranger.plugin.policyengine.RangerAccessResult;
 import org.apache.ranger.plugin.policyengine.RangerAccessResultProcessor;
@@ -189,7 +190,20 @@ public class RangerBasePlugin {
 			if (policies == null) {
 				this.policyEngine = null;
 			} else {
-				RangerPolicyEngine policyEngine = new RangerPolicyEngineImpl(appId, policies, policyEngineOptions);
+				RangerPolicyEngine policyEngine = null;
+
+				if (oldPolicyEngine != null && policies.getPolicyDeltas() != null) {
+					try {
+						policyEngine = oldPolicyEngine.cloneWithDelta(policies);
+					} catch (Exception excp) {
+						LOG.error("setPolicies: failed to apply policy-deltas. Building policy engine from all policies", excp);
+					}
+				}
+
+				if (policyEngine == null) {
+					policyEngine = new RangerPolicyEngineImpl(appId, policies, policyEngineOptions);
+				}
+
 				policyEngine.setUseForwardedIPAddress(useForwardedIPAddress);
 				policyEngine.setTrustedProxyAddresses(trustedProxyAddresses);
 
@@ -271,6 +285,18 @@ public class RangerBasePlugin {
 		return null;
 	}
 
+	public Collection<RangerAccessResult> isAccessAllowed(RangerAccessResource parentResource, Collection<RangerAccessRequest> requests, RangerAccessResultProcessor resultProcessor) {
+		RangerPolicyEngine policyEngine = this.policyEngine;
+
+		if(policyEngine != null) {
+			policyEngine.preProcess(requests);
+
+			return policyEngine.isAccessAllowed(parentResource, requests, resultProcessor);
+		}
+
+		return null;
+	}
+
 	public RangerDataMaskResult evalDataMaskPolicies(RangerAccessRequest request, RangerAccessResultProcessor resultProcessor) {
 		RangerPolicyEngine policyEngine = this.policyEngine;
 
@@ -307,6 +333,16 @@ public class RangerBasePlugin {
 		return null;
 	}
 
+	/*
+	 * Returns false if access to all resources at or below resourceValue is decided by the same policies; see
+	 * RangerPolicyEngine.hasPoliciesAtOrBelow()
+	 */
+	public boolean hasPoliciesAtOrBelow(String resourceName, String resourceValue) {
+		RangerPolicyEngine policyEngine = this.policyEngine;
+
+		return policyEngine == null || policyEngine.hasPoliciesAtOrBelow(resourceName, resourceValue);
+	}
+
 	public void grantAccess(GrantRevokeRequest request, RangerAccessResultProcessor resultProcessor) throws Exception {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerBasePlugin.grantAccess(" + request + ")");
@@ -22,12 +22,15 @@ package org.apache.ranger.plugin.store.file;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.ranger.plugin.geo.GeolocationDatabaseFile;
 import org.apache.ranger.plugin.geo.GeolocationMetadata;
 import org.apache.ranger.plugin.store.GeolocationStore;
 import org.apache.ranger.plugin.geo.RangerGeolocationDatabase;
 import org.apache.ranger.plugin.geo.RangerGeolocationData;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -35,8 +38,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GeolocationFileStore implements GeolocationStore {
 	private static final Log LOG = LogFactory.getLog(GeolocationFileStore.class);
@@ -47,10 +53,17 @@ public class GeolocationFileStore implements GeolocationStore {
 	public static final String PROP_GEOLOCATION_FILE_LOCATION = "FilePath";
 	public static final String PROP_GEOLOCATION_FILE_REINIT = "ForceRead";
 	public static final String PROP_GEOLOCATION_IP_IN_DOT_FORMAT = "IPInDotFormat";
+	public static final String PROP_GEOLOCATION_RELOAD_INTERVAL = "ReloadIntervalSeconds";
 
-	private static Map<String, RangerGeolocationDatabase> geolocationDBMap = new HashMap<>();
+	private static final Map<String, RangerGeolocationDatabase> geolocationDBMap = new ConcurrentHashMap<>();
+	private static final Map<String, GeolocationReloader> geolocationReloaders = new ConcurrentHashMap<>();
 
-	private RangerGeolocationDatabase geolocationDatabase;
+	private static Timer reloadTimer;
+
+	private volatile RangerGeolocationDatabase geolocationDatabase;
+
+	private String filePath;
+	private boolean reloadEnabled;
 
 	private boolean isMetalineProcessed;
 	private boolean useDotFormat;
@@ -70,11 +83,21 @@ public class GeolocationFileStore implements GeolocationStore {
 		String ipInDotFormat = context.get(PROP_GEOLOCATION_IP_IN_DOT_FORMAT);
 		useDotFormat = ipInDotFormat == null || Boolean.parseBoolean(ipInDotFormat);
 
+		long reloadIntervalSeconds = 0L;
+		String reloadInterval = context.get(PROP_GEOLOCATION_RELOAD_INTERVAL);
+		if (StringUtils.isNotBlank(reloadInterval)) {
+			try {
+				reloadIntervalSeconds = Long.parseLong(reloadInterval.trim());
+			} catch (NumberFormatException exception) {
+				LOG.error("GeolocationFileStore.init() - Invalid " + PROP_GEOLOCATION_RELOAD_INTERVAL + " '" + reloadInterval + "', reload disabled");
+			}
+		}
 
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("GeolocationFileStore.init() - Geolocation file location=" + filePathToGeolocationFile);
 			LOG.debug("GeolocationFileStore.init() - Reinitialize flag =" + reinitialize);
 			LOG.debug("GeolocationFileStore.init() - UseDotFormat flag =" + useDotFormat);
+			LOG.debug("GeolocationFileStore.init() - Reload interval =" + reloadIntervalSeconds + " seconds");
 		}
 
 		RangerGeolocationDatabase database = geolocationDBMap.get(filePathToGeolocationFile);
@@ -89,23 +112,34 @@ public class GeolocationFileStore implements GeolocationStore {
 			}
 		}
 		geolocationDatabase = database;
+		filePath = filePathToGeolocationFile;
+		reloadEnabled = reloadIntervalSeconds > 0 && new File(filePathToGeolocationFile).isFile();
 
 		if (geolocationDatabase == null) {
 			LOG.error("GeolocationFileStore.init() - Cannot build Geolocation database from file " + filePathToGeolocationFile);
 		}
 
+		if (reloadEnabled) {
+			scheduleReload(filePathToGeolocationFile, useDotFormat, reloadIntervalSeconds);
+		}
 	}
 
 	@Override
 	public RangerGeolocationDatabase getGeoDatabase() {
-		return geolocationDatabase;
+		RangerGeolocationDatabase ret = null;
+
+		if (reloadEnabled) {
+			ret = geolocationDBMap.get(filePath);		// replaced by the reloader when the file changes
+		}
+
+		return ret != null ? ret : geolocationDatabase;
 	}
 
 	@Override
 	public final RangerGeolocationData getGeoLocation(final String ipAddress) {
 		RangerGeolocationData ret = null;
 
-		RangerGeolocationDatabase database = geolocationDatabase;		// init() may get called when getGeolocation is half-executed
+		RangerGeolocationDatabase database = getGeoDatabase();		// init() or reload may happen when getGeolocation is half-executed
 
 		if (database != null) {
 
@@ -160,10 +194,66 @@ public class GeolocationFileStore implements GeolocationStore {
 		return ret;
 	}
 
+	/*
+	 * Returns the database in the binary format of GeolocationDatabaseFile, or null if the file is not in that format
+	 */
+	private RangerGeolocationDatabase readDatabaseFile(String dataFileName) throws IOException {
+		RangerGeolocationDatabase ret = null;
+
+		File f = new File(dataFileName);
+
+		if (f.exists() && f.canRead()) {
+			if (GeolocationDatabaseFile.isDatabaseFile(f)) {
+				LOG.info("GeolocationFileStore: mapping location database file '" + dataFileName + "'");
+
+				ret = GeolocationDatabaseFile.read(f);
+			}
+		} else {
+			InputStream inStr = this.getClass().getResourceAsStream(dataFileName);
+
+			if (inStr != null) {
+				try (InputStream in = new BufferedInputStream(inStr)) {
+					byte[] magic = new byte[8];
+
+					in.mark(magic.length);
+
+					if (in.read(magic) == magic.length && GeolocationDatabaseFile.isDatabaseFile(magic)) {
+						LOG.info("GeolocationFileStore: reading location database from resource '" + dataFileName + "'");
+
+						ByteArrayOutputStream contents = new ByteArrayOutputStream();
+						byte[]                buf      = new byte[64 * 1024];
+
+						in.reset();
+
+						for (int len = in.read(buf); len != -1; len = in.read(buf)) {
+							contents.write(buf, 0, len);
+						}
+
+						ret = GeolocationDatabaseFile.read(ByteBuffer.wrap(contents.toByteArray()));
+					}
+				}
+			}
+		}
+
+		return ret;
+	}
+
 	RangerGeolocationDatabase build(String dataFileName) {
 
 		RangerGeolocationDatabase database = null;
 
+		try {
+			database = readDatabaseFile(dataFileName);
+		} catch (IOException ex) {
+			LOG.error("RangerGeolocationDatabaseBuilder.build() - Error reading database file '" + dataFileName + "', " + ex);
+
+			return null;
+		}
+
+		if (database != null) {
+			return database;
+		}
+
 		BufferedReader bufferedReader = null;
 		long start = 0L, end = 0L;
 
@@ -241,7 +331,7 @@ public class GeolocationFileStore implements GeolocationStore {
 				} else {
 					RangerGeolocationData data = RangerGeolocationData.create(fields, lineNumber, useDotFormat);
 					if (data != null) {
-						database.getData().insert(data);
+						database.add(data);
 					} else {
 						LOG.error("GeolocationFileStore.processLine() - Invalid data specification " + lineNumber + ":" + line);
 					}
@@ -253,4 +343,99 @@ public class GeolocationFileStore implements GeolocationStore {
 		return ret;
 	}
 
+	private static synchronized void scheduleReload(String dataFileName, boolean useDotFormat, long intervalSeconds) {
+		if (!geolocationReloaders.containsKey(dataFileName)) {
+			if (reloadTimer == null) {
+				reloadTimer = new Timer("GeolocationReloadTimer", true);
+			}
+
+			GeolocationReloader reloader = new GeolocationReloader(dataFileName, useDotFormat);
+
+			geolocationReloaders.put(dataFileName, reloader);
+			reloadTimer.schedule(reloader, intervalSeconds * 1000L, intervalSeconds * 1000L);
+
+			LOG.info("GeolocationFileStore: checking '" + dataFileName + "' for changes every " + intervalSeconds + " seconds");
+		}
+	}
+
+	/*
+	 * Rebuilds the database in the timer thread when the file changes, and then swaps it into geolocationDBMap;
+	 * lookups continue on the previous database until the new one is complete.
+	 */
+	private static class GeolocationReloader extends TimerTask {
+		private final String  dataFileName;
+		private final boolean useDotFormat;
+		private long          lastModified;
+		private long          length;
+
+		GeolocationReloader(String dataFileName, boolean useDotFormat) {
+			File f = new File(dataFileName);
+
+			this.dataFileName = dataFileName;
+			this.useDotFormat = useDotFormat;
+			this.lastModified = f.lastModified();
+			this.length       = f.length();
+		}
+
+		@Override
+		public void run() {
+			File f = new File(dataFileName);
+
+			long fileLastModified = f.lastModified();
+			long fileLength       = f.length();
+
+			if (fileLastModified == 0L || (fileLastModified == lastModified && fileLength == length)) {
+				return;
+			}
+
+			lastModified = fileLastModified;
+			length       = fileLength;
+
+			try {
+				GeolocationFileStore builder = new GeolocationFileStore();
+
+				builder.useDotFormat = useDotFormat;
+
+				RangerGeolocationDatabase database = builder.build(dataFileName);
+
+				if (database != null) {
+					geolocationDBMap.put(dataFileName, database);
+
+					LOG.info("GeolocationFileStore: reloaded location data from '" + dataFileName + "'");
+				} else {
+					LOG.error("GeolocationFileStore: failed to reload location data from '" + dataFileName + "'. Using old database.");
+				}
+			} catch (Exception excp) {
+				LOG.error("GeolocationFileStore: failed to reload location data from '" + dataFileName + "'. Using old database.", excp);
+			}
+		}
+	}
+
+	/*
+	 * Converts a geolocation CSV file into the binary format that can be memory-mapped at load time. The binary file is
+	 * replaced by a rename, hence it can be regenerated in place while plugins have it mapped; copy a new file over it
+	 * with a rename too (like mv), not by rewriting it (like cp)
+	 * usage: GeolocationFileStore <csvFile> <binaryFile> [ipInDotFormat]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: " + GeolocationFileStore.class.getName() + " <csvFile> <binaryFile> [ipInDotFormat]");
+			System.exit(1);
+		}
+
+		GeolocationFileStore store = new GeolocationFileStore();
+
+		store.useDotFormat = args.length < 3 || Boolean.parseBoolean(args[2]);
+
+		RangerGeolocationDatabase database = store.build(args[0]);
+
+		if (database == null) {
+			System.err.println("Failed to read geolocation data from " + args[0]);
+			System.exit(1);
+		}
+
+		GeolocationDatabaseFile.write(database, new File(args[1]));
+
+		System.out.println("Wrote " + database.getIndex().size() + " ranges to " + args[1]);
+	}
 }
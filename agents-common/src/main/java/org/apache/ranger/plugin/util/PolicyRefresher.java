@@ -20,10 +20,11 @@
 package org.apache.ranger.plugin.util;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -49,12 +50,14 @@ public class PolicyRefresher extends Thread {
 	private final String            cacheDir;
 	private final Gson              gson;
 	private final boolean           disableCacheIfServiceNotFound;
+	private final boolean           isCacheGzipEnabled;
 
 	private long 	pollingIntervalMs   = 30 * 1000;
 	private long 	lastKnownVersion    = -1L;
 	private long	lastActivationTimeInMillis;
 	private boolean policiesSetInPlugin;
 	private boolean serviceDefSetInPlugin;
+	private ServicePolicies lastKnownPolicies; // complete policies of lastKnownVersion; policy-deltas are applied to these
 
 	public PolicyRefresher(RangerBasePlugin plugIn, String serviceType, String appId, String serviceName, RangerAdminClient rangerAdmin, long pollingIntervalMs, String cacheDir) {
 		if(LOG.isDebugEnabled()) {
@@ -78,17 +81,24 @@ public class PolicyRefresher extends Thread {
 		this.cacheFileName = cacheFilename;
 		this.cacheDir = cacheDir;
 
+		String propertyPrefix    = "ranger.plugin." + serviceType;
+		disableCacheIfServiceNotFound = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".disable.cache.if.servicenotfound", true);
+		isCacheGzipEnabled            = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".policy.cache.gzip.enabled", false);
+
 		Gson gson = null;
 		try {
-			gson = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").setPrettyPrinting().create();
+			GsonBuilder gsonBuilder = new GsonBuilder().setDateFormat(RangerCacheFileReader.DATE_FORMAT);
+
+			if (!isCacheGzipEnabled) { // compressed cache file is not meant to be read by humans
+				gsonBuilder.setPrettyPrinting();
+			}
+
+			gson = gsonBuilder.create();
 		} catch(Throwable excp) {
 			LOG.fatal("PolicyRefresher(): failed to create GsonBuilder object", excp);
 		}
 		this.gson = gson;
 
-		String propertyPrefix    = "ranger.plugin." + serviceType;
-		disableCacheIfServiceNotFound = RangerConfiguration.getInstance().getBoolean(propertyPrefix + ".disable.cache.if.servicenotfound", true);
-
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("<== PolicyRefresher(serviceName=" + serviceName + ").PolicyRefresher()");
 		}
@@ -223,6 +233,7 @@ public class PolicyRefresher extends Thread {
 				policiesSetInPlugin = true;
 				setLastActivationTimeInMillis(System.currentTimeMillis());
 				lastKnownVersion = svcPolicies.getPolicyVersion();
+				lastKnownPolicies = svcPolicies;
 			} else {
 				if (!policiesSetInPlugin && !serviceDefSetInPlugin) {
 					plugIn.setPolicies(null);
@@ -235,6 +246,7 @@ public class PolicyRefresher extends Thread {
 				plugIn.setPolicies(null);
 				setLastActivationTimeInMillis(System.currentTimeMillis());
 				lastKnownVersion = -1;
+				lastKnownPolicies = null;
 				serviceDefSetInPlugin = true;
 			}
 		} catch (Exception excp) {
@@ -276,6 +288,12 @@ public class PolicyRefresher extends Thread {
 
 				LOG.info("PolicyRefresher(serviceName=" + serviceName + "): found updated version. lastKnownVersion=" + lastKnownVersion + "; newVersion=" + newVersion);
 
+				svcPolicies.dedupStrings();
+
+				if (svcPolicies.getPolicyDeltas() != null) {
+					svcPolicies = applyPolicyDeltas(svcPolicies);
+				}
+
 			} else {
 				if(LOG.isDebugEnabled()) {
 					LOG.debug("PolicyRefresher(serviceName=" + serviceName + ").run(): no update found. lastKnownVersion=" + lastKnownVersion);
@@ -299,6 +317,34 @@ public class PolicyRefresher extends Thread {
 	}
 
 
+	/*
+	 * Returns the complete policies after applying the policy-deltas to lastKnownPolicies. If deltas can't be applied
+	 * (which is not expected, as Ranger Admin computes deltas from lastKnownVersion), all policies are downloaded again.
+	 */
+	private ServicePolicies applyPolicyDeltas(ServicePolicies policyDeltas) throws Exception {
+		final ServicePolicies ret;
+
+		if (lastKnownPolicies != null && lastKnownPolicies.getPolicyVersion() != null && lastKnownPolicies.getPolicyVersion() == lastKnownVersion) {
+			ret = ServicePolicies.applyPolicyDeltas(lastKnownPolicies, policyDeltas);
+
+			LOG.info("PolicyRefresher(serviceName=" + serviceName + "): applied " + policyDeltas.getPolicyDeltas().size() + " policy-deltas to version " + lastKnownVersion + ". policyCount=" + ret.getPolicies().size());
+		} else {
+			LOG.warn("PolicyRefresher(serviceName=" + serviceName + "): received policy-deltas, but policies of version " + lastKnownVersion + " are not available. Downloading all policies");
+
+			ret = rangerAdmin.getServicePoliciesIfUpdated(-1, lastActivationTimeInMillis);
+
+			if (ret != null) {
+				if (!StringUtils.equals(serviceName, ret.getServiceName())) {
+					ret.setServiceName(serviceName);
+				}
+
+				ret.dedupStrings();
+			}
+		}
+
+		return ret;
+	}
+
 	private ServicePolicies loadFromCache() {
 
 		ServicePolicies policies = null;
@@ -319,9 +365,9 @@ public class PolicyRefresher extends Thread {
     		}
 
     		try {
-	        	reader = new FileReader(cacheFile);
+	        	reader = RangerCacheFileReader.open(cacheFile);
 
-		        policies = gson.fromJson(reader, ServicePolicies.class);
+		        policies = RangerCacheFileReader.read(reader, ServicePolicies.class);
 
 		        if(policies != null) {
 		        	if(!StringUtils.equals(serviceName, policies.getServiceName())) {
@@ -389,9 +435,9 @@ public class PolicyRefresher extends Thread {
 				Writer writer = null;
 	
 				try {
-					writer = new FileWriter(cacheFile);
+					writer = new OutputStreamWriter(isCacheGzipEnabled ? new GZIPOutputStream(new FileOutputStream(cacheFile)) : new FileOutputStream(cacheFile), "UTF-8");
 	
-			        gson.toJson(policies, writer);
+			        gson.toJson(withoutPolicyDeltas(policies), writer);
 		        } catch (Exception excp) {
 		        	LOG.error("failed to save policies to cache file '" + cacheFile.getAbsolutePath() + "'", excp);
 		        } finally {
@@ -416,6 +462,26 @@ public class PolicyRefresher extends Thread {
 		}
 	}
 
+	// policy-deltas are not saved in the cache, as these are relevant only to the policy engine they were received for
+	private static ServicePolicies withoutPolicyDeltas(ServicePolicies policies) {
+		ServicePolicies ret = policies;
+
+		if (policies.getPolicyDeltas() != null) {
+			ret = new ServicePolicies();
+
+			ret.setServiceName(policies.getServiceName());
+			ret.setServiceId(policies.getServiceId());
+			ret.setPolicyVersion(policies.getPolicyVersion());
+			ret.setPolicyUpdateTime(policies.getPolicyUpdateTime());
+			ret.setPolicies(policies.getPolicies());
+			ret.setServiceDef(policies.getServiceDef());
+			ret.setAuditMode(policies.getAuditMode());
+			ret.setTagPolicies(policies.getTagPolicies());
+		}
+
+		return ret;
+	}
+
 	private void disableCache() {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> PolicyRefresher.disableCache(serviceName=" + serviceName + ")");
@@ -29,6 +29,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.policyengine.RangerAccessResource;
+import org.apache.ranger.plugin.policyengine.RangerUserGroupIds;
 
 public class RangerAccessRequestUtil {
 	private static final Log LOG = LogFactory.getLog(RangerAccessRequestUtil.class);
@@ -39,6 +40,7 @@ public class RangerAccessRequestUtil {
 	public static final String KEY_CONTEXT_REQUESTED_RESOURCES = "REQUESTED_RESOURCES";
 	public static final String KEY_TOKEN_NAMESPACE = "token:";
 	public static final String KEY_USER = "USER";
+	public static final String KEY_CONTEXT_USER_GROUP_IDS      = "USER_GROUP_IDS";
 
 	public static void setRequestTagsInContext(Map<String, Object> context, Set<RangerTagForEval> tags) {
 		if(CollectionUtils.isEmpty(tags)) {
@@ -128,6 +130,21 @@ public class RangerAccessRequestUtil {
 		return ret;
 	}
 
+	public static void setUserGroupIdsInContext(Map<String, Object> context, RangerUserGroupIds.RequestUserGroups userGroupIds) {
+		context.put(KEY_CONTEXT_USER_GROUP_IDS, userGroupIds);
+	}
+
+	public static RangerUserGroupIds.RequestUserGroups getUserGroupIdsFromContext(Map<String, Object> context) {
+		RangerUserGroupIds.RequestUserGroups ret = null;
+		Object                               val = context.get(KEY_CONTEXT_USER_GROUP_IDS);
+
+		if(val instanceof RangerUserGroupIds.RequestUserGroups) {
+			ret = (RangerUserGroupIds.RequestUserGroups)val;
+		}
+
+		return ret;
+	}
+
 	public static void setCurrentUserInContext(Map<String, Object> context, String user) {
 		setTokenInContext(context, KEY_USER, user);
 	}
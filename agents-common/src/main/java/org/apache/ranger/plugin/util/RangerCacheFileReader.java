@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/*
+ * Reads policies and tags saved by plugins in cache files - plain or gzip-compressed JSON.
+ *
+ * JSON is parsed as a stream; in addition, strings are deduplicated as they are read. Without this, every occurrence
+ * of a user, group, resource value or tag attribute stays on the heap until the load completes - which for large
+ * services is many times the size of the loaded objects.
+ */
+public class RangerCacheFileReader {
+	public static final String DATE_FORMAT = "yyyyMMdd-HH:mm:ss.SSS-Z";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private RangerCacheFileReader() { }
+
+	public static <T> T read(File cacheFile, Class<T> clz) throws IOException {
+		Reader reader = open(cacheFile);
+
+		try {
+			return read(reader, clz);
+		} finally {
+			reader.close();
+		}
+	}
+
+	public static <T> T read(Reader reader, Class<T> clz) {
+		// string table is local to this read, hence a new Gson instance
+		Gson gson = new GsonBuilder().setDateFormat(DATE_FORMAT).registerTypeAdapter(String.class, new DedupStringAdapter()).create();
+
+		return gson.fromJson(reader, clz);
+	}
+
+	// the file format is detected from its content, so that changing the format used to save doesn't need a migration.
+	// Both formats are UTF-8, as written by PolicyRefresher and RangerTagEnricher
+	public static Reader open(File cacheFile) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(cacheFile), BUFFER_SIZE);
+
+		try {
+			in.mark(2);
+
+			boolean isGzip = in.read() == (GZIPInputStream.GZIP_MAGIC & 0xff) && in.read() == (GZIPInputStream.GZIP_MAGIC >> 8);
+
+			in.reset();
+
+			return new InputStreamReader(isGzip ? new GZIPInputStream(in, BUFFER_SIZE) : in, "UTF-8");
+		} catch (IOException excp) {
+			in.close();
+
+			throw excp;
+		}
+	}
+
+	static class DedupStringAdapter extends TypeAdapter<String> {
+		private final Map<String, String> strTbl = new HashMap<>();
+
+		@Override
+		public void write(JsonWriter out, String value) throws IOException {
+			out.value(value);
+		}
+
+		@Override
+		public String read(JsonReader in) throws IOException {
+			final String ret;
+
+			JsonToken token = in.peek();
+
+			if (token == JsonToken.NULL) {
+				in.nextNull();
+
+				ret = null;
+			} else if (token == JsonToken.BOOLEAN) {
+				ret = Boolean.toString(in.nextBoolean());
+			} else {
+				String str      = in.nextString();
+				String existing = strTbl.get(str);
+
+				if (existing == null) {
+					strTbl.put(str, str);
+
+					ret = str;
+				} else {
+					ret = existing;
+				}
+			}
+
+			return ret;
+		}
+	}
+}
@@ -30,9 +30,11 @@ import org.apache.ranger.plugin.resourcematcher.RangerAbstractResourceMatcher;
 import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -41,11 +43,11 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
 
     private static final String DEFAULT_WILDCARD_CHARS = "*?";
 
-    private final String   resourceName;
-    private final boolean  optIgnoreCase;
-    private final boolean  optWildcard;
-    private final String   wildcardChars;
-    private final TrieNode root;
+    private final String             resourceName;
+    private final boolean            optIgnoreCase;
+    private final boolean            optWildcard;
+    private final String             wildcardChars;
+    private final CompactTrieNode<T> root;
 
     public RangerResourceTrie(RangerServiceDef.RangerResourceDef resourceDef, List<T> evaluators) {
         this(resourceDef, evaluators, null);
@@ -76,7 +78,8 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         this.optIgnoreCase = RangerAbstractResourceMatcher.getOptionIgnoreCase(matcherOptions);
         this.optWildcard   = RangerAbstractResourceMatcher.getOptionWildCard(matcherOptions);
         this.wildcardChars = optWildcard ? DEFAULT_WILDCARD_CHARS + tokenReplaceSpecialChars : "" + tokenReplaceSpecialChars;
-        this.root          = new TrieNode(Character.valueOf((char)0));
+
+        TrieNode<T> root = new TrieNode<>((char)0);
 
         for(T evaluator : evaluators) {
             Map<String, RangerPolicyResource> policyResources = evaluator.getPolicyResource();
@@ -92,6 +95,7 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
 
             if(policyResource.getIsExcludes()) {
                 root.addWildcardEvaluator(evaluator);
+                root.setHasPathDependentEvaluators();
             } else {
                 RangerResourceMatcher resourceMatcher = evaluator.getResourceMatcher(resourceName);
 
@@ -100,7 +104,7 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
                 } else {
                     if(CollectionUtils.isNotEmpty(policyResource.getValues())) {
                         for (String resource : policyResource.getValues()) {
-                            insert(resource, policyResource.getIsRecursive(), evaluator);
+                            insert(root, resource, policyResource.getIsRecursive(), evaluator);
                         }
                     }
                 }
@@ -109,6 +113,8 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
 
         root.postSetup(null, comparator);
 
+        this.root = CompactTrieNode.compact(root);
+
         LOG.info(toString());
 
         if(LOG.isDebugEnabled()) {
@@ -125,28 +131,25 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
             LOG.debug("==> RangerResourceTrie.getEvaluatorsForResource(" + resource + ")");
         }
 
-        List<T> ret = null;
-
-        TrieNode curr = root;
+        List<T>            ret  = null;
+        CompactTrieNode<T> curr = root;
 
         final int len = resource.length();
-        for(int i = 0; i < len; i++) {
-            Character ch    = getLookupChar(resource.charAt(i));
-            TrieNode  child = curr.getChild(ch);
+        for(int i = 0; i < len; ) {
+            CompactTrieNode<T> child = curr.getChild(getLookupChar(resource.charAt(i)));
 
-            if(child == null) {
-                ret = curr.getWildcardEvaluators();
+            if(child == null || !child.matchesEdge(resource, i, optIgnoreCase)) {
+                ret  = curr.getWildcardEvaluators();
                 curr = null; // so that curr.getEvaluators() will not be called below
                 break;
             }
 
+            i   += child.getEdgeLength();
             curr = child;
         }
 
-        if(ret == null) {
-            if(curr != null) {
-                ret = curr.getEvaluators();
-            }
+        if(curr != null) {
+            ret = curr.getEvaluators();
         }
 
         if(LOG.isDebugEnabled()) {
@@ -156,10 +159,47 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         return ret;
     }
 
+    /*
+     * Returns true if a policy specifies a value that equals or starts with the given value - i.e. if resources at or
+     * below the given value could match evaluators other than the wildcard evaluators inherited from its ancestors.
+     * Returns true as well if an inherited wildcard evaluator matches only some of these resources: excludes, and
+     * values having a wildcard before the end, like /data/ * /secret (without spaces) or /home/{USER}.
+     * Returns false when all resources that start with the given value match the same (wildcard) evaluators.
+     */
+    public boolean hasEvaluatorsAtOrBelow(String resource) {
+        CompactTrieNode<T> curr = root;
+
+        final int len = resource.length();
+        for(int i = 0; i < len; ) {
+            CompactTrieNode<T> child = curr.getChild(getLookupChar(resource.charAt(i)));
+
+            if(child == null) {
+                return curr.hasPathDependentEvaluators();
+            }
+
+            if(i + child.getEdgeLength() > len) { // resource ends within the edge
+                if(child.matchesEdge(resource, i, len - i, optIgnoreCase)) {
+                    return child.hasEvaluatorsInSubtree() || child.hasPathDependentEvaluators();
+                }
+
+                return curr.hasPathDependentEvaluators();
+            }
+
+            if(!child.matchesEdge(resource, i, optIgnoreCase)) {
+                return curr.hasPathDependentEvaluators();
+            }
+
+            i   += child.getEdgeLength();
+            curr = child;
+        }
+
+        return curr.hasEvaluatorsInSubtree() || curr.hasPathDependentEvaluators();
+    }
+
     public TrieData getTrieData() {
         TrieData ret = new TrieData();
 
-        root.populateTrieData(ret);
+        root.populateTrieData(ret, null);
         ret.maxDepth = getMaxDepth();
 
         return ret;
@@ -169,25 +209,26 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         return root.getMaxDepth();
     }
 
-    private final Character getLookupChar(char ch) {
-        if(optIgnoreCase) {
-            ch = Character.toLowerCase(ch);
-        }
-
-        return Character.valueOf(ch);
+    private char getLookupChar(char ch) {
+        return optIgnoreCase ? Character.toLowerCase(ch) : ch;
     }
 
-    private void insert(String resource, boolean isRecursive, T evaluator) {
-        TrieNode curr       = root;
-        boolean  isWildcard = false;
+    private void insert(TrieNode<T> root, String resource, boolean isRecursive, T evaluator) {
+        TrieNode<T> curr       = root;
+        boolean     isWildcard = false;
 
         final int len = resource.length();
         for(int i = 0; i < len; i++) {
-            Character ch = getLookupChar(resource.charAt(i));
+            char ch = getLookupChar(resource.charAt(i));
 
             if(optWildcard) {
                 if (wildcardChars.indexOf(ch) != -1) {
                     isWildcard = true;
+
+                    // unlike a trailing '*', other wildcards match only some of the values that start with the prefix
+                    if(ch != '*' || i != len - 1) {
+                        curr.setHasPathDependentEvaluators();
+                    }
                     break;
                 }
             }
@@ -215,6 +256,7 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         sb.append("; nodeCount=").append(trieData.nodeCount);
         sb.append("; leafNodeCount=").append(trieData.leafNodeCount);
         sb.append("; singleChildNodeCount=").append(trieData.singleChildNodeCount);
+        sb.append("; compressedCharCount=").append(trieData.compressedCharCount);
         sb.append("; maxDepth=").append(trieData.maxDepth);
         sb.append("; evaluatorListCount=").append(trieData.evaluatorListCount);
         sb.append("; wildcardEvaluatorListCount=").append(trieData.wildcardEvaluatorListCount);
@@ -228,6 +270,7 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
         int nodeCount;
         int leafNodeCount;
         int singleChildNodeCount;
+        int compressedCharCount;
         int maxDepth;
         int evaluatorListCount;
         int wildcardEvaluatorListCount;
@@ -236,22 +279,27 @@ public class RangerResourceTrie<T extends RangerPolicyResourceEvaluator> {
     }
 }
 
+/*
+ * Mutable node used only while the trie is being built; once postSetup() completes, the nodes are converted into
+ * CompactTrieNode instances and discarded.
+ */
 class TrieNode<T extends RangerPolicyResourceEvaluator> {
-    private final Character          c;
-    private Map<Character, TrieNode> children;
-    private List<T>                  evaluators;
-    private List<T>                  wildcardEvaluators;
-    private boolean   isSharingParentWildcardEvaluators;
-
-    TrieNode(Character c) {
+    private final char                  c;
+    private Map<Character, TrieNode<T>> children;
+    private List<T>                     evaluators;
+    private List<T>                     wildcardEvaluators;
+    private boolean                     isSharingParentWildcardEvaluators;
+    private boolean                     hasPathDependentEvaluators; // wildcard evaluators, at or above, that match only some values below
+
+    TrieNode(char c) {
         this.c = c;
     }
 
-    Character getChar() {
+    char getChar() {
         return c;
     }
 
-    Map<Character, TrieNode> getChildren() {
+    Map<Character, TrieNode<T>> getChildren() {
         return children;
     }
 
@@ -263,73 +311,27 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
         return wildcardEvaluators;
     }
 
-    TrieNode getChild(Character c) {
-        TrieNode ret = children == null ? null : children.get(c);
-
-        return ret;
+    boolean isSharingParentWildcardEvaluators() {
+        return isSharingParentWildcardEvaluators;
     }
 
-    void populateTrieData(RangerResourceTrie.TrieData trieData) {
-        trieData.nodeCount++;
-
-        if(wildcardEvaluators != null) {
-            if(isSharingParentWildcardEvaluators) {
-                trieData.wildcardEvaluatorListRefCount++;
-            } else {
-                trieData.wildcardEvaluatorListCount++;
-            }
-        }
-
-        if(evaluators != null) {
-            if(evaluators == wildcardEvaluators) {
-                trieData.evaluatorListRefCount++;
-            } else {
-                trieData.evaluatorListCount++;
-            }
-        }
-
-        if(children != null && !children.isEmpty()) {
-            if(children.size() == 1) {
-                trieData.singleChildNodeCount++;
-            }
-
-            for(Map.Entry<Character, TrieNode> entry : children.entrySet()) {
-                TrieNode child = entry.getValue();
-
-                child.populateTrieData(trieData);
-            }
-        } else {
-            trieData.leafNodeCount++;
-        }
+    boolean hasPathDependentEvaluators() {
+        return hasPathDependentEvaluators;
     }
 
-    int getMaxDepth() {
-        int ret = 0;
-
-        if(children != null) {
-            for(Map.Entry<Character, TrieNode> entry : children.entrySet()) {
-                TrieNode child = entry.getValue();
-
-                int maxChildDepth = child.getMaxDepth();
-
-                if(maxChildDepth > ret) {
-                    ret = maxChildDepth;
-                }
-            }
-        }
-
-        return ret + 1;
+    void setHasPathDependentEvaluators() {
+        hasPathDependentEvaluators = true;
     }
 
-    TrieNode getOrCreateChild(Character c) {
+    TrieNode<T> getOrCreateChild(char c) {
         if(children == null) {
             children = new HashMap<>();
         }
 
-        TrieNode child = children.get(c);
+        TrieNode<T> child = children.get(c);
 
         if(child == null) {
-            child = new TrieNode(c);
+            child = new TrieNode<>(c);
             children.put(c, child);
         }
 
@@ -391,23 +393,223 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
         }
 
         if(children != null) {
-            for(Map.Entry<Character, TrieNode> entry : children.entrySet()) {
-                TrieNode child = entry.getValue();
+            for(Map.Entry<Character, TrieNode<T>> entry : children.entrySet()) {
+                TrieNode<T> child = entry.getValue();
+
+                if(hasPathDependentEvaluators) {
+                    child.setHasPathDependentEvaluators();
+                }
 
                 child.postSetup(wildcardEvaluators, comparator);
             }
         }
     }
+}
 
-    public void toString(String prefix, StringBuilder sb) {
-        String nodeValue = prefix;
+/*
+ * Immutable node used for lookups. Children are kept in a sorted char[] (no boxing, no hash-map entries) and chains of
+ * nodes that have a single child and no evaluators of their own are collapsed into the edge leading to the next node.
+ * Evaluator lists are returned to callers as is, hence are wrapped unmodifiable; lists shared by nodes share the wrapper.
+ */
+final class CompactTrieNode<T extends RangerPolicyResourceEvaluator> {
+    private static final char[]            EMPTY_CHARS    = new char[0];
+    private static final CompactTrieNode[] EMPTY_CHILDREN = new CompactTrieNode[0];
+
+    private final char[]               edge;
+    private final char[]               childChars;
+    private final CompactTrieNode<T>[] children;
+    private final List<T>              evaluators;
+    private final List<T>              wildcardEvaluators;
+    private final boolean              hasEvaluatorsInSubtree; // evaluators other than ones inherited from the parent
+    private final boolean              hasPathDependentEvaluators;
+
+    @SuppressWarnings("unchecked")
+    private CompactTrieNode(char[] edge, TrieNode<T> node, Map<List<T>, List<T>> readOnlyLists) {
+        Map<Character, TrieNode<T>> nodeChildren = node.getChildren();
+
+        this.edge               = edge;
+        this.evaluators         = toReadOnly(node.getEvaluators(), readOnlyLists);
+        this.wildcardEvaluators = toReadOnly(node.getWildcardEvaluators(), readOnlyLists);
+
+        this.hasPathDependentEvaluators = node.hasPathDependentEvaluators();
+
+        if(nodeChildren == null || nodeChildren.isEmpty()) {
+            this.childChars = EMPTY_CHARS;
+            this.children   = EMPTY_CHILDREN;
+        } else {
+            int i = 0;
+
+            this.childChars = new char[nodeChildren.size()];
+
+            for(Character ch : nodeChildren.keySet()) {
+                childChars[i++] = ch;
+            }
+
+            Arrays.sort(childChars);
+
+            this.children = new CompactTrieNode[childChars.length];
+
+            for(i = 0; i < childChars.length; i++) {
+                children[i] = compactChild(nodeChildren.get(childChars[i]), readOnlyLists);
+            }
+        }
+
+        boolean hasEvaluatorsInSubtree = !node.isSharingParentWildcardEvaluators() || node.getEvaluators() != node.getWildcardEvaluators();
+
+        for(int i = 0; i < children.length && !hasEvaluatorsInSubtree; i++) {
+            hasEvaluatorsInSubtree = children[i].hasEvaluatorsInSubtree;
+        }
+
+        this.hasEvaluatorsInSubtree = hasEvaluatorsInSubtree;
+    }
+
+    static <T extends RangerPolicyResourceEvaluator> CompactTrieNode<T> compact(TrieNode<T> root) {
+        return new CompactTrieNode<>(EMPTY_CHARS, root, new IdentityHashMap<List<T>, List<T>>());
+    }
 
-        if(c != 0) {
-            nodeValue += c;
+    private static <T extends RangerPolicyResourceEvaluator> CompactTrieNode<T> compactChild(TrieNode<T> node, Map<List<T>, List<T>> readOnlyLists) {
+        StringBuilder edge = new StringBuilder();
+
+        edge.append(node.getChar());
+
+        while(isPassThrough(node)) {
+            node = node.getChildren().values().iterator().next();
+
+            edge.append(node.getChar());
+        }
+
+        return new CompactTrieNode<>(edge.toString().toCharArray(), node, readOnlyLists);
+    }
+
+    // a node adds nothing to lookups when it has a single child and only carries the evaluators inherited from its parent
+    private static boolean isPassThrough(TrieNode<?> node) {
+        return node.getChildren() != null && node.getChildren().size() == 1
+               && node.isSharingParentWildcardEvaluators() && node.getEvaluators() == node.getWildcardEvaluators();
+    }
+
+    private static <T> List<T> toReadOnly(List<T> list, Map<List<T>, List<T>> readOnlyLists) {
+        List<T> ret = list == null ? null : readOnlyLists.get(list);
+
+        if(ret == null && list != null) {
+            if(list instanceof ArrayList) {
+                ((ArrayList<T>) list).trimToSize();
+            }
+
+            ret = Collections.unmodifiableList(list);
+
+            readOnlyLists.put(list, ret);
+        }
+
+        return ret;
+    }
+
+    List<T> getEvaluators() {
+        return evaluators;
+    }
+
+    List<T> getWildcardEvaluators() {
+        return wildcardEvaluators;
+    }
+
+    boolean hasEvaluatorsInSubtree() {
+        return hasEvaluatorsInSubtree;
+    }
+
+    boolean hasPathDependentEvaluators() {
+        return hasPathDependentEvaluators;
+    }
+
+    int getEdgeLength() {
+        return edge.length;
+    }
+
+    CompactTrieNode<T> getChild(char ch) {
+        final int idx = childChars.length == 0 ? -1 : Arrays.binarySearch(childChars, ch);
+
+        return idx < 0 ? null : children[idx];
+    }
+
+    // the first char of the edge is expected to have been matched already, by getChild()
+    boolean matchesEdge(String str, int offset, boolean ignoreCase) {
+        if(offset + edge.length > str.length()) {
+            return false;
+        }
+
+        return matchesEdge(str, offset, edge.length, ignoreCase);
+    }
+
+    // matches the first matchLen chars of the edge
+    boolean matchesEdge(String str, int offset, int matchLen, boolean ignoreCase) {
+        for(int i = 1; i < matchLen; i++) {
+            char ch = str.charAt(offset + i);
+
+            if(ignoreCase) {
+                ch = Character.toLowerCase(ch);
+            }
+
+            if(ch != edge[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    void populateTrieData(RangerResourceTrie.TrieData trieData, List<T> parentWildcardEvaluators) {
+        trieData.nodeCount++;
+
+        if(edge.length > 1) {
+            trieData.compressedCharCount += edge.length - 1;
+        }
+
+        if(wildcardEvaluators != null) {
+            if(wildcardEvaluators == parentWildcardEvaluators) {
+                trieData.wildcardEvaluatorListRefCount++;
+            } else {
+                trieData.wildcardEvaluatorListCount++;
+            }
         }
 
+        if(evaluators != null) {
+            if(evaluators == wildcardEvaluators) {
+                trieData.evaluatorListRefCount++;
+            } else {
+                trieData.evaluatorListCount++;
+            }
+        }
+
+        if(children.length > 0) {
+            if(children.length == 1) {
+                trieData.singleChildNodeCount++;
+            }
+
+            for(CompactTrieNode<T> child : children) {
+                child.populateTrieData(trieData, wildcardEvaluators);
+            }
+        } else {
+            trieData.leafNodeCount++;
+        }
+    }
+
+    int getMaxDepth() {
+        int ret = 0;
+
+        for(CompactTrieNode<T> child : children) {
+            int maxChildDepth = child.getMaxDepth() + child.edge.length - 1;
+
+            if(maxChildDepth > ret) {
+                ret = maxChildDepth;
+            }
+        }
+
+        return ret + 1;
+    }
+
+    public void toString(String prefix, StringBuilder sb) {
+        String nodeValue = prefix + new String(edge);
+
         sb.append("nodeValue=").append(nodeValue);
-        sb.append("; childCount=").append(children == null ? 0 : children.size());
+        sb.append("; childCount=").append(children.length);
         sb.append("; evaluators=[ ");
         if(evaluators != null) {
             for(T evaluator : evaluators) {
@@ -425,18 +627,8 @@ class TrieNode<T extends RangerPolicyResourceEvaluator> {
         sb.append("]");
         sb.append(Character.LINE_SEPARATOR);
 
-        if(children != null) {
-            for(Map.Entry<Character, TrieNode> entry : children.entrySet()) {
-                TrieNode child = entry.getValue();
-
-                child.toString(nodeValue, sb);
-            }
+        for(CompactTrieNode<T> child : children) {
+            child.toString(nodeValue, sb);
         }
     }
-
-    public void clear() {
-        children           = null;
-        evaluators         = null;
-        wildcardEvaluators = null;
-    }
 }
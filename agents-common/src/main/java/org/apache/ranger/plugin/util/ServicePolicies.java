@@ -20,14 +20,25 @@
 package org.apache.ranger.plugin.util;
 
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
 import org.codehaus.jackson.annotate.JsonAutoDetect;
@@ -53,6 +64,7 @@ public class ServicePolicies implements java.io.Serializable {
 	private RangerServiceDef   serviceDef;
 	private String             auditMode = RangerPolicyEngine.AUDIT_DEFAULT;
 	private TagPolicies        tagPolicies;
+	private List<RangerPolicyDelta> policyDeltas;
 
 	/**
 	 * @return the serviceName
@@ -146,7 +158,177 @@ public class ServicePolicies implements java.io.Serializable {
 	public void setTagPolicies(ServicePolicies.TagPolicies tagPolicies) {
 		this.tagPolicies = tagPolicies;
 	}
-	
+	/**
+	 * @return the policyDeltas, changes since the policy version last known to the plugin; null if policies has the complete list
+	 */
+	public List<RangerPolicyDelta> getPolicyDeltas() {
+		return policyDeltas;
+	}
+	/**
+	 * @param policyDeltas the policyDeltas to set
+	 */
+	public void setPolicyDeltas(List<RangerPolicyDelta> policyDeltas) {
+		this.policyDeltas = policyDeltas;
+	}
+
+	/*
+	 * Returns the complete set of policies resulting from applying the policy-deltas in delta to the policies in base.
+	 * Unchanged policies are kept in their order in base, followed by created/updated policies in the order of deltas.
+	 * The returned object retains the policy-deltas, so that the policy engine can be updated incrementally.
+	 */
+	public static ServicePolicies applyPolicyDeltas(ServicePolicies base, ServicePolicies delta) {
+		Map<Long, RangerPolicyDelta> changes = new LinkedHashMap<>();
+
+		if (CollectionUtils.isNotEmpty(delta.getPolicyDeltas())) {
+			for (RangerPolicyDelta policyDelta : delta.getPolicyDeltas()) {
+				if (policyDelta != null && policyDelta.getPolicyId() != null) {
+					changes.remove(policyDelta.getPolicyId()); // retain the order of the last change of a policy
+
+					changes.put(policyDelta.getPolicyId(), policyDelta);
+				}
+			}
+		}
+
+		List<RangerPolicy> basePolicies = base.getPolicies();
+		List<RangerPolicy> policies     = new ArrayList<>((basePolicies == null ? 0 : basePolicies.size()) + changes.size());
+
+		if (basePolicies != null) {
+			for (RangerPolicy policy : basePolicies) {
+				if (!changes.containsKey(policy.getId())) {
+					policies.add(policy);
+				}
+			}
+		}
+
+		for (RangerPolicyDelta policyDelta : changes.values()) {
+			Integer changeType = policyDelta.getChangeType();
+
+			if (changeType != null && changeType != RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE && policyDelta.getPolicy() != null) {
+				policies.add(policyDelta.getPolicy());
+			}
+		}
+
+		ServicePolicies ret = new ServicePolicies();
+
+		ret.setServiceName(delta.getServiceName());
+		ret.setServiceId(delta.getServiceId());
+		ret.setPolicyVersion(delta.getPolicyVersion());
+		ret.setPolicyUpdateTime(delta.getPolicyUpdateTime());
+		ret.setPolicies(policies);
+		ret.setServiceDef(delta.getServiceDef());
+		ret.setAuditMode(delta.getAuditMode());
+		ret.setTagPolicies(delta.getTagPolicies());
+		ret.setPolicyDeltas(delta.getPolicyDeltas());
+
+		return ret;
+	}
+
+	/*
+	 * Replaces equal strings in policies - like users, groups, resource values and access types - with a single instance.
+	 * Policies of large services repeat a small set of such strings many times; deserialization creates a copy for each.
+	 */
+	public void dedupStrings() {
+		Map<String, String> strTbl = new HashMap<>();
+
+		dedupPolicyStrings(policies, strTbl);
+
+		if (tagPolicies != null) {
+			dedupPolicyStrings(tagPolicies.getPolicies(), strTbl);
+		}
+
+		if (policyDeltas != null) {
+			for (RangerPolicyDelta policyDelta : policyDeltas) {
+				if (policyDelta.getPolicy() != null) {
+					dedupPolicyStrings(policyDelta.getPolicy(), strTbl);
+				}
+			}
+		}
+	}
+
+	private static void dedupPolicyStrings(List<RangerPolicy> policies, Map<String, String> strTbl) {
+		if (policies != null) {
+			for (RangerPolicy policy : policies) {
+				dedupPolicyStrings(policy, strTbl);
+			}
+		}
+	}
+
+	private static void dedupPolicyStrings(RangerPolicy policy, Map<String, String> strTbl) {
+		if (policy.getResources() != null) {
+			for (RangerPolicyResource resource : policy.getResources().values()) {
+				if (resource != null) {
+					dedupStrings(resource.getValues(), strTbl);
+				}
+			}
+		}
+
+		dedupPolicyItemStrings(policy.getPolicyItems(), strTbl);
+		dedupPolicyItemStrings(policy.getDenyPolicyItems(), strTbl);
+		dedupPolicyItemStrings(policy.getAllowExceptions(), strTbl);
+		dedupPolicyItemStrings(policy.getDenyExceptions(), strTbl);
+		dedupPolicyItemStrings(policy.getDataMaskPolicyItems(), strTbl);
+		dedupPolicyItemStrings(policy.getRowFilterPolicyItems(), strTbl);
+	}
+
+	private static void dedupPolicyItemStrings(List<? extends RangerPolicyItem> policyItems, Map<String, String> strTbl) {
+		if (policyItems != null) {
+			for (RangerPolicyItem policyItem : policyItems) {
+				if (policyItem == null) {
+					continue;
+				}
+
+				dedupStrings(policyItem.getUsers(), strTbl);
+				dedupStrings(policyItem.getGroups(), strTbl);
+
+				if (policyItem.getAccesses() != null) {
+					for (RangerPolicyItemAccess access : policyItem.getAccesses()) {
+						if (access != null) {
+							access.setType(dedupString(access.getType(), strTbl));
+						}
+					}
+				}
+
+				if (policyItem.getConditions() != null) {
+					for (RangerPolicyItemCondition condition : policyItem.getConditions()) {
+						if (condition != null) {
+							condition.setType(dedupString(condition.getType(), strTbl));
+
+							dedupStrings(condition.getValues(), strTbl);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static void dedupStrings(List<String> values, Map<String, String> strTbl) {
+		if (values != null) {
+			for (ListIterator<String> iter = values.listIterator(); iter.hasNext(); ) {
+				String value = iter.next();
+
+				if (value != null) {
+					iter.set(dedupString(value, strTbl));
+				}
+			}
+		}
+	}
+
+	private static String dedupString(String str, Map<String, String> strTbl) {
+		String ret = str;
+
+		if (str != null) {
+			ret = strTbl.get(str);
+
+			if (ret == null) {
+				strTbl.put(str, str);
+
+				ret = str;
+			}
+		}
+
+		return ret;
+	}
+
 	@Override
 	public String toString() {
 		return Objects.toStringHelper(this.getClass())
@@ -158,6 +340,7 @@ public class ServicePolicies implements java.io.Serializable {
 			.add("serviceDef", serviceDef)
 			.add("auditMode", auditMode)
 			.add("tagPolicies", tagPolicies)
+			.add("policyDeltas", policyDeltas)
 			.toString();
 	}
 
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.conditionevaluator;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RangerCidrIpMatcherTest {
+
+	@Test
+	public void test_parseAddress() {
+		Assert.assertArrayEquals(new byte[] { 10, 20, 30, 40 }, RangerCidrIpMatcher.parseAddress("10.20.30.40"));
+		Assert.assertArrayEquals(new byte[] { 10, 20, 30, 40 }, RangerCidrIpMatcher.parseAddress("::ffff:10.20.30.40"));
+		Assert.assertArrayEquals(new byte[] { 10, 20, 30, 40 }, RangerCidrIpMatcher.parseAddress("::FFFF:a14:1e28"));
+		Assert.assertArrayEquals(new byte[16], RangerCidrIpMatcher.parseAddress("::"));
+
+		byte[] loopback = new byte[16];
+		loopback[15] = 1;
+		Assert.assertArrayEquals(loopback, RangerCidrIpMatcher.parseAddress("::1"));
+		Assert.assertArrayEquals(loopback, RangerCidrIpMatcher.parseAddress("[0:0:0:0:0:0:0:1]"));
+
+		byte[] linkLocal = RangerCidrIpMatcher.parseAddress("fe80::1%eth0");
+		Assert.assertNotNull(linkLocal);
+		Assert.assertEquals((byte) 0xfe, linkLocal[0]);
+		Assert.assertEquals((byte) 0x80, linkLocal[1]);
+		Assert.assertEquals(1, linkLocal[15]);
+
+		// not addresses; host names must not be resolved
+		String[] invalid = { null, "", "anIp", "localhost", "1.2.3", "1.2.3.4.5", "1.2.3.256", "1.2.3.", "1.2.3.boo", "1:2:3:4:5:6",
+				"1::2::3", ":1::", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:8::", "12345::", "g::1" };
+		for (String ip : invalid) {
+			Assert.assertNull(ip, RangerCidrIpMatcher.parseAddress(ip));
+		}
+	}
+
+	@Test
+	public void test_cidr() {
+		RangerCidrIpMatcher ipMatcher = createMatcher(new String[]{"10.0.0.0/8", "192.168.1.128/25", "172.16.5.4/32"});
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.0.0.1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.255.255.255")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("192.168.1.128")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("192.168.1.200")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("172.16.5.4")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("::ffff:10.1.2.3")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("11.0.0.1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("192.168.1.127")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("172.16.5.5")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("a0::1")));
+
+		ipMatcher = createMatcher(new String[]{"2001:db8::/32", "fe80::/10", "::ffff:10.20.0.0/112"});
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:db8::1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("2001:DB8:FFFF:0:0:0:0:1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("fe80::1%eth0")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("febf:1::")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.20.1.2")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("2001:db9::1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("fec0::1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.21.1.2")));
+
+		// overlapping ranges, added in either order
+		ipMatcher = createMatcher(new String[]{"10.1.2.0/24", "10.1.0.0/16", "10.1.2.3", "0.0.0.0/1"});
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.1.2.3")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("10.1.200.3")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("127.0.0.1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("128.0.0.1")));
+
+		// 0 prefix-length matches all addresses of the family
+		ipMatcher = createMatcher(new String[]{"0.0.0.0/0"});
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("1.2.3.4")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("1::4")));
+	}
+
+	@Test
+	public void test_invalidPolicyValues() {
+		// invalid ranges are matched as strings, same as RangerIpMatcher does
+		RangerCidrIpMatcher ipMatcher = createMatcher(new String[]{"10.0.0.0/33", "1.*.3.4", "host1"});
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("1.*.3.4")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("host1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("10.0.0.1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("1.2.3.4")));
+	}
+
+	@Test
+	public void test_compatibleWithRangerIpMatcher() {
+		String[][] policyIps = {
+			null, {}, {"*"}, {"*.*.*.*"}, {"1.2.3.*"}, {"11.22.*.*"}, {"193.214.*"}, {"193:214:*"}, {"99:a9:b9:c9:d9:e9"},
+			{"10.20.30.*", "99:a9:b9:c9:d9:*"}, {"1.*.3.4"}, {"A0:B0:*"}, {"1.2.3.4", "a0:b1::1"}
+		};
+		String[] requestIps = {
+			null, "1.2.3.4", "1.2.3.123", "1.2.3.123567", "1.2.3..123567", "1.2.3.boo", "1.2.31.123567", "1.2.0.0",
+			"0.0.0.0", "255.255.255.255", "11.22.33.4", "11.222.253.190", "193.214.3.4", "193.21.253.190", "193:214:3:4",
+			"193:214:3:4:5:6", "193:215:13:94:a90:b4f", "99:a9:b9:c9:d9:e9", "99:a9:b9:c9:dd:e9", "10.20.30.10",
+			"10.20.3.10", "1.*.3.4", "1.3.3.4", "a0:b0::1", "A0:B0:0:0:0:0:0:1", "a0:b1::1", "A0:B1:C0:D0:E0:F0", "1.2.3.4"
+		};
+
+		for (String[] ips : policyIps) {
+			RangerIpMatcher     ipMatcher   = createMatcher(new RangerIpMatcher(), ips);
+			RangerCidrIpMatcher cidrMatcher = createMatcher(ips);
+
+			for (String requestIp : requestIps) {
+				String msg = Arrays.toString(ips) + ": " + requestIp;
+
+				Assert.assertEquals(msg, ipMatcher.isMatched(createRequest(requestIp)), cidrMatcher.isMatched(createRequest(requestIp)));
+			}
+		}
+	}
+
+	@Test
+	public void test_cidrOnWildcardSyntax() {
+		// wildcards match addresses in a form other than used in the policy, unlike RangerIpMatcher
+		RangerCidrIpMatcher ipMatcher = createMatcher(new String[]{"a0:b0:*", "10.*"});
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("a0:b0::1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("00a0:00b0:0:0:0:0:0:1")));
+		Assert.assertTrue(ipMatcher.isMatched(createRequest("::ffff:10.1.1.1")));
+		Assert.assertFalse(ipMatcher.isMatched(createRequest("a0:b1::1")));
+	}
+
+	RangerCidrIpMatcher createMatcher(String[] ipArray) {
+		return createMatcher(new RangerCidrIpMatcher(), ipArray);
+	}
+
+	<T extends RangerIpMatcher> T createMatcher(T matcher, String[] ipArray) {
+		if (ipArray == null) {
+			matcher.setConditionDef(null);
+			matcher.setPolicyItemCondition(null);
+		} else {
+			RangerPolicyItemCondition condition = mock(RangerPolicyItemCondition.class);
+			when(condition.getValues()).thenReturn(Arrays.asList(ipArray));
+			matcher.setConditionDef(null);
+			matcher.setPolicyItemCondition(condition);
+		}
+		matcher.init();
+
+		return matcher;
+	}
+
+	RangerAccessRequest createRequest(String requestIp) {
+		RangerAccessRequest request = mock(RangerAccessRequest.class);
+		when(request.getClientIPAddress()).thenReturn(requestIp);
+		return request;
+	}
+}
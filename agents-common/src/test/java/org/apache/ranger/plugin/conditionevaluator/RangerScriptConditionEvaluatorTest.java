@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.conditionevaluator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RangerScriptConditionEvaluatorTest {
+
+	@Test
+	public void testCompiledScript() {
+		RangerScriptConditionEvaluator evaluator = createEvaluator("ctx.getUser() == 'user1'", null);
+
+		// same evaluator, hence same compiled script, across requests
+		Assert.assertTrue(evaluator.isMatched(createRequest("user1", null)));
+		Assert.assertFalse(evaluator.isMatched(createRequest("user2", null)));
+		Assert.assertTrue(evaluator.isMatched(createRequest("user1", null)));
+
+		evaluator = createEvaluator("ctx.setResult(tagAttr['level'] == 'high');", null);
+
+		Assert.assertTrue(evaluator.isMatched(createRequest("user1", createTag("PII", "level", "high"))));
+		Assert.assertFalse(evaluator.isMatched(createRequest("user1", createTag("PII", "level", "low"))));
+	}
+
+	@Test
+	public void testScriptGlobalsNotShared() {
+		// a variable set by one evaluation must not be seen by later evaluations of the same, or another, script
+		RangerScriptConditionEvaluator evaluator = createEvaluator("if (typeof granted === 'undefined') { granted = ctx.getUser() == 'user1'; } granted;", null);
+
+		Assert.assertTrue(evaluator.isMatched(createRequest("user1", null)));
+		Assert.assertFalse(evaluator.isMatched(createRequest("user2", null)));
+
+		RangerScriptConditionEvaluator other = createEvaluator("typeof granted !== 'undefined' || ctx.getUser() == 'user1'", null);
+
+		Assert.assertTrue(evaluator.isMatched(createRequest("user1", null)));
+		Assert.assertFalse(other.isMatched(createRequest("user2", null)));
+	}
+
+	@Test
+	public void testResultCache() {
+		RangerScriptConditionEvaluator evaluator = createEvaluator("ctx.getUser() == 'user1' && tagAttr['level'] == 'high'", "100");
+
+		for (int i = 0; i < 2; i++) { // second round is served from the cache
+			Assert.assertTrue(evaluator.isMatched(createRequest("user1", createTag("PII", "level", "high"))));
+			Assert.assertFalse(evaluator.isMatched(createRequest("user2", createTag("PII", "level", "high"))));
+			Assert.assertFalse(evaluator.isMatched(createRequest("user1", createTag("PII", "level", "low"))));
+		}
+
+		evaluator = createEvaluator("ctx.getUserGroups().contains('finance')", "100");
+
+		Assert.assertTrue(evaluator.isMatched(createRequest("user1", null, "hr", "finance")));
+		Assert.assertFalse(evaluator.isMatched(createRequest("user1", null, "hr")));
+		Assert.assertTrue(evaluator.isMatched(createRequest("user1", null, "finance", "hr")));
+	}
+
+	@Test
+	public void testResultCacheWithCurrentTag() {
+		RangerTagForEval      pii  = createTag("PII", "level", "high");
+		RangerTagForEval      pci  = createTag("PCI", "level", "low");
+		Set<RangerTagForEval> tags = new HashSet<>(Arrays.asList(pii, pci));
+
+		// same set of tags, different current tag: ctx.getAttributeValue(attrName) reads the current tag
+		RangerScriptConditionEvaluator evaluator = createEvaluator("ctx.getAttributeValue('level') == 'high'", "100");
+
+		for (int i = 0; i < 2; i++) { // second round is served from the cache
+			Assert.assertTrue(evaluator.isMatched(createRequest("user1", pii, tags)));
+			Assert.assertFalse(evaluator.isMatched(createRequest("user1", pci, tags)));
+		}
+
+		// ctx.getAttributeValue(tagType, attrName) reads all tags
+		evaluator = createEvaluator("ctx.getAttributeValue('PCI', 'level') == 'low'", "100");
+
+		Assert.assertTrue(evaluator.isMatched(createRequest("user1", pii, tags)));
+		Assert.assertFalse(evaluator.isMatched(createRequest("user1", pii, Collections.singleton(pii))));
+	}
+
+	@Test
+	public void testNonCacheableScript() {
+		// result depends on the access time, hence must not be cached
+		RangerScriptConditionEvaluator evaluator = createEvaluator("ctx.getAccessTime().getTime() > 1000", "100");
+
+		RangerAccessRequestImpl request = createRequest("user1", null);
+
+		request.setAccessTime(new Date(2000));
+		Assert.assertTrue(evaluator.isMatched(request));
+
+		request.setAccessTime(new Date(500));
+		Assert.assertFalse(evaluator.isMatched(request));
+
+		evaluator = createEvaluator("new Date().getTime() > 1000", "100");
+
+		Assert.assertTrue(evaluator.isMatched(createRequest("user1", null)));
+	}
+
+	private RangerScriptConditionEvaluator createEvaluator(String script, String resultCacheSize) {
+		Map<String, String> evalOptions = new HashMap<>();
+
+		evalOptions.put("engineName", "JavaScript");
+
+		if (resultCacheSize != null) {
+			evalOptions.put(RangerScriptConditionEvaluator.EVALUATOR_OPTION_RESULT_CACHE_SIZE, resultCacheSize);
+		}
+
+		RangerPolicyConditionDef conditionDef = new RangerPolicyConditionDef();
+
+		conditionDef.setName("expression");
+		conditionDef.setEvaluator(RangerScriptConditionEvaluator.class.getName());
+		conditionDef.setEvaluatorOptions(evalOptions);
+
+		RangerScriptConditionEvaluator ret = new RangerScriptConditionEvaluator();
+
+		ret.setConditionDef(conditionDef);
+		ret.setPolicyItemCondition(new RangerPolicyItemCondition("expression", Collections.singletonList(script)));
+		ret.init();
+
+		return ret;
+	}
+
+	private RangerAccessRequestImpl createRequest(String user, RangerTagForEval tag, String... groups) {
+		RangerAccessRequestImpl ret = new RangerAccessRequestImpl();
+
+		ret.setResource(new RangerAccessResourceImpl());
+		ret.setUser(user);
+		ret.setUserGroups(new HashSet<>(Arrays.asList(groups)));
+
+		if (tag != null) {
+			RangerAccessRequestUtil.setCurrentTagInContext(ret.getContext(), tag);
+		}
+
+		return ret;
+	}
+
+	private RangerAccessRequestImpl createRequest(String user, RangerTagForEval currentTag, Set<RangerTagForEval> tags) {
+		RangerAccessRequestImpl ret = createRequest(user, currentTag);
+
+		RangerAccessRequestUtil.setRequestTagsInContext(ret.getContext(), tags);
+
+		return ret;
+	}
+
+	private RangerTagForEval createTag(String type, String attrName, String attrValue) {
+		RangerTag tag = new RangerTag(type, Collections.singletonMap(attrName, attrValue));
+
+		return new RangerTagForEval(tag, RangerPolicyResourceMatcher.MatchType.SELF);
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.plugin.geo;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RangerGeolocationIndexTest {
+
+	@Test
+	public void test_parseIPv4Address() {
+		Assert.assertEquals(0L, RangerGeolocationData.parseIPv4Address("0.0.0.0"));
+		Assert.assertEquals(0x0A141E28L, RangerGeolocationData.parseIPv4Address("10.20.30.40"));
+		Assert.assertEquals(0xFFFFFFFFL, RangerGeolocationData.parseIPv4Address("255.255.255.255"));
+
+		String[] invalid = { null, "", "localhost", "1.2.3", "1.2.3.4.5", "1.2.3.256", "1.2.3.", ".1.2.3", "1..2.3", "1.2.3.a", "-1.2.3.4" };
+		for (String ip : invalid) {
+			Assert.assertEquals(ip, -1L, RangerGeolocationData.parseIPv4Address(ip));
+		}
+	}
+
+	@Test
+	public void test_find() {
+		RangerGeolocationIndex index = RangerGeolocationIndex.build(Arrays.asList(
+				range("128.0.0.0", "255.255.255.255", "HIGH"),
+				range("10.0.0.0", "10.0.0.255", "A"),
+				range("10.0.1.0", "10.0.1.255", "B"),
+				range("10.0.0.0", "10.0.0.255", "A"),   // duplicate
+				range("20.0.0.0", "20.255.255.255", "OUTER"),
+				range("20.1.0.0", "20.1.0.255", "INNER")));
+
+		Assert.assertEquals(5, index.size());
+
+		assertLocation(index, "10.0.0.0", "A");
+		assertLocation(index, "10.0.0.255", "A");
+		assertLocation(index, "10.0.1.0", "B");
+		assertLocation(index, "10.0.1.255", "B");
+		assertLocation(index, "10.0.2.0", null);
+		assertLocation(index, "9.255.255.255", null);
+		assertLocation(index, "20.0.0.1", "OUTER");
+		assertLocation(index, "20.1.0.1", "INNER");
+		assertLocation(index, "20.2.0.1", "OUTER");   // after the nested range
+		assertLocation(index, "200.1.2.3", "HIGH");   // above 2^31
+		assertLocation(index, "255.255.255.255", "HIGH");
+
+		Assert.assertNull(RangerGeolocationIndex.build(Arrays.<RangerGeolocationData>asList()).find(1L));
+	}
+
+	@Test
+	public void test_databaseFile() throws Exception {
+		RangerGeolocationDatabase database = new RangerGeolocationDatabase();
+
+		database.setMetadata(new GeolocationMetadata(new String[] { "country_code", "country_name" }));
+		database.add(range("1.0.0.0", "1.0.0.255", "AU", "Australia"));
+		database.add(range("200.0.0.0", "200.0.0.255", "BR", "Brazil"));
+		database.add(range("2.0.0.0", "2.0.0.255", "AU", "Australia"));
+		database.optimize();
+
+		File file = File.createTempFile("geo", ".bin");
+		try {
+			GeolocationDatabaseFile.write(database, file);
+
+			Assert.assertTrue(GeolocationDatabaseFile.isDatabaseFile(file));
+
+			RangerGeolocationDatabase copy = GeolocationDatabaseFile.read(file);
+
+			Assert.assertArrayEquals(database.getMetadata().getLocationDataItemNames(), copy.getMetadata().getLocationDataItemNames());
+			Assert.assertEquals(3, copy.getIndex().size());
+			Assert.assertEquals(2, copy.getIndex().getLocations().length);
+
+			for (int i = 0; i < database.getIndex().size(); i++) {
+				Assert.assertEquals(database.getIndex().get(i), copy.getIndex().get(i));
+			}
+
+			Assert.assertEquals("Brazil", copy.getValue(copy.find("200.0.0.7"), "country_name"));
+			Assert.assertEquals("AU", copy.getValue(copy.find("2.0.0.7"), "country_code"));
+			Assert.assertNull(copy.find("3.0.0.1"));
+			Assert.assertNull(copy.find("not-an-ip"));
+
+			// replacing the file must not affect the database mapped from the earlier file
+			RangerGeolocationDatabase other = new RangerGeolocationDatabase();
+
+			other.setMetadata(new GeolocationMetadata(new String[] { "country_code", "country_name" }));
+			other.add(range("3.0.0.0", "3.0.0.255", "IN", "India"));
+			other.optimize();
+
+			GeolocationDatabaseFile.write(other, file);
+
+			Assert.assertEquals("Brazil", copy.getValue(copy.find("200.0.0.7"), "country_name"));
+			Assert.assertNull(copy.find("3.0.0.1"));
+
+			RangerGeolocationDatabase otherCopy = GeolocationDatabaseFile.read(file);
+
+			Assert.assertEquals("India", otherCopy.getValue(otherCopy.find("3.0.0.1"), "country_name"));
+			Assert.assertNull(otherCopy.find("200.0.0.7"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static RangerGeolocationData range(String from, String to, String... location) {
+		return RangerGeolocationData.create(RangerGeolocationData.parseIPv4Address(from), RangerGeolocationData.parseIPv4Address(to), location);
+	}
+
+	private static void assertLocation(RangerGeolocationIndex index, String ip, String expected) {
+		RangerGeolocationData data = index.find(RangerGeolocationData.parseIPv4Address(ip));
+
+		Assert.assertEquals(ip, expected, data == null ? null : data.getLocationData()[0]);
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestConcurrentCacheMap {
+
+	@Test
+	public void testBoundedWithCounters() {
+		ConcurrentCacheMap<String, String> cache = new ConcurrentCacheMap<>(64, 4, true);
+
+		for (int i = 0; i < 64; i++) {
+			cache.put(String.valueOf(i), String.valueOf(i));
+		}
+
+		// capacity is enforced per segment, so a segment can start evicting before the whole cache is full
+		assertEquals(64, cache.size() + cache.getEvictionCount());
+
+		for (int i = 64; i < 256; i++) {
+			cache.put(String.valueOf(i), String.valueOf(i));
+		}
+
+		assertTrue(cache.size() <= cache.getCapacity());
+		assertEquals(256 - cache.size(), cache.getEvictionCount());
+
+		assertEquals("255", cache.get("255"));
+		assertNull(cache.get("not-cached"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		cache.clear();
+
+		assertEquals(0, cache.size());
+		assertFalse(cache.containsKey("255"));
+	}
+
+	@Test
+	public void testStatsNotCollected() {
+		ConcurrentCacheMap<String, String> cache = new ConcurrentCacheMap<>(64, 4, false);
+
+		cache.put("key", "value");
+
+		assertEquals("value", cache.get("key"));
+		assertNull(cache.get("not-cached"));
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	@Test
+	public void testReferencedEntriesSurviveEviction() {
+		ConcurrentCacheMap<String, String> cache = new ConcurrentCacheMap<>(4, 1);
+
+		for (int i = 0; i < 4; i++) {
+			cache.put("key-" + i, "value-" + i);
+		}
+
+		assertEquals("value-0", cache.get("key-0"));
+
+		cache.put("key-4", "value-4");
+
+		assertTrue(cache.containsKey("key-0"));
+		assertFalse(cache.containsKey("key-1"));
+		assertTrue(cache.containsKey("key-4"));
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		final ConcurrentCacheMap<Integer, Integer> cache  = new ConcurrentCacheMap<>(1000);
+		final AtomicBoolean                        failed = new AtomicBoolean(false);
+		List<Thread>                               threads = new ArrayList<>();
+
+		for (int t = 0; t < 8; t++) {
+			final int seed = t;
+
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 20000; i++) {
+						Integer key = (i * 31 + seed) % 3000;
+
+						cache.put(key, key);
+
+						Integer value = cache.get(key);
+
+						if (value != null && !value.equals(key)) {
+							failed.set(true);
+						}
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertFalse(failed.get());
+		assertTrue(cache.size() <= cache.getCapacity());
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.ranger.plugin.policyevaluator.RangerAbstractPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class TestEvalOrdinalMerge {
+
+	@Test
+	public void testRetainAllWithTies() {
+		RangerPolicyEvaluator deny   = evaluator(true, 5);
+		RangerPolicyEvaluator allow1 = evaluator(false, 1);
+		RangerPolicyEvaluator tie1   = evaluator(false, 3);
+		RangerPolicyEvaluator tie2   = evaluator(false, 3); // same eval-order as tie1: sorted after it, as it comes later
+		RangerPolicyEvaluator allow9 = evaluator(false, 9);
+
+		List<RangerPolicyEvaluator> sorted = sortByEvalOrder(Arrays.asList(allow9, tie1, allow1, tie2, deny));
+
+		Assert.assertEquals(Arrays.asList(deny, allow1, tie1, tie2, allow9), sorted);
+
+		RangerPolicyRepository.setEvalOrdinals(sorted);
+
+		List<RangerPolicyEvaluator> level1 = sortByEvalOrdinal(Arrays.asList(tie2, allow9, tie1, deny));
+		List<RangerPolicyEvaluator> level2 = sortByEvalOrdinal(Arrays.asList(allow1, tie2, deny, tie1));
+
+		Assert.assertEquals(Arrays.asList(deny, tie1, tie2), RangerPolicyRepository.retainAll(level1, level2));
+
+		// nothing removed: the list is returned as is
+		List<RangerPolicyEvaluator> subset = sortByEvalOrdinal(Arrays.asList(tie1, deny));
+
+		Assert.assertSame(subset, RangerPolicyRepository.retainAll(subset, level1));
+		Assert.assertTrue(RangerPolicyRepository.retainAll(subset, sortByEvalOrdinal(Arrays.asList(allow1))).isEmpty());
+	}
+
+	@Test
+	public void testSameOrderAsSort() {
+		Random random = new Random(42);
+
+		for (int round = 0; round < 50; round++) {
+			List<RangerPolicyEvaluator> evaluators = new ArrayList<>();
+
+			for (int i = 0; i < 40; i++) {
+				evaluators.add(evaluator(random.nextInt(4) == 0, random.nextInt(10))); // few distinct eval-orders: many ties
+			}
+
+			List<RangerPolicyEvaluator> sorted = sortByEvalOrder(evaluators);
+
+			RangerPolicyRepository.setEvalOrdinals(sorted);
+
+			// lists of each resource-level, as kept in the trie earlier (by eval-order) and now (by eval-ordinal)
+			List<List<RangerPolicyEvaluator>> byEvalOrder   = new ArrayList<>();
+			List<List<RangerPolicyEvaluator>> byEvalOrdinal = new ArrayList<>();
+
+			for (int level = 0; level < 3; level++) {
+				List<RangerPolicyEvaluator> levelEvaluators = new ArrayList<>();
+
+				for (RangerPolicyEvaluator evaluator : sorted) { // the trie is built from the sorted evaluators
+					if (random.nextInt(3) != 0) {
+						levelEvaluators.add(evaluator);
+					}
+				}
+
+				byEvalOrder.add(sortByEvalOrder(levelEvaluators));
+
+				Collections.shuffle(levelEvaluators, random);
+
+				byEvalOrdinal.add(sortByEvalOrdinal(levelEvaluators));
+			}
+
+			// earlier: copy of the first list, followed by ArrayList.retainAll() of the others
+			List<RangerPolicyEvaluator> expected = new ArrayList<>(byEvalOrder.get(0));
+			List<RangerPolicyEvaluator> actual   = byEvalOrdinal.get(0);
+
+			for (int level = 1; level < byEvalOrder.size(); level++) {
+				expected.retainAll(byEvalOrder.get(level));
+
+				actual = RangerPolicyRepository.retainAll(actual, byEvalOrdinal.get(level));
+			}
+
+			Assert.assertEquals("round " + round, expected, actual);
+		}
+	}
+
+	private static RangerPolicyEvaluator evaluator(boolean hasDeny, int evalOrder) {
+		RangerAbstractPolicyEvaluator ret = mock(RangerAbstractPolicyEvaluator.class, CALLS_REAL_METHODS);
+
+		doReturn(hasDeny).when(ret).hasDeny();
+
+		ret.setEvalOrder(evalOrder);
+
+		return ret;
+	}
+
+	private static List<RangerPolicyEvaluator> sortByEvalOrder(List<RangerPolicyEvaluator> evaluators) {
+		List<RangerPolicyEvaluator> ret = new ArrayList<>(evaluators);
+
+		Collections.sort(ret, RangerPolicyEvaluator.EVAL_ORDER_COMPARATOR);
+
+		return ret;
+	}
+
+	private static List<RangerPolicyEvaluator> sortByEvalOrdinal(List<RangerPolicyEvaluator> evaluators) {
+		List<RangerPolicyEvaluator> ret = new ArrayList<>(evaluators);
+
+		Collections.sort(ret, RangerPolicyEvaluator.EVAL_ORDINAL_COMPARATOR);
+
+		return ret;
+	}
+}
@@ -34,8 +34,10 @@ import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.audit.RangerDefaultAuditHandler;
 import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.policyengine.TestPolicyEngine.PolicyEngineTestCase.TestData;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
 import org.apache.ranger.plugin.util.RangerRequestedResources;
 import org.apache.ranger.plugin.util.ServicePolicies;
@@ -50,6 +52,9 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -176,6 +181,20 @@ public class TestPolicyEngine {
 		runTestsFromResourceFiles(hdfsTestResourceFiles);
 	}
 
+	@Test
+	public void testPolicyEngine_hdfs_withDecisionCache() {
+		String[] hdfsTestResourceFiles = { "/policyengine/test_policyengine_hdfs.json" };
+
+		runTestsFromResourceFiles(hdfsTestResourceFiles, true);
+	}
+
+	@Test
+	public void testPolicyEngine_hdfs_withPolicyDeltas() {
+		String[] hdfsTestResourceFiles = { "/policyengine/test_policyengine_hdfs.json" };
+
+		runTestsFromResourceFiles(hdfsTestResourceFiles, false, true);
+	}
+
 	@Test
 	public void testPolicyEngine_hdfs_allaudit() {
 		String[] hdfsTestResourceFiles = { "/policyengine/test_policyengine_hdfs_allaudit.json" };
@@ -211,6 +230,13 @@ public class TestPolicyEngine {
 		runTestsFromResourceFiles(hiveTestResourceFiles);
 	}
 
+	@Test
+	public void testPolicyEngine_hive_withPolicyDeltas() {
+		String[] hiveTestResourceFiles = { "/policyengine/test_policyengine_hive.json" };
+
+		runTestsFromResourceFiles(hiveTestResourceFiles, false, true);
+	}
+
 	@Test
 	public void testPolicyEngine_hbase() {
 		String[] hbaseTestResourceFiles = { "/policyengine/test_policyengine_hbase.json" };
@@ -239,6 +265,13 @@ public class TestPolicyEngine {
 		runTestsFromResourceFiles(conditionsTestResourceFiles);
 	}
 
+	@Test
+	public void testPolicyEngine_conditions_withPolicyDeltas() {
+		String[] conditionsTestResourceFiles = { "/policyengine/test_policyengine_conditions.json" };
+
+		runTestsFromResourceFiles(conditionsTestResourceFiles, false, true);
+	}
+
 	@Test
 	public void testPolicyEngine_hive_mutex_conditions() {
 		String[] conditionsTestResourceFiles = { "/policyengine/test_policyengine_hive_mutex_conditions.json" };
@@ -296,15 +329,23 @@ public class TestPolicyEngine {
 	}
 
 	private void runTestsFromResourceFiles(String[] resourceNames) {
+		runTestsFromResourceFiles(resourceNames, false);
+	}
+
+	private void runTestsFromResourceFiles(String[] resourceNames, boolean cacheAccessDecisions) {
+		runTestsFromResourceFiles(resourceNames, cacheAccessDecisions, false);
+	}
+
+	private void runTestsFromResourceFiles(String[] resourceNames, boolean cacheAccessDecisions, boolean usePolicyDeltas) {
 		for(String resourceName : resourceNames) {
 			InputStream inStream = this.getClass().getResourceAsStream(resourceName);
 			InputStreamReader reader   = new InputStreamReader(inStream);
 
-			runTests(reader, resourceName);
+			runTests(reader, resourceName, cacheAccessDecisions, usePolicyDeltas);
 		}
 	}
 
-	private void runTests(InputStreamReader reader, String testName) {
+	private void runTests(InputStreamReader reader, String testName, boolean cacheAccessDecisions, boolean usePolicyDeltas) {
 		PolicyEngineTestCase testCase = gsonBuilder.fromJson(reader, PolicyEngineTestCase.class);
 
 		assertTrue("invalid input: " + testName, testCase != null && testCase.serviceDef != null && testCase.policies != null && testCase.tests != null);
@@ -333,6 +374,7 @@ public class TestPolicyEngine {
 		RangerPolicyEngineOptions policyEngineOptions = new RangerPolicyEngineOptions();
 
 		policyEngineOptions.disableTagPolicyEvaluation = false;
+		policyEngineOptions.cacheAccessDecisions       = cacheAccessDecisions;
 
 		boolean useForwardedIPAddress = RangerConfiguration.getInstance().getBoolean("ranger.plugin.hive.use.x-forwarded-for.ipaddress", false);
 		String trustedProxyAddressString = RangerConfiguration.getInstance().get("ranger.plugin.hive.trusted.proxy.ipaddresses");
@@ -342,7 +384,7 @@ public class TestPolicyEngine {
 				trustedProxyAddresses[i] = trustedProxyAddresses[i].trim();
 			}
 		}
-		RangerPolicyEngine policyEngine = new RangerPolicyEngineImpl(testName, servicePolicies, policyEngineOptions);
+		RangerPolicyEngine policyEngine = usePolicyDeltas ? createPolicyEngineWithDeltas(testName, servicePolicies, policyEngineOptions) : new RangerPolicyEngineImpl(testName, servicePolicies, policyEngineOptions);
 		policyEngine.setUseForwardedIPAddress(useForwardedIPAddress);
 		policyEngine.setTrustedProxyAddresses(trustedProxyAddresses);
 		long requestCount = 0L;
@@ -433,6 +475,26 @@ public class TestPolicyEngine {
 				assertEquals("isAllowed mismatched! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
 				assertEquals("isAudited mismatched! - " + test.name, expected.getIsAudited(), result.getIsAudited());
 				assertEquals("policyId mismatched! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+
+				if (cacheAccessDecisions) { // repeat the request, to be served from the decision cache
+					result = policyEngine.isAccessAllowed(request, auditHandler);
+
+					assertEquals("cached isAllowed mismatched! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+					assertEquals("cached isAudited mismatched! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+					assertEquals("cached policyId mismatched! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+				}
+
+				RangerAccessResource parentResource = getParentResource(request.getResource(), "column");
+
+				if (parentResource != null) { // evaluate as one of the columns of a table
+					Collection<RangerAccessResult> results = policyEngine.isAccessAllowed(parentResource, Collections.singletonList(request), null);
+
+					result = results.iterator().next();
+
+					assertEquals("isAllowed mismatched for column of parent! - " + test.name, expected.getIsAllowed(), result.getIsAllowed());
+					assertEquals("isAudited mismatched for column of parent! - " + test.name, expected.getIsAudited(), result.getIsAudited());
+					assertEquals("policyId mismatched for column of parent! - " + test.name, expected.getPolicyId(), result.getPolicyId());
+				}
 			}
 
 			if(test.dataMaskResult != null) {
@@ -468,6 +530,118 @@ public class TestPolicyEngine {
 		}
 	}
 
+	// builds a policy-engine for a different set of policies, and updates it with deltas to get to the given policies
+	private RangerPolicyEngine createPolicyEngineWithDeltas(String testName, ServicePolicies servicePolicies, RangerPolicyEngineOptions options) {
+		List<RangerPolicy>      policies     = servicePolicies.getPolicies();
+		List<RangerPolicy>      basePolicies = new ArrayList<RangerPolicy>();
+		List<RangerPolicyDelta> policyDeltas = new ArrayList<RangerPolicyDelta>();
+		List<Long>              unchangedIds = new ArrayList<Long>();
+
+		if (servicePolicies.getServiceDef().getVersion() == null) {
+			servicePolicies.getServiceDef().setVersion(1L);
+		}
+
+		for (int i = 0; i < policies.size(); i++) {
+			RangerPolicy policy = policies.get(i);
+
+			policy.setVersion(1L);
+
+			if (policy.getId() == null || i % 3 == 2) { // unchanged
+				basePolicies.add(policy);
+
+				if (policy.getId() != null) {
+					unchangedIds.add(policy.getId());
+				}
+			} else if (i % 3 == 0) { // created
+				policyDeltas.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, policy.getId(), policy));
+			} else { // updated: base has an older version, without any policy-items
+				RangerPolicy oldPolicy = gsonBuilder.fromJson(gsonBuilder.toJson(policy), RangerPolicy.class);
+
+				oldPolicy.setPolicyItems(null);
+				oldPolicy.setDenyPolicyItems(null);
+				oldPolicy.setAllowExceptions(null);
+				oldPolicy.setDenyExceptions(null);
+				oldPolicy.setDataMaskPolicyItems(null);
+				oldPolicy.setRowFilterPolicyItems(null);
+
+				policy.setVersion(2L);
+
+				basePolicies.add(oldPolicy);
+				policyDeltas.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, policy.getId(), policy));
+			}
+		}
+
+		if (!policies.isEmpty()) { // deleted: base has a policy that denies everything the first policy allows
+			RangerPolicy deletedPolicy = gsonBuilder.fromJson(gsonBuilder.toJson(policies.get(0)), RangerPolicy.class);
+
+			deletedPolicy.setId(Long.MAX_VALUE);
+			deletedPolicy.setName("deleted-policy");
+			deletedPolicy.setDenyPolicyItems(deletedPolicy.getPolicyItems());
+			deletedPolicy.setPolicyItems(null);
+
+			basePolicies.add(deletedPolicy);
+			policyDeltas.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, deletedPolicy.getId(), null));
+		}
+
+		ServicePolicies baseServicePolicies = new ServicePolicies();
+		baseServicePolicies.setServiceName(servicePolicies.getServiceName());
+		baseServicePolicies.setServiceDef(servicePolicies.getServiceDef());
+		baseServicePolicies.setPolicyVersion(1L);
+		baseServicePolicies.setPolicies(basePolicies);
+		baseServicePolicies.setAuditMode(servicePolicies.getAuditMode());
+		baseServicePolicies.setTagPolicies(servicePolicies.getTagPolicies());
+
+		ServicePolicies deltaServicePolicies = new ServicePolicies();
+		deltaServicePolicies.setServiceName(servicePolicies.getServiceName());
+		deltaServicePolicies.setServiceDef(servicePolicies.getServiceDef());
+		deltaServicePolicies.setPolicyVersion(2L);
+		deltaServicePolicies.setAuditMode(servicePolicies.getAuditMode());
+		deltaServicePolicies.setTagPolicies(servicePolicies.getTagPolicies());
+		deltaServicePolicies.setPolicyDeltas(policyDeltas);
+
+		ServicePolicies updatedServicePolicies = ServicePolicies.applyPolicyDeltas(baseServicePolicies, deltaServicePolicies);
+
+		assertEquals("policy count mismatched after applying deltas! - " + testName, policies.size(), updatedServicePolicies.getPolicies().size());
+
+		RangerPolicyEngine basePolicyEngine = new RangerPolicyEngineImpl(testName, baseServicePolicies, options);
+		RangerPolicyEngine ret              = basePolicyEngine.cloneWithDelta(updatedServicePolicies);
+
+		assertNotNull("cloneWithDelta() returned null! - " + testName, ret);
+		assertEquals("policyVersion mismatched after applying deltas! - " + testName, 2L, ret.getPolicyVersion());
+
+		for (Long policyId : unchangedIds) {
+			RangerPolicyEvaluator evaluator = ((RangerPolicyEngineImpl) basePolicyEngine).getPolicyEvaluator(policyId);
+
+			assertNotNull("evaluator not found for policy " + policyId + "! - " + testName, evaluator);
+			assertSame("evaluator not reused for unchanged policy " + policyId + "! - " + testName, evaluator, ((RangerPolicyEngineImpl) ret).getPolicyEvaluator(policyId));
+		}
+
+		basePolicyEngine.cleanup(); // must not affect the context-enrichers handed over to the new policy-engine
+
+		return ret;
+	}
+
+	/*
+	 * Returns the resource without childResourceName, or null if resource doesn't have a value for it
+	 */
+	private static RangerAccessResource getParentResource(RangerAccessResource resource, String childResourceName) {
+		RangerAccessResourceImpl ret = null;
+
+		if (resource != null && resource.getKeys() != null && resource.getKeys().size() > 1 && StringUtils.isNotEmpty(resource.getValue(childResourceName))) {
+			ret = new RangerAccessResourceImpl();
+
+			for (String resourceName : resource.getKeys()) {
+				if (!childResourceName.equals(resourceName)) {
+					ret.setValue(resourceName, resource.getValue(resourceName));
+				}
+			}
+
+			ret.setServiceDef(resource.getServiceDef());
+		}
+
+		return ret;
+	}
+
 	static class PolicyEngineTestCase {
 		public String             serviceName;
 		public RangerServiceDef   serviceDef;
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestPolicyEvaluatorsForTags {
+
+	@Test
+	public void testMergeByPolicyNameRank() {
+		RangerPolicyEvaluator pA = evaluator("policy-a");
+		RangerPolicyEvaluator pB = evaluator("policy-b");
+		RangerPolicyEvaluator pC = evaluator("policy-c");
+		RangerPolicyEvaluator pD = evaluator("policy-d");
+		RangerPolicyEvaluator pE = evaluator("policy-e");
+
+		Map<RangerPolicyEvaluator, Integer> ranks = ranks(pA, pB, pC, pD, pE);
+
+		RangerTagForEval pii     = tag("PII");
+		RangerTagForEval phi     = tag("PHI");
+		RangerTagForEval expired = tag("EXPIRED");
+
+		// unsorted input; pB and pD match more than one tag
+		RangerPolicyRepository.TagTypeEvaluators[] tagEvaluators = new RangerPolicyRepository.TagTypeEvaluators[] {
+			new RangerPolicyRepository.TagTypeEvaluators(Arrays.asList(pD, pB), ranks),
+			new RangerPolicyRepository.TagTypeEvaluators(Arrays.asList(pE, pB, pA, pD), ranks),
+			new RangerPolicyRepository.TagTypeEvaluators(Arrays.asList(pC, pB), ranks)
+		};
+		RangerTagForEval[] tags = new RangerTagForEval[] { pii, phi, expired };
+
+		PolicyEvaluatorsForTags merged = RangerPolicyRepository.mergeByPolicyNameRank(tagEvaluators, tags, tags.length, 8);
+
+		RangerPolicyEvaluator[] expectedEvaluators = { pA,  pB,  pB,  pB,      pC,      pD,  pD,  pE  };
+		RangerTagForEval[]      expectedTags       = { phi, pii, phi, expired, expired, pii, phi, phi };
+
+		Assert.assertEquals(expectedEvaluators.length, merged.size());
+
+		for (int i = 0; i < merged.size(); i++) {
+			Assert.assertSame("evaluator #" + i, expectedEvaluators[i], merged.getEvaluator(i));
+			Assert.assertSame("tag #" + i, expectedTags[i], merged.getTag(i));
+		}
+	}
+
+	@Test
+	public void testMergeSameAsStableSort() {
+		List<RangerPolicyEvaluator> evaluators = new ArrayList<>();
+
+		for (int i = 0; i < 20; i++) {
+			evaluators.add(evaluator(String.format("policy-%02d", i)));
+		}
+
+		Map<RangerPolicyEvaluator, Integer> ranks = ranks(evaluators.toArray(new RangerPolicyEvaluator[evaluators.size()]));
+
+		int                                        tagCount      = 4;
+		RangerPolicyRepository.TagTypeEvaluators[] tagEvaluators = new RangerPolicyRepository.TagTypeEvaluators[tagCount];
+		RangerTagForEval[]                         tags          = new RangerTagForEval[tagCount];
+		List<RangerPolicyEvaluator>                expected      = new ArrayList<>();
+		List<RangerTagForEval>                     expectedTags  = new ArrayList<>();
+		int                                        totalCount    = 0;
+
+		for (int t = 0; t < tagCount; t++) {
+			List<RangerPolicyEvaluator> matched = new ArrayList<>();
+
+			for (int i = 0; i < evaluators.size(); i++) {
+				if (i % (t + 2) == 0) { // overlapping subsets: 0 matches every tag, 6 matches 3 tags, ...
+					matched.add(evaluators.get(i));
+				}
+			}
+
+			Collections.reverse(matched);
+
+			tagEvaluators[t] = new RangerPolicyRepository.TagTypeEvaluators(matched, ranks);
+			tags[t]          = tag("TAG" + t);
+			totalCount      += matched.size();
+		}
+
+		// expected: for each policy in name order, one entry for each of its tags, in the order of tags
+		for (RangerPolicyEvaluator evaluator : evaluators) {
+			for (int t = 0; t < tagCount; t++) {
+				if (Arrays.asList(tagEvaluators[t].evaluators).contains(evaluator)) {
+					expected.add(evaluator);
+					expectedTags.add(tags[t]);
+				}
+			}
+		}
+
+		PolicyEvaluatorsForTags merged = RangerPolicyRepository.mergeByPolicyNameRank(tagEvaluators, tags, tagCount, totalCount);
+
+		Assert.assertEquals(expected.size(), merged.size());
+
+		for (int i = 0; i < merged.size(); i++) {
+			Assert.assertSame("evaluator #" + i, expected.get(i), merged.getEvaluator(i));
+			Assert.assertSame("tag #" + i, expectedTags.get(i), merged.getTag(i));
+		}
+	}
+
+	private static RangerPolicyEvaluator evaluator(String policyName) {
+		RangerPolicy          policy = new RangerPolicy();
+		RangerPolicyEvaluator ret    = mock(RangerPolicyEvaluator.class);
+
+		policy.setName(policyName);
+
+		when(ret.getPolicy()).thenReturn(policy);
+
+		return ret;
+	}
+
+	private static Map<RangerPolicyEvaluator, Integer> ranks(RangerPolicyEvaluator... evaluators) {
+		Map<RangerPolicyEvaluator, Integer> ret = new IdentityHashMap<>();
+
+		for (int i = 0; i < evaluators.length; i++) {
+			ret.put(evaluators[i], i);
+		}
+
+		return ret;
+	}
+
+	private static RangerTagForEval tag(String type) {
+		return new RangerTagForEval(new RangerTag(type, Collections.<String, String>emptyMap()), RangerPolicyResourceMatcher.MatchType.SELF);
+	}
+}
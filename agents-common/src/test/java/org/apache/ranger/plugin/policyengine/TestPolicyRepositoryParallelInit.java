@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.store.EmbeddedServiceDefsUtil;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestPolicyRepositoryParallelInit {
+	private static final int POLICY_COUNT = 500;
+
+	@Test
+	public void testSameEvalOrderAsSequentialInit() throws Exception {
+		RangerServiceDef serviceDef = EmbeddedServiceDefsUtil.instance().getEmbeddedServiceDef("hive");
+
+		RangerPolicyRepository sequential = new RangerPolicyRepository("test", createServicePolicies(serviceDef), createOptions(1));
+		RangerPolicyRepository parallel   = new RangerPolicyRepository("test", createServicePolicies(serviceDef), createOptions(4));
+
+		assertEquals(POLICY_COUNT, parallel.getPolicyEvaluators().size());
+		assertEvaluators(sequential.getPolicyEvaluators(), parallel.getPolicyEvaluators());
+
+		for (int i = 0; i < 20; i++) {
+			RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+			resource.setServiceDef(serviceDef);
+			resource.setValue("database", "db" + i);
+			resource.setValue("table", "tbl" + (i * 7));
+			resource.setValue("column", "col1");
+
+			List<RangerPolicyEvaluator> expected = sequential.getLikelyMatchPolicyEvaluators(resource);
+
+			assertTrue("no evaluators for resource " + resource.getAsString(), expected.size() > 0);
+			assertEvaluators(expected, parallel.getLikelyMatchPolicyEvaluators(resource));
+		}
+	}
+
+	private static void assertEvaluators(List<RangerPolicyEvaluator> expected, List<RangerPolicyEvaluator> actual) {
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals("policy at " + i, expected.get(i).getPolicy().getId(), actual.get(i).getPolicy().getId());
+			assertEquals("eval-ordinal at " + i, expected.get(i).getEvalOrdinal(), actual.get(i).getEvalOrdinal());
+		}
+	}
+
+	private static RangerPolicyEngineOptions createOptions(int initParallelism) {
+		RangerPolicyEngineOptions ret = new RangerPolicyEngineOptions();
+
+		ret.initParallelism = initParallelism;
+
+		return ret;
+	}
+
+	// many policies have the same eval order, hence the order of evaluators depends on the order of policies
+	private static ServicePolicies createServicePolicies(RangerServiceDef serviceDef) {
+		ServicePolicies    ret      = new ServicePolicies();
+		List<RangerPolicy> policies = new ArrayList<>();
+
+		for (int i = 0; i < POLICY_COUNT; i++) {
+			RangerPolicy     policy     = new RangerPolicy();
+			RangerPolicyItem policyItem = new RangerPolicyItem();
+
+			policyItem.setUsers(Collections.singletonList("user" + (i % 10)));
+			policyItem.setAccesses(Collections.singletonList(new RangerPolicyItemAccess("select")));
+
+			policy.setId((long) i);
+			policy.setName("policy-" + i);
+			policy.setService("hivedev");
+			policy.getResources().put("database", new RangerPolicyResource("db" + (i % 20)));
+			policy.getResources().put("table", new RangerPolicyResource((i % 3) == 0 ? "tbl*" : ("tbl" + i)));
+			policy.getResources().put("column", new RangerPolicyResource("*"));
+
+			if ((i % 5) == 0) {
+				policy.setDenyPolicyItems(Collections.singletonList(policyItem));
+			} else {
+				policy.setPolicyItems(Collections.singletonList(policyItem));
+			}
+
+			policies.add(policy);
+		}
+
+		ret.setServiceName("hivedev");
+		ret.setServiceDef(serviceDef);
+		ret.setPolicyVersion(1L);
+		ret.setPolicies(policies);
+
+		return ret;
+	}
+}
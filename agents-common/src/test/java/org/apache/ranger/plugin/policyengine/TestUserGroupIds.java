@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.policyengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestUserGroupIds {
+
+	@Test
+	public void testMatch() {
+		RangerUserGroupIds.UserGroupSet itemUserGroups = new RangerUserGroupIds.UserGroupSet(Arrays.asList("tuid-user1", "tuid-user2"), Arrays.asList("tuid-group1", "tuid-group2"));
+
+		Assert.assertTrue(itemUserGroups.containsUser(request("tuid-user1")));
+		Assert.assertFalse(itemUserGroups.containsUser(request("tuid-user3")));
+		Assert.assertFalse(itemUserGroups.containsUser(request(null)));
+
+		Assert.assertTrue(itemUserGroups.containsAnyGroup(request("tuid-user3", "tuid-other", "tuid-group2")));
+		Assert.assertFalse(itemUserGroups.containsAnyGroup(request("tuid-user3", "tuid-other", "tuid-unknown")));
+		Assert.assertFalse(itemUserGroups.containsAnyGroup(request("tuid-user1")));
+
+		RangerUserGroupIds.UserGroupSet empty = new RangerUserGroupIds.UserGroupSet(null, Collections.<String>emptyList());
+
+		Assert.assertTrue(empty.isEmpty());
+		Assert.assertFalse(empty.containsUser(request("tuid-user1")));
+		Assert.assertFalse(empty.containsAnyGroup(request("tuid-user1", "tuid-group1")));
+	}
+
+	@Test
+	public void testNamesInternedAfterRequest() {
+		// request translated before any policy referred to these names
+		RangerUserGroupIds.RequestUserGroups requestUserGroups = request("tuid-late-user", "tuid-late-group");
+
+		RangerUserGroupIds.UserGroupSet itemUserGroups = new RangerUserGroupIds.UserGroupSet(Arrays.asList("tuid-late-user"), Arrays.asList("tuid-late-group"));
+
+		Assert.assertTrue(itemUserGroups.containsUser(requestUserGroups));
+		Assert.assertTrue(itemUserGroups.containsAnyGroup(requestUserGroups));
+	}
+
+	@Test
+	public void testInternLimit() {
+		Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+		Assert.assertEquals(0, RangerUserGroupIds.intern(ids, "tuid-name1", 2));
+		Assert.assertEquals(1, RangerUserGroupIds.intern(ids, "tuid-name2", 2));
+		Assert.assertEquals(-1, RangerUserGroupIds.intern(ids, "tuid-name3", 2));
+		Assert.assertEquals(0, RangerUserGroupIds.intern(ids, "tuid-name1", 2)); // names interned earlier keep their ids
+		Assert.assertEquals(2, ids.size());
+	}
+
+	@Test
+	public void testManyGroups() {
+		List<String> groups = new ArrayList<>();
+
+		for (int i = 0; i < 100; i++) {
+			groups.add("tuid-many-group" + i);
+		}
+
+		Collections.shuffle(groups, new Random(0));
+
+		RangerUserGroupIds.UserGroupSet itemUserGroups = new RangerUserGroupIds.UserGroupSet(null, groups);
+
+		for (String group : groups) {
+			Assert.assertTrue(group, itemUserGroups.containsAnyGroup(request("tuid-user1", "tuid-other", group)));
+		}
+
+		Assert.assertFalse(itemUserGroups.containsAnyGroup(request("tuid-user1", "tuid-other", "tuid-group1")));
+	}
+
+	@Test
+	public void testRequestTranslatedOnce() {
+		RangerAccessRequestImpl request = new RangerAccessRequestImpl(new RangerAccessResourceImpl(), "read", "tuid-user1", new HashSet<>(Arrays.asList("tuid-group1")));
+
+		RangerUserGroupIds.RequestUserGroups first = RangerUserGroupIds.getRequestUserGroups(request);
+
+		Assert.assertSame(first, RangerUserGroupIds.getRequestUserGroups(request));
+
+		request.getUserGroups().add("tuid-group2");
+
+		Assert.assertNotSame(first, RangerUserGroupIds.getRequestUserGroups(request));
+
+		request.setUser("tuid-user2");
+
+		Assert.assertEquals("tuid-user2", RangerUserGroupIds.getRequestUserGroups(request).getUser());
+	}
+
+	private static RangerUserGroupIds.RequestUserGroups request(String user, String... groups) {
+		Set<String> userGroups = new HashSet<>(Arrays.asList(groups));
+
+		return new RangerUserGroupIds.RequestUserGroups(user, userGroups);
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.resourcematcher;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestWildcardPattern {
+    private static final String[] PATTERNS = {
+            "*", "?", "**", "a*", "*a", "a?c", "a*c", "*a*b*", "/app/*/test?.db", "/app/hive/*", "/app/*/", "/*/*",
+            "/APP/Hive*", "*.db", "?*?", "a**b", "/", "//", "/app//hive*", "/app/hi?e/test.db", ""
+    };
+
+    private static final String[] VALUES = {
+            "", "a", "abc", "ac", "aXbYc", "ab", "ba", "/", "//", "/app", "/app/", "/app/hive", "/app/hive/test.db",
+            "/app/hive/test1.db", "/app/hbase/test.tbl", "app/hive/test.db", "/app//hive/test.db", "/APP/hive/Test.DB",
+            "/app/hive/test.db/", "a/b/c"
+    };
+
+    @Test
+    public void testIsMatch() {
+        for (String pattern : PATTERNS) {
+            for (String value : VALUES) {
+                for (IOCase caseSensitivity : new IOCase[] { IOCase.SENSITIVE, IOCase.INSENSITIVE }) {
+                    boolean ignoreCase = caseSensitivity == IOCase.INSENSITIVE;
+                    boolean expected   = FilenameUtils.wildcardMatch(value, pattern, caseSensitivity);
+
+                    assertEquals("pattern=" + pattern + ", value=" + value + ", ignoreCase=" + ignoreCase, expected, new WildcardPattern(pattern, ignoreCase).isMatch(value));
+                    assertEquals("pattern=" + pattern + ", value=" + value + ", ignoreCase=" + ignoreCase, expected, WildcardPattern.isMatch(value, pattern, ignoreCase));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIsRecursiveMatch() {
+        for (String pattern : PATTERNS) {
+            for (String value : VALUES) {
+                for (IOCase caseSensitivity : new IOCase[] { IOCase.SENSITIVE, IOCase.INSENSITIVE }) {
+                    boolean ignoreCase = caseSensitivity == IOCase.INSENSITIVE;
+                    boolean expected   = isRecursiveWildCardMatch(value, pattern, '/', caseSensitivity);
+
+                    assertEquals("pattern=" + pattern + ", value=" + value + ", ignoreCase=" + ignoreCase, expected, new WildcardPattern(pattern, ignoreCase).isRecursiveMatch(value, '/'));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRandomPatterns() {
+        Random random = new Random(20170622L);
+
+        for (int i = 0; i < 20000; i++) {
+            String          pattern         = randomString(random, "ab/*?A", 6);
+            String          value           = randomString(random, "ab/A", 8);
+            IOCase          caseSensitivity = random.nextBoolean() ? IOCase.SENSITIVE : IOCase.INSENSITIVE;
+            boolean         ignoreCase      = caseSensitivity == IOCase.INSENSITIVE;
+            WildcardPattern wildcard        = new WildcardPattern(pattern, ignoreCase);
+
+            assertEquals("pattern=" + pattern + ", value=" + value + ", ignoreCase=" + ignoreCase, FilenameUtils.wildcardMatch(value, pattern, caseSensitivity), wildcard.isMatch(value));
+            assertEquals("pattern=" + pattern + ", value=" + value + ", ignoreCase=" + ignoreCase, isRecursiveWildCardMatch(value, pattern, '/', caseSensitivity), wildcard.isRecursiveMatch(value, '/'));
+        }
+    }
+
+    @Test
+    public void testLongPattern() {
+        String pattern = StringUtils.repeat("a?", 40) + "*";
+        String value   = StringUtils.repeat("ab", 40) + "/cd";
+
+        assertEquals(true, new WildcardPattern(pattern, false).isMatch(value));
+        assertEquals(true, new WildcardPattern(pattern, false).isRecursiveMatch(value, '/'));
+        assertEquals(false, new WildcardPattern(pattern + "x", false).isRecursiveMatch(value, '/'));
+
+        // per-thread state arrays, grown for the long pattern, must not carry states into a shorter pattern
+        assertEquals(false, new WildcardPattern("a?", false).isRecursiveMatch("/cd", '/'));
+        assertEquals(true, new WildcardPattern("/c?", false).isRecursiveMatch("/cd/ef", '/'));
+    }
+
+    @Test
+    public void testCache() {
+        for (boolean ignoreCase : new boolean[] { false, true }) {
+            WildcardPattern.Cache cache = new WildcardPattern.Cache(ignoreCase);
+
+            for (int round = 0; round < 2; round++) { // second round uses the cached patterns
+                for (String pattern : PATTERNS) {
+                    for (String value : VALUES) {
+                        String msg = "pattern=" + pattern + ", value=" + value + ", ignoreCase=" + ignoreCase;
+
+                        assertEquals(msg, WildcardPattern.isMatch(value, pattern, ignoreCase), cache.isMatch(value, pattern));
+                        assertEquals(msg, WildcardPattern.isRecursiveMatch(value, pattern, '/', ignoreCase), cache.isRecursiveMatch(value, pattern, '/'));
+                    }
+                }
+            }
+
+            assertEquals(true, cache.isMatch(null, null));
+            assertEquals(false, cache.isMatch("a", null));
+            assertEquals(false, cache.isRecursiveMatch("/a", null, '/'));
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int maxLength) {
+        int           length = random.nextInt(maxLength + 1);
+        StringBuilder sb     = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+
+        return sb.toString();
+    }
+
+    // earlier implementation of RangerPathResourceMatcher.isRecursiveWildCardMatch(), used as reference
+    private static boolean isRecursiveWildCardMatch(String pathToCheck, String wildcardPath, char pathSeparatorChar, IOCase caseSensitivity) {
+        boolean ret = false;
+
+        if (!StringUtils.isEmpty(pathToCheck)) {
+            String[] pathElements = StringUtils.split(pathToCheck, pathSeparatorChar);
+
+            if (pathElements.length > 0) {
+                StringBuilder sb = new StringBuilder();
+
+                if (pathToCheck.charAt(0) == pathSeparatorChar) {
+                    sb.append(pathSeparatorChar);
+                }
+
+                for (String p : pathElements) {
+                    sb.append(p);
+
+                    ret = FilenameUtils.wildcardMatch(sb.toString(), wildcardPath, caseSensitivity);
+
+                    if (ret) {
+                        break;
+                    }
+
+                    sb.append(pathSeparatorChar);
+                }
+            } else {
+                ret = FilenameUtils.wildcardMatch(pathToCheck, wildcardPath, caseSensitivity);
+            }
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TestRangerCacheFileReader {
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	@Test
+	public void testReadPlain() throws Exception {
+		File cacheFile = tmpFolder.newFile("hdfs_dev.json");
+
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(cacheFile), "UTF-8")) {
+			createGson().toJson(createServicePolicies(), writer);
+		}
+
+		verify(RangerCacheFileReader.read(cacheFile, ServicePolicies.class));
+	}
+
+	@Test
+	public void testReadGzip() throws Exception {
+		File cacheFile = tmpFolder.newFile("hdfs_dev.json");
+
+		try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(cacheFile)), "UTF-8")) {
+			createGson().toJson(createServicePolicies(), writer);
+		}
+
+		verify(RangerCacheFileReader.read(cacheFile, ServicePolicies.class));
+	}
+
+	private void verify(ServicePolicies servicePolicies) {
+		List<RangerPolicy> policies = servicePolicies.getPolicies();
+
+		assertEquals("hdfs_dev", servicePolicies.getServiceName());
+		assertEquals(Long.valueOf(10), servicePolicies.getPolicyVersion());
+		assertEquals(100, policies.size());
+
+		for (int i = 0; i < policies.size(); i++) {
+			RangerPolicy     policy     = policies.get(i);
+			RangerPolicyItem policyItem = policy.getPolicyItems().get(0);
+
+			assertEquals(Long.valueOf(i), policy.getId());
+			assertEquals("/data/" + i, policy.getResources().get("path").getValues().get(0));
+			assertEquals(Boolean.TRUE, policy.getResources().get("path").getIsRecursive());
+
+			assertEquals("jos\u00e9", policyItem.getUsers().get(0));
+
+			// strings repeated across policies are shared
+			assertSame(policies.get(0).getPolicyItems().get(0).getUsers().get(0), policyItem.getUsers().get(0));
+			assertSame(policies.get(0).getPolicyItems().get(0).getGroups().get(0), policyItem.getGroups().get(0));
+			assertSame(policies.get(0).getPolicyItems().get(0).getAccesses().get(0).getType(), policyItem.getAccesses().get(0).getType());
+		}
+	}
+
+	private static ServicePolicies createServicePolicies() {
+		ServicePolicies    ret      = new ServicePolicies();
+		List<RangerPolicy> policies = new ArrayList<>();
+
+		for (int i = 0; i < 100; i++) {
+			RangerPolicy     policy     = new RangerPolicy();
+			RangerPolicyItem policyItem = new RangerPolicyItem();
+
+			policyItem.setUsers(Collections.singletonList("jos\u00e9")); // non-ASCII: both formats are UTF-8
+			policyItem.setGroups(Collections.singletonList("finance"));
+			policyItem.setAccesses(Collections.singletonList(new RangerPolicyItemAccess("read")));
+
+			policy.setId((long) i);
+			policy.getResources().put("path", new RangerPolicyResource("/data/" + i, false, true));
+			policy.setPolicyItems(Collections.singletonList(policyItem));
+
+			policies.add(policy);
+		}
+
+		ret.setServiceName("hdfs_dev");
+		ret.setPolicyVersion(10L);
+		ret.setPolicyUpdateTime(new Date());
+		ret.setPolicies(policies);
+
+		return ret;
+	}
+
+	private static Gson createGson() {
+		return new GsonBuilder().setDateFormat(RangerCacheFileReader.DATE_FORMAT).create();
+	}
+}
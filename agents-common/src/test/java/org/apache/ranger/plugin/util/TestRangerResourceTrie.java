@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerResourceDef;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceEvaluator;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.resourcematcher.RangerResourceMatcher;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestRangerResourceTrie {
+	private static final String RESOURCE_NAME = "path";
+
+	@Test
+	public void testLookups() {
+		TestEvaluator financeRecursive = new TestEvaluator(1, "/finance", true);
+		TestEvaluator restricted       = new TestEvaluator(2, "/finance/restricted/sales.db", false);
+		TestEvaluator hrWildcard       = new TestEvaluator(3, "/hr/*", false);
+		TestEvaluator publicExact      = new TestEvaluator(4, "/public/data", false);
+
+		RangerResourceTrie<TestEvaluator> trie = createTrie(Arrays.asList(financeRecursive, restricted, hrWildcard, publicExact), false);
+
+		assertEvaluators(trie.getEvaluatorsForResource("/finance"), financeRecursive);
+		assertEvaluators(trie.getEvaluatorsForResource("/finance/restricted/sales.db"), financeRecursive, restricted);
+		assertEvaluators(trie.getEvaluatorsForResource("/finance/restricted"), financeRecursive);
+		assertEvaluators(trie.getEvaluatorsForResource("/finance/restricted/sales.dbx"), financeRecursive);
+		assertEvaluators(trie.getEvaluatorsForResource("/hr/payroll"), hrWildcard);
+		assertEvaluators(trie.getEvaluatorsForResource("/hr/"), hrWildcard);
+		assertEvaluators(trie.getEvaluatorsForResource("/public/data"), publicExact);
+		assertEvaluators(trie.getEvaluatorsForResource("/public/dat"));
+		assertEvaluators(trie.getEvaluatorsForResource("/public/database"));
+		assertEvaluators(trie.getEvaluatorsForResource("/other"));
+
+		assertTrue("expected path-compressed edges", trie.getTrieData().compressedCharCount > 0);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testLookupResultIsReadOnly() {
+		TestEvaluator financeRecursive = new TestEvaluator(1, "/finance", true);
+
+		RangerResourceTrie<TestEvaluator> trie = createTrie(Arrays.asList(financeRecursive), false);
+
+		trie.getEvaluatorsForResource("/finance/public").clear(); // lists are shared by trie nodes, and returned without a copy
+	}
+
+	@Test
+	public void testHasEvaluatorsAtOrBelow() {
+		TestEvaluator financeRecursive = new TestEvaluator(1, "/finance", true);
+		TestEvaluator restricted       = new TestEvaluator(2, "/finance/restricted/sales.db", false);
+		TestEvaluator hrWildcard       = new TestEvaluator(3, "/hr/*", false);
+
+		RangerResourceTrie<TestEvaluator> trie = createTrie(Arrays.asList(financeRecursive, restricted, hrWildcard), false);
+
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/"));
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/finance"));
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/finance/"));
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/finance/restricted/"));
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/finance/restricted/sales.db"));
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/fin")); // within a compressed edge
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/hr/"));
+
+		// only the recursive /finance policy applies below these
+		assertFalse(trie.hasEvaluatorsAtOrBelow("/finance/public/"));
+		assertFalse(trie.hasEvaluatorsAtOrBelow("/finance/restricted/sales.db/"));
+		assertFalse(trie.hasEvaluatorsAtOrBelow("/finance/restricted/other"));
+
+		// no policies
+		assertFalse(trie.hasEvaluatorsAtOrBelow("/hr/payroll/"));
+		assertFalse(trie.hasEvaluatorsAtOrBelow("/other/"));
+		assertFalse(trie.hasEvaluatorsAtOrBelow("/finx"));
+	}
+
+	@Test
+	public void testHasEvaluatorsAtOrBelowWithExcludes() {
+		TestEvaluator financeRecursive = new TestEvaluator(1, "/finance", true);
+		TestEvaluator excludeTmp       = new TestEvaluator(2, "/tmp", true, true);
+
+		RangerResourceTrie<TestEvaluator> trie = createTrie(Arrays.asList(financeRecursive, excludeTmp), false);
+
+		// the exclude policy, inherited from the root, matches some paths and not others
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/finance/public/"));
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/other/"));
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/finx"));
+	}
+
+	@Test
+	public void testHasEvaluatorsAtOrBelowWithWildcards() {
+		TestEvaluator dataSecret  = new TestEvaluator(1, "/data/*/secret", false);
+		TestEvaluator hrWildcard  = new TestEvaluator(2, "/hr/*", false);
+		TestEvaluator homeUser    = new TestEvaluator(3, "/home/{USER}", true);
+		TestEvaluator appsPattern = new TestEvaluator(4, "/apps/app?/", true);
+
+		RangerResourceTrie<TestEvaluator> trie = createTrie(Arrays.asList(dataSecret, hrWildcard, homeUser, appsPattern), false);
+
+		// wildcard before the end: evaluators stored at /data/, /home/ and /apps/app match only some paths below
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/data/x/"));
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/data/x/secret"));
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/home/alice/"));
+		assertTrue(trie.hasEvaluatorsAtOrBelow("/apps/app1/"));
+
+		// trailing '*' matches every path below /hr/
+		assertFalse(trie.hasEvaluatorsAtOrBelow("/hr/payroll/"));
+		assertFalse(trie.hasEvaluatorsAtOrBelow("/other/"));
+	}
+
+	@Test
+	public void testIgnoreCase() {
+		TestEvaluator sales = new TestEvaluator(1, "Sales", false);
+
+		RangerResourceTrie<TestEvaluator> trie = createTrie(Collections.singletonList(sales), true);
+
+		assertEvaluators(trie.getEvaluatorsForResource("sales"), sales);
+		assertEvaluators(trie.getEvaluatorsForResource("SALES"), sales);
+		assertEvaluators(trie.getEvaluatorsForResource("SALE"));
+	}
+
+	private RangerResourceTrie<TestEvaluator> createTrie(List<TestEvaluator> evaluators, boolean ignoreCase) {
+		Map<String, String> matcherOptions = new HashMap<>();
+
+		matcherOptions.put("wildCard", "true");
+		matcherOptions.put("ignoreCase", String.valueOf(ignoreCase));
+
+		RangerResourceDef resourceDef = new RangerResourceDef();
+
+		resourceDef.setName(RESOURCE_NAME);
+		resourceDef.setLevel(1);
+		resourceDef.setMatcherOptions(matcherOptions);
+
+		return new RangerResourceTrie<>(resourceDef, evaluators);
+	}
+
+	private void assertEvaluators(List<TestEvaluator> actual, TestEvaluator... expected) {
+		List<TestEvaluator> actualList = actual == null ? new ArrayList<TestEvaluator>() : new ArrayList<>(actual);
+
+		Collections.sort(actualList, new Comparator<TestEvaluator>() {
+			@Override
+			public int compare(TestEvaluator me, TestEvaluator other) {
+				return Long.compare(me.getId(), other.getId());
+			}
+		});
+
+		assertEquals(Arrays.asList(expected), actualList);
+	}
+
+	static class TestEvaluator implements RangerPolicyResourceEvaluator {
+		private final long                              id;
+		private final Map<String, RangerPolicyResource> policyResource;
+
+		TestEvaluator(long id, String value, boolean isRecursive) {
+			this(id, value, false, isRecursive);
+		}
+
+		TestEvaluator(long id, String value, boolean isExcludes, boolean isRecursive) {
+			this.id             = id;
+			this.policyResource = Collections.singletonMap(RESOURCE_NAME, new RangerPolicyResource(value, isExcludes, isRecursive));
+		}
+
+		@Override
+		public long getId() { return id; }
+
+		@Override
+		public RangerPolicyResourceMatcher getPolicyResourceMatcher() { return null; }
+
+		@Override
+		public Map<String, RangerPolicyResource> getPolicyResource() { return policyResource; }
+
+		@Override
+		public RangerResourceMatcher getResourceMatcher(String resourceName) { return null; }
+
+		@Override
+		public Integer getLeafResourceLevel() { return 1; }
+
+		@Override
+		public String toString() { return "evaluator-" + id; }
+	}
+}
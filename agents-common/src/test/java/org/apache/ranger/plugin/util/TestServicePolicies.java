@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.plugin.util;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TestServicePolicies {
+	@Test
+	public void testDedupStrings() {
+		RangerPolicy policy1 = createPolicy(1L, "/finance", "user1", "finance");
+		RangerPolicy policy2 = createPolicy(2L, "/finance", "user1", "finance");
+
+		ServicePolicies servicePolicies = new ServicePolicies();
+
+		servicePolicies.setPolicies(Arrays.asList(policy1, policy2));
+
+		assertNotSame(getUser(policy1), getUser(policy2));
+
+		servicePolicies.dedupStrings();
+
+		assertEquals("user1", getUser(policy2));
+		assertSame(getUser(policy1), getUser(policy2));
+		assertSame(getGroup(policy1), getGroup(policy2));
+		assertSame(getAccessType(policy1), getAccessType(policy2));
+		assertSame(getResourceValue(policy1), getResourceValue(policy2));
+	}
+
+	private static RangerPolicy createPolicy(Long id, String path, String user, String group) {
+		RangerPolicy     ret        = new RangerPolicy();
+		RangerPolicyItem policyItem = new RangerPolicyItem();
+
+		// new String(): the same strings in different policies are distinct instances after deserialization
+		policyItem.setUsers(new ArrayList<>(Collections.singletonList(new String(user))));
+		policyItem.setGroups(new ArrayList<>(Collections.singletonList(new String(group))));
+		policyItem.setAccesses(new ArrayList<>(Collections.singletonList(new RangerPolicyItemAccess(new String("read")))));
+
+		ret.setId(id);
+		ret.getResources().put("path", new RangerPolicyResource(new String(path)));
+		ret.setPolicyItems(new ArrayList<>(Collections.singletonList(policyItem)));
+
+		return ret;
+	}
+
+	private static String getUser(RangerPolicy policy) {
+		return policy.getPolicyItems().get(0).getUsers().get(0);
+	}
+
+	private static String getGroup(RangerPolicy policy) {
+		return policy.getPolicyItems().get(0).getGroups().get(0);
+	}
+
+	private static String getAccessType(RangerPolicy policy) {
+		return policy.getPolicyItems().get(0).getAccesses().get(0).getType();
+	}
+
+	private static String getResourceValue(RangerPolicy policy) {
+		List<String> values = policy.getResources().get("path").getValues();
+
+		return values.get(0);
+	}
+}
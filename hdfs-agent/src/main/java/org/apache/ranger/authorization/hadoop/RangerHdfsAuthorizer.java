@@ -24,6 +24,7 @@ import static org.apache.ranger.authorization.hadoop.constants.RangerHadoopConst
 import static org.apache.ranger.authorization.hadoop.constants.RangerHadoopConstants.WRITE_ACCCESS_TYPE;
 
 import java.net.InetAddress;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -32,6 +33,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.Stack;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.commons.lang.StringUtils;
@@ -60,6 +62,7 @@ import org.apache.ranger.plugin.resourcematcher.RangerPathResourceMatcher;
 import org.apache.ranger.plugin.service.RangerBasePlugin;
 import org.apache.ranger.plugin.util.RangerPerfTracer;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.Sets;
 
 import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
@@ -230,6 +233,8 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 				INode   inode               = null;
 
 				if(plugin != null && !ArrayUtils.isEmpty(inodes)) {
+					RangerHdfsPathComponents paths = new RangerHdfsPathComponents(inodes, pathByNameArr);
+
 					if(ancestorIndex >= inodes.length) {
 						ancestorIndex = inodes.length - 1;
 					}
@@ -246,20 +251,23 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 
 					if(isTraverseOnlyCheck) {
 						INode           nodeToCheck = inode;
+						int             nodeIndex   = inodes.length - 1;
 						INodeAttributes nodeAttribs = inodeAttrs.length > 0 ? inodeAttrs[inodeAttrs.length - 1] : null;
 
 						if(nodeToCheck == null || nodeToCheck.isFile()) {
 							if(parent != null) {
 								nodeToCheck = parent;
+								nodeIndex   = inodes.length - 2;
 								nodeAttribs = inodeAttrs.length > 1 ? inodeAttrs[inodeAttrs.length - 2] : null;
 							} else if(ancestor != null) {
 								nodeToCheck = ancestor;
+								nodeIndex   = ancestorIndex;
 								nodeAttribs = inodeAttrs.length > ancestorIndex ? inodeAttrs[ancestorIndex] : null;
 							}
 						}
 
 						if(nodeToCheck != null) {
-							authzStatus = isAccessAllowed(nodeToCheck, nodeAttribs, FsAction.EXECUTE, user, groups, plugin, auditHandler);
+							authzStatus = isAccessAllowed(nodeToCheck, paths.getPath(nodeIndex, nodeToCheck), nodeAttribs, FsAction.EXECUTE, user, groups, plugin, auditHandler);
 						}
 					}
 
@@ -275,7 +283,7 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 					if(authzStatus == AuthzStatus.ALLOW && ancestorAccess != null && ancestor != null) {
 						INodeAttributes ancestorAttribs = inodeAttrs.length > ancestorIndex ? inodeAttrs[ancestorIndex] : null;
 
-						authzStatus = isAccessAllowed(ancestor, ancestorAttribs, ancestorAccess, user, groups, plugin, auditHandler);
+						authzStatus = isAccessAllowed(ancestor, paths.getPath(ancestorIndex, ancestor), ancestorAttribs, ancestorAccess, user, groups, plugin, auditHandler);
 						if (authzStatus == AuthzStatus.NOT_DETERMINED) {
 							authzStatus = checkDefaultEnforcer(fsOwner, superGroup, ugi, inodeAttrs, inodes,
 											pathByNameArr, snapshotId, path, ancestorIndex, doCheckOwner,
@@ -288,7 +296,7 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 					if(authzStatus == AuthzStatus.ALLOW && parentAccess != null && parent != null) {
 						INodeAttributes parentAttribs = inodeAttrs.length > 1 ? inodeAttrs[inodeAttrs.length - 2] : null;
 
-						authzStatus = isAccessAllowed(parent, parentAttribs, parentAccess, user, groups, plugin, auditHandler);
+						authzStatus = isAccessAllowed(parent, paths.getPath(inodes.length - 2, parent), parentAttribs, parentAccess, user, groups, plugin, auditHandler);
 						if (authzStatus == AuthzStatus.NOT_DETERMINED) {
 							authzStatus = checkDefaultEnforcer(fsOwner, superGroup, ugi, inodeAttrs, inodes,
 											pathByNameArr, snapshotId, path, ancestorIndex, doCheckOwner,
@@ -301,7 +309,7 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 					if(authzStatus == AuthzStatus.ALLOW && access != null && inode != null) {
 						INodeAttributes inodeAttribs = inodeAttrs.length > 0 ? inodeAttrs[inodeAttrs.length - 1] : null;
 
-						authzStatus = isAccessAllowed(inode, inodeAttribs, access, user, groups, plugin, auditHandler);
+						authzStatus = isAccessAllowed(inode, paths.getPath(inodes.length - 1, inode), inodeAttribs, access, user, groups, plugin, auditHandler);
 						if (authzStatus == AuthzStatus.NOT_DETERMINED) {
 							authzStatus = checkDefaultEnforcer(fsOwner, superGroup, ugi, inodeAttrs, inodes,
 											pathByNameArr, snapshotId, path, ancestorIndex, doCheckOwner,
@@ -312,16 +320,23 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 
 					// checkSubAccess
 					if(authzStatus == AuthzStatus.ALLOW && subAccess != null && inode != null && inode.isDirectory()) {
-						Stack<INodeDirectory> directories = new Stack<INodeDirectory>();
+						Stack<INodeDirectory> directories    = new Stack<INodeDirectory>();
+						Stack<String>         directoryPaths = new Stack<String>(); // paths of directories, built from names to avoid getFullPathName()
+
+						boolean optimizeSubAccessAuthEnabled = RangerHdfsPlugin.isOptimizeSubAccessAuthEnabled();
+
+						directories.push(inode.asDirectory());
+						directoryPaths.push(paths.getPath(inodes.length - 1, inode));
 
-						for(directories.push(inode.asDirectory()); !directories.isEmpty(); ) {
-							INodeDirectory      dir   = directories.pop();
-							ReadOnlyList<INode> cList = dir.getChildrenList(snapshotId);
+						while(!directories.isEmpty()) {
+							INodeDirectory      dir     = directories.pop();
+							String              dirPath = directoryPaths.pop();
+							ReadOnlyList<INode> cList   = dir.getChildrenList(snapshotId);
 
 							if (!(cList.isEmpty() && ignoreEmptyDir)) {
 								INodeAttributes dirAttribs = dir.getSnapshotINode(snapshotId);
 
-								authzStatus = isAccessAllowed(dir, dirAttribs, subAccess, user, groups, plugin, auditHandler);
+								authzStatus = isAccessAllowed(dir, dirPath, dirAttribs, subAccess, user, groups, plugin, auditHandler);
 
 								if(authzStatus != AuthzStatus.ALLOW) {
 									break;
@@ -329,16 +344,30 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 
 								AuthzStatus subDirAuthStatus = AuthzStatus.NOT_DETERMINED;
 
-								boolean optimizeSubAccessAuthEnabled = RangerHdfsPlugin.isOptimizeSubAccessAuthEnabled();
-
 								if (optimizeSubAccessAuthEnabled) {
-									subDirAuthStatus = isAccessAllowedForHierarchy(dir, dirAttribs, subAccess, user, groups, plugin);
+									subDirAuthStatus = isAccessAllowedForHierarchy(dir, dirPath, dirAttribs, subAccess, user, groups, plugin);
 								}
 
+								String childPathPrefix = dirPath.endsWith(org.apache.hadoop.fs.Path.SEPARATOR) ? dirPath : (dirPath + org.apache.hadoop.fs.Path.SEPARATOR);
+
 								if (subDirAuthStatus != AuthzStatus.ALLOW) {
 									for(INode child : cList) {
 										if (child.isDirectory()) {
 											directories.push(child.asDirectory());
+											directoryPaths.push(childPathPrefix + child.getLocalName());
+										}
+									}
+								} else if (plugin.hasPoliciesAtOrBelow(KEY_RESOURCE_PATH, childPathPrefix)) {
+									// the hierarchy check covers policies that apply to the whole subtree; descend only into
+									// sub-directories having policies that apply to part of the subtree, like deny on a sub-directory
+									for(INode child : cList) {
+										if (child.isDirectory()) {
+											String childPath = childPathPrefix + child.getLocalName();
+
+											if (plugin.hasPoliciesAtOrBelow(KEY_RESOURCE_PATH, childPath)) {
+												directories.push(child.asDirectory());
+												directoryPaths.push(childPath);
+											}
 										}
 									}
 								}
@@ -458,9 +487,7 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 							}
 						}
 
-						String pathChecked = nodeChecked != null ? nodeChecked.getFullPathName() : path;
-
-						auditHandler.logHadoopEvent(pathChecked, action, authzStatus == AuthzStatus.ALLOW);
+						auditHandler.logHadoopEvent(nodeChecked, path, action, authzStatus == AuthzStatus.ALLOW);
 					}
 					RangerPerfTracer.log(hadoopAuthPerf);
 				}
@@ -477,9 +504,8 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 			return authzStatus;
 		}
 
-		private AuthzStatus isAccessAllowed(INode inode, INodeAttributes inodeAttribs, FsAction access, String user, Set<String> groups, RangerHdfsPlugin plugin, RangerHdfsAuditHandler auditHandler) {
+		private AuthzStatus isAccessAllowed(INode inode, String path, INodeAttributes inodeAttribs, FsAction access, String user, Set<String> groups, RangerHdfsPlugin plugin, RangerHdfsAuditHandler auditHandler) {
 			AuthzStatus ret       = null;
-			String      path      = inode != null ? inode.getFullPathName() : null;
 			String      pathOwner = inodeAttribs != null ? inodeAttribs.getUserName() : null;
 			String 		clusterName = plugin.getClusterName();
 
@@ -503,8 +529,11 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 				accessTypes = access2ActionListMapper.get(FsAction.NONE);
 			}
 
+			// resource is shared by requests for all accessTypes, so that its cache-key is computed only once
+			RangerHdfsResource resource = new RangerHdfsResource(path, pathOwner);
+
 			for(String accessType : accessTypes) {
-				RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(inode, path, pathOwner, access, accessType, user, groups, clusterName);
+				RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(inode, resource, access, accessType, user, groups, clusterName);
 
 				RangerAccessResult result = plugin.isAccessAllowed(request, auditHandler);
 
@@ -532,9 +561,8 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 			return ret;
 		}
 
-		private AuthzStatus isAccessAllowedForHierarchy(INode inode, INodeAttributes inodeAttribs, FsAction access, String user, Set<String> groups, RangerHdfsPlugin plugin) {
+		private AuthzStatus isAccessAllowedForHierarchy(INode inode, String path, INodeAttributes inodeAttribs, FsAction access, String user, Set<String> groups, RangerHdfsPlugin plugin) {
 			AuthzStatus ret   = null;
-			String  path      = inode != null ? inode.getFullPathName() : null;
 			String  pathOwner = inodeAttribs != null ? inodeAttribs.getUserName() : null;
 			String 		clusterName = plugin.getClusterName();
 
@@ -566,8 +594,10 @@ public class RangerHdfsAuthorizer extends INodeAttributeProvider {
 				}
 				subDirPath = subDirPath + RangerHdfsPlugin.getRandomizedWildcardPathName();
 
+				RangerHdfsResource resource = new RangerHdfsResource(subDirPath, pathOwner);
+
 				for (String accessType : accessTypes) {
-					RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(null, subDirPath, pathOwner, access, accessType, user, groups, clusterName);
+					RangerHdfsAccessRequest request = new RangerHdfsAccessRequest(null, resource, access, accessType, user, groups, clusterName);
 
 					RangerAccessResult result = plugin.isAccessAllowed(request, null);
 
@@ -649,10 +679,129 @@ class RangerHdfsResource extends RangerAccessResourceImpl {
 	}
 }
 
+/*
+ * Paths of the inodes in a checkPermission() call, built from the path components supplied by the namenode instead of
+ * INode.getFullPathName(), which walks up the parent chain and builds a new string on every call. The full path is
+ * built once, in a per-thread buffer, on first use; path of an inode is a prefix of it and is created only when asked.
+ */
+class RangerHdfsPathComponents {
+	private static final byte[] DOT_SNAPSHOT_DIR = ".snapshot".getBytes(Charsets.UTF_8);
+
+	private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(256);
+		}
+	};
+
+	private final INode[]  inodes;
+	private final byte[][] components;
+	private final boolean  isUsable;
+	private String         fullPath = null;
+	private int[]          ends     = null;
+	private String[]       paths    = null;
+
+	RangerHdfsPathComponents(INode[] inodes, byte[][] components) {
+		this.inodes     = inodes;
+		this.components = components;
+		this.isUsable   = isUsable(inodes, components);
+	}
+
+	/*
+	 * returns the path of inodes[index]; falls back to getFullPathName() if the components can't be used for the inode
+	 */
+	String getPath(int index, INode inode) {
+		if (inode == null) {
+			return null;
+		}
+
+		if (!isUsable || index < 0 || index >= inodes.length || inodes[index] != inode) {
+			return inode.getFullPathName();
+		}
+
+		if (fullPath == null) {
+			buildFullPath();
+		}
+
+		String ret = paths[index];
+
+		if (ret == null) {
+			ret = index == 0 ? org.apache.hadoop.fs.Path.SEPARATOR : fullPath.substring(0, ends[index]);
+
+			paths[index] = ret;
+		}
+
+		return ret;
+	}
+
+	private void buildFullPath() {
+		StringBuilder sb = BUFFER.get();
+
+		sb.setLength(0);
+
+		ends  = new int[components.length];
+		paths = new String[components.length];
+
+		for (int i = 1; i < components.length; i++) {
+			byte[]  component = components[i];
+			boolean isAscii   = true;
+
+			sb.append(org.apache.hadoop.fs.Path.SEPARATOR_CHAR);
+
+			for (byte b : component) {
+				if (b < 0) {
+					isAscii = false;
+					break;
+				}
+			}
+
+			if (isAscii) {
+				for (byte b : component) {
+					sb.append((char) b);
+				}
+			} else {
+				sb.append(new String(component, Charsets.UTF_8));
+			}
+
+			ends[i] = sb.length();
+		}
+
+		fullPath = sb.length() == 0 ? org.apache.hadoop.fs.Path.SEPARATOR : sb.toString();
+	}
+
+	/*
+	 * components can be used only when they line up with the inodes, one name per inode starting with the root; this
+	 * isn't the case for paths in snapshots, for which getFullPathName() returns the path in the current tree
+	 */
+	private static boolean isUsable(INode[] inodes, byte[][] components) {
+		if (components == null || components.length == 0 || components.length != inodes.length) {
+			return false;
+		}
+
+		for (int i = 1; i < components.length; i++) {
+			byte[] component = components[i];
+
+			if (component == null || component.length == 0 || Arrays.equals(component, DOT_SNAPSHOT_DIR)) {
+				return false;
+			}
+
+			if (inodes[i] != null && !Arrays.equals(component, inodes[i].getLocalNameBytes())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
+
 class RangerHdfsAccessRequest extends RangerAccessRequestImpl {
 
 	public RangerHdfsAccessRequest(INode inode, String path, String pathOwner, FsAction access, String accessType, String user, Set<String> groups, String clusterName) {
-		super.setResource(new RangerHdfsResource(path, pathOwner));
+		this(inode, new RangerHdfsResource(path, pathOwner), access, accessType, user, groups, clusterName);
+	}
+
+	public RangerHdfsAccessRequest(INode inode, RangerHdfsResource resource, FsAction access, String accessType, String user, Set<String> groups, String clusterName) {
+		super.setResource(resource);
 		super.setAccessType(accessType);
 		super.setUser(user);
 		super.setUserGroups(groups);
@@ -690,11 +839,21 @@ class RangerHdfsAccessRequest extends RangerAccessRequestImpl {
 class RangerHdfsAuditHandler extends RangerDefaultAuditHandler {
 	private static final Log LOG = LogFactory.getLog(RangerHdfsAuditHandler.class);
 
-	private boolean         isAuditEnabled = false;
-	private AuthzAuditEvent auditEvent     = null;
+	private boolean            isAuditEnabled = false;
+	private RangerAccessResult auditResult    = null;
 	private final String pathToBeValidated;
 	private final boolean auditOnlyIfDenied;
 
+	// fields of the audit event, recorded as results come in; the event is created only in flushAudit(), when it is
+	// known to be logged - most checks, like traverse checks that are allowed, don't generate an audit log
+	private Date                eventTime    = null;
+	private String              accessType   = null;
+	private Object              resultReason = null; // RangerAccessResource, INode or String; converted to string only when logged
+	private short               accessResult = 0;
+	private long                policyId     = 0;
+	private String              aclEnforcer  = null;
+	private RangerAccessRequest tagsRequest  = null;
+
 	private static final String    HadoopModuleName = RangerConfiguration.getInstance().get(RangerHadoopConstants.AUDITLOG_HADOOP_MODULE_ACL_NAME_PROP , RangerHadoopConstants.DEFAULT_HADOOP_MODULE_ACL_NAME);
 	private static final String    excludeUserList  = RangerConfiguration.getInstance().get(RangerHadoopConstants.AUDITLOG_HDFS_EXCLUDE_LIST_PROP, RangerHadoopConstants.AUDITLOG_EMPTY_STRING);
 	private static HashSet<String> excludeUsers     = null;
@@ -727,65 +886,67 @@ class RangerHdfsAuditHandler extends RangerDefaultAuditHandler {
 			isAuditEnabled = true;
 		}
 
-		if (auditEvent == null) {
-			auditEvent = super.getAuthzEvents(result);
+		if (auditResult == null && result.getIsAudited() && result.getAccessRequest() != null) {
+			auditResult = result;
 		}
 
-		if (auditEvent != null) {
+		if (auditResult != null) {
 			RangerAccessRequest request = result.getAccessRequest();
-			RangerAccessResource resource = request.getResource();
-			String resourcePath = resource != null ? resource.getAsString() : null;
 
-			// Overwrite fields in original auditEvent
-			auditEvent.setEventTime(request.getAccessTime());
-			auditEvent.setAccessType(request.getAction());
-			auditEvent.setResourcePath(this.pathToBeValidated);
-			auditEvent.setResultReason(resourcePath);
+			// fields to overwrite in the audit event created from auditResult
+			eventTime    = request.getAccessTime();
+			accessType   = request.getAction();
+			resultReason = request.getResource();
+			accessResult = (short) (result.getIsAllowed() ? 1 : 0);
+			policyId     = result.getPolicyId();
 
-			auditEvent.setAccessResult((short) (result.getIsAllowed() ? 1 : 0));
-			auditEvent.setPolicyId(result.getPolicyId());
-
-			Set<String> tags = getTags(request);
-			if (tags != null) {
-				auditEvent.setTags(tags);
+			if (CollectionUtils.isNotEmpty(RangerAccessRequestUtil.getRequestTagsFromContext(request.getContext()))) {
+				tagsRequest = request;
 			}
 		}
 
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerHdfsAuditHandler.logAudit(" + result + "): " + auditEvent);
+			LOG.debug("<== RangerHdfsAuditHandler.logAudit(" + result + "): " + auditResult);
 		}
 	}
 
-	public void logHadoopEvent(String path, FsAction action, boolean accessGranted) {
+	// path of inode is computed only if the event is logged
+	public void logHadoopEvent(INode inode, String path, FsAction action, boolean accessGranted) {
 		if(LOG.isDebugEnabled()) {
 			LOG.debug("==> RangerHdfsAuditHandler.logHadoopEvent(" + path + ", " + action + ", " + accessGranted + ")");
 		}
 
-		if(auditEvent != null) {
-			auditEvent.setResultReason(path);
-			auditEvent.setAccessResult((short) (accessGranted ? 1 : 0));
-			auditEvent.setAccessType(action == null ? null : action.toString());
-			auditEvent.setAclEnforcer(HadoopModuleName);
-			auditEvent.setPolicyId(-1);
+		if(auditResult != null) {
+			resultReason = inode != null ? inode : path;
+			accessResult = (short) (accessGranted ? 1 : 0);
+			accessType   = action == null ? null : action.toString();
+			aclEnforcer  = HadoopModuleName;
+			policyId     = -1;
 		}
 
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("<== RangerHdfsAuditHandler.logHadoopEvent(" + path + ", " + action + ", " + accessGranted + "): " + auditEvent);
+			LOG.debug("<== RangerHdfsAuditHandler.logHadoopEvent(" + path + ", " + action + ", " + accessGranted + "): " + auditResult);
 		}
 	}
 
 	public void flushAudit() {
 		if(LOG.isDebugEnabled()) {
-			LOG.debug("==> RangerHdfsAuditHandler.flushAudit(" + isAuditEnabled + ", " + auditEvent + ")");
+			LOG.debug("==> RangerHdfsAuditHandler.flushAudit(" + isAuditEnabled + ", " + auditResult + ")");
 		}
 
-		if(isAuditEnabled && auditEvent != null && !StringUtils.isEmpty(auditEvent.getAccessType())) {
-			String username = auditEvent.getUser();
+		AuthzAuditEvent auditEvent = null;
+
+		if(isAuditEnabled && auditResult != null && !StringUtils.isEmpty(accessType)) {
+			String username = auditResult.getAccessRequest().getUser();
 
-			boolean skipLog = (username != null && excludeUsers != null && excludeUsers.contains(username)) || (auditOnlyIfDenied && auditEvent.getAccessResult() != 0);
+			boolean skipLog = (username != null && excludeUsers != null && excludeUsers.contains(username)) || (auditOnlyIfDenied && accessResult != 0);
 
 			if (! skipLog) {
-				super.logAuthzAudit(auditEvent);
+				auditEvent = createAuditEvent();
+
+				if (auditEvent != null) {
+					super.logAuthzAudit(auditEvent);
+				}
 			}
 		}
 
@@ -793,5 +954,45 @@ class RangerHdfsAuditHandler extends RangerDefaultAuditHandler {
 			LOG.debug("<== RangerHdfsAuditHandler.flushAudit(" + isAuditEnabled + ", " + auditEvent + ")");
 		}
 	}
-}
 
+	private AuthzAuditEvent createAuditEvent() {
+		AuthzAuditEvent ret = super.getAuthzEvents(auditResult);
+
+		if (ret != null) {
+			ret.setEventTime(eventTime);
+			ret.setAccessType(accessType);
+			ret.setResourcePath(this.pathToBeValidated);
+			ret.setResultReason(getResultReason());
+			ret.setAccessResult(accessResult);
+			ret.setPolicyId(policyId);
+
+			if (aclEnforcer != null) {
+				ret.setAclEnforcer(aclEnforcer);
+			}
+
+			if (tagsRequest != null) {
+				Set<String> tags = getTags(tagsRequest);
+
+				if (tags != null) {
+					ret.setTags(tags);
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private String getResultReason() {
+		final String ret;
+
+		if (resultReason instanceof RangerAccessResource) {
+			ret = ((RangerAccessResource) resultReason).getAsString();
+		} else if (resultReason instanceof INode) {
+			ret = ((INode) resultReason).getFullPathName();
+		} else {
+			ret = (String) resultReason;
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.authorization.hadoop;
+
+import org.apache.hadoop.hdfs.server.namenode.INode;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.base.Charsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TestRangerHdfsPathComponents {
+
+	@Test
+	public void testRoot() {
+		INode root = inode("", "/");
+
+		RangerHdfsPathComponents paths = new RangerHdfsPathComponents(new INode[] { root }, components(""));
+
+		assertEquals("/", paths.getPath(0, root));
+		Mockito.verify(root, Mockito.never()).getFullPathName();
+	}
+
+	@Test
+	public void testPaths() {
+		INode   root   = inode("", "/");
+		INode   a      = inode("a", "/a");
+		INode   b      = inode("b", "/a/b");
+		INode   c      = inode("données", "/a/b/données");
+		INode[] inodes = { root, a, b, c };
+
+		RangerHdfsPathComponents paths = new RangerHdfsPathComponents(inodes, components("", "a", "b", "données"));
+
+		assertEquals("/a/b/données", paths.getPath(3, c));
+		assertEquals("/a/b", paths.getPath(2, b));
+		assertEquals("/a", paths.getPath(1, a));
+		assertEquals("/", paths.getPath(0, root));
+		assertSame("path is created once", paths.getPath(2, b), paths.getPath(2, b));
+
+		for (INode inode : inodes) {
+			Mockito.verify(inode, Mockito.never()).getFullPathName();
+		}
+	}
+
+	@Test
+	public void testTrailingSlash() {
+		INode root = inode("", "/");
+		INode a    = inode("a", "/a");
+		INode b    = inode("b", "/a/b");
+
+		// the namenode drops the trailing slash of "/a/b/": no separator at the end of the path
+		RangerHdfsPathComponents paths = new RangerHdfsPathComponents(new INode[] { root, a, b }, components("", "a", "b"));
+
+		assertEquals("/a/b", paths.getPath(2, b));
+		Mockito.verify(b, Mockito.never()).getFullPathName();
+
+		// an empty component, as it would be for a trailing slash left in the path, is not used
+		paths = new RangerHdfsPathComponents(new INode[] { root, a, b, null }, components("", "a", "b", ""));
+
+		assertEquals("/a/b", paths.getPath(2, b));
+		Mockito.verify(b).getFullPathName();
+	}
+
+	@Test
+	public void testSnapshotPath() {
+		INode root = inode("", "/");
+		INode a    = inode("a", "/a");
+		INode b    = inode("b", "/a/b");
+
+		// in /a/.snapshot/s1/b, the components don't name the inodes of the current tree
+		RangerHdfsPathComponents paths = new RangerHdfsPathComponents(new INode[] { root, a, a, b }, components("", "a", ".snapshot", "b"));
+
+		assertEquals("/a/b", paths.getPath(3, b));
+		assertEquals("/a", paths.getPath(1, a));
+		Mockito.verify(b).getFullPathName();
+		Mockito.verify(a).getFullPathName();
+	}
+
+	@Test
+	public void testFallbackOnMismatch() {
+		INode root  = inode("", "/");
+		INode a     = inode("a", "/a");
+		INode b     = inode("b", "/a/b");
+		INode other = inode("x", "/x");
+
+		// components and inodes differ in length
+		RangerHdfsPathComponents paths = new RangerHdfsPathComponents(new INode[] { root, a, b }, components("", "a"));
+
+		assertEquals("/a/b", paths.getPath(2, b));
+		Mockito.verify(b).getFullPathName();
+
+		// a component doesn't match the name of its inode
+		paths = new RangerHdfsPathComponents(new INode[] { root, a, b }, components("", "a", "c"));
+
+		assertEquals("/a", paths.getPath(1, a));
+		Mockito.verify(a).getFullPathName();
+
+		// components match, but the given inode isn't the one at the index, or the index is out of range
+		paths = new RangerHdfsPathComponents(new INode[] { root, a, b }, components("", "a", "b"));
+
+		assertEquals("/x", paths.getPath(2, other));
+		assertEquals("/x", paths.getPath(3, other));
+		assertEquals("/x", paths.getPath(-1, other));
+		Mockito.verify(other, Mockito.times(3)).getFullPathName();
+		assertNull(paths.getPath(2, null));
+
+		// no components
+		paths = new RangerHdfsPathComponents(new INode[] { root, a, b }, null);
+
+		assertEquals("/a/b", paths.getPath(2, b));
+		Mockito.verify(b, Mockito.times(2)).getFullPathName();
+	}
+
+	private static INode inode(String name, String fullPath) {
+		INode ret = Mockito.mock(INode.class);
+
+		Mockito.when(ret.getLocalNameBytes()).thenReturn(name.getBytes(Charsets.UTF_8));
+		Mockito.when(ret.getFullPathName()).thenReturn(fullPath);
+
+		return ret;
+	}
+
+	private static byte[][] components(String... names) {
+		byte[][] ret = new byte[names.length][];
+
+		for (int i = 0; i < names.length; i++) {
+			ret[i] = names[i].getBytes(Charsets.UTF_8);
+		}
+
+		return ret;
+	}
+}
@@ -50,6 +50,9 @@ import org.junit.Assert;
  * In addition we have a TAG based policy, which grants "read" access to "bob" and the "IT" group to "/tmp/tmpdir6" (which is associated
  * with the tag called "TmpdirTag". A "hdfs_path" entity was created in Apache Atlas + then associated with the "TmpdirTag". This was
  * then imported into Ranger using the TagSyncService. The policies were then downloaded locally and saved for testing off-line.
+ *
+ * Policies for a user called "carol", with a wildcard path and with excludes, check that a recursive delete is denied when a
+ * directory deep in the subtree is denied, even though the sub-access check of the top directory allows.
  */
 public class HDFSRangerTest {
 
@@ -363,6 +366,52 @@ public class HDFSRangerTest {
         HDFSGetContentSummary("/tmp/get-content-summary");
     }
 
+    @org.junit.Test
+    public void HDFSRecursiveDeleteWithWildcardDenyTest() throws Exception {
+        // "carol" has access to /tmp/tmpdir7, but is denied access to "/tmp/tmpdir*/secret", a path with a wildcard
+        // before the end. The sub-access check of "/tmp/tmpdir7/data" allows for the whole hierarchy, as the deny
+        // policy doesn't match a random child path; the deny must still be found on the deeper directory.
+        HDFSRecursiveDeleteFailTest("/tmp/tmpdir7/data", "/tmp/tmpdir7/data/a/secret");
+
+        // renaming into the denied directory is not allowed either
+        final Path file = new Path("/tmp/tmpdir7/data-file");
+
+        FileSystem fileSystem = hdfsCluster.getFileSystem();
+        fileSystem.create(file).close();
+
+        UserGroupInformation ugi = UserGroupInformation.createUserForTesting("carol", new String[] {});
+        ugi.doAs(new PrivilegedExceptionAction<Void>() {
+
+            public Void run() throws Exception {
+                Configuration conf = new Configuration();
+                conf.set("fs.defaultFS", defaultFs);
+
+                FileSystem fs = FileSystem.get(conf);
+
+                try {
+                    fs.rename(file, new Path("/tmp/tmpdir7/data/a/secret/data-file"));
+                    Assert.fail("Failure expected on an incorrect permission");
+                } catch (RemoteException ex) {
+                    // expected
+                    Assert.assertTrue(RangerAccessControlException.class.getName().equals(ex.getClassName()));
+                }
+
+                fs.close();
+                return null;
+            }
+        });
+
+        Assert.assertTrue(fileSystem.exists(file));
+    }
+
+    @org.junit.Test
+    public void HDFSRecursiveDeleteWithExcludesTest() throws Exception {
+        // "carol" has access to all paths except /tmp/tmpdir8/data/a/private, with an excludes policy. The sub-access
+        // check of "/tmp/tmpdir8/data" allows for the whole hierarchy, as a random child path is not excluded; the
+        // excluded directory below must still be checked, and be denied by the HDFS permissions.
+        HDFSRecursiveDeleteFailTest("/tmp/tmpdir8/data", "/tmp/tmpdir8/data/a/private");
+    }
+
     void HDFSReadTest(String fileName) throws Exception {
         FileSystem fileSystem = hdfsCluster.getFileSystem();
 
@@ -565,6 +614,40 @@ public class HDFSRangerTest {
         });
     }
 
+    void HDFSRecursiveDeleteFailTest(String dirName, String deniedSubdirName) throws Exception {
+        // Write files in the denied sub-directory and in a sibling - empty directories are not checked on delete
+        createFile(deniedSubdirName, null);
+        createFile(dirName + "/b", null);
+
+        final Path dir = new Path(dirName);
+
+        // Now try to delete the directory as "carol" - this should not be allowed, due to the sub-directory
+        UserGroupInformation ugi = UserGroupInformation.createUserForTesting("carol", new String[] {});
+        ugi.doAs(new PrivilegedExceptionAction<Void>() {
+
+            public Void run() throws Exception {
+                Configuration conf = new Configuration();
+                conf.set("fs.defaultFS", defaultFs);
+
+                FileSystem fs = FileSystem.get(conf);
+
+                try {
+                    fs.delete(dir, true);
+                    Assert.fail("Failure expected on an incorrect permission");
+                } catch (RemoteException ex) {
+                    // expected
+                    Assert.assertTrue(RangerAccessControlException.class.getName().equals(ex.getClassName()));
+                }
+
+                fs.close();
+                return null;
+            }
+        });
+
+        FileSystem fileSystem = hdfsCluster.getFileSystem();
+        Assert.assertTrue(fileSystem.exists(new Path(deniedSubdirName)));
+    }
+
     void createFile(String baseDir, Integer index) throws Exception {
         FileSystem fileSystem = hdfsCluster.getFileSystem();
 
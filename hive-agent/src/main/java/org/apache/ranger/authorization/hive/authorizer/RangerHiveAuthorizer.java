@@ -370,7 +370,11 @@ public class RangerHiveAuthorizer extends RangerHiveAuthorizerBase {
 						colRequests.add(colRequest);
 					}
 
-					Collection<RangerAccessResult> colResults = hivePlugin.isAccessAllowed(colRequests, auditHandler);
+					// policy lookups for the table are shared by all its columns
+					RangerHiveResource tblResource = new RangerHiveResource(HiveObjectType.TABLE, resource.getDatabase(), resource.getTable());
+					tblResource.setServiceDef(hivePlugin.getServiceDef());
+
+					Collection<RangerAccessResult> colResults = hivePlugin.isAccessAllowed(tblResource, colRequests, auditHandler);
 
 					if(colResults != null) {
 						for(RangerAccessResult colResult : colResults) {
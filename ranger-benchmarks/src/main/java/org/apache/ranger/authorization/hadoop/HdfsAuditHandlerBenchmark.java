@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.authorization.hadoop;
+
+import org.apache.ranger.benchmarks.BenchmarkDataGenerator;
+import org.apache.ranger.benchmarks.RequestIndex;
+import org.apache.ranger.plugin.audit.RangerDefaultAuditHandler;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Audit of allowed HDFS accesses, from the access result to the audit provider. Audit is not initialized, so events are
+ * given to the no-op default provider; this measures the cost in the namenode thread, which is best compared with
+ * '-prof gc' (allocation per operation).
+ *
+ * This is in the package of RangerHdfsAuditHandler, which is not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class HdfsAuditHandlerBenchmark {
+    private List<RangerAccessResult>  results;
+    private RangerDefaultAuditHandler defaultAuditHandler;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkDataGenerator    generator  = new BenchmarkDataGenerator();
+        RangerServiceDef          serviceDef = BenchmarkDataGenerator.loadServiceDef(BenchmarkDataGenerator.HDFS_SERVICE_DEF);
+        List<RangerAccessRequest> requests   = generator.createHdfsRequests(RequestIndex.REQUEST_COUNT, 1000, serviceDef);
+
+        results = new ArrayList<>(requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            RangerAccessResult result = new RangerAccessResult(BenchmarkDataGenerator.HDFS_SERVICE_NAME, serviceDef, requests.get(i));
+
+            result.setIsAllowed(true);
+            result.setIsAudited(true);
+            result.setPolicyId(i);
+
+            results.add(result);
+        }
+
+        defaultAuditHandler = new RangerDefaultAuditHandler();
+    }
+
+    // getFileInfo, listStatus and other calls with traverse-only check: audited only if denied
+    @Benchmark
+    public RangerHdfsAuditHandler traverseCheck(RequestIndex index) {
+        RangerAccessResult     result       = results.get(index.next());
+        RangerHdfsAuditHandler auditHandler = new RangerHdfsAuditHandler(result.getAccessRequest().getResource().getAsString(), true);
+
+        auditHandler.processResult(result);
+        auditHandler.flushAudit();
+
+        return auditHandler;
+    }
+
+    @Benchmark
+    public RangerHdfsAuditHandler accessCheck(RequestIndex index) {
+        RangerAccessResult     result       = results.get(index.next());
+        RangerHdfsAuditHandler auditHandler = new RangerHdfsAuditHandler(result.getAccessRequest().getResource().getAsString(), false);
+
+        auditHandler.processResult(result);
+        auditHandler.flushAudit();
+
+        return auditHandler;
+    }
+
+    // audit handler used by most other plugins
+    @Benchmark
+    public RangerAccessResult defaultAuditHandler(RequestIndex index) {
+        RangerAccessResult result = results.get(index.next());
+
+        defaultAuditHandler.processResult(result);
+
+        return result;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerDataMaskPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemDataMaskInfo;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemRowFilterInfo;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerRowFilterPolicyItem;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.model.RangerServiceResource;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.apache.ranger.plugin.util.ServiceTags;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/*
+ * Generates synthetic policies, tags and access requests for the benchmarks. All data is derived from a fixed seed, so
+ * that runs on different hosts, or with different builds, evaluate exactly the same policies and requests.
+ *
+ * HDFS policies are on paths /data/d<N>/p<M>; a fraction of them, given by wildcardRatio, use a wildcard in the last
+ * path element. Hive policies are on db<N>.t<M>; tables in the first 10 databases also have a data-mask policy on
+ * column c0 and a row-filter policy, both applicable to all users. Wildcards are not used in these, as the hive
+ * service-def disables them for data-mask and row-filter resources.
+ */
+public class BenchmarkDataGenerator {
+    public static final long   DEFAULT_SEED        = 20170622L;
+    public static final String HDFS_SERVICE_NAME   = "cl1_hadoop";
+    public static final String HIVE_SERVICE_NAME   = "cl1_hive";
+    public static final String HDFS_SERVICE_DEF    = "/service-defs/ranger-servicedef-hdfs.json";
+    public static final String HIVE_SERVICE_DEF    = "/service-defs/ranger-servicedef-hive.json";
+    public static final int    USER_COUNT          = 100;
+    public static final int    GROUP_COUNT         = 20;
+    public static final int    DIRECTORY_FAN_OUT   = 100;
+    public static final int    DATABASE_COUNT      = 50;
+    public static final int    MASKED_DB_COUNT     = 10;
+
+    private static final String   GROUP_PUBLIC      = "public";
+    private static final String[] HDFS_ACCESS_TYPES = { "read", "write", "execute" };
+    private static final String[] HIVE_ACCESS_TYPES = { "select", "update", "create", "drop", "alter" };
+    private static final String[] MASK_TYPES        = { "MASK", "MASK_SHOW_LAST_4", "MASK_HASH", "MASK_NULL" };
+
+    private static final Gson GSON = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z").create();
+
+    private final Random random;
+
+    public BenchmarkDataGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    public BenchmarkDataGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static Gson getGson() {
+        return GSON;
+    }
+
+    public static RangerServiceDef loadServiceDef(String resourceName) {
+        InputStream in = BenchmarkDataGenerator.class.getResourceAsStream(resourceName);
+
+        if (in == null) {
+            throw new IllegalArgumentException(resourceName + ": service-def not found in classpath");
+        }
+
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, RangerServiceDef.class);
+        } catch (IOException excp) {
+            throw new IllegalStateException(resourceName + ": failed to read service-def", excp);
+        }
+    }
+
+    public ServicePolicies createHdfsServicePolicies(int policyCount, double wildcardRatio) {
+        List<RangerPolicy> policies = new ArrayList<>(policyCount);
+
+        for (int i = 0; i < policyCount; i++) {
+            boolean isWildcard = random.nextDouble() < wildcardRatio;
+            String  path       = isWildcard ? ("/data/d" + (i % DIRECTORY_FAN_OUT) + "/p" + (i / 10) + "*") : getHdfsPolicyPath(i);
+
+            RangerPolicy policy = createPolicy(i, HDFS_SERVICE_NAME, RangerPolicy.POLICY_TYPE_ACCESS);
+
+            policy.getResources().put("path", new RangerPolicyResource(Collections.singletonList(path), Boolean.FALSE, Boolean.TRUE));
+            policy.getPolicyItems().add(createPolicyItem(HDFS_ACCESS_TYPES));
+
+            if (random.nextInt(10) == 0) {
+                policy.getDenyPolicyItems().add(createPolicyItem(HDFS_ACCESS_TYPES));
+            }
+
+            policies.add(policy);
+        }
+
+        return createServicePolicies(HDFS_SERVICE_NAME, loadServiceDef(HDFS_SERVICE_DEF), policies);
+    }
+
+    public ServicePolicies createHiveServicePolicies(int policyCount, double wildcardRatio) {
+        List<RangerPolicy> policies = new ArrayList<>(policyCount);
+
+        for (int i = 0; i < policyCount; i++) {
+            boolean isWildcard = random.nextDouble() < wildcardRatio;
+            String  table      = isWildcard ? ("t" + (i / 10) + "*") : ("t" + i);
+
+            RangerPolicy policy = createPolicy(i, HIVE_SERVICE_NAME, RangerPolicy.POLICY_TYPE_ACCESS);
+
+            policy.getResources().put("database", new RangerPolicyResource("db" + (i % DATABASE_COUNT)));
+            policy.getResources().put("table", new RangerPolicyResource(table));
+            policy.getResources().put("column", new RangerPolicyResource("*"));
+            policy.getPolicyItems().add(createPolicyItem(HIVE_ACCESS_TYPES));
+
+            policies.add(policy);
+        }
+
+        long policyId = policyCount;
+
+        for (int db = 0; db < MASKED_DB_COUNT; db++) {
+            List<String> tables = new ArrayList<>();
+
+            for (int i = db; i < policyCount; i += DATABASE_COUNT) {
+                tables.add("t" + i);
+            }
+
+            RangerPolicy maskPolicy = createPolicy(policyId++, HIVE_SERVICE_NAME, RangerPolicy.POLICY_TYPE_DATAMASK);
+
+            maskPolicy.getResources().put("database", new RangerPolicyResource("db" + db));
+            maskPolicy.getResources().put("table", new RangerPolicyResource(tables, Boolean.FALSE, Boolean.FALSE));
+            maskPolicy.getResources().put("column", new RangerPolicyResource("c0"));
+            maskPolicy.getDataMaskPolicyItems().add(new RangerDataMaskPolicyItem(createAccesses("select"),
+                                                                                new RangerPolicyItemDataMaskInfo(MASK_TYPES[db % MASK_TYPES.length], null, null),
+                                                                                createUsers(), Collections.singletonList(GROUP_PUBLIC), Collections.<RangerPolicyItemCondition>emptyList(), Boolean.FALSE));
+            policies.add(maskPolicy);
+
+            RangerPolicy rowFilterPolicy = createPolicy(policyId++, HIVE_SERVICE_NAME, RangerPolicy.POLICY_TYPE_ROWFILTER);
+
+            rowFilterPolicy.getResources().put("database", new RangerPolicyResource("db" + db));
+            rowFilterPolicy.getResources().put("table", new RangerPolicyResource(tables, Boolean.FALSE, Boolean.FALSE));
+            rowFilterPolicy.getRowFilterPolicyItems().add(new RangerRowFilterPolicyItem(new RangerPolicyItemRowFilterInfo("dept = 'd" + db + "'"),
+                                                                                       createAccesses("select"), createUsers(), Collections.singletonList(GROUP_PUBLIC),
+                                                                                       Collections.<RangerPolicyItemCondition>emptyList(), Boolean.FALSE));
+            policies.add(rowFilterPolicy);
+        }
+
+        return createServicePolicies(HIVE_SERVICE_NAME, loadServiceDef(HIVE_SERVICE_DEF), policies);
+    }
+
+    // tags are associated with the paths of the first tagCount policies
+    public ServiceTags createHdfsServiceTags(int tagCount) {
+        Map<Long, RangerTag>        tags             = new HashMap<>();
+        List<RangerServiceResource> serviceResources = new ArrayList<>();
+        Map<Long, List<Long>>       resourceToTagIds = new HashMap<>();
+
+        for (int i = 0; i < tagCount; i++) {
+            RangerTag tag = new RangerTag("TAG_" + (i % 10), Collections.singletonMap("level", String.valueOf(i % 3)));
+
+            tag.setId((long) i);
+            tags.put(tag.getId(), tag);
+
+            RangerServiceResource serviceResource = new RangerServiceResource(HDFS_SERVICE_NAME, Collections.singletonMap("path", new RangerPolicyResource(Collections.singletonList(getHdfsPolicyPath(i)), Boolean.FALSE, Boolean.TRUE)));
+
+            serviceResource.setId((long) i);
+            serviceResources.add(serviceResource);
+            resourceToTagIds.put(serviceResource.getId(), Collections.singletonList(tag.getId()));
+        }
+
+        ServiceTags ret = new ServiceTags();
+
+        ret.setServiceName(HDFS_SERVICE_NAME);
+        ret.setTagVersion(1L);
+        ret.setTags(tags);
+        ret.setServiceResources(serviceResources);
+        ret.setResourceToTagIds(resourceToTagIds);
+
+        return ret;
+    }
+
+    // requests on paths under those in policies, so that most requests find a policy
+    public List<RangerAccessRequest> createHdfsRequests(int requestCount, int policyCount, RangerServiceDef serviceDef) {
+        List<RangerAccessRequest> ret = new ArrayList<>(requestCount);
+
+        for (int i = 0; i < requestCount; i++) {
+            RangerAccessResourceImpl resource = new RangerAccessResourceImpl();
+
+            resource.setServiceDef(serviceDef);
+            resource.setValue("path", getHdfsPolicyPath(random.nextInt(policyCount)) + "/f" + random.nextInt(1000));
+
+            ret.add(createRequest(resource, HDFS_ACCESS_TYPES[random.nextInt(HDFS_ACCESS_TYPES.length)]));
+        }
+
+        return ret;
+    }
+
+    // column-level requests, or table-level requests (as used for row-filters) if isColumnLevel is false
+    public List<RangerAccessRequest> createHiveRequests(int requestCount, int policyCount, RangerServiceDef serviceDef, boolean isColumnLevel) {
+        List<RangerAccessRequest> ret = new ArrayList<>(requestCount);
+
+        for (int i = 0; i < requestCount; i++) {
+            int                      policyIdx = random.nextInt(policyCount);
+            RangerAccessResourceImpl resource  = new RangerAccessResourceImpl();
+
+            resource.setServiceDef(serviceDef);
+            resource.setValue("database", "db" + (policyIdx % DATABASE_COUNT));
+            resource.setValue("table", "t" + policyIdx);
+
+            if (isColumnLevel) {
+                resource.setValue("column", "c" + random.nextInt(5));
+            }
+
+            ret.add(createRequest(resource, "select"));
+        }
+
+        return ret;
+    }
+
+    private static String getHdfsPolicyPath(int policyIdx) {
+        return "/data/d" + (policyIdx % DIRECTORY_FAN_OUT) + "/p" + policyIdx;
+    }
+
+    private RangerAccessRequest createRequest(RangerAccessResourceImpl resource, String accessType) {
+        Set<String> userGroups = new HashSet<>();
+
+        userGroups.add("group" + random.nextInt(GROUP_COUNT));
+        userGroups.add(GROUP_PUBLIC);
+
+        return new RangerAccessRequestImpl(resource, accessType, "user" + random.nextInt(USER_COUNT), userGroups);
+    }
+
+    private RangerPolicy createPolicy(long id, String serviceName, int policyType) {
+        RangerPolicy ret = new RangerPolicy();
+
+        ret.setId(id);
+        ret.setName("policy-" + id);
+        ret.setService(serviceName);
+        ret.setPolicyType(policyType);
+        ret.setIsAuditEnabled(Boolean.TRUE);
+        ret.setResources(new HashMap<String, RangerPolicyResource>());
+
+        return ret;
+    }
+
+    private RangerPolicyItem createPolicyItem(String[] accessTypes) {
+        List<RangerPolicyItemAccess> accesses = new ArrayList<>();
+
+        for (String accessType : accessTypes) {
+            if (random.nextBoolean()) {
+                accesses.add(new RangerPolicyItemAccess(accessType));
+            }
+        }
+
+        if (accesses.isEmpty()) {
+            accesses.add(new RangerPolicyItemAccess(accessTypes[0]));
+        }
+
+        return new RangerPolicyItem(accesses, createUsers(), createGroups(), Collections.<RangerPolicyItemCondition>emptyList(), Boolean.FALSE);
+    }
+
+    private List<RangerPolicyItemAccess> createAccesses(String accessType) {
+        return Collections.singletonList(new RangerPolicyItemAccess(accessType));
+    }
+
+    private List<String> createUsers() {
+        List<String> ret = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            ret.add("user" + random.nextInt(USER_COUNT));
+        }
+
+        return ret;
+    }
+
+    private List<String> createGroups() {
+        return Collections.singletonList("group" + random.nextInt(GROUP_COUNT));
+    }
+
+    private static ServicePolicies createServicePolicies(String serviceName, RangerServiceDef serviceDef, List<RangerPolicy> policies) {
+        ServicePolicies ret = new ServicePolicies();
+
+        ret.setServiceName(serviceName);
+        ret.setServiceDef(serviceDef);
+        ret.setPolicyVersion(1L);
+        ret.setPolicies(policies);
+
+        return ret;
+    }
+}
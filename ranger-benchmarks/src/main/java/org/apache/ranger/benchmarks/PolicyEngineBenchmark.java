@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessResult;
+import org.apache.ranger.plugin.policyengine.RangerDataMaskResult;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyengine.RangerRowFilterResult;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Policy evaluation: isAccessAllowed() on an HDFS service, evalDataMaskPolicies() and evalRowFilterPolicies() on a
+ * Hive service. Audit handling is excluded, by passing a null result-processor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class PolicyEngineBenchmark {
+    @Param({ "100", "1000", "10000" })
+    public int policyCount;
+
+    @Param({ "0.0", "0.5" })
+    public double wildcardRatio;
+
+    private RangerPolicyEngine        hdfsPolicyEngine;
+    private RangerPolicyEngine        hivePolicyEngine;
+    private List<RangerAccessRequest> hdfsRequests;
+    private List<RangerAccessRequest> hiveColumnRequests;
+    private List<RangerAccessRequest> hiveTableRequests;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkDataGenerator    generator    = new BenchmarkDataGenerator();
+        RangerPolicyEngineOptions options      = new RangerPolicyEngineOptions();
+        ServicePolicies           hdfsPolicies = generator.createHdfsServicePolicies(policyCount, wildcardRatio);
+        ServicePolicies           hivePolicies = generator.createHiveServicePolicies(policyCount, wildcardRatio);
+
+        hdfsPolicyEngine   = new RangerPolicyEngineImpl("benchmark", hdfsPolicies, options);
+        hivePolicyEngine   = new RangerPolicyEngineImpl("benchmark", hivePolicies, options);
+        hdfsRequests       = generator.createHdfsRequests(RequestIndex.REQUEST_COUNT, policyCount, hdfsPolicies.getServiceDef());
+        hiveColumnRequests = generator.createHiveRequests(RequestIndex.REQUEST_COUNT, policyCount, hivePolicies.getServiceDef(), true);
+        hiveTableRequests  = generator.createHiveRequests(RequestIndex.REQUEST_COUNT, policyCount, hivePolicies.getServiceDef(), false);
+
+        hdfsPolicyEngine.preProcess(hdfsRequests);
+        hivePolicyEngine.preProcess(hiveColumnRequests);
+        hivePolicyEngine.preProcess(hiveTableRequests);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hdfsPolicyEngine.cleanup();
+        hivePolicyEngine.cleanup();
+    }
+
+    @Benchmark
+    public RangerAccessResult isAccessAllowed(RequestIndex index) {
+        return hdfsPolicyEngine.isAccessAllowed(hdfsRequests.get(index.next()), null);
+    }
+
+    @Benchmark
+    public RangerDataMaskResult evalDataMaskPolicies(RequestIndex index) {
+        return hivePolicyEngine.evalDataMaskPolicies(hiveColumnRequests.get(index.next()), null);
+    }
+
+    @Benchmark
+    public RangerRowFilterResult evalRowFilterPolicies(RequestIndex index) {
+        return hivePolicyEngine.evalRowFilterPolicies(hiveTableRequests.get(index.next()), null);
+    }
+}
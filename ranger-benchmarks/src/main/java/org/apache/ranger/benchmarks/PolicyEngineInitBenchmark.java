@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngine;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineImpl;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Policy engine construction, from ServicePolicies JSON as downloaded from Ranger Admin or read from the policy cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class PolicyEngineInitBenchmark {
+    @Param({ "100", "1000", "10000" })
+    public int policyCount;
+
+    @Param({ "0.0", "0.5" })
+    public double wildcardRatio;
+
+    private String                    servicePoliciesJson;
+    private RangerPolicyEngineOptions options;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ServicePolicies servicePolicies = new BenchmarkDataGenerator().createHdfsServicePolicies(policyCount, wildcardRatio);
+
+        servicePoliciesJson = BenchmarkDataGenerator.getGson().toJson(servicePolicies);
+        options             = new RangerPolicyEngineOptions();
+    }
+
+    @Benchmark
+    public RangerPolicyEngine createPolicyEngine() {
+        ServicePolicies    servicePolicies = BenchmarkDataGenerator.getGson().fromJson(servicePoliciesJson, ServicePolicies.class);
+        RangerPolicyEngine ret             = new RangerPolicyEngineImpl("benchmark", servicePolicies, options);
+
+        ret.cleanup();
+
+        return ret;
+    }
+}
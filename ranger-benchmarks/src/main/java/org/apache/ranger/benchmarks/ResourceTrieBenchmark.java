@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerPolicyEngineOptions;
+import org.apache.ranger.plugin.policyevaluator.RangerOptimizedPolicyEvaluator;
+import org.apache.ranger.plugin.policyevaluator.RangerPolicyEvaluator;
+import org.apache.ranger.plugin.util.RangerResourceTrie;
+import org.apache.ranger.plugin.util.ServicePolicies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Lookup of candidate policy evaluators for a resource value in RangerResourceTrie, which precedes policy evaluation
+ * for every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ResourceTrieBenchmark {
+    private static final String RESOURCE_NAME = "path";
+
+    @Param({ "100", "1000", "10000" })
+    public int policyCount;
+
+    @Param({ "0.0", "0.5" })
+    public double wildcardRatio;
+
+    private RangerResourceTrie<RangerPolicyEvaluator> trie;
+    private String[]                                  resourceValues;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkDataGenerator      generator       = new BenchmarkDataGenerator();
+        ServicePolicies             servicePolicies = generator.createHdfsServicePolicies(policyCount, wildcardRatio);
+        RangerServiceDef            serviceDef      = servicePolicies.getServiceDef();
+        RangerPolicyEngineOptions   options         = new RangerPolicyEngineOptions();
+        List<RangerPolicyEvaluator> evaluators      = new ArrayList<>(policyCount);
+
+        for (RangerPolicy policy : servicePolicies.getPolicies()) {
+            RangerPolicyEvaluator evaluator = new RangerOptimizedPolicyEvaluator();
+
+            evaluator.init(policy, serviceDef, options);
+
+            evaluators.add(evaluator);
+        }
+
+        RangerServiceDef.RangerResourceDef resourceDef = null;
+
+        for (RangerServiceDef.RangerResourceDef def : serviceDef.getResources()) {
+            if (RESOURCE_NAME.equals(def.getName())) {
+                resourceDef = def;
+            }
+        }
+
+        trie = new RangerResourceTrie<>(resourceDef, evaluators);
+
+        List<RangerAccessRequest> requests = generator.createHdfsRequests(RequestIndex.REQUEST_COUNT, policyCount, serviceDef);
+
+        resourceValues = new String[requests.size()];
+
+        for (int i = 0; i < resourceValues.length; i++) {
+            resourceValues[i] = requests.get(i).getResource().getValue(RESOURCE_NAME);
+        }
+    }
+
+    @Benchmark
+    public List<RangerPolicyEvaluator> getEvaluatorsForResource(RequestIndex index) {
+        return trie.getEvaluatorsForResource(resourceValues[index.next()]);
+    }
+}
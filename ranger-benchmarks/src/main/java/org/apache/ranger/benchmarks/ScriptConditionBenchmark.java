@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.plugin.conditionevaluator.RangerScriptConditionEvaluator;
+import org.apache.ranger.plugin.contextenricher.RangerTagForEval;
+import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.ranger.plugin.model.RangerServiceDef.RangerPolicyConditionDef;
+import org.apache.ranger.plugin.model.RangerTag;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequestImpl;
+import org.apache.ranger.plugin.policyengine.RangerAccessResourceImpl;
+import org.apache.ranger.plugin.policyresourcematcher.RangerPolicyResourceMatcher;
+import org.apache.ranger.plugin.util.RangerAccessRequestUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Evaluation of a script condition of a tag-policy, for requests on resources tagged with a classification that has
+ * a 'level' attribute. resultCacheSize=0 measures evaluation of the compiled script; other values measure the result
+ * cache, whose key has the user and the attributes of the current tag.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ScriptConditionBenchmark {
+    private static final String   SCRIPT = "ctx.getUser() != 'admin' && (tagAttr['level'] == 'high' || tagAttr['level'] == 'critical')";
+    private static final String[] LEVELS = { "low", "medium", "high", "critical" };
+
+    @Param({ "0", "10000" })
+    public int resultCacheSize;
+
+    @Param({ "100" })
+    public int userCount;
+
+    private RangerScriptConditionEvaluator evaluator;
+    private List<RangerAccessRequest>      requests;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Map<String, String> evalOptions = new HashMap<>();
+
+        evalOptions.put("engineName", "JavaScript");
+        evalOptions.put(RangerScriptConditionEvaluator.EVALUATOR_OPTION_RESULT_CACHE_SIZE, Integer.toString(resultCacheSize));
+
+        RangerPolicyConditionDef conditionDef = new RangerPolicyConditionDef();
+
+        conditionDef.setName("expression");
+        conditionDef.setEvaluator(RangerScriptConditionEvaluator.class.getName());
+        conditionDef.setEvaluatorOptions(evalOptions);
+
+        evaluator = new RangerScriptConditionEvaluator();
+
+        evaluator.setConditionDef(conditionDef);
+        evaluator.setPolicyItemCondition(new RangerPolicyItemCondition("expression", Collections.singletonList(SCRIPT)));
+        evaluator.init();
+
+        Random random = new Random(BenchmarkDataGenerator.DEFAULT_SEED);
+
+        requests = new ArrayList<>(RequestIndex.REQUEST_COUNT);
+
+        for (int i = 0; i < RequestIndex.REQUEST_COUNT; i++) {
+            RangerAccessRequestImpl request = new RangerAccessRequestImpl();
+            RangerTag               tag     = new RangerTag("PII", Collections.singletonMap("level", LEVELS[random.nextInt(LEVELS.length)]));
+
+            request.setResource(new RangerAccessResourceImpl());
+            request.setUser("user" + random.nextInt(userCount));
+            request.setUserGroups(new HashSet<String>());
+
+            RangerAccessRequestUtil.setCurrentTagInContext(request.getContext(), new RangerTagForEval(tag, RangerPolicyResourceMatcher.MatchType.SELF));
+
+            requests.add(request);
+        }
+    }
+
+    @Benchmark
+    public boolean isMatched(RequestIndex index) {
+        return evaluator.isMatched(requests.get(index.next()));
+    }
+}
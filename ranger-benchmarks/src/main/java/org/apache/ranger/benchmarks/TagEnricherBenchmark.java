@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.benchmarks;
+
+import org.apache.ranger.plugin.contextenricher.RangerTagEnricher;
+import org.apache.ranger.plugin.model.RangerServiceDef;
+import org.apache.ranger.plugin.policyengine.RangerAccessRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Lookup of the tags of the resource accessed by a request, done by RangerTagEnricher before tag-policies are evaluated.
+ * Tags are set directly into the enricher, instead of being retrieved by a tag-retriever.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class TagEnricherBenchmark {
+    @Param({ "100", "1000", "10000" })
+    public int tagCount;
+
+    private RangerTagEnricher         tagEnricher;
+    private List<RangerAccessRequest> requests;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkDataGenerator generator  = new BenchmarkDataGenerator();
+        RangerServiceDef       serviceDef = BenchmarkDataGenerator.loadServiceDef(BenchmarkDataGenerator.HDFS_SERVICE_DEF);
+
+        tagEnricher = new RangerTagEnricher();
+
+        tagEnricher.setServiceDef(serviceDef);
+        tagEnricher.setServiceName(BenchmarkDataGenerator.HDFS_SERVICE_NAME);
+        tagEnricher.setAppId("benchmark");
+        tagEnricher.setServiceTags(generator.createHdfsServiceTags(tagCount));
+
+        // requests are on the tagged paths, and on paths of as many untagged policies
+        requests = generator.createHdfsRequests(RequestIndex.REQUEST_COUNT, tagCount * 2, serviceDef);
+    }
+
+    @Benchmark
+    public RangerAccessRequest enrich(RequestIndex index) {
+        RangerAccessRequest request = requests.get(index.next());
+
+        tagEnricher.enrich(request);
+
+        return request;
+    }
+}
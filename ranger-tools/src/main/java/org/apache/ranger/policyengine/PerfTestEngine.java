@@ -19,13 +19,13 @@
 
 package org.apache.ranger.policyengine;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.policyengine.*;
+import org.apache.ranger.plugin.util.RangerCacheFileReader;
 import org.apache.ranger.plugin.util.ServicePolicies;
 
+import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -42,6 +42,7 @@ public class PerfTestEngine {
 	private RangerPolicyEngine policyEvaluationEngine;
 	private final boolean disableDynamicPolicyEvalReordering;
 	private AtomicLong requestCount = new AtomicLong();
+	private long initStartTimeMs;
 
 	public PerfTestEngine(final URL servicePoliciesFileURL, RangerPolicyEngineOptions policyEngineOptions, boolean disableDynamicPolicyEvalReordering) {
 		this.servicePoliciesFileURL = servicePoliciesFileURL;
@@ -57,22 +58,27 @@ public class PerfTestEngine {
 
 		boolean ret = false;
 
-		Gson gsonBuilder = new GsonBuilder().setDateFormat("yyyyMMdd-HH:mm:ss.SSS-Z")
-				.setPrettyPrinting()
-				.create();
-
 		Reader reader = null;
 		ServicePolicies servicePolicies;
 
+		initStartTimeMs = System.currentTimeMillis();
+
 		try {
 			InputStream in = servicePoliciesFileURL.openStream();
 
-			reader = new InputStreamReader(in, Charset.forName("UTF-8"));
+			reader = new InputStreamReader(new BufferedInputStream(in), Charset.forName("UTF-8"));
 
-			servicePolicies = gsonBuilder.fromJson(reader, ServicePolicies.class);
+			// load the same way as plugins load policies from cache file on startup
+			servicePolicies = RangerCacheFileReader.read(reader, ServicePolicies.class);
+
+			long loadTimeMs = System.currentTimeMillis() - initStartTimeMs;
 
 			policyEvaluationEngine = new RangerPolicyEngineImpl("perf-test", servicePolicies, policyEngineOptions);
 
+			long initTimeMs = System.currentTimeMillis() - initStartTimeMs;
+
+			LOG.info("Loaded " + (servicePolicies.getPolicies() == null ? 0 : servicePolicies.getPolicies().size()) + " policies in " + loadTimeMs + " ms; policy-engine initialized in " + (initTimeMs - loadTimeMs) + " ms");
+
 			requestCount.set(0L);
 
 			ret = true;
@@ -117,6 +123,10 @@ public class PerfTestEngine {
 
 			ret = policyEvaluationEngine.isAccessAllowed(request, null);
 
+			if (processedRequestCount == 0) {
+				LOG.info("Time to first decision: " + (System.currentTimeMillis() - initStartTimeMs) + " ms");
+			}
+
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("Executed request = {" + request + "}, result={" + ret + "}");
 			}
@@ -2474,6 +2474,31 @@ public class ServiceDBStore extends AbstractServiceStore {
 		return ret;
 	}
 
+	/*
+	 * When supportsPolicyDeltas is true, returns only changes to policies since lastKnownVersion - if these are available.
+	 */
+	public ServicePolicies getServicePoliciesIfUpdated(String serviceName, Long lastKnownVersion, boolean supportsPolicyDeltas) throws Exception {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + supportsPolicyDeltas + ")");
+		}
+
+		ServicePolicies ret = getServicePoliciesIfUpdated(serviceName, lastKnownVersion);
+
+		if (ret != null && supportsPolicyDeltas && lastKnownVersion != null && lastKnownVersion != -1) {
+			ServicePolicies policyDeltas = RangerServicePoliciesCache.getInstance().getServicePolicyDeltas(serviceName, lastKnownVersion, ret);
+
+			if (policyDeltas != null) {
+				ret = policyDeltas;
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== ServiceDBStore.getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + supportsPolicyDeltas + "): deltaCount=" + ((ret == null || ret.getPolicyDeltas() == null) ? null : ret.getPolicyDeltas().size()));
+		}
+
+		return ret;
+	}
+
 	@Override
 	public Long getServicePolicyVersion(String serviceName) {
 
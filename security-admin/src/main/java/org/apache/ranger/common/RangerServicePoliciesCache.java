@@ -23,16 +23,21 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.ranger.authorization.hadoop.config.RangerConfiguration;
 import org.apache.ranger.plugin.model.RangerPolicy;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.store.ServiceStore;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.ranger.plugin.util.ServicePolicies;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
@@ -41,10 +46,12 @@ public class RangerServicePoliciesCache {
 	private static final Log LOG = LogFactory.getLog(RangerServicePoliciesCache.class);
 
 	private static final int MAX_WAIT_TIME_FOR_UPDATE = 10;
+	private static final int DEFAULT_POLICY_DELTAS_HISTORY_SIZE = 10;
 
 	private static volatile RangerServicePoliciesCache sInstance = null;
 	private final boolean useServicePoliciesCache;
 	private final int waitTimeInSeconds;
+	private final int policyDeltasHistorySize;
 
 	private final Map<String, ServicePoliciesWrapper> servicePoliciesMap = new HashMap<String, ServicePoliciesWrapper>();
 
@@ -62,6 +69,7 @@ public class RangerServicePoliciesCache {
 	private RangerServicePoliciesCache() {
 		useServicePoliciesCache = RangerConfiguration.getInstance().getBoolean("ranger.admin.policy.download.usecache", true);
 		waitTimeInSeconds = RangerConfiguration.getInstance().getInt("ranger.admin.policy.download.cache.max.waittime.for.update", MAX_WAIT_TIME_FOR_UPDATE);
+		policyDeltasHistorySize = RangerConfiguration.getInstance().getInt("ranger.admin.policy.download.cache.deltas.history.size", DEFAULT_POLICY_DELTAS_HISTORY_SIZE);
 	}
 
 	public void dump() {
@@ -164,6 +172,103 @@ public class RangerServicePoliciesCache {
 		return ret;
 	}
 
+	/*
+	 * Returns changes to policies since lastKnownVersion, with the rest of servicePolicies (other than the policies).
+	 * Returns null if servicePolicies is not the version in cache, or if lastKnownVersion is not in the history of
+	 * versions retained by the cache - i.e. the plugin must be sent all policies.
+	 */
+	public ServicePolicies getServicePolicyDeltas(String serviceName, Long lastKnownVersion, ServicePolicies servicePolicies) {
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("==> RangerServicePoliciesCache.getServicePolicyDeltas(" + serviceName + ", " + lastKnownVersion + ")");
+		}
+
+		ServicePolicies ret = null;
+
+		if (useServicePoliciesCache && policyDeltasHistorySize > 0 && lastKnownVersion != null && servicePolicies != null) {
+			ServicePoliciesWrapper servicePoliciesWrapper;
+
+			synchronized (this) {
+				servicePoliciesWrapper = servicePoliciesMap.get(serviceName);
+			}
+
+			if (servicePoliciesWrapper != null) {
+				ret = servicePoliciesWrapper.getServicePolicyDeltas(lastKnownVersion, servicePolicies);
+			}
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("<== RangerServicePoliciesCache.getServicePolicyDeltas(" + serviceName + ", " + lastKnownVersion + "): deltaCount=" + (ret == null ? null : ret.getPolicyDeltas().size()));
+		}
+
+		return ret;
+	}
+
+	/*
+	 * Policy ids and versions of a version of ServicePolicies, along with versions of everything else in ServicePolicies
+	 * that a plugin would need to download completely when changed. Only ids and versions, rather than policies, are
+	 * retained to keep the memory needed for the history of versions small.
+	 */
+	private static class ServicePoliciesVersion {
+		final long[] policyIds;      // sorted
+		final long[] policyVersions; // policyVersions[i] is the version of policy with id policyIds[i]
+		final Long   serviceDefVersion;
+		final Long   tagPolicyVersion;
+		final Long   tagServiceDefVersion;
+		final String auditMode;
+
+		ServicePoliciesVersion(ServicePolicies servicePolicies) {
+			List<RangerPolicy> policies = servicePolicies.getPolicies();
+			Map<Long, Long>    versions = new HashMap<>();
+
+			if (policies != null) {
+				for (RangerPolicy policy : policies) {
+					versions.put(policy.getId(), policy.getVersion());
+				}
+			}
+
+			policyIds      = new long[versions.size()];
+			policyVersions = new long[versions.size()];
+
+			int i = 0;
+
+			for (Long policyId : versions.keySet()) {
+				policyIds[i++] = policyId;
+			}
+
+			Arrays.sort(policyIds);
+
+			for (i = 0; i < policyIds.length; i++) {
+				Long version = versions.get(policyIds[i]);
+
+				policyVersions[i] = version == null ? -1 : version;
+			}
+
+			ServicePolicies.TagPolicies tagPolicies = servicePolicies.getTagPolicies();
+
+			serviceDefVersion    = servicePolicies.getServiceDef() == null ? null : servicePolicies.getServiceDef().getVersion();
+			tagPolicyVersion     = tagPolicies == null ? null : tagPolicies.getPolicyVersion();
+			tagServiceDefVersion = (tagPolicies == null || tagPolicies.getServiceDef() == null) ? null : tagPolicies.getServiceDef().getVersion();
+			auditMode            = servicePolicies.getAuditMode();
+		}
+
+		// deltas are sent only when all other parts of ServicePolicies are unchanged
+		boolean isDeltaCompatible(ServicePoliciesVersion other) {
+			return serviceDefVersion != null
+					&& Objects.equals(serviceDefVersion, other.serviceDefVersion)
+					&& Objects.equals(tagPolicyVersion, other.tagPolicyVersion)
+					&& Objects.equals(tagServiceDefVersion, other.tagServiceDefVersion)
+					&& Objects.equals(auditMode, other.auditMode);
+		}
+
+		long getPolicyVersion(int index) {
+			return policyVersions[index];
+		}
+
+		int indexOf(Long policyId) {
+			return policyId == null ? -1 : Arrays.binarySearch(policyIds, policyId);
+		}
+	}
+
 	private class ServicePoliciesWrapper {
 		final Long serviceId;
 		ServicePolicies servicePolicies;
@@ -172,6 +277,10 @@ public class RangerServicePoliciesCache {
 
 		ReentrantLock lock = new ReentrantLock();
 
+		// recently loaded versions, to compute policy-deltas from; and deltas computed for the current version
+		final LinkedHashMap<Long, ServicePoliciesVersion> versionHistory = new LinkedHashMap<>();
+		final Map<Long, ServicePolicies>                  policyDeltas   = new HashMap<>();
+
 		ServicePoliciesWrapper(Long serviceId) {
 			this.serviceId = serviceId;
 			servicePolicies = null;
@@ -244,6 +353,7 @@ public class RangerServicePoliciesCache {
 					}
 					servicePolicies = servicePoliciesFromDb;
 					pruneUnusedAttributes();
+					addToVersionHistory(servicePolicies);
 				}
 			}
 
@@ -252,6 +362,84 @@ public class RangerServicePoliciesCache {
 			}
 		}
 
+		private void addToVersionHistory(ServicePolicies servicePolicies) {
+			if (policyDeltasHistorySize > 0) {
+				ServicePoliciesVersion version = new ServicePoliciesVersion(servicePolicies);
+
+				synchronized (versionHistory) {
+					versionHistory.remove(servicePolicies.getPolicyVersion());
+					versionHistory.put(servicePolicies.getPolicyVersion(), version);
+
+					while (versionHistory.size() > policyDeltasHistorySize) {
+						versionHistory.remove(versionHistory.keySet().iterator().next());
+					}
+
+					policyDeltas.clear();
+				}
+			}
+		}
+
+		ServicePolicies getServicePolicyDeltas(Long lastKnownVersion, ServicePolicies servicePolicies) {
+			ServicePolicies ret;
+
+			synchronized (versionHistory) {
+				ServicePoliciesVersion fromVersion = versionHistory.get(lastKnownVersion);
+				ServicePoliciesVersion toVersion   = versionHistory.get(servicePolicies.getPolicyVersion());
+
+				if (fromVersion == null || toVersion == null || !fromVersion.isDeltaCompatible(toVersion)) {
+					ret = null;
+				} else {
+					ret = policyDeltas.get(lastKnownVersion);
+
+					// cached deltas could be to a version loaded after servicePolicies
+					if (ret == null || !Objects.equals(ret.getPolicyVersion(), servicePolicies.getPolicyVersion())) {
+						ret = computeServicePolicyDeltas(fromVersion, toVersion, servicePolicies);
+
+						if (Objects.equals(servicePolicies.getPolicyVersion(), this.servicePolicies.getPolicyVersion())) {
+							policyDeltas.put(lastKnownVersion, ret);
+						}
+					}
+				}
+			}
+
+			return ret;
+		}
+
+		private ServicePolicies computeServicePolicyDeltas(ServicePoliciesVersion fromVersion, ServicePoliciesVersion toVersion, ServicePolicies servicePolicies) {
+			List<RangerPolicyDelta> deltas = new ArrayList<>();
+
+			if (servicePolicies.getPolicies() != null) {
+				for (RangerPolicy policy : servicePolicies.getPolicies()) {
+					int idx = fromVersion.indexOf(policy.getId());
+
+					if (idx < 0) {
+						deltas.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_CREATE, policy.getId(), policy));
+					} else if (policy.getVersion() == null || fromVersion.getPolicyVersion(idx) != policy.getVersion()) {
+						deltas.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_UPDATE, policy.getId(), policy));
+					}
+				}
+			}
+
+			for (long policyId : fromVersion.policyIds) {
+				if (toVersion.indexOf(policyId) < 0) {
+					deltas.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, policyId, null));
+				}
+			}
+
+			ServicePolicies ret = new ServicePolicies();
+
+			ret.setServiceName(servicePolicies.getServiceName());
+			ret.setServiceId(servicePolicies.getServiceId());
+			ret.setPolicyVersion(servicePolicies.getPolicyVersion());
+			ret.setPolicyUpdateTime(servicePolicies.getPolicyUpdateTime());
+			ret.setServiceDef(servicePolicies.getServiceDef());
+			ret.setAuditMode(servicePolicies.getAuditMode());
+			ret.setTagPolicies(servicePolicies.getTagPolicies());
+			ret.setPolicyDeltas(deltas);
+
+			return ret;
+		}
+
 		private void pruneUnusedAttributes() {
 			if (servicePolicies != null) {
 				pruneUnusedPolicyAttributes(servicePolicies.getPolicies());
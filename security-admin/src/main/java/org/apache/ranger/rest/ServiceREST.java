@@ -85,6 +85,7 @@ import org.apache.ranger.plugin.model.RangerPolicy;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItem;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyItemAccess;
 import org.apache.ranger.plugin.model.RangerPolicy.RangerPolicyResource;
+import org.apache.ranger.plugin.model.RangerPolicyDelta;
 import org.apache.ranger.plugin.model.RangerService;
 import org.apache.ranger.plugin.model.RangerServiceDef;
 import org.apache.ranger.plugin.model.validation.RangerPolicyValidator;
@@ -2539,6 +2540,7 @@ public class ServiceREST {
 			@DefaultValue("0") @QueryParam("lastActivationTime") Long lastActivationTime,
 			@QueryParam("pluginId") String pluginId,
 			@DefaultValue("") @QueryParam("clusterName") String clusterName,
+			@DefaultValue("false") @QueryParam("supportsPolicyDeltas") Boolean supportsPolicyDeltas,
 			@Context HttpServletRequest request) throws Exception {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceREST.getServicePoliciesIfUpdated("
@@ -2571,7 +2573,7 @@ public class ServiceREST {
 				if(RangerPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
 					perf = RangerPerfTracer.getPerfTracer(PERF_LOG, "ServiceREST.getServicePoliciesIfUpdated(serviceName=" + serviceName + ",lastKnownVersion=" + lastKnownVersion + ",lastActivationTime=" + lastActivationTime + ")");
 				}
-				ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion);
+				ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion, Boolean.TRUE.equals(supportsPolicyDeltas));
 
 				if (servicePolicies == null) {
 					downloadedVersion = lastKnownVersion;
@@ -2581,7 +2583,7 @@ public class ServiceREST {
 					downloadedVersion = servicePolicies.getPolicyVersion();
 					ret = filterServicePolicies(servicePolicies);
 					httpCode = HttpServletResponse.SC_OK;
-					logMsg = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion();
+					logMsg = ret.getPolicyDeltas() != null ? ("Returning " + ret.getPolicyDeltas().size() + " policy-deltas. Policy version=" + ret.getPolicyVersion()) : ("Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion());
 				}
 			} catch (Throwable excp) {
 				LOG.error("getServicePoliciesIfUpdated(" + serviceName + ", " + lastKnownVersion + ", " + lastActivationTime + ") failed");
@@ -2616,6 +2618,7 @@ public class ServiceREST {
 			@DefaultValue("0") @QueryParam("lastActivationTime") Long lastActivationTime,
 			@QueryParam("pluginId") String pluginId,
 			@DefaultValue("") @QueryParam("clusterName") String clusterName,
+			@DefaultValue("false") @QueryParam("supportsPolicyDeltas") Boolean supportsPolicyDeltas,
 			@Context HttpServletRequest request) throws Exception {
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("==> ServiceREST.getSecureServicePoliciesIfUpdated("
@@ -2678,7 +2681,7 @@ public class ServiceREST {
 					}
 				}
 				if (isAllowed) {
-					ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion);
+					ServicePolicies servicePolicies = svcStore.getServicePoliciesIfUpdated(serviceName, lastKnownVersion, Boolean.TRUE.equals(supportsPolicyDeltas));
 					if (servicePolicies == null) {
 						downloadedVersion = lastKnownVersion;
 						httpCode = HttpServletResponse.SC_NOT_MODIFIED;
@@ -2687,7 +2690,7 @@ public class ServiceREST {
 						downloadedVersion = servicePolicies.getPolicyVersion();
 						ret = filterServicePolicies(servicePolicies);
 						httpCode = HttpServletResponse.SC_OK;
-						logMsg = "Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion();
+						logMsg = ret.getPolicyDeltas() != null ? ("Returning " + ret.getPolicyDeltas().size() + " policy-deltas. Policy version=" + ret.getPolicyVersion()) : ("Returning " + (ret.getPolicies() != null ? ret.getPolicies().size() : 0) + " policies. Policy version=" + ret.getPolicyVersion());
 					}
 
 				} else {
@@ -3214,6 +3217,15 @@ public class ServiceREST {
 				}
 			}
 
+			if (CollectionUtils.isNotEmpty(servicePolicies.getPolicyDeltas())) {
+				for (RangerPolicyDelta policyDelta : servicePolicies.getPolicyDeltas()) {
+					if (policyDelta.getPolicy() != null && !policyDelta.getPolicy().getIsEnabled()) {
+						containsDisabledResourcePolicies = true;
+						break;
+					}
+				}
+			}
+
 			if (servicePolicies.getTagPolicies() != null) {
 				policies = servicePolicies.getTagPolicies().getPolicies();
 				if (CollectionUtils.isNotEmpty(policies)) {
@@ -3238,15 +3250,31 @@ public class ServiceREST {
 				ret.setPolicyUpdateTime(servicePolicies.getPolicyUpdateTime());
 				ret.setPolicies(servicePolicies.getPolicies());
 				ret.setTagPolicies(servicePolicies.getTagPolicies());
+				ret.setPolicyDeltas(servicePolicies.getPolicyDeltas());
 
 				if (containsDisabledResourcePolicies) {
-					List<RangerPolicy> filteredPolicies = new ArrayList<RangerPolicy>();
-					for (RangerPolicy policy : servicePolicies.getPolicies()) {
-						if (policy.getIsEnabled()) {
-							filteredPolicies.add(policy);
+					if (servicePolicies.getPolicies() != null) {
+						List<RangerPolicy> filteredPolicies = new ArrayList<RangerPolicy>();
+						for (RangerPolicy policy : servicePolicies.getPolicies()) {
+							if (policy.getIsEnabled()) {
+								filteredPolicies.add(policy);
+							}
+						}
+						ret.setPolicies(filteredPolicies);
+					}
+
+					if (servicePolicies.getPolicyDeltas() != null) {
+						// plugins don't receive disabled policies; hence a policy that is disabled must be removed from the plugin
+						List<RangerPolicyDelta> filteredPolicyDeltas = new ArrayList<RangerPolicyDelta>();
+						for (RangerPolicyDelta policyDelta : servicePolicies.getPolicyDeltas()) {
+							if (policyDelta.getPolicy() != null && !policyDelta.getPolicy().getIsEnabled()) {
+								filteredPolicyDeltas.add(new RangerPolicyDelta(RangerPolicyDelta.CHANGE_TYPE_POLICY_DELETE, policyDelta.getPolicyId(), null));
+							} else {
+								filteredPolicyDeltas.add(policyDelta);
+							}
 						}
+						ret.setPolicyDeltas(filteredPolicyDeltas);
 					}
-					ret.setPolicies(filteredPolicies);
 				}
 
 				if (containsDisabledTagPolicies) {
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ranger.service.filter;
+
+import org.apache.ranger.common.PropertiesUtil;
+
+import com.sun.jersey.api.container.filter.GZIPContentEncodingFilter;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+
+/*
+ * gzip-compresses policies downloaded by plugins, when requested by the plugin with header "Accept-Encoding: gzip".
+ * Responses of other REST APIs are not compressed.
+ */
+public class RangerPolicyDownloadGzipFilter extends GZIPContentEncodingFilter {
+	private static final String POLICY_DOWNLOAD_PATH        = "/plugins/policies/download/";
+	private static final String SECURE_POLICY_DOWNLOAD_PATH = "/plugins/secure/policies/download/";
+
+	private final boolean isEnabled = PropertiesUtil.getBooleanProperty("ranger.admin.policy.download.gzip.enabled", true);
+
+	@Override
+	public ContainerRequest filter(ContainerRequest request) {
+		return request;
+	}
+
+	@Override
+	public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+		if (isEnabled && isPolicyDownload(request)) {
+			response = super.filter(request, response);
+		}
+
+		return response;
+	}
+
+	private boolean isPolicyDownload(ContainerRequest request) {
+		String path = request.getRequestUri().getPath();
+
+		return path != null && (path.contains(POLICY_DOWNLOAD_PATH) || path.contains(SECURE_POLICY_DOWNLOAD_PATH));
+	}
+}